@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+
+/**
+ * Compares the array backed {@link BasicForest} (as used by {@link Sitemap}) with the JUNG backed {@link JungForest}
+ * it replaced, for a sitemap shaped forest of 10 top level pages, each with 10 children, each with 10 children (1111
+ * nodes in all), on time and on allocation.
+ * <p>
+ * Run with 'gradle jmh'. The default arguments add '-prof gc', which reports the bytes allocated by each call of a
+ * benchmark as 'gc.alloc.rate.norm'. Other JMH arguments can be given with, for example,
+ * 'gradle jmh -PjmhArgs=".*ForestBenchmark.getNode.* -prof gc"'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ForestBenchmark {
+
+	private static final int FAN_OUT = 10;
+
+	private Sitemap sitemap;
+	private JungForest<SitemapNode> jungForest;
+	private SitemapNode root;
+	private SitemapNode deepest;
+	private List<SitemapNode> nodes;
+	private List<SitemapNode> parents;
+
+	@Setup
+	public void setup() {
+		nodes = createNodes();
+		sitemap = buildSitemap();
+		jungForest = buildJungForest();
+		root = nodes.get(0);
+		deepest = nodes.get(nodes.size() - 1);
+	}
+
+	/**
+	 * Creates the nodes in pre-order, with ids already assigned, so that both forests hold identical nodes. The parent
+	 * of each node is held in {@link #parents}
+	 */
+	private List<SitemapNode> createNodes() {
+		List<SitemapNode> list = new ArrayList<>();
+		parents = new ArrayList<>();
+		SitemapNode top = newNode(list, null, "");
+		for (int i = 0; i < FAN_OUT; i++) {
+			SitemapNode level1 = newNode(list, top, "a" + i);
+			for (int j = 0; j < FAN_OUT; j++) {
+				SitemapNode level2 = newNode(list, level1, "b" + j);
+				for (int k = 0; k < FAN_OUT; k++) {
+					newNode(list, level2, "c" + k);
+				}
+			}
+		}
+		return list;
+	}
+
+	private SitemapNode newNode(List<SitemapNode> list, SitemapNode parent, String segment) {
+		SitemapNode node = new SitemapNode();
+		node.setUriSegment(segment);
+		list.add(node);
+		parents.add(parent);
+		node.setId(list.size());
+		return node;
+	}
+
+	private Sitemap buildSitemap() {
+		Sitemap map = new Sitemap();
+		map.addNode(nodes.get(0));
+		for (int i = 1; i < nodes.size(); i++) {
+			map.addChild(parents.get(i), nodes.get(i));
+		}
+		return map;
+	}
+
+	private JungForest<SitemapNode> buildJungForest() {
+		JungForest<SitemapNode> forest = new JungForest<>();
+		forest.addNode(nodes.get(0));
+		for (int i = 1; i < nodes.size(); i++) {
+			forest.addChild(parents.get(i), nodes.get(i));
+		}
+		return forest;
+	}
+
+	@Benchmark
+	public Object build_basic() {
+		return buildSitemap();
+	}
+
+	@Benchmark
+	public Object build_jung() {
+		return buildJungForest();
+	}
+
+	@Benchmark
+	public Object getNode_basic() {
+		return sitemap.getNode(deepest);
+	}
+
+	@Benchmark
+	public Object getNode_jung() {
+		return jungForest.getNode(deepest);
+	}
+
+	@Benchmark
+	public Object getRoot_basic() {
+		return sitemap.getRoot();
+	}
+
+	@Benchmark
+	public Object getRoot_jung() {
+		return jungForest.getRoot();
+	}
+
+	@Benchmark
+	public Object getRootFor_basic() {
+		return sitemap.getRootFor(deepest);
+	}
+
+	@Benchmark
+	public Object getRootFor_jung() {
+		return jungForest.getRootFor(deepest);
+	}
+
+	@Benchmark
+	public void getChildren_basic(Blackhole bh) {
+		for (SitemapNode child : sitemap.getChildren(root)) {
+			bh.consume(sitemap.getChildren(child));
+		}
+	}
+
+	@Benchmark
+	public void getChildren_jung(Blackhole bh) {
+		for (SitemapNode child : jungForest.getChildren(root)) {
+			bh.consume(jungForest.getChildren(child));
+		}
+	}
+
+	@Benchmark
+	public Object getSubtreeNodes_basic() {
+		return sitemap.getSubtreeNodes(root);
+	}
+
+	@Benchmark
+	public Object getSubtreeNodes_jung() {
+		return jungForest.getSubtreeNodes(root);
+	}
+
+}
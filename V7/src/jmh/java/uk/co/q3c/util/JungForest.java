@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import edu.uci.ics.jung.graph.DelegateForest;
+import edu.uci.ics.jung.graph.Forest;
+import edu.uci.ics.jung.graph.Tree;
+
+/**
+ * The JUNG backed implementation which {@link BasicForest} used to have, kept only as a reference for
+ * {@link ForestBenchmark}. Only the methods which are benchmarked are included, and they are implemented exactly as
+ * they were.
+ * 
+ * @param <V>
+ */
+public class JungForest<V> {
+
+	private final Forest<V, Integer> graph = new DelegateForest<V, Integer>();
+	private int edgeCount = 0;
+
+	public void addNode(V node) {
+		graph.addVertex(node);
+	}
+
+	public void addChild(V parentNode, V childNode) {
+		if (parentNode == null) {
+			addNode(childNode);
+		} else {
+			edgeCount++;
+			graph.addEdge(edgeCount, parentNode, childNode);
+		}
+	}
+
+	public V getParent(V childNode) {
+		return graph.getParent(childNode);
+	}
+
+	public V getNode(V node) {
+		Collection<V> x = graph.getVertices();
+		List<V> list = new ArrayList<V>(x);
+		int n = list.indexOf(node);
+		if (n < 0) {
+			return null;
+		}
+		return list.get(n);
+	}
+
+	public List<V> getChildren(V parentNode) {
+		return new ArrayList<V>(graph.getChildren(parentNode));
+	}
+
+	public List<V> getSubtreeNodes(V parentNode) {
+		Collection<V> children = graph.getChildren(parentNode);
+		List<V> list = new ArrayList<V>();
+		list.add(parentNode);
+		if (children != null) {
+			for (V v : children) {
+				list.addAll(getSubtreeNodes(v));
+			}
+		}
+		return list;
+	}
+
+	public List<V> getRoots() {
+		Collection<Tree<V, Integer>> t = graph.getTrees();
+		List<V> branchRoots = new ArrayList<V>();
+		for (Tree<V, Integer> branch : t) {
+			branchRoots.add(branch.getRoot());
+		}
+		return branchRoots;
+	}
+
+	public V getRoot() {
+		if (getRoots().isEmpty()) {
+			return null;
+		} else {
+			return getRoots().get(0);
+		}
+	}
+
+	public V getRootFor(V node) {
+		V nut = node;
+		while (true) {
+			V parent = graph.getParent(nut);
+			if (parent == null) {
+				break;
+			} else {
+				nut = parent;
+			}
+		}
+		return nut;
+	}
+
+}
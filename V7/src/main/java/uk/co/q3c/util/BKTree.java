@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A Burkhard-Keller tree of strings, which finds the strings within a given edit (Levenshtein) distance of a query
+ * without comparing the query with every string. Each child is held under its distance from its parent, so by the
+ * triangle inequality a search need only descend into the children whose distance is within the tolerance of the
+ * query's distance from the parent.
+ * <p>
+ * To keep the cost of each comparison down, the distance is only calculated as far as it is needed to decide which
+ * children to visit - a node whose distance from the query exceeds the tolerance plus the greatest distance to any of
+ * its children is skipped, with its subtree, as soon as that is known.
+ * <p>
+ * Not thread safe while strings are being added. Once built, it can be searched by any number of threads.
+ */
+public class BKTree {
+
+	/**
+	 * A string found by {@link BKTree#search(String, int)}, and its distance from the query
+	 */
+	public static class Match {
+		private final String term;
+		private final int distance;
+
+		public Match(String term, int distance) {
+			super();
+			this.term = term;
+			this.distance = distance;
+		}
+
+		public String getTerm() {
+			return term;
+		}
+
+		public int getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return term + " (" + distance + ")";
+		}
+	}
+
+	private static class Node {
+		private final String term;
+		private Map<Integer, Node> children;
+		private int maxChildDistance;
+
+		Node(String term) {
+			this.term = term;
+		}
+	}
+
+	private static final Comparator<Match> closestFirst = new Comparator<Match>() {
+		@Override
+		public int compare(Match o1, Match o2) {
+			int result = o1.distance - o2.distance;
+			return (result != 0) ? result : o1.term.compareTo(o2.term);
+		}
+	};
+
+	private Node root;
+	private int size;
+
+	/**
+	 * Adds {@code term} to the tree. Returns false if it was already there
+	 * 
+	 * @param term
+	 * @return
+	 */
+	public boolean add(String term) {
+		if (root == null) {
+			root = new Node(term);
+			size++;
+			return true;
+		}
+		Node node = root;
+		while (true) {
+			int distance = StringUtils.getLevenshteinDistance(term, node.term);
+			if (distance == 0) {
+				return false;
+			}
+			if (node.children == null) {
+				node.children = new HashMap<>(4);
+			}
+			Node child = node.children.get(distance);
+			if (child == null) {
+				node.children.put(distance, new Node(term));
+				node.maxChildDistance = Math.max(node.maxChildDistance, distance);
+				size++;
+				return true;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Returns the strings within {@code tolerance} edits of {@code query}, closest first, and in alphabetical order
+	 * where the distance is the same
+	 * 
+	 * @param query
+	 * @param tolerance
+	 * @return
+	 */
+	public List<Match> search(String query, int tolerance) {
+		List<Match> matches = new ArrayList<>();
+		if (root != null) {
+			search(root, query, tolerance, matches);
+		}
+		Collections.sort(matches, closestFirst);
+		return matches;
+	}
+
+	private void search(Node node, String query, int tolerance, List<Match> matches) {
+		// any distance beyond this can neither match, nor reach a child which does
+		int limit = tolerance + node.maxChildDistance;
+		int distance = StringUtils.getLevenshteinDistance(query, node.term, limit);
+		if (distance < 0) {
+			return;
+		}
+		if (distance <= tolerance) {
+			matches.add(new Match(node.term, distance));
+		}
+		if (node.children == null) {
+			return;
+		}
+		int from = Math.max(1, distance - tolerance);
+		int to = Math.min(node.maxChildDistance, distance + tolerance);
+		for (int d = from; d <= to; d++) {
+			Node child = node.children.get(d);
+			if (child != null) {
+				search(child, query, tolerance, matches);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
@@ -1,68 +1,133 @@
 package uk.co.q3c.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.lang3.StringUtils;
 
-import edu.uci.ics.jung.graph.DelegateForest;
-import edu.uci.ics.jung.graph.Forest;
-import edu.uci.ics.jung.graph.Tree;
+import uk.co.q3c.util.ForestVisitor.Result;
 
 /**
- * A very simple semantic wrapper for the <a href=http://jung.sourceforge.net/site/index.html> Jung</a> library, to use
- * the more familiar language of trees. Underneath is it a proper implementation of a graph - there are many methods not
- * exposed through this wrapper, but you can access those via {@link #getGraph()}
+ * A simple forest (a collection of trees), using the familiar language of trees - nodes, parents, children and roots.
  * <p>
- * The E (edge) parameter for the underlying graph is a simple Integer
+ * Each node is held in a slot, and the structure is held in primitive arrays indexed by slot - the parent, first
+ * child, last child and next sibling of each node, with -1 meaning 'none'. There are no edge objects, so the structure
+ * costs a few ints per node, and navigating it (getting a parent, children, roots or a subtree) just follows array
+ * links. Children, and roots, are returned in the order they were added.
+ * <p>
+ * The methods which return lists ({@link #getChildren(Object)}, {@link #getSubtreeNodes(Object)} and so on) build a new
+ * list for each call. To walk a large forest cheaply, use the lazy traversals instead - {@link #preOrder(Object)},
+ * {@link #breadthFirst(Object)}, {@link #leaves(Object)}, {@link #ancestors(Object)} or
+ * {@link #walk(Object, ForestVisitor)}. These follow the array links as they go, so they allocate the same small amount
+ * however big the forest is (apart from the int queue kept by {@link #breadthFirst(Object)}), and cost nothing for the
+ * part of the forest which is not reached if the walk is ended early. The forest must not be changed while one of these walks is in progress.
+ * <p>
+ * By default the slot for a node is found from a hash map, so V must implement equals and hashCode. A sub-class which
+ * has a dense integer key for its nodes can avoid the map altogether by overriding {@link #indexOf(Object)} and
+ * {@link #newIndex(Object)} - see {@link uk.co.q3c.v7.base.navigate.sitemap.Sitemap} for an example.
+ * <p>
+ * A node can have only one parent
  * 
  * @param <V>
  *            the type of object to be contained (the 'node'). Must implement equals
  */
 public class BasicForest<V> {
 
-	private Forest<V, Integer> graph;
-	private int edgeCount = 0;
+	protected static final int NONE = -1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Object[] nodes;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] lastChildren;
+	private int[] nextSiblings;
+	private int[] childCounts;
+	private int firstRoot;
+	private int lastRoot;
+	private int nodeCount;
+	// one more than the highest slot in use
+	private int slotLimit;
+	private Map<V, Integer> indexes;
+	private int nextIndex;
 
 	public BasicForest() {
-		graph = new DelegateForest<V, Integer>();
+		reset();
 	}
 
 	public void addNode(V node) {
-		graph.addVertex(node);
+		insert(node);
 	}
 
 	public boolean containsNode(V node) {
-		return graph.containsVertex(node);
+		return indexOf(node) != NONE;
 	}
 
 	/**
 	 * Adds a {@code childNode} to {@code parentNode}. Note that if {@code parentNode} is not already in the tree, it
-	 * will be added - which may mean that you no longer have a single root
+	 * will be added - which may mean that you no longer have a single root. If {@code childNode} is already a root, it
+	 * is moved (with its subtree) to {@code parentNode}
 	 * 
 	 * @param parentNode
 	 * @param childNode
+	 * @throws IllegalArgumentException
+	 *             if {@code childNode} already has a different parent, or if {@code parentNode} is a descendant of
+	 *             {@code childNode}
 	 */
 	public void addChild(V parentNode, V childNode) {
 		if (parentNode == null) {
 			addNode(childNode);
+			return;
+		}
+		int parent = insert(parentNode);
+		int child = indexOf(childNode);
+		if (child == NONE) {
+			child = allocate(childNode);
 		} else {
-			graph.addEdge(newEdge(), parentNode, childNode);
+			if (parents[child] == parent) {
+				return;
+			}
+			if (parents[child] != NONE) {
+				throw new IllegalArgumentException(childNode + " already has a parent");
+			}
+			for (int p = parent; p != NONE; p = parents[p]) {
+				if (p == child) {
+					throw new IllegalArgumentException(childNode + " is an ancestor of " + parentNode);
+				}
+			}
+			unlinkRoot(child);
 		}
-	}
-
-	private Integer newEdge() {
-		edgeCount++;
-		return edgeCount;
+		parents[child] = parent;
+		if (firstChildren[parent] == NONE) {
+			firstChildren[parent] = child;
+		} else {
+			nextSiblings[lastChildren[parent]] = child;
+		}
+		lastChildren[parent] = child;
+		childCounts[parent]++;
 	}
 
 	public boolean hasChild(V parentNode, V childNode) {
-		return graph.getParent(childNode).equals(parentNode);
+		int child = indexOf(childNode);
+		if (child == NONE) {
+			return false;
+		}
+		int parent = indexOf(parentNode);
+		return (parent != NONE) && (parents[child] == parent);
 	}
 
 	public V getParent(V childNode) {
-		return graph.getParent(childNode);
+		int child = indexOf(childNode);
+		if (child == NONE) {
+			return null;
+		}
+		return nodeAt(parents[child]);
 	}
 
 	/**
@@ -107,41 +172,386 @@ public class BasicForest<V> {
 	 * @return
 	 */
 	public V getNode(V node) {
-		Collection<V> x = graph.getVertices();
-		List<V> list = new ArrayList<V>(x);
-		int n = list.indexOf(node);
-		if (n < 0) {
-			return null;
-		}
-		V found = list.get(n);
-		return found;
+		return nodeAt(indexOf(node));
 	}
 
+	/**
+	 * Returns the children of {@code parentNode}, in the order they were added. Returns an empty list if
+	 * {@code parentNode} is not in the tree
+	 * 
+	 * @param parentNode
+	 * @return
+	 */
 	public List<V> getChildren(V parentNode) {
-		return new ArrayList<V>(graph.getChildren(parentNode));
-
+		int parent = indexOf(parentNode);
+		if (parent == NONE) {
+			return new ArrayList<V>(0);
+		}
+		List<V> list = new ArrayList<V>(childCounts[parent]);
+		for (int child = firstChildren[parent]; child != NONE; child = nextSiblings[child]) {
+			list.add(nodeAt(child));
+		}
+		return list;
 	}
 
 	/**
 	 * Get all the nodes which are below the {@code parentNode},that is children, children's children etc. The returned
-	 * list includes the {@code parentNode}
+	 * list includes the {@code parentNode}, and is in pre-order (each node is followed by its subtree)
 	 * 
 	 * @param parentNode
 	 * @return
 	 */
 	public List<V> getSubtreeNodes(V parentNode) {
-		Collection<V> children = graph.getChildren(parentNode);
 		List<V> list = new ArrayList<V>();
 		list.add(parentNode);
-		if (children != null) {
-			for (V v : children) {
-				list.addAll(getSubtreeNodes(v));
-			}
+		int top = indexOf(parentNode);
+		if (top == NONE) {
+			return list;
+		}
+		for (int slot = nextInPreOrder(top, top); slot != NONE; slot = nextInPreOrder(slot, top)) {
+			list.add(nodeAt(slot));
 		}
 		return list;
 
 	}
 
+	/**
+	 * Returns the slot which follows {@code slot} in a pre-order walk of the subtree with its root at {@code top}, or
+	 * {@link #NONE} if {@code slot} is the last one in that subtree
+	 * 
+	 * @param slot
+	 * @param top
+	 * @return
+	 */
+	private int nextInPreOrder(int slot, int top) {
+		if (firstChildren[slot] != NONE) {
+			return firstChildren[slot];
+		}
+		int current = slot;
+		while (current != top) {
+			if (nextSiblings[current] != NONE) {
+				return nextSiblings[current];
+			}
+			current = parents[current];
+		}
+		return NONE;
+	}
+
+	/**
+	 * Returns the nodes of the whole forest in pre-order - each root, in the order they were added, followed by its
+	 * subtree. The nodes are produced lazily
+	 * 
+	 * @return
+	 */
+	public Iterable<V> preOrder() {
+		return preOrderFrom(NONE, Integer.MAX_VALUE, false);
+	}
+
+	/**
+	 * Returns {@code top} and the nodes below it in pre-order (each node is followed by its subtree), produced lazily.
+	 * Empty if {@code top} is not in the forest
+	 * 
+	 * @param top
+	 * @return
+	 */
+	public Iterable<V> preOrder(V top) {
+		return preOrder(top, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * As {@link #preOrder(Object)}, but only includes nodes down to {@code maxDepth} levels below {@code top}. A
+	 * {@code maxDepth} of 0 returns just {@code top}
+	 * 
+	 * @param top
+	 * @param maxDepth
+	 * @return
+	 */
+	public Iterable<V> preOrder(V top, int maxDepth) {
+		int slot = indexOf(top);
+		if (slot == NONE) {
+			return Collections.emptyList();
+		}
+		return preOrderFrom(slot, maxDepth, false);
+	}
+
+	/**
+	 * Returns the leaves (nodes with no children) at or below {@code top}, in pre-order, produced lazily
+	 * 
+	 * @param top
+	 * @return
+	 */
+	public Iterable<V> leaves(V top) {
+		int slot = indexOf(top);
+		if (slot == NONE) {
+			return Collections.emptyList();
+		}
+		return preOrderFrom(slot, Integer.MAX_VALUE, true);
+	}
+
+	private Iterable<V> preOrderFrom(final int top, final int maxDepth, final boolean leavesOnly) {
+		return new Iterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new PreOrderIterator(top, maxDepth, leavesOnly);
+			}
+		};
+	}
+
+	/**
+	 * Returns the nodes of the whole forest level by level - all the roots, then all their children, and so on - with
+	 * each level in pre-order. The nodes are produced lazily
+	 * 
+	 * @return
+	 */
+	public Iterable<V> breadthFirst() {
+		return breadthFirstFrom(NONE);
+	}
+
+	/**
+	 * Returns {@code top} and the nodes below it level by level, produced lazily. Each node is visited once, using a
+	 * queue of one int for each node with children on the levels being walked. Empty if {@code top} is not in the
+	 * forest
+	 * 
+	 * @param top
+	 * @return
+	 */
+	public Iterable<V> breadthFirst(V top) {
+		int slot = indexOf(top);
+		if (slot == NONE) {
+			return Collections.emptyList();
+		}
+		return breadthFirstFrom(slot);
+	}
+
+	private Iterable<V> breadthFirstFrom(final int top) {
+		return new Iterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new BreadthFirstIterator(top);
+			}
+		};
+	}
+
+	/**
+	 * Returns the ancestors of {@code node}, starting with its parent and ending with its root, produced lazily. Empty if
+	 * {@code node} is a root, or is not in the forest
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public Iterable<V> ancestors(V node) {
+		final int slot = indexOf(node);
+		if (slot == NONE) {
+			return Collections.emptyList();
+		}
+		return new Iterable<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new SlotIterator(parents[slot]) {
+					@Override
+					int following(int current) {
+						return parents[current];
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Walks the whole forest in pre-order, passing each node to {@code visitor}, which controls whether the walk goes
+	 * into the children of that node, or stops altogether
+	 * 
+	 * @param visitor
+	 */
+	public void walk(ForestVisitor<V> visitor) {
+		walkFrom(NONE, visitor);
+	}
+
+	/**
+	 * As {@link #walk(ForestVisitor)}, but starting from {@code top}, which is visited with a depth of 0. Nothing is
+	 * visited if {@code top} is not in the forest
+	 * 
+	 * @param top
+	 * @param visitor
+	 */
+	public void walk(V top, ForestVisitor<V> visitor) {
+		int slot = indexOf(top);
+		if (slot != NONE) {
+			walkFrom(slot, visitor);
+		}
+	}
+
+	private void walkFrom(int top, ForestVisitor<V> visitor) {
+		Cursor cursor = new Cursor(top);
+		while (cursor.slot != NONE) {
+			Result result = visitor.visit(nodeAt(cursor.slot), cursor.depth);
+			if (result == Result.STOP) {
+				return;
+			}
+			cursor.advance(result == Result.CONTINUE);
+		}
+	}
+
+	/**
+	 * A position in a pre-order walk of the subtree with its root at {@code top}, or of the whole forest if
+	 * {@code top} is {@link #NONE}, which knows its depth below the start of the walk
+	 */
+	private class Cursor {
+		private final int top;
+		private int slot;
+		private int depth;
+
+		Cursor(int top) {
+			this.top = top;
+			slot = (top == NONE) ? firstRoot : top;
+		}
+
+		/**
+		 * Moves to the next slot in pre-order, or to {@link #NONE} at the end of the walk. The children of the current
+		 * slot are only included if {@code descend} is true
+		 */
+		void advance(boolean descend) {
+			if (descend && (firstChildren[slot] != NONE)) {
+				slot = firstChildren[slot];
+				depth++;
+				return;
+			}
+			int current = slot;
+			while (current != top) {
+				if (nextSiblings[current] != NONE) {
+					slot = nextSiblings[current];
+					return;
+				}
+				current = parents[current];
+				depth--;
+			}
+			slot = NONE;
+		}
+	}
+
+	private class PreOrderIterator implements Iterator<V> {
+		private final Cursor cursor;
+		private final int maxDepth;
+		private final boolean leavesOnly;
+
+		PreOrderIterator(int top, int maxDepth, boolean leavesOnly) {
+			this.cursor = new Cursor(top);
+			this.maxDepth = maxDepth;
+			this.leavesOnly = leavesOnly;
+			skipBranches();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor.slot != NONE;
+		}
+
+		@Override
+		public V next() {
+			if (cursor.slot == NONE) {
+				throw new NoSuchElementException();
+			}
+			V node = nodeAt(cursor.slot);
+			cursor.advance(cursor.depth < maxDepth);
+			skipBranches();
+			return node;
+		}
+
+		private void skipBranches() {
+			if (leavesOnly) {
+				while ((cursor.slot != NONE) && (firstChildren[cursor.slot] != NONE)) {
+					cursor.advance(true);
+				}
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Walks each sibling chain in turn. When it passes a node with children, the first child (the head of the next
+	 * level's chain for that node) is queued, so every node is visited once and the queue holds one int for each node
+	 * with children on the levels in hand
+	 */
+	private class BreadthFirstIterator extends SlotIterator {
+		private final int top;
+		private int[] queue = new int[INITIAL_CAPACITY];
+		private int head;
+		private int size;
+
+		BreadthFirstIterator(int top) {
+			super((top == NONE) ? firstRoot : top);
+			this.top = top;
+		}
+
+		@Override
+		int following(int current) {
+			if (firstChildren[current] != NONE) {
+				enqueue(firstChildren[current]);
+			}
+			// the siblings of top are outside the walk
+			if ((current != top) && (nextSiblings[current] != NONE)) {
+				return nextSiblings[current];
+			}
+			if (size == 0) {
+				return NONE;
+			}
+			int slot = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			return slot;
+		}
+
+		private void enqueue(int slot) {
+			if (size == queue.length) {
+				int[] larger = new int[queue.length * 2];
+				for (int i = 0; i < size; i++) {
+					larger[i] = queue[(head + i) % queue.length];
+				}
+				queue = larger;
+				head = 0;
+			}
+			queue[(head + size) % queue.length] = slot;
+			size++;
+		}
+	}
+
+	/**
+	 * An iterator which moves from one slot to the next with {@link #following(int)}, until it reaches {@link #NONE}
+	 */
+	private abstract class SlotIterator implements Iterator<V> {
+		private int next;
+
+		SlotIterator(int first) {
+			this.next = first;
+		}
+
+		abstract int following(int current);
+
+		@Override
+		public boolean hasNext() {
+			return next != NONE;
+		}
+
+		@Override
+		public V next() {
+			if (next == NONE) {
+				throw new NoSuchElementException();
+			}
+			V node = nodeAt(next);
+			next = following(next);
+			return node;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
 	/**
 	 * Finds all the leaves for the specified {@code parentNode}, that is, all those with no children;
 	 * 
@@ -151,14 +561,12 @@ public class BasicForest<V> {
 	private void findLeaves(V parentNode, List<V> leaves) {
 		if (leaves == null)
 			return;
-		Collection<V> children = graph.getChildren(parentNode);
-		if (children == null)
+		int top = indexOf(parentNode);
+		if (top == NONE)
 			return;
-		if (children.size() == 0) {
-			leaves.add(parentNode);
-		} else {
-			for (V v : children) {
-				findLeaves(v, leaves);
+		for (int slot = top; slot != NONE; slot = nextInPreOrder(slot, top)) {
+			if (firstChildren[slot] == NONE) {
+				leaves.add(nodeAt(slot));
 			}
 		}
 	}
@@ -188,12 +596,26 @@ public class BasicForest<V> {
 	 * @return
 	 */
 	public Collection<V> getEntries() {
-		return graph.getVertices();
+		return getAllNodes();
 	}
 
 	public void clear() {
-		graph = new DelegateForest<V, Integer>();
-		edgeCount = 0;
+		reset();
+	}
+
+	private void reset() {
+		nodes = new Object[INITIAL_CAPACITY];
+		parents = newLinks(INITIAL_CAPACITY);
+		firstChildren = newLinks(INITIAL_CAPACITY);
+		lastChildren = newLinks(INITIAL_CAPACITY);
+		nextSiblings = newLinks(INITIAL_CAPACITY);
+		childCounts = new int[INITIAL_CAPACITY];
+		firstRoot = NONE;
+		lastRoot = NONE;
+		nodeCount = 0;
+		slotLimit = 0;
+		indexes = new HashMap<>();
+		nextIndex = 0;
 	}
 
 	/**
@@ -203,10 +625,9 @@ public class BasicForest<V> {
 	 * @return
 	 */
 	public List<V> getRoots() {
-		Collection<Tree<V, Integer>> t = graph.getTrees();
 		List<V> branchRoots = new ArrayList<V>();
-		for (Tree<V, Integer> branch : t) {
-			branchRoots.add(branch.getRoot());
+		for (int root = firstRoot; root != NONE; root = nextSiblings[root]) {
+			branchRoots.add(nodeAt(root));
 		}
 		return branchRoots;
 	}
@@ -221,17 +642,20 @@ public class BasicForest<V> {
 		return buf.toString();
 	}
 
-	public void text(V node, StringBuilder buf, int level) {
-		String indent = StringUtils.repeat("-", level + 1);
-		buf.append(indent);
-		buf.append(node.toString() + "\n");
-		for (V child : getChildren(node)) {
-			text(child, buf, level + 1);
-		}
+	public void text(V node, final StringBuilder buf, final int level) {
+		walk(node, new ForestVisitor<V>() {
+			@Override
+			public Result visit(V visited, int depth) {
+				buf.append(StringUtils.repeat("-", level + depth + 1));
+				buf.append(visited.toString() + "\n");
+				return Result.CONTINUE;
+			}
+		});
 	}
 
 	public int getChildCount(V parentNode) {
-		return graph.getChildCount(parentNode);
+		int parent = indexOf(parentNode);
+		return (parent == NONE) ? 0 : childCounts[parent];
 	}
 
 	public boolean hasChildren(V parentNode) {
@@ -244,19 +668,11 @@ public class BasicForest<V> {
 	 * @return
 	 */
 	public V getRoot() {
-		if (getRoots().isEmpty()) {
-			return null;
-		} else {
-			return getRoots().get(0);
-		}
+		return nodeAt(firstRoot);
 	}
 
 	public int getNodeCount() {
-		return graph.getVertexCount();
-	}
-
-	public Forest<V, Integer> getGraph() {
-		return graph;
+		return nodeCount;
 	}
 
 	/**
@@ -265,23 +681,147 @@ public class BasicForest<V> {
 	 * @return
 	 */
 	public List<V> getAllNodes() {
-		return new ArrayList<V>(graph.getVertices());
+		List<V> list = new ArrayList<V>(nodeCount);
+		for (int slot = 0; slot < slotLimit; slot++) {
+			if (nodes[slot] != null) {
+				list.add(nodeAt(slot));
+			}
+		}
+		return list;
 	}
 
 	public V getRootFor(V node) {
 		if (node == null) {
 			return null;
 		}
-		V nut = node;
-		while (true) {
-			V parent = graph.getParent(nut);
-			if (parent == null) {
-				break;
-			} else {
-				nut = parent;
-			}
+		int slot = indexOf(node);
+		if (slot == NONE) {
+			return node;
+		}
+		while (parents[slot] != NONE) {
+			slot = parents[slot];
+		}
+		return nodeAt(slot);
+	}
+
+	/**
+	 * Returns the slot which holds {@code node}, or {@link #NONE} if it is not in the forest. Override this, together
+	 * with {@link #newIndex(Object)}, if the nodes carry their own dense integer key
+	 * 
+	 * @param node
+	 * @return
+	 */
+	protected int indexOf(V node) {
+		Integer index = indexes.get(node);
+		return (index == null) ? NONE : index;
+	}
+
+	/**
+	 * Allocates the slot for a {@code node} which is being added to the forest. The slot must not be negative, and
+	 * must be the one subsequently returned by {@link #indexOf(Object)} for the same node
+	 * 
+	 * @param node
+	 * @return
+	 */
+	protected int newIndex(V node) {
+		int index = nextIndex;
+		nextIndex++;
+		indexes.put(node, index);
+		return index;
+	}
+
+	/**
+	 * Returns the node held in {@code slot}, or null if the slot is empty or out of range
+	 * 
+	 * @param slot
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected V nodeAt(int slot) {
+		if ((slot < 0) || (slot >= slotLimit)) {
+			return null;
+		}
+		return (V) nodes[slot];
+	}
+
+	/**
+	 * Adds {@code node} as a root if it is not already in the forest, and returns its slot
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private int insert(V node) {
+		int slot = indexOf(node);
+		if (slot != NONE) {
+			return slot;
+		}
+		slot = allocate(node);
+		if (firstRoot == NONE) {
+			firstRoot = slot;
+		} else {
+			nextSiblings[lastRoot] = slot;
+		}
+		lastRoot = slot;
+		return slot;
+	}
+
+	/**
+	 * Allocates a slot for {@code node}, which must not already be in the forest, without linking it to anything
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private int allocate(V node) {
+		int slot = newIndex(node);
+		ensureCapacity(slot + 1);
+		nodes[slot] = node;
+		slotLimit = Math.max(slotLimit, slot + 1);
+		nodeCount++;
+		return slot;
+	}
+
+	private void unlinkRoot(int slot) {
+		int previous = NONE;
+		int root = firstRoot;
+		while (root != slot) {
+			previous = root;
+			root = nextSiblings[root];
+		}
+		if (previous == NONE) {
+			firstRoot = nextSiblings[slot];
+		} else {
+			nextSiblings[previous] = nextSiblings[slot];
+		}
+		if (lastRoot == slot) {
+			lastRoot = previous;
+		}
+		nextSiblings[slot] = NONE;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= nodes.length) {
+			return;
 		}
-		return nut;
+		int newCapacity = Math.max(capacity, nodes.length * 2);
+		nodes = Arrays.copyOf(nodes, newCapacity);
+		parents = growLinks(parents, newCapacity);
+		firstChildren = growLinks(firstChildren, newCapacity);
+		lastChildren = growLinks(lastChildren, newCapacity);
+		nextSiblings = growLinks(nextSiblings, newCapacity);
+		childCounts = Arrays.copyOf(childCounts, newCapacity);
+	}
+
+	private static int[] newLinks(int capacity) {
+		int[] links = new int[capacity];
+		Arrays.fill(links, NONE);
+		return links;
+	}
+
+	private static int[] growLinks(int[] links, int capacity) {
+		int oldCapacity = links.length;
+		int[] grown = Arrays.copyOf(links, capacity);
+		Arrays.fill(grown, oldCapacity, capacity, NONE);
+		return grown;
 	}
 
 }
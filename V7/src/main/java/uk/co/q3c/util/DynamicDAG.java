@@ -1,10 +1,23 @@
 package uk.co.q3c.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
+/**
+ * A directed acyclic graph which checks for cycles as nodes are connected. A node may have more than one parent - the
+ * first parent given to a node determines its place in the underlying {@link BasicForest}, and all parents are kept
+ * here for cycle detection
+ * 
+ * @param <V>
+ */
 public class DynamicDAG<V> extends BasicForest<V> {
 
+	private final Map<V, List<V>> predecessors = new HashMap<>();
+
 	public DynamicDAG() {
 		super();
 	}
@@ -25,14 +38,14 @@ public class DynamicDAG<V> extends BasicForest<V> {
 		stack.push(parentNode);
 		while (!stack.isEmpty()) {
 			V node = stack.pop();
-			Collection<V> predecessors = getGraph().getPredecessors(node);
-			if (predecessors != null) {
-				for (V pred : predecessors) {
+			Collection<V> nodePredecessors = predecessors.get(node);
+			if (nodePredecessors != null) {
+				for (V pred : nodePredecessors) {
 					if (pred == childNode) {
 						return true;
 					}
 				}
-				stack.addAll(predecessors);
+				stack.addAll(nodePredecessors);
 			}
 		}
 		return false;
@@ -42,10 +55,33 @@ public class DynamicDAG<V> extends BasicForest<V> {
 	@Override
 	public void addChild(V parentNode, V childNode) {
 		if (!detectCycle(parentNode, childNode)) {
-			super.addChild(parentNode, childNode);
+			if ((parentNode == null) || (getParent(childNode) == null)) {
+				super.addChild(parentNode, childNode);
+			} else {
+				// already placed in the forest by its first parent
+				addNode(parentNode);
+			}
+			if (parentNode != null) {
+				predecessorsOf(childNode).add(parentNode);
+			}
 		} else {
 			throw new CycleDetectedException();
 		}
 	}
 
+	private List<V> predecessorsOf(V node) {
+		List<V> list = predecessors.get(node);
+		if (list == null) {
+			list = new ArrayList<>();
+			predecessors.put(node, list);
+		}
+		return list;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		predecessors.clear();
+	}
+
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.util;
+
+/**
+ * Receives the nodes of a {@link BasicForest} as it is walked by {@link BasicForest#walk(Object, ForestVisitor)}. The
+ * value returned from {@link #visit(Object, int)} controls the rest of the walk, so a visitor can prune branches or
+ * stop as soon as it has found what it wants.
+ * 
+ * @param <V>
+ *            the type of node held by the forest
+ */
+public interface ForestVisitor<V> {
+
+	public enum Result {
+		/** carry on, including the children of the node just visited */
+		CONTINUE,
+		/** carry on, but do not visit the children of the node just visited */
+		SKIP_CHILDREN,
+		/** end the walk */
+		STOP
+	}
+
+	/**
+	 * Called for each node, in pre-order
+	 * 
+	 * @param node
+	 * @param depth
+	 *            the depth of {@code node} below the node the walk started from, which has a depth of 0
+	 * @return
+	 */
+	Result visit(V node, int depth);
+}
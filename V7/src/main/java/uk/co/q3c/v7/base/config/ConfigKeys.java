@@ -16,5 +16,17 @@ public class ConfigKeys {
 
 	public static final String SOURCES_KEY = "sitemap.sources";
 	public static final String FILE_LOCATION = "sitemap.file location";
+	// if true, the sitemap file is watched, and the Sitemap reloaded when it changes
+	public static final String FILE_WATCH = "sitemap.file watch";
+	// the output of SitemapCompiler, used by the 'compiled' source
+	public static final String COMPILED_FILE_LOCATION = "sitemap.compiled location";
+	// language tags (for example en-GB, de) of the locales the sitemap search index is built for in advance
+	public static final String SUPPORTED_LOCALES = "i18n.supported locales";
+	// the number of views each UI keeps for re-use, see ViewCache
+	public static final String VIEW_CACHE_SIZE = "navigation.view cache size";
+	// the number of resolved pages kept for each Sitemap, see ResolutionCache
+	public static final String RESOLUTION_CACHE_SIZE = "navigation.resolution cache size";
+	// milliseconds within which URI fragment changes are coalesced into one navigation, 0 to navigate on every change
+	public static final String COALESCE_WINDOW = "navigation.coalesce window";
 
 }
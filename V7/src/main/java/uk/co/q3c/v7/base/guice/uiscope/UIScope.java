@@ -74,26 +74,33 @@ public class UIScope implements Scope {
 					}
 				}
 
-				log.debug("looking for cache for key: " + uiKey);
-				Map<Key<?>, Object> scopedObjects = getScopedObjectMap(uiKey);
+				Map<Key<?>, Object> scopedObjects;
+				synchronized (UIScope.this) {
+					log.debug("looking for cache for key: " + uiKey);
+					scopedObjects = getScopedObjectMap(uiKey);
+				}
 				// this line should fail tests but having trouble setting up a decent test. TestBench needed?
 				// Map<Key<?>, Object> scopedObjects = getScopedObjectMap(CurrentInstance.get(UIKey.class));
 
-				// retrieve an existing instance if possible
+				// locked for this UI only, so that constructing an object for one UI does not hold up any other
+				synchronized (scopedObjects) {
+
+					// retrieve an existing instance if possible
 
-				@SuppressWarnings("unchecked")
-				T current = (T) scopedObjects.get(key);
+					@SuppressWarnings("unchecked")
+					T current = (T) scopedObjects.get(key);
 
-				if (current != null) {
-					log.debug("returning existing instance of " + current.getClass().getSimpleName());
+					if (current != null) {
+						log.debug("returning existing instance of " + current.getClass().getSimpleName());
+						return current;
+					}
+
+					// or create the first instance and cache it
+					current = unscoped.get();
+					scopedObjects.put(key, current);
+					log.debug("new instance of " + current.getClass().getSimpleName() + " created, as none in cache");
 					return current;
 				}
-
-				// or create the first instance and cache it
-				current = unscoped.get();
-				scopedObjects.put(key, current);
-				log.debug("new instance of " + current.getClass().getSimpleName() + " created, as none in cache");
-				return current;
 			}
 		};
 	}
@@ -112,7 +119,7 @@ public class UIScope implements Scope {
 
 	}
 
-	public boolean cacheHasEntryFor(UIKey uiKey) {
+	public synchronized boolean cacheHasEntryFor(UIKey uiKey) {
 		return cache.containsKey(uiKey);
 	}
 
@@ -120,7 +127,7 @@ public class UIScope implements Scope {
 		return cacheHasEntryFor(ui.getInstanceKey());
 	}
 
-	public void startScope(UIKey uiKey) {
+	public synchronized void startScope(UIKey uiKey) {
 		if (!cacheHasEntryFor(uiKey)) {
 			createCacheEntry(uiKey);
 		}
@@ -133,7 +140,7 @@ public class UIScope implements Scope {
 		return uiEntry;
 	}
 
-	public void releaseScope(UIKey uiKey) {
+	public synchronized void releaseScope(UIKey uiKey) {
 		cache.remove(uiKey);
 	}
 
@@ -147,7 +154,7 @@ public class UIScope implements Scope {
 	/**
 	 * Removes all entries in the cache
 	 */
-	public void flush() {
+	public synchronized void flush() {
 		cache.clear();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.apache.shiro.authz.UnauthorizedException;
+import org.apache.shiro.subject.Subject;
+
+import uk.co.q3c.v7.base.shiro.SubjectProvider;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+import uk.co.q3c.v7.base.shiro.UnauthorizedExceptionHandler;
+
+import com.google.inject.Provider;
+
+/**
+ * If a page is public then any user (even unauthenticated) can navigate to it. If it is not public then permissions
+ * are checked, and if the user is not authorised, an {@link AuthorizationException} is thrown. This would be caught
+ * by the the implementation bound to {@link UnauthorizedExceptionHandler}. Whether a page is public is taken from the
+ * {@link PageResolution} set by {@link ResolveStage}
+ */
+public class AuthoriseStage implements NavigationStage {
+
+	private final Provider<Subject> subjectProvider;
+	private final URIPermissionFactory uriPermissionFactory;
+
+	@Inject
+	protected AuthoriseStage(SubjectProvider subjectProvider, URIPermissionFactory uriPermissionFactory) {
+		super();
+		this.subjectProvider = subjectProvider;
+		this.uriPermissionFactory = uriPermissionFactory;
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		// if page is public don't check permissions as they will fail!
+		if (navigation.getResolution().isPublicPage()) {
+			return true;
+		}
+		// check permissions, raise exception if not allowed
+		URIViewPermission permission = uriPermissionFactory.createViewPermission(navigation.getFragment());
+		if (subjectProvider.get().isPermitted(permission)) {
+			return true;
+		}
+		throw new UnauthorizedException(navigation.getFragment().getFragment());
+	}
+
+}
@@ -12,7 +12,9 @@
  */
 package uk.co.q3c.v7.base.navigate;
 
+import java.text.CollationKey;
 import java.util.Comparator;
+import java.util.Locale;
 
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 
@@ -20,12 +22,34 @@ import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
  * Comparator which can be used to sort SitemapNode by collation key order, based on
  * {@link SitemapNode#getCollationKey()()}. This enables sorting by Locale sensitive labels, as the collation key is set
  * to reflect the current locale
+ * <p>
+ * If constructed with a Locale, the collation keys for that Locale ({@link SitemapNode#getCollationKey(Locale)}) are
+ * used instead, and a node without a label is placed after those which have one
  */
 public class CollationKeyOrder implements Comparator<SitemapNode> {
 
+	private final Locale locale;
+
+	public CollationKeyOrder() {
+		this(null);
+	}
+
+	public CollationKeyOrder(Locale locale) {
+		super();
+		this.locale = locale;
+	}
+
 	@Override
 	public int compare(SitemapNode o1, SitemapNode o2) {
-		return o1.getCollationKey().compareTo(o2.getCollationKey());
+		if (locale == null) {
+			return o1.getCollationKey().compareTo(o2.getCollationKey());
+		}
+		CollationKey key1 = o1.getCollationKey(locale);
+		CollationKey key2 = o2.getCollationKey(locale);
+		if (key1 == null) {
+			return (key2 == null) ? 0 : 1;
+		}
+		return (key2 == null) ? -1 : key1.compareTo(key2);
 	}
 
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.view.V7View;
+
+import com.google.inject.Injector;
+
+/**
+ * Obtains the view for the page, from the {@link ViewCache} of the navigator if it holds one, or from the
+ * {@link Injector} if not. Does nothing if the navigation already has its view
+ */
+public class ConstructStage implements NavigationStage {
+
+	private static Logger log = LoggerFactory.getLogger(ConstructStage.class);
+	private final Injector injector;
+
+	@Inject
+	protected ConstructStage(Injector injector) {
+		super();
+		this.injector = injector;
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		if (navigation.getView() != null) {
+			return true;
+		}
+		Class<? extends V7View> viewClass = navigation.getNode().getViewClass();
+		ViewCache viewCache = navigation.getNavigator().getViewCache();
+		V7View view = viewCache.get(viewClass);
+		if (view == null) {
+			view = injector.getInstance(viewClass);
+			viewCache.put(viewClass, view);
+		} else {
+			log.debug("using cached instance of {}", viewClass.getName());
+		}
+		navigation.setView(view);
+		return true;
+	}
+
+}
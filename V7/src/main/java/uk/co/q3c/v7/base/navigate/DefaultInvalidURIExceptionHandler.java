@@ -12,27 +12,53 @@
  */
 package uk.co.q3c.v7.base.navigate;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.StringUtils;
+
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapSuggestions;
+import uk.co.q3c.v7.base.shiro.SubjectProvider;
 import uk.co.q3c.v7.i18n.LabelKey;
 import uk.co.q3c.v7.i18n.MessageKey;
 import uk.co.q3c.v7.i18n.Notifier;
 
+/**
+ * Tells the user that the page they asked for does not exist, and suggests the closest valid pages, if there are any
+ * which the user may view - see {@link SitemapSuggestions}
+ * 
+ */
 public class DefaultInvalidURIExceptionHandler implements InvalidURIExceptionHandler {
 
 	private final V7Navigator navigator;
 	private final Notifier notifier;
+	private final SitemapSuggestions suggestions;
+	private final URIFragmentHandler uriHandler;
+	private final SubjectProvider subjectProvider;
 
 	@Inject
-	protected DefaultInvalidURIExceptionHandler(V7Navigator navigator, Notifier notifier) {
+	protected DefaultInvalidURIExceptionHandler(V7Navigator navigator, Notifier notifier,
+			SitemapSuggestions suggestions, URIFragmentHandler uriHandler, SubjectProvider subjectProvider) {
 		super();
 		this.navigator = navigator;
 		this.notifier = notifier;
+		this.suggestions = suggestions;
+		this.uriHandler = uriHandler;
+		this.subjectProvider = subjectProvider;
 	}
 
 	@Override
 	public void invoke() {
-		notifier.notify(LabelKey.Invalid_Page, MessageKey.invalidURI, navigator.getNavigationState());
+		String navigationState = navigator.getNavigationState();
+		uriHandler.setFragment(navigationState);
+		List<String> closest = suggestions.suggestionsFor(uriHandler.virtualPage(), subjectProvider.get());
+		if (closest.isEmpty()) {
+			notifier.notify(LabelKey.Invalid_Page, MessageKey.invalidURI, navigationState);
+		} else {
+			notifier.notify(LabelKey.Invalid_Page, MessageKey.invalidURI_suggestions, navigationState,
+					StringUtils.join(closest, ", "));
+		}
 	}
 
 }
@@ -1,12 +1,11 @@
 package uk.co.q3c.v7.base.navigate;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 import javax.inject.Inject;
 
-import org.apache.shiro.authz.AuthorizationException;
-import org.apache.shiro.authz.UnauthorizedException;
 import org.apache.shiro.subject.Subject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,20 +15,14 @@ import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapException;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapService;
-import uk.co.q3c.v7.base.navigate.sitemap.SitemapURIConverter;
 import uk.co.q3c.v7.base.shiro.LoginStatusHandler;
 import uk.co.q3c.v7.base.shiro.LoginStatusListener;
-import uk.co.q3c.v7.base.shiro.SubjectProvider;
-import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
-import uk.co.q3c.v7.base.shiro.URIViewPermission;
-import uk.co.q3c.v7.base.shiro.UnauthorizedExceptionHandler;
 import uk.co.q3c.v7.base.ui.ScopedUI;
 import uk.co.q3c.v7.base.view.ErrorView;
 import uk.co.q3c.v7.base.view.V7View;
 import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
 import uk.co.q3c.v7.base.view.V7ViewChangeListener;
 
-import com.google.inject.Injector;
 import com.google.inject.Provider;
 import com.vaadin.navigator.ViewChangeListener;
 import com.vaadin.navigator.ViewChangeListener.ViewChangeEvent;
@@ -38,7 +31,7 @@ import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
 
 @UIScoped
-public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
+public class DefaultV7Navigator implements PipelineNavigator, LoginStatusListener {
 
 	private static Logger log = LoggerFactory.getLogger(DefaultV7Navigator.class);
 	private String previousViewName = null;
@@ -48,31 +41,26 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	private final List<V7ViewChangeListener> listeners = new LinkedList<V7ViewChangeListener>();
 	private final Provider<ErrorView> errorViewProvider;
 	private final URIFragmentHandler uriHandler;
-	private String previousFragment;
-	private String currentFragment;
-	private final Sitemap sitemap;
-	private final Provider<Subject> subjectProvider;
-	private final URIPermissionFactory uriPermissionFactory;
-	private final SitemapURIConverter sitemapURIConverter;
-	private final Injector injector;
+	private ParsedFragment previousFragment;
+	private ParsedFragment currentFragment;
+	private final SitemapService sitemapService;
+	private final ViewCache viewCache;
+	private final NavigationPipeline pipeline;
+	private FragmentCoalescer fragmentCoalescer;
 
 	@Inject
-	protected DefaultV7Navigator(Injector injector, Provider<ErrorView> errorViewProvider,
-			URIFragmentHandler uriHandler, SitemapService sitemapService, SubjectProvider subjectProvider,
-			URIPermissionFactory uriPermissionFactory, SitemapURIConverter sitemapURIConverter,
-			LoginStatusHandler loginHandler) {
+	protected DefaultV7Navigator(Provider<ErrorView> errorViewProvider, URIFragmentHandler uriHandler,
+			SitemapService sitemapService, LoginStatusHandler loginHandler, ViewCache viewCache,
+			NavigationPipeline pipeline) {
 		super();
+		this.viewCache = viewCache;
 		this.errorViewProvider = errorViewProvider;
 		this.uriHandler = uriHandler;
-
-		this.subjectProvider = subjectProvider;
-		this.uriPermissionFactory = uriPermissionFactory;
-		this.sitemapURIConverter = sitemapURIConverter;
-		this.injector = injector;
+		this.pipeline = pipeline;
+		this.sitemapService = sitemapService;
 
 		try {
 			sitemapService.start();
-			sitemap = sitemapService.getSitemap();
 		} catch (Exception e) {
 			String msg = "Sitemap service failed to start, application will have no pages";
 			log.error(msg);
@@ -83,77 +71,34 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	}
 
 	/**
-	 * Takes a URI fragment, checks for any redirects defined by the {@link Sitemap}, then calls
-	 * {@link #navigateTo(V7View, String, String)} to change the view
+	 * Parses a URI fragment once, and passes it through the {@link NavigationPipeline} to change the view
 	 * 
 	 * @see uk.co.q3c.v7.base.navigate.V7Navigator#navigateTo(java.lang.String)
 	 */
 	@Override
 	public void navigateTo(String fragment) {
 		log.debug("Navigating to fragment: {}", fragment);
+		if (fragmentCoalescer != null) {
+			fragmentCoalescer.cancel();
+		}
+		ParsedFragment parsedFragment = uriHandler.parse(fragment);
 		// this is partly to stop unnecessary changes, but also to prevent UserNavigationTree and other navigation aware
 		// components from causing a loop by responding to a change of URI
-		if ((fragment != null) && (fragment.equals(currentFragment))) {
+		if ((fragment != null) && (currentFragment != null)
+				&& (parsedFragment.getFragment().equals(currentFragment.getFragment()))) {
 			log.debug("fragment unchanged, no navigation required");
 			return;
 		}
-		sitemapCheck();
+		Sitemap sitemap = sitemap();
 		if (sitemap.hasErrors()) {
 			throw new SitemapException("Unable to navigate, site map has errors\n" + sitemap.getReport());
 		}
-
-		// fragment needs to be revised if redirected
-		String revisedFragment = null;
-		if (fragment == null) {
-			revisedFragment = checkRedirects("");
-		} else {
-			revisedFragment = checkRedirects(fragment);
-		}
-
-		log.debug("fragment after redirect check is {}", revisedFragment);
-		String viewName = uriHandler.virtualPage();
-		log.debug("looking up View for page '{}'", viewName);
-
-		SitemapNode nodeForUri = sitemapURIConverter.nodeForUri(revisedFragment, false);
-		if (nodeForUri == null) {
-			String msg = "View not found for page '" + revisedFragment + "'";
-			log.debug(msg);
-			throw new InvalidURIException(msg);
-		}
-		Class<? extends V7View> viewClass = nodeForUri.getViewClass();
-		V7View view = injector.getInstance(viewClass);
-
-		navigateTo(view, viewName, revisedFragment);
-
+		pipeline.navigate(new Navigation(this, sitemap, parsedFragment));
 	}
 
 	/**
-	 * Checks {@code fragment} to see whether it has been redirected. If it has the full fragment is returned, but
-	 * modified for the redirected page. If not, the {@code fragment} is returned unchanged.
-	 * 
-	 * @param fragment
-	 * @return
-	 */
-	private String checkRedirects(String fragment) {
-		sitemapCheck();
-		uriHandler.setFragment(fragment);
-		String page = uriHandler.virtualPage();
-		String redirection = sitemap.getRedirectFor(page);
-		// if no redirect found, page is returned
-		if (redirection == page) {
-			return fragment;
-		} else {
-			String newFragment = fragment.replaceFirst(page, redirection);
-			uriHandler.setFragment(newFragment);
-			return newFragment;
-		}
-	}
-
-	/**
-	 * Navigates to a view, setting its parameters and calling listeners. If a page is public then any user (even
-	 * unauthenticated) can navigate to it. If it is not public then permissions are checked, and if the user is not
-	 * authorised, a {@link AuthorizationException} is thrown. This would be caught by the the implementation bound to
-	 * {@link UnauthorizedExceptionHandler}
+	 * Navigates to a view which has already been constructed, passing it through the {@link NavigationPipeline} so
+	 * that permissions are checked and listeners called as for any other navigation
 	 * 
 	 * @param view
 	 *            view to activate
@@ -164,48 +109,14 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	 *            parameters, which include the part which forms the pseudo URI. For example, private/transfers/id=23
 	 */
 	protected void navigateTo(V7View view, String viewName, String fragment) {
-		boolean publicPage = sitemapURIConverter.pageIsPublic(fragment);
-
-		// if page is public don't check permissions as they will fail!
-		if (publicPage) {
-			changeView(view, viewName, fragment);
-			return;
-		}
-
-		// check permissions, raise exception if not allowed
-		URIViewPermission permission = uriPermissionFactory.createViewPermission(fragment);
-		if (subjectProvider.get().isPermitted(permission)) {
-			changeView(view, viewName, fragment);
-		} else {
-			throw new UnauthorizedException(fragment);
-		}
-
+		navigateTo(view, viewName, uriHandler.parse(fragment));
 	}
 
-	/**
-	 * Internal method activating a view, setting its parameters and calling listeners.
-	 * 
-	 * @param view
-	 *            view to activate
-	 * @param viewName
-	 *            (optional) name of the view or null not to change the navigation state
-	 * @param fragment
-	 *            parameters passed in the navigation state to the view. In this context, the parameters are all the
-	 *            parameters, which include the part which forms the pseudo URI. For example, private/transfers/id=23
-	 */
-	private void changeView(V7View view, String viewName, String fragment) {
-		V7ViewChangeEvent event = new V7ViewChangeEvent(this, currentView, view, viewName, fragment);
-		if (!fireBeforeViewChange(event)) {
-			return;
-		}
-		getUI().changeView(currentView, view);
-		view.enter(event);
-
-		// we don't want to record being at the login page
-		// if (!(view instanceof LoginView)) {
-		setCurrentView(view, viewName, fragment);
-		// }
-		fireAfterViewChange(event);
+	private void navigateTo(V7View view, String viewName, ParsedFragment fragment) {
+		Navigation navigation = new Navigation(this, sitemap(), fragment);
+		navigation.setView(view);
+		navigation.setViewName(viewName);
+		pipeline.navigate(navigation);
 	}
 
 	/**
@@ -221,7 +132,8 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	 *            view change event (not null, view change not yet performed)
 	 * @return true if the view change should be allowed, false to silently block the navigation operation
 	 */
-	protected boolean fireBeforeViewChange(V7ViewChangeEvent event) {
+	@Override
+	public boolean fireBeforeViewChange(V7ViewChangeEvent event) {
 		for (V7ViewChangeListener l : listeners) {
 			if (!l.beforeViewChange(event)) {
 				return false;
@@ -238,7 +150,8 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	 * @param event
 	 *            view change event (not null)
 	 */
-	protected void fireAfterViewChange(V7ViewChangeEvent event) {
+	@Override
+	public void fireAfterViewChange(V7ViewChangeEvent event) {
 		for (V7ViewChangeListener l : listeners) {
 			l.afterViewChange(event);
 		}
@@ -272,19 +185,36 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 
 	@Override
 	public void uriFragmentChanged(UriFragmentChangedEvent event) {
-		navigateTo(event.getPage().getUriFragment());
+		String fragment = event.getPage().getUriFragment();
+		if ((fragmentCoalescer != null) && fragmentCoalescer.isEnabled()) {
+			fragmentCoalescer.submit(getUI(), this, fragment);
+		} else {
+			navigateTo(fragment);
+		}
+	}
+
+	/**
+	 * Optional, without a {@link FragmentCoalescer} (or with its window set to 0) each change of URI fragment is
+	 * navigated to as it arrives
+	 * 
+	 * @param fragmentCoalescer
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setFragmentCoalescer(FragmentCoalescer fragmentCoalescer) {
+		this.fragmentCoalescer = fragmentCoalescer;
 	}
 
 	@Override
 	public String getNavigationState() {
-		return uriHandler.fragment();
+		return (currentFragment == null) ? null : currentFragment.getFragment();
 	}
 
 	@Override
 	public List<String> getNavigationParams() {
-		return uriHandler.parameterList();
+		return (currentFragment == null) ? Collections.<String> emptyList() : currentFragment.parameterList();
 	}
 
+	@Override
 	public ScopedUI getUI() {
 		/**
 		 * TODO This should be injected, with a UIScoped UI!
@@ -321,6 +251,11 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 	}
 
 	protected void setCurrentView(V7View newView, String viewName, String fragment) {
+		setCurrentView(newView, viewName, uriHandler.parse(fragment));
+	}
+
+	@Override
+	public void setCurrentView(V7View newView, String viewName, ParsedFragment fragment) {
 		previousView = currentView;
 		previousViewName = currentViewName;
 		previousFragment = currentFragment;
@@ -328,8 +263,8 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 		currentViewName = viewName;
 		currentFragment = fragment;
 
-		uriHandler.setFragment(fragment);
-		getUI().getPage().setUriFragment(fragment, false);
+		String uriFragment = uriHandler.isUseBang() ? "!" + fragment.getFragment() : fragment.getFragment();
+		getUI().getPage().setUriFragment(uriFragment, false);
 	}
 
 	protected void setPreviousView(V7View previousView) {
@@ -346,7 +281,7 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 
 	@Override
 	public void navigateTo(StandardPageKey pageKey) {
-		sitemapCheck();
+		Sitemap sitemap = sitemap();
 		String page = sitemap.standardPageURI(pageKey);
 		if (page == null) {
 			throw new SitemapException(pageKey + " cannot have a null path\n" + sitemap.getReport());
@@ -354,21 +289,45 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 		navigateTo(page);
 	}
 
-	private void sitemapCheck() {
+	/**
+	 * Returns the Sitemap currently published by the {@link SitemapService}. This is called once per navigation, so
+	 * that a navigation uses a single, consistent, snapshot of the Sitemap
+	 * 
+	 * @return
+	 */
+	private Sitemap sitemap() {
+		Sitemap sitemap = sitemapService.getSitemap();
 		if (sitemap == null) {
 			throw new SitemapException("Sitemap has failed to load");
 		}
+		return sitemap;
 	}
 
+	/**
+	 * Cached views may hold data for the previous user, so they are discarded whenever the login status changes
+	 * 
+	 * @see uk.co.q3c.v7.base.shiro.LoginStatusListener#loginStatusChange(boolean, org.apache.shiro.subject.Subject)
+	 */
 	@Override
 	public void loginStatusChange(boolean authenticated, Subject subject) {
+		viewCache.clear();
 		if (authenticated) {
 			loginSuccessful();
 		}
 	}
 
+	/**
+	 * Returns the cache of views for this navigator, which also provides the hit and miss counts
+	 * 
+	 * @return
+	 */
+	@Override
+	public ViewCache getViewCache() {
+		return viewCache;
+	}
+
 	public String getPreviousFragment() {
-		return previousFragment;
+		return (previousFragment == null) ? null : previousFragment.getFragment();
 	}
 
 	@Override
@@ -380,14 +339,16 @@ public class DefaultV7Navigator implements V7Navigator, LoginStatusListener {
 
 	@Override
 	public void navigateTo(SitemapNode node) {
-		sitemapCheck();
-		String url = sitemap.uri(node);
+		String url = sitemap().uri(node);
 		navigateTo(url);
 	}
 
 	@Override
 	public void error() {
-		changeView(errorViewProvider.get(), "ErrorView", "error");
+		Navigation navigation = new Navigation(this, null, uriHandler.parse("error"));
+		navigation.setView(errorViewProvider.get());
+		navigation.setViewName("ErrorView");
+		pipeline.display(navigation);
 	}
 
 }
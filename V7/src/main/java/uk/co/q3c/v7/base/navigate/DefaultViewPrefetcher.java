@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.apache.shiro.subject.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.guice.uiscope.UIKey;
+import uk.co.q3c.v7.base.guice.uiscope.UIScoped;
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+import uk.co.q3c.v7.base.shiro.SubjectProvider;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.ui.ScopedUI;
+import uk.co.q3c.v7.base.view.V7View;
+
+import com.google.inject.Injector;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Asks the {@link NextViewPredictor} for the pages likely to be visited next, and builds (with the {@link Injector})
+ * the views for those which the user may see, and which the {@link ViewCache} would keep but does not already hold. A
+ * private page is only a candidate if the current subject has permission to view it, so that nothing is built for a
+ * user who could not navigate to it.
+ * <p>
+ * The views are built on a thread of the {@link ViewPrefetchExecutor}, but each is constructed inside
+ * {@link ScopedUI#accessSynchronously(Runnable)}, with the session locked and the UI current, because a view's
+ * constructor uses {@link UIScoped} objects (the navigator, the breadcrumb and so on) which are not thread safe. The
+ * view is handed to the cache in the same call. A view is not built if the cache has been cleared (for example by a
+ * logout) since the build was requested.
+ * <p>
+ * There is one instance for each navigator, which remembers the previous page so that the predictor can learn from
+ * each transition
+ */
+public class DefaultViewPrefetcher implements ViewPrefetcher {
+
+	private static Logger log = LoggerFactory.getLogger(DefaultViewPrefetcher.class);
+	public static final int MAX_CANDIDATES = 3;
+	private final NextViewPredictor predictor;
+	private final ViewPrefetchExecutor executor;
+	private final Injector injector;
+	private final SubjectProvider subjectProvider;
+	private final URIPermissionFactory uriPermissionFactory;
+	private String previousUri;
+
+	@Inject
+	protected DefaultViewPrefetcher(NextViewPredictor predictor, ViewPrefetchExecutor executor, Injector injector,
+			SubjectProvider subjectProvider, URIPermissionFactory uriPermissionFactory) {
+		super();
+		this.predictor = predictor;
+		this.executor = executor;
+		this.injector = injector;
+		this.subjectProvider = subjectProvider;
+		this.uriPermissionFactory = uriPermissionFactory;
+	}
+
+	@Override
+	public void viewChanged(Sitemap sitemap, SitemapNode node, final ViewCache viewCache, final ScopedUI ui) {
+		String uri = sitemap.uri(node);
+		predictor.transition(previousUri, uri);
+		previousUri = uri;
+		Subject subject = null;
+		final List<Class<? extends V7View>> viewClasses = new ArrayList<>();
+		for (String page : predictor.predict(sitemap, uri, MAX_CANDIDATES)) {
+			SitemapNode candidate = sitemap.nodeFor(page);
+			Class<? extends V7View> viewClass = (candidate == null) ? null : candidate.getViewClass();
+			if ((viewClass == null) || viewClasses.contains(viewClass) || !viewCache.wouldCache(viewClass)) {
+				continue;
+			}
+			if (!isPublic(sitemap, candidate)) {
+				if (subject == null) {
+					subject = subjectProvider.get();
+				}
+				if (!subject.isPermitted(uriPermissionFactory.createViewPermission(page))) {
+					continue;
+				}
+			}
+			viewClasses.add(viewClass);
+		}
+		if (viewClasses.isEmpty()) {
+			return;
+		}
+		log.debug("prefetching views {} after navigating to '{}'", viewClasses, uri);
+		final int clearCount = viewCache.getClearCount();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				build(viewClasses, viewCache, ui, clearCount);
+			}
+		});
+	}
+
+	private boolean isPublic(Sitemap sitemap, SitemapNode node) {
+		SitemapNode publicRoot = sitemap.getPublicRootNode();
+		return (publicRoot != null) && publicRoot.equals(sitemap.getRootFor(node));
+	}
+
+	/**
+	 * Builds the views, on a thread of the {@link ViewPrefetchExecutor}. Each view is constructed with the session
+	 * locked
+	 */
+	protected void build(List<Class<? extends V7View>> viewClasses, final ViewCache viewCache, final ScopedUI ui,
+			final int clearCount) {
+		try {
+			for (final Class<? extends V7View> viewClass : viewClasses) {
+				ui.accessSynchronously(new Runnable() {
+					@Override
+					public void run() {
+						if ((viewCache.getClearCount() != clearCount) || !viewCache.wouldCache(viewClass)) {
+							return;
+						}
+						CurrentInstance.set(UIKey.class, ui.getInstanceKey());
+						try {
+							viewCache.put(viewClass, injector.getInstance(viewClass));
+						} catch (RuntimeException e) {
+							log.warn("Unable to prefetch view " + viewClass.getName(), e);
+						}
+					}
+				});
+			}
+		} catch (UIDetachedException e) {
+			log.debug("UI closed before prefetched views could be built");
+		} finally {
+			CurrentInstance.clearAll();
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
+import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+
+/**
+ * Asks the {@link V7ViewChangeListener}s whether the view may change, and if they all agree, displays the view, calls
+ * its {@link V7View#enter(V7ViewChangeEvent)} and then makes it the current view of the navigator. The view reads the
+ * navigation state and parameters from the event
+ */
+public class EnterStage implements NavigationStage {
+
+	@Inject
+	protected EnterStage() {
+		super();
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		PipelineNavigator navigator = navigation.getNavigator();
+		V7View view = navigation.getView();
+		V7View currentView = navigator.getCurrentView();
+		V7ViewChangeEvent event = new V7ViewChangeEvent(navigator, currentView, view, navigation.getViewName(),
+				navigation.getFragment().getFragment(), navigation.getPathParameters());
+		navigation.setEvent(event);
+		if (!navigator.fireBeforeViewChange(event)) {
+			return false;
+		}
+		navigator.getUI().changeView(currentView, view);
+		view.enter(event);
+		navigator.setCurrentView(view, navigation.getViewName(), navigation.getFragment());
+		return true;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.apache.commons.configuration.CompositeConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
+import uk.co.q3c.v7.base.config.ConfigKeys;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Collapses a burst of URI fragment changes (for example from repeated browser back / forward) into a single
+ * navigation to the last fragment of the burst. Each change replaces the navigation waiting from the change before it,
+ * and the navigation starts once no change has arrived for {@link ConfigKeys#COALESCE_WINDOW} milliseconds. The default
+ * window of 0 turns coalescing off, and each change is navigated to as it arrives.
+ * <p>
+ * A navigation which has been superseded is dropped before its view is constructed, even if its delay had already
+ * expired and it was waiting for access to the UI. Once started, a navigation holds the session lock, so it cannot be
+ * overtaken by a later change.
+ * <p>
+ * The navigation is made through {@link UI#access(Runnable)}, outside of any request, so the UI must use server push
+ * (or polling) for the browser to show it straight away.
+ */
+public class FragmentCoalescer {
+
+	private static Logger log = LoggerFactory.getLogger(FragmentCoalescer.class);
+	public static final long DEFAULT_WINDOW = 0;
+
+	private final long window;
+	private final NavigationScheduler scheduler;
+	private final AtomicLong generation = new AtomicLong();
+	private ScheduledFuture<?> pending;
+	private final AtomicLong coalesced = new AtomicLong();
+
+	@Inject
+	protected FragmentCoalescer(ApplicationConfigurationService configurationService, NavigationScheduler scheduler) {
+		this(window(configurationService), scheduler);
+	}
+
+	public FragmentCoalescer(long window, NavigationScheduler scheduler) {
+		super();
+		this.window = window;
+		this.scheduler = scheduler;
+	}
+
+	private static long window(ApplicationConfigurationService configurationService) {
+		CompositeConfiguration configuration = configurationService.getConfiguration();
+		if (configuration == null) {
+			return DEFAULT_WINDOW;
+		}
+		return Math.max(0, configuration.getLong(ConfigKeys.COALESCE_WINDOW, DEFAULT_WINDOW));
+	}
+
+	public boolean isEnabled() {
+		return window > 0;
+	}
+
+	/**
+	 * Schedules a navigation to {@code fragment}, replacing any navigation still waiting
+	 * 
+	 * @param ui
+	 * @param navigator
+	 * @param fragment
+	 */
+	public synchronized void submit(final UI ui, final V7Navigator navigator, final String fragment) {
+		cancel();
+		final long expected = generation.get();
+		pending = scheduler.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				ui.access(new Runnable() {
+
+					@Override
+					public void run() {
+						if (generation.get() != expected) {
+							log.debug("navigation to '{}' superseded", fragment);
+							coalesced.incrementAndGet();
+							return;
+						}
+						navigator.navigateTo(fragment);
+					}
+				});
+			}
+		}, window);
+	}
+
+	/**
+	 * Drops the navigation still waiting, if there is one. Called by the navigator when it navigates directly, so that
+	 * an earlier change of fragment does not follow
+	 */
+	public synchronized void cancel() {
+		generation.incrementAndGet();
+		if ((pending != null) && pending.cancel(false)) {
+			coalesced.incrementAndGet();
+		}
+		pending = null;
+	}
+
+	/**
+	 * The number of navigations dropped because a later one replaced them
+	 * 
+	 * @return
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	public long getWindow() {
+		return window;
+	}
+
+}
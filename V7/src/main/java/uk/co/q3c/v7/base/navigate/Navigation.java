@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+import uk.co.q3c.v7.base.view.ErrorView;
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
+
+/**
+ * The state of a single navigation, passed through each {@link NavigationStage} of the {@link NavigationPipeline}.
+ * The fragment is parsed once, before the first stage, and each stage adds what it has found for the stages after it.
+ * A Navigation is used by a single thread, and only for the duration of one navigation
+ */
+public class Navigation {
+
+	private final PipelineNavigator navigator;
+	private final Sitemap sitemap;
+	private ParsedFragment fragment;
+	private PageResolution resolution;
+	private SitemapNode node;
+	private final Map<String, String> pathParameters = new HashMap<>(4);
+	private V7View view;
+	private String viewName;
+	private V7ViewChangeEvent event;
+
+	public Navigation(PipelineNavigator navigator, Sitemap sitemap, ParsedFragment fragment) {
+		super();
+		this.navigator = navigator;
+		this.sitemap = sitemap;
+		this.fragment = fragment;
+	}
+
+	public PipelineNavigator getNavigator() {
+		return navigator;
+	}
+
+	/**
+	 * The Sitemap used for the whole navigation, so that every stage sees the same snapshot. May be null for a
+	 * navigation which does not use it, such as to the {@link ErrorView}
+	 * 
+	 * @return
+	 */
+	public Sitemap getSitemap() {
+		return sitemap;
+	}
+
+	public ParsedFragment getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * Replaces the fragment, for example by {@link RedirectStage}
+	 * 
+	 * @param fragment
+	 */
+	public void setFragment(ParsedFragment fragment) {
+		this.fragment = fragment;
+	}
+
+	/**
+	 * The resolution of the virtual page, from the {@link ResolutionCache}. Set by {@link RedirectStage}, or by
+	 * {@link ResolveStage} if there is no RedirectStage
+	 * 
+	 * @return
+	 */
+	public PageResolution getResolution() {
+		return resolution;
+	}
+
+	public void setResolution(PageResolution resolution) {
+		this.resolution = resolution;
+	}
+
+	public SitemapNode getNode() {
+		return node;
+	}
+
+	public void setNode(SitemapNode node) {
+		this.node = node;
+	}
+
+	/**
+	 * The values captured by the parameter segments of the page, keyed by parameter name. Filled by
+	 * {@link ResolveStage}
+	 * 
+	 * @return
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	public V7View getView() {
+		return view;
+	}
+
+	public void setView(V7View view) {
+		this.view = view;
+	}
+
+	/**
+	 * The name of the view, which is the virtual page of the fragment unless it has been set
+	 * 
+	 * @return
+	 */
+	public String getViewName() {
+		return (viewName == null) ? fragment.getVirtualPage() : viewName;
+	}
+
+	public void setViewName(String viewName) {
+		this.viewName = viewName;
+	}
+
+	/**
+	 * The event passed to the listeners, created by {@link EnterStage}
+	 * 
+	 * @return
+	 */
+	public V7ViewChangeEvent getEvent() {
+		return event;
+	}
+
+	public void setEvent(V7ViewChangeEvent event) {
+		this.event = event;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import uk.co.q3c.v7.base.view.ErrorView;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The stages of a navigation, in order: {@link RedirectStage}, {@link ResolveStage}, {@link AuthoriseStage} and
+ * {@link ConstructStage} find the view, and {@link EnterStage} and {@link NotifyStage} display it. Each stage is given
+ * the same {@link Navigation}, holding the fragment parsed once by the navigator, and the navigation ends when a stage
+ * returns false or throws an exception.
+ * <p>
+ * A stage is replaced by binding its class to a sub-class, and stages are added or removed by binding this class to a
+ * sub-class which calls {@link #NavigationPipeline(List, List)}
+ */
+public class NavigationPipeline {
+
+	private final ImmutableList<NavigationStage> routingStages;
+	private final ImmutableList<NavigationStage> displayStages;
+
+	@Inject
+	protected NavigationPipeline(RedirectStage redirect, ResolveStage resolve, AuthoriseStage authorise,
+			ConstructStage construct, EnterStage enter, NotifyStage notify) {
+		this(ImmutableList.<NavigationStage> of(redirect, resolve, authorise, construct), ImmutableList
+				.<NavigationStage> of(enter, notify));
+	}
+
+	protected NavigationPipeline(List<NavigationStage> routingStages, List<NavigationStage> displayStages) {
+		super();
+		this.routingStages = ImmutableList.copyOf(routingStages);
+		this.displayStages = ImmutableList.copyOf(displayStages);
+	}
+
+	/**
+	 * Passes {@code navigation} through all the stages. Returns false if a stage ended the navigation
+	 * 
+	 * @param navigation
+	 * @return
+	 */
+	public boolean navigate(Navigation navigation) {
+		return process(routingStages, navigation) && process(displayStages, navigation);
+	}
+
+	/**
+	 * Passes {@code navigation}, which must already have its view, through the display stages only. Used for a view
+	 * which is not in the Sitemap, such as the {@link ErrorView}
+	 * 
+	 * @param navigation
+	 * @return
+	 */
+	public boolean display(Navigation navigation) {
+		return process(displayStages, navigation);
+	}
+
+	private boolean process(List<NavigationStage> stages, Navigation navigation) {
+		for (NavigationStage stage : stages) {
+			if (!stage.process(navigation)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns all the stages, in order
+	 * 
+	 * @return
+	 */
+	public ImmutableList<NavigationStage> getStages() {
+		return ImmutableList.<NavigationStage> builder().addAll(routingStages).addAll(displayStages).build();
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The thread used by {@link FragmentCoalescer} for all UIs, to start a navigation once a burst of URI fragment changes
+ * has ended. The task only hands the navigation over to its UI, so one thread is enough
+ */
+@Singleton
+public class NavigationScheduler {
+
+	private final ScheduledThreadPoolExecutor executor;
+
+	@Inject
+	protected NavigationScheduler() {
+		super();
+		executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("v7-navigation-%d")
+				.setDaemon(true).build());
+		// a coalesced navigation is usually cancelled, and should not be held until its delay expires
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	public ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+		return executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the thread. Navigations already scheduled are discarded
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
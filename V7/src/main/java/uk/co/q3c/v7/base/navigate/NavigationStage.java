@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+
+/**
+ * One stage of the {@link NavigationPipeline}. A stage reads what the stages before it have put into the
+ * {@link Navigation}, and adds its own result. Each of the standard stages is a class with an injected constructor,
+ * so a stage can be replaced by binding its class to a sub-class in a Guice module, or the whole pipeline replaced by
+ * binding {@link NavigationPipeline}
+ */
+public interface NavigationStage {
+
+	/**
+	 * Processes {@code navigation}. Returns false to end the navigation quietly (for example when a
+	 * {@link V7ViewChangeListener} blocks the view change), or throws an exception to end it with an error
+	 * 
+	 * @param navigation
+	 * @return
+	 */
+	boolean process(Navigation navigation);
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.List;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+
+/**
+ * Predicts the pages a user is likely to visit next, so that a {@link ViewPrefetcher} can build their views in
+ * advance. Implementations are used by all UIs, so must be thread safe
+ */
+public interface NextViewPredictor {
+
+	/**
+	 * Records that a user has navigated from {@code fromUri} to {@code toUri}. {@code fromUri} is null for the first
+	 * page of a UI
+	 * 
+	 * @param fromUri
+	 * @param toUri
+	 */
+	void transition(String fromUri, String toUri);
+
+	/**
+	 * Returns up to {@code max} pages of {@code sitemap} likely to be visited after {@code uri}, the most likely first
+	 * 
+	 * @param sitemap
+	 * @param uri
+	 * @param max
+	 * @return
+	 */
+	List<String> predict(Sitemap sitemap, String uri, int max);
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+
+/**
+ * Tells the {@link V7ViewChangeListener}s that the view has changed, and then, if one is bound, the
+ * {@link ViewPrefetcher}
+ */
+public class NotifyStage implements NavigationStage {
+
+	private ViewPrefetcher viewPrefetcher;
+
+	@Inject
+	protected NotifyStage() {
+		super();
+	}
+
+	/**
+	 * Optional, there is no prefetching unless a {@link ViewPrefetcher} is bound (see {@link ViewPrefetchModule})
+	 * 
+	 * @param viewPrefetcher
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setViewPrefetcher(ViewPrefetcher viewPrefetcher) {
+		this.viewPrefetcher = viewPrefetcher;
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		PipelineNavigator navigator = navigation.getNavigator();
+		navigator.fireAfterViewChange(navigation.getEvent());
+		if ((viewPrefetcher != null) && (navigation.getNode() != null)) {
+			viewPrefetcher.viewChanged(navigation.getSitemap(), navigation.getNode(), navigator.getViewCache(),
+					navigator.getUI());
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.List;
+import java.util.Map;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The result of resolving a virtual page against a {@link Sitemap}: the page it is redirected to (the page itself if
+ * it is not redirected), the node for that page and the chain of nodes leading to it, the values of its parameter
+ * segments, and whether it is public. The node is null, and the chain empty, if there is no such page. Immutable, so
+ * that it can be shared by all UIs through the {@link ResolutionCache}
+ */
+public final class PageResolution {
+
+	private final String virtualPage;
+	private final SitemapNode node;
+	private final ImmutableList<SitemapNode> nodeChain;
+	private final ImmutableMap<String, String> pathParameters;
+	private final boolean publicPage;
+
+	public PageResolution(String virtualPage, SitemapNode node, List<SitemapNode> nodeChain,
+			Map<String, String> pathParameters, boolean publicPage) {
+		super();
+		this.virtualPage = virtualPage;
+		this.node = node;
+		this.nodeChain = ImmutableList.copyOf(nodeChain);
+		this.pathParameters = ImmutableMap.copyOf(pathParameters);
+		this.publicPage = publicPage;
+	}
+
+	/**
+	 * The virtual page after any redirect has been applied
+	 * 
+	 * @return
+	 */
+	public String getVirtualPage() {
+		return virtualPage;
+	}
+
+	public SitemapNode getNode() {
+		return node;
+	}
+
+	public boolean isFound() {
+		return node != null;
+	}
+
+	public ImmutableList<SitemapNode> getNodeChain() {
+		return nodeChain;
+	}
+
+	public ImmutableMap<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	public boolean isPublicPage() {
+		return publicPage;
+	}
+
+}
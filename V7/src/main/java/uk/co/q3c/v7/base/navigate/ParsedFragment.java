@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * An immutable, parsed, URI fragment, as produced by {@link URIFragmentHandler#parse(String)}. A navigation parses
+ * its fragment once, and the result is passed through every stage of the {@link NavigationPipeline}, so that no stage
+ * has to parse it again.
+ * <p>
+ * {@link #getFragment()} is the fragment as given, without a leading '!' or a trailing '/'. Two instances are equal if
+ * they have the same virtual page and parameters, regardless of the order of the parameters in the fragment
+ */
+public final class ParsedFragment {
+
+	private final String fragment;
+	private final String virtualPage;
+	private final String[] pathSegments;
+	private final ImmutableSortedMap<String, String> parameters;
+
+	public ParsedFragment(String fragment, String virtualPage, Map<String, String> parameters) {
+		super();
+		this.fragment = fragment;
+		this.virtualPage = virtualPage;
+		this.pathSegments = virtualPage.split("/");
+		this.parameters = ImmutableSortedMap.copyOf(parameters);
+	}
+
+	public String getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * The "virtual page path" of the fragment - see {@link URIFragmentHandler#virtualPage()}
+	 * 
+	 * @return
+	 */
+	public String getVirtualPage() {
+		return virtualPage;
+	}
+
+	/**
+	 * Returns the virtual page path as an array of segments. The array is a copy, and may be changed by the caller
+	 * 
+	 * @return
+	 */
+	public String[] getPathSegments() {
+		return pathSegments.clone();
+	}
+
+	public ImmutableSortedMap<String, String> getParameters() {
+		return parameters;
+	}
+
+	public String parameterValue(String paramName) {
+		return parameters.get(paramName);
+	}
+
+	/**
+	 * Returns the parameters in the form 'name=value', ordered by name
+	 * 
+	 * @return
+	 */
+	public List<String> parameterList() {
+		List<String> list = new ArrayList<String>(parameters.size());
+		for (Map.Entry<String, String> entry : parameters.entrySet()) {
+			list.add(entry.getKey() + "=" + entry.getValue());
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a copy of this fragment with its virtual page replaced by {@code page}, as used for a redirect. The rest
+	 * of the fragment is kept as it was, so that the parameters stay in the order they were given
+	 * 
+	 * @param page
+	 * @return
+	 */
+	public ParsedFragment withVirtualPage(String page) {
+		String remainder = fragment.startsWith(virtualPage) ? fragment.substring(virtualPage.length()) : "";
+		StringBuilder buf = new StringBuilder(page.length() + remainder.length() + 1).append(page);
+		if (page.isEmpty() && remainder.startsWith("/")) {
+			remainder = remainder.substring(1);
+		} else if (!page.isEmpty() && !remainder.isEmpty() && !remainder.startsWith("/")) {
+			buf.append('/');
+		}
+		return new ParsedFragment(buf.append(remainder).toString(), page, parameters);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ParsedFragment)) {
+			return false;
+		}
+		ParsedFragment other = (ParsedFragment) obj;
+		return virtualPage.equals(other.virtualPage) && parameters.equals(other.parameters);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(virtualPage, parameters);
+	}
+
+	@Override
+	public String toString() {
+		return fragment;
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import uk.co.q3c.v7.base.ui.ScopedUI;
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
+import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+
+/**
+ * The parts of a navigator which the {@link NavigationStage}s of a {@link NavigationPipeline} need in order to change
+ * the view, available from {@link Navigation#getNavigator()}. A replacement stage, in any package, uses this rather than
+ * a particular navigator implementation
+ */
+public interface PipelineNavigator extends V7Navigator {
+
+	/**
+	 * Asks each {@link V7ViewChangeListener} whether the view may change
+	 * 
+	 * @param event
+	 *            view change event (not null, view change not yet performed)
+	 * @return true if the view change should be allowed, false to block it
+	 */
+	boolean fireBeforeViewChange(V7ViewChangeEvent event);
+
+	/**
+	 * Tells each {@link V7ViewChangeListener} that the view has changed
+	 * 
+	 * @param event
+	 *            view change event (not null)
+	 */
+	void fireAfterViewChange(V7ViewChangeEvent event);
+
+	/**
+	 * Makes {@code view} the current view, and {@code fragment} the navigation state shown in the browser
+	 * 
+	 * @param view
+	 * @param viewName
+	 * @param fragment
+	 */
+	void setCurrentView(V7View view, String viewName, ParsedFragment fragment);
+
+	/**
+	 * The cache of views for this navigator
+	 * 
+	 * @return
+	 */
+	ViewCache getViewCache();
+
+	/**
+	 * The UI this navigator changes the view of
+	 * 
+	 * @return
+	 */
+	ScopedUI getUI();
+}
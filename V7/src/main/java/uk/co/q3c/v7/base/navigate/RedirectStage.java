@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+
+/**
+ * Looks up the {@link PageResolution} of the virtual page in the {@link ResolutionCache}, and replaces the virtual page
+ * of the fragment if it is redirected by the {@link Sitemap}, keeping the rest of the fragment as it was. A navigation
+ * to a given view (which already has its view) is not redirected
+ */
+public class RedirectStage implements NavigationStage {
+
+	private static Logger log = LoggerFactory.getLogger(RedirectStage.class);
+
+	private final ResolutionCache resolutionCache;
+
+	@Inject
+	protected RedirectStage(ResolutionCache resolutionCache) {
+		super();
+		this.resolutionCache = resolutionCache;
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		ParsedFragment fragment = navigation.getFragment();
+		PageResolution resolution = resolutionCache.resolve(navigation.getSitemap(), fragment);
+		navigation.setResolution(resolution);
+		if (navigation.getView() != null) {
+			return true;
+		}
+		String page = fragment.getVirtualPage();
+		String redirection = resolution.getVirtualPage();
+		if (!redirection.equals(page)) {
+			log.debug("page '{}' is redirected to '{}'", page, redirection);
+			navigation.setFragment(fragment.withVirtualPage(redirection));
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.configuration.CompositeConfiguration;
+
+import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
+import uk.co.q3c.v7.base.config.ConfigKeys;
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapURIConverter;
+import uk.co.q3c.v7.base.navigate.sitemap.TenantSitemap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+
+/**
+ * Remembers the {@link PageResolution} of each virtual page navigated to, so that the redirect lookup, node resolution
+ * and public / private classification are done once per page rather than once per navigation. There is one instance
+ * for the application, shared by all UIs.
+ * <p>
+ * Resolutions are held separately for each Sitemap instance, keyed by identity, so a resolution is never used with a
+ * Sitemap other than the one it was made from - including another {@link TenantSitemap} over the same base, which
+ * may hide or redirect the same page differently. For each Sitemap at most {@link ConfigKeys#RESOLUTION_CACHE_SIZE}
+ * (default {@link #DEFAULT_SIZE}) pages are kept, those least recently used being evicted first, and the resolutions
+ * of a Sitemap are released with the Sitemap itself once it has been replaced. An unlocked Sitemap can still change,
+ * so its pages are resolved on every call and not cached
+ */
+@Singleton
+public class ResolutionCache {
+
+	public static final int DEFAULT_SIZE = 1024;
+
+	private final int maxSize;
+	private final SitemapURIConverter sitemapURIConverter;
+	// keyed by identity, and released with the Sitemap
+	private final Map<Sitemap, Cache<String, PageResolution>> caches = Collections
+			.synchronizedMap(new WeakHashMap<Sitemap, Cache<String, PageResolution>>());
+
+	@Inject
+	protected ResolutionCache(ApplicationConfigurationService configurationService,
+			SitemapURIConverter sitemapURIConverter) {
+		this(maxSize(configurationService), sitemapURIConverter);
+	}
+
+	public ResolutionCache(int maxSize, SitemapURIConverter sitemapURIConverter) {
+		super();
+		this.maxSize = maxSize;
+		this.sitemapURIConverter = sitemapURIConverter;
+	}
+
+	private static int maxSize(ApplicationConfigurationService configurationService) {
+		CompositeConfiguration configuration = configurationService.getConfiguration();
+		if (configuration == null) {
+			return DEFAULT_SIZE;
+		}
+		return Math.max(0, configuration.getInt(ConfigKeys.RESOLUTION_CACHE_SIZE, DEFAULT_SIZE));
+	}
+
+	/**
+	 * Returns the resolution of the virtual page of {@code fragment} against {@code sitemap}, from the cache if it has
+	 * already been resolved against the same Sitemap
+	 * 
+	 * @param sitemap
+	 * @param fragment
+	 * @return
+	 */
+	public PageResolution resolve(Sitemap sitemap, ParsedFragment fragment) {
+		if (!sitemap.isLocked()) {
+			return compute(sitemap, fragment);
+		}
+		Cache<String, PageResolution> cache = cacheFor(sitemap);
+		PageResolution resolution = cache.getIfPresent(fragment.getVirtualPage());
+		if (resolution == null) {
+			resolution = compute(sitemap, fragment);
+			cache.put(fragment.getVirtualPage(), resolution);
+		}
+		return resolution;
+	}
+
+	private Cache<String, PageResolution> cacheFor(Sitemap sitemap) {
+		synchronized (caches) {
+			Cache<String, PageResolution> cache = caches.get(sitemap);
+			if (cache == null) {
+				cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+				caches.put(sitemap, cache);
+			}
+			return cache;
+		}
+	}
+
+	private PageResolution compute(Sitemap sitemap, ParsedFragment fragment) {
+		String page = fragment.getVirtualPage();
+		String redirection = sitemap.getRedirectFor(page);
+		ParsedFragment target = ((redirection == null) || redirection.equals(page)) ? fragment : fragment
+				.withVirtualPage(redirection);
+		Map<String, String> pathParameters = new HashMap<>(4);
+		SitemapNode node = sitemapURIConverter.nodeFor(sitemap, target, pathParameters);
+		List<SitemapNode> nodeChain = (node == null) ? Collections.<SitemapNode> emptyList() : sitemap
+				.nodeChainForSegments(Lists.newArrayList(target.getPathSegments()), false);
+		boolean publicPage = sitemapURIConverter.pageIsPublic(sitemap, node);
+		return new PageResolution(target.getVirtualPage(), node, nodeChain, pathParameters, publicPage);
+	}
+
+	/**
+	 * Hit, miss and eviction counts, and the hit rate, totalled over the Sitemaps still held
+	 * 
+	 * @return
+	 */
+	public CacheStats getStats() {
+		CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+		for (Cache<String, PageResolution> cache : caches()) {
+			stats = stats.plus(cache.stats());
+		}
+		return stats;
+	}
+
+	/**
+	 * The number of pages held, for all the Sitemaps still held
+	 * 
+	 * @return
+	 */
+	public long size() {
+		long size = 0;
+		for (Cache<String, PageResolution> cache : caches()) {
+			size += cache.size();
+		}
+		return size;
+	}
+
+	private List<Cache<String, PageResolution>> caches() {
+		synchronized (caches) {
+			return new ArrayList<>(caches.values());
+		}
+	}
+
+	/**
+	 * The number of pages kept for each Sitemap
+	 * 
+	 * @return
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+}
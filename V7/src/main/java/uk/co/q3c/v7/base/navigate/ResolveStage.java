@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+
+/**
+ * Sets the {@link SitemapNode} for the virtual page, and the values of its parameter segments, from the
+ * {@link PageResolution} found by {@link RedirectStage}. Throws an {@link InvalidURIException} if there is no such page
+ */
+public class ResolveStage implements NavigationStage {
+
+	private static Logger log = LoggerFactory.getLogger(ResolveStage.class);
+	private final ResolutionCache resolutionCache;
+
+	@Inject
+	protected ResolveStage(ResolutionCache resolutionCache) {
+		super();
+		this.resolutionCache = resolutionCache;
+	}
+
+	@Override
+	public boolean process(Navigation navigation) {
+		ParsedFragment fragment = navigation.getFragment();
+		log.debug("looking up View for page '{}'", fragment.getVirtualPage());
+		PageResolution resolution = navigation.getResolution();
+		if (resolution == null) {
+			resolution = resolutionCache.resolve(navigation.getSitemap(), fragment);
+			navigation.setResolution(resolution);
+		}
+		SitemapNode node = resolution.getNode();
+		if (node == null) {
+			String msg = "View not found for page '" + fragment.getFragment() + "'";
+			log.debug(msg);
+			throw new InvalidURIException(msg);
+		}
+		navigation.setNode(node);
+		navigation.getPathParameters().putAll(resolution.getPathParameters());
+		return true;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+
+/**
+ * Predicts that the next page will be a child of the current page, or failing that, one of its siblings, in the order
+ * they were added to the {@link Sitemap}. Holds no state, so it needs no history before it can predict
+ */
+public class SitemapAdjacencyPredictor implements NextViewPredictor {
+
+	@Override
+	public void transition(String fromUri, String toUri) {
+		// nothing to learn
+	}
+
+	@Override
+	public List<String> predict(Sitemap sitemap, String uri, int max) {
+		List<String> pages = new ArrayList<>();
+		SitemapNode node = sitemap.nodeFor(uri);
+		if (node == null) {
+			return pages;
+		}
+		add(sitemap, node, sitemap.getChildren(node, null, false), pages, max);
+		SitemapNode parent = sitemap.getParent(node);
+		List<SitemapNode> siblings = (parent == null) ? sitemap.getRoots(null, false) : sitemap.getChildren(parent,
+				null, false);
+		add(sitemap, node, siblings, pages, max);
+		return pages;
+	}
+
+	private void add(Sitemap sitemap, SitemapNode current, List<SitemapNode> nodes, List<String> pages, int max) {
+		for (SitemapNode node : nodes) {
+			if (pages.size() >= max) {
+				return;
+			}
+			if (!node.equals(current)) {
+				pages.add(sitemap.uri(node));
+			}
+		}
+	}
+
+}
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import uk.co.q3c.v7.base.guice.BaseGuiceServletInjector;
 import uk.co.q3c.v7.base.navigate.sitemap.PageRecord;
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapLabels;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapFileReader;
 import uk.co.q3c.v7.base.view.LoginView;
@@ -29,7 +30,6 @@ import uk.co.q3c.v7.base.view.SystemAccountView;
 import uk.co.q3c.v7.base.view.V7View;
 import uk.co.q3c.v7.i18n.CurrentLocale;
 import uk.co.q3c.v7.i18n.I18NKey;
-import uk.co.q3c.v7.i18n.Translate;
 
 /**
  * Used during the process of building the {@link Sitemap}. Provides the logic for building standard pages using options
@@ -54,14 +54,14 @@ public class StandardPageBuilder {
 	private Set<String> standardPageErrors;
 	private final CurrentLocale currentLocale;
 	private final Collator collator;
-	private final Translate translate;
+	private final SitemapLabels labels;
 
 	@Inject
-	protected StandardPageBuilder(CurrentLocale currentLocale, Translate translate) {
+	protected StandardPageBuilder(CurrentLocale currentLocale, SitemapLabels labels) {
 		super();
 		this.currentLocale = currentLocale;
 		this.collator = Collator.getInstance(currentLocale.getLocale());
-		this.translate = translate;
+		this.labels = labels;
 	}
 
 	public void generateStandardPages() {
@@ -99,7 +99,7 @@ public class StandardPageBuilder {
 	private void generatePage(StandardPageKey key) {
 		log.debug("generating page for {}", key);
 		SitemapNode node = sitemap.append(defaultUri(key));
-		node.setLabelKey(key, translate, collator);
+		node.setLabelKey(key, labels, collator);
 		node.setViewClass(viewClass(key));
 		node.setUriSegment(defaultSegment(key));
 		sitemap.getStandardPages().put(key, sitemap.uri(node));
@@ -256,7 +256,7 @@ public class StandardPageBuilder {
 					LabelKeyForName labelKeyForName = new LabelKeyForName(labelKeysClass);
 					I18NKey<?> labelKey = labelKeyForName.keyForName(pr.getLabelKeyName(), missingEnums);
 					SitemapNode node = sitemap.append(pr.getUri());
-					node.setLabelKey(labelKey, translate, collator);
+					node.setLabelKey(labelKey, labels, collator);
 					node.setViewClass(viewClass(spk));
 					sitemap.getStandardPages().put(spk, sitemap.uri(node));
 				} catch (Exception e) {
@@ -45,7 +45,6 @@ public class StrictURIFragmentHandler implements URIFragmentHandler, Serializabl
 	private String fragment;
 	private String virtualPage;
 	private final Map<String, String> parameters = new TreeMap<String, String>();
-	private final List<String> pathSegments = new ArrayList<>();
 	private boolean useBang;
 	// fragment is out of date
 	private boolean dirty;
@@ -56,33 +55,41 @@ public class StrictURIFragmentHandler implements URIFragmentHandler, Serializabl
 	}
 
 	private void decode() {
-		fragment = stripBangAndTrailingSlash(fragment);
+		ParsedFragment parsed = parse(fragment);
+		fragment = parsed.getFragment();
+		virtualPage = parsed.getVirtualPage();
 		parameters.clear();
-		pathSegments.clear();
+		parameters.putAll(parsed.getParameters());
+	}
 
-		// empty fragment is 'home'
-		if (Strings.isNullOrEmpty(fragment)) {
-			virtualPage = "";
-			return;
-		}
+	/**
+	 * Parses {@code fragment} by the rules described for this class, without changing the state of this handler. A
+	 * null fragment is treated as empty
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.URIFragmentHandler#parse(java.lang.String)
+	 */
+	@Override
+	public ParsedFragment parse(String fragment) {
+		String stripped = (fragment == null) ? "" : stripBangAndTrailingSlash(fragment);
+		Map<String, String> params = new TreeMap<String, String>();
 
-		// no parameters, everything is the virtual page path
-		if (!fragment.contains("=")) {
-			virtualPage = fragment;
-			return;
+		// empty fragment is 'home', and with no parameters, everything is the virtual page path
+		if (stripped.isEmpty() || !stripped.contains("=")) {
+			return new ParsedFragment(stripped, stripped, params);
 		}
 
-		Iterable<String> segments = Splitter.on('/').split(fragment);
+		List<String> pathSegments = new ArrayList<>();
+		Iterable<String> segments = Splitter.on('/').split(stripped);
 		boolean paramsStarted = false;
 		Iterator<String> iter = segments.iterator();
 		while (iter.hasNext()) {
 			String s = iter.next();
 			if (paramsStarted) {
-				addParameter(s);
+				addParameter(params, s);
 			} else {
 				if (s.contains("=")) {
 					paramsStarted = true;
-					addParameter(s);
+					addParameter(params, s);
 				} else {
 					pathSegments.add(s);
 				}
@@ -90,11 +97,10 @@ public class StrictURIFragmentHandler implements URIFragmentHandler, Serializabl
 		}
 
 		// join the virtual page path up again
-		virtualPage = Joiner.on('/').join(pathSegments.toArray());
-
+		return new ParsedFragment(stripped, Joiner.on('/').join(pathSegments), params);
 	}
 
-	private void addParameter(String s) {
+	private void addParameter(Map<String, String> params, String s) {
 		if (s.contains("=")) {
 			Iterable<String> segments = Splitter.on('=').split(s);
 			Iterator<String> iter = segments.iterator();
@@ -106,7 +112,7 @@ public class StrictURIFragmentHandler implements URIFragmentHandler, Serializabl
 			if (Strings.isNullOrEmpty(value)) {
 				return;
 			}
-			parameters.put(key, value);
+			params.put(key, value);
 		}
 	}
 
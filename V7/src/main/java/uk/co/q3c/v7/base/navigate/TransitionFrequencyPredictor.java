@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+
+/**
+ * Predicts the next page from the navigations made by all users, the page most often visited after the current one
+ * first. Where there is not yet enough history, the prediction is completed by {@link SitemapAdjacencyPredictor}.
+ * Counts are kept for pages which are no longer in the {@link Sitemap}, but they are not predicted
+ */
+@Singleton
+public class TransitionFrequencyPredictor implements NextViewPredictor {
+
+	private final ConcurrentMap<String, ConcurrentMap<String, AtomicInteger>> transitions = new ConcurrentHashMap<>();
+	private final SitemapAdjacencyPredictor adjacencyPredictor;
+
+	@Inject
+	protected TransitionFrequencyPredictor(SitemapAdjacencyPredictor adjacencyPredictor) {
+		super();
+		this.adjacencyPredictor = adjacencyPredictor;
+	}
+
+	@Override
+	public void transition(String fromUri, String toUri) {
+		if ((fromUri == null) || fromUri.equals(toUri)) {
+			return;
+		}
+		ConcurrentMap<String, AtomicInteger> targets = transitions.get(fromUri);
+		if (targets == null) {
+			ConcurrentMap<String, AtomicInteger> newTargets = new ConcurrentHashMap<>();
+			targets = transitions.putIfAbsent(fromUri, newTargets);
+			if (targets == null) {
+				targets = newTargets;
+			}
+		}
+		AtomicInteger count = targets.get(toUri);
+		if (count == null) {
+			AtomicInteger newCount = new AtomicInteger();
+			count = targets.putIfAbsent(toUri, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	@Override
+	public List<String> predict(Sitemap sitemap, String uri, int max) {
+		List<String> pages = new ArrayList<>();
+		Map<String, AtomicInteger> targets = transitions.get(uri);
+		if (targets != null) {
+			final Map<String, Integer> counts = new HashMap<>();
+			for (Map.Entry<String, AtomicInteger> entry : targets.entrySet()) {
+				if (sitemap.hasUri(entry.getKey())) {
+					counts.put(entry.getKey(), entry.getValue().get());
+				}
+			}
+			pages.addAll(counts.keySet());
+			Collections.sort(pages, new Comparator<String>() {
+				@Override
+				public int compare(String o1, String o2) {
+					return counts.get(o2) - counts.get(o1);
+				}
+			});
+			if (pages.size() > max) {
+				pages.subList(max, pages.size()).clear();
+			}
+		}
+		if (pages.size() < max) {
+			for (String page : adjacencyPredictor.predict(sitemap, uri, max)) {
+				if ((pages.size() < max) && !pages.contains(page)) {
+					pages.add(page);
+				}
+			}
+		}
+		return pages;
+	}
+
+	/**
+	 * Returns the number of times a navigation from {@code fromUri} to {@code toUri} has been recorded
+	 * 
+	 * @param fromUri
+	 * @param toUri
+	 * @return
+	 */
+	public int count(String fromUri, String toUri) {
+		Map<String, AtomicInteger> targets = transitions.get(fromUri);
+		AtomicInteger count = (targets == null) ? null : targets.get(toUri);
+		return (count == null) ? 0 : count.get();
+	}
+
+}
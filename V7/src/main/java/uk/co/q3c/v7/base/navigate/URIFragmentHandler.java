@@ -22,6 +22,15 @@ public interface URIFragmentHandler {
 
 	public URIFragmentHandler setFragment(String fragment);
 
+	/**
+	 * Parses {@code fragment} into an immutable {@link ParsedFragment}, without changing the state of this handler, so
+	 * that the result can be passed to anything which needs it rather than being parsed again
+	 * 
+	 * @param fragment
+	 * @return
+	 */
+	ParsedFragment parse(String fragment);
+
 	public String fragment();
 
 	public List<String> parameterList();
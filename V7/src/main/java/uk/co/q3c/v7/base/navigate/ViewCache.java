@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.apache.commons.configuration.CompositeConfiguration;
+
+import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
+import uk.co.q3c.v7.base.config.ConfigKeys;
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.ViewBase;
+import uk.co.q3c.v7.base.view.ViewCaching;
+import uk.co.q3c.v7.base.view.ViewCaching.Policy;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Holds the {@link V7View} instances constructed by a {@link V7Navigator}, keyed by view class, so that navigating back
+ * to a view which is expensive to build (see {@link ViewBase#buildView()}) re-uses the same instance. There is one
+ * cache for each navigator, and therefore for each UI, so it is not thread safe - Vaadin serialises access to a UI.
+ * <p>
+ * Caching is opt-in: a view is only cached if it has a {@link ViewCaching} annotation, which also sets how long it
+ * is kept, because a re-used view must be written to be entered more than once. A view without one is constructed
+ * afresh for each navigation. Of the {@link Policy#LRU} and {@link Policy#TTL} views, at most
+ * {@link ConfigKeys#VIEW_CACHE_SIZE} (default {@link #DEFAULT_SIZE}) are kept, the least recently used being discarded
+ * first. A size of 0 turns off caching for all but {@link Policy#ALWAYS} views.
+ */
+public class ViewCache {
+
+	private static class CachedView {
+		private final V7View view;
+		private final long expiresAt;
+
+		CachedView(V7View view, long expiresAt) {
+			super();
+			this.view = view;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	public static final int DEFAULT_SIZE = 8;
+	private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+	private final int maxSize;
+	private final Ticker ticker;
+	private final Map<Class<? extends V7View>, CachedView> always = new HashMap<>();
+	private final Map<Class<? extends V7View>, CachedView> recent;
+	private final Map<Class<? extends V7View>, ViewCaching> policies = new HashMap<>();
+	private long hits;
+	private long misses;
+	private int clears;
+
+	@Inject
+	protected ViewCache(ApplicationConfigurationService configurationService) {
+		this(maxSize(configurationService), Ticker.systemTicker());
+	}
+
+	public ViewCache(final int maxSize, Ticker ticker) {
+		super();
+		this.maxSize = maxSize;
+		this.ticker = ticker;
+		// access ordered, so the eldest entry is the least recently used
+		this.recent = new LinkedHashMap<Class<? extends V7View>, CachedView>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Class<? extends V7View>, CachedView> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	private static int maxSize(ApplicationConfigurationService configurationService) {
+		CompositeConfiguration configuration = configurationService.getConfiguration();
+		if (configuration == null) {
+			return DEFAULT_SIZE;
+		}
+		return Math.max(0, configuration.getInt(ConfigKeys.VIEW_CACHE_SIZE, DEFAULT_SIZE));
+	}
+
+	/**
+	 * Returns the cached instance of {@code viewClass}, or null if there is none, or it has expired. Every call counts
+	 * as either a hit or a miss
+	 * 
+	 * @param viewClass
+	 * @return
+	 */
+	public V7View get(Class<? extends V7View> viewClass) {
+		CachedView entry = always.get(viewClass);
+		if (entry == null) {
+			entry = recent.get(viewClass);
+			if ((entry != null) && (ticker.read() >= entry.expiresAt)) {
+				recent.remove(viewClass);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.view;
+	}
+
+	/**
+	 * Adds {@code view} to the cache, as the instance of {@code viewClass}, unless it has no {@link ViewCaching}
+	 * annotation, or its policy (or a size of 0) means that it should not be cached
+	 * 
+	 * @param viewClass
+	 * @param view
+	 */
+	public void put(Class<? extends V7View> viewClass, V7View view) {
+		ViewCaching caching = policy(viewClass);
+		switch (policyOf(caching)) {
+		case NEVER:
+			return;
+		case ALWAYS:
+			always.put(viewClass, new CachedView(view, NO_EXPIRY));
+			return;
+		case TTL:
+			if (maxSize > 0) {
+				long ttl = TimeUnit.SECONDS.toNanos(caching.ttl());
+				recent.put(viewClass, new CachedView(view, ticker.read() + ttl));
+			}
+			return;
+		default:
+			if (maxSize > 0) {
+				recent.put(viewClass, new CachedView(view, NO_EXPIRY));
+			}
+		}
+	}
+
+	/**
+	 * Returns true if an instance of {@code viewClass} would be kept by {@link #put(Class, V7View)}, and there is not
+	 * one cached already. This does not count as a hit or a miss
+	 * 
+	 * @param viewClass
+	 * @return
+	 */
+	public boolean wouldCache(Class<? extends V7View> viewClass) {
+		ViewCaching caching = policy(viewClass);
+		switch (policyOf(caching)) {
+		case NEVER:
+			return false;
+		case ALWAYS:
+			return !always.containsKey(viewClass);
+		default:
+			if (maxSize == 0) {
+				return false;
+			}
+			// containsKey, as get() would count as a use, and change the LRU order
+			return !recent.containsKey(viewClass);
+		}
+	}
+
+	private static Policy policyOf(ViewCaching caching) {
+		return (caching == null) ? Policy.NEVER : caching.value();
+	}
+
+	private ViewCaching policy(Class<? extends V7View> viewClass) {
+		if (!policies.containsKey(viewClass)) {
+			policies.put(viewClass, viewClass.getAnnotation(ViewCaching.class));
+		}
+		return policies.get(viewClass);
+	}
+
+	/**
+	 * Discards all the cached views. The hit and miss counts are not reset
+	 */
+	public void clear() {
+		always.clear();
+		recent.clear();
+		clears++;
+	}
+
+	/**
+	 * The number of times the cache has been {@link #clear()}ed. A view built in the background should only be added
+	 * if this has not changed since the build was requested
+	 * 
+	 * @return
+	 */
+	public int getClearCount() {
+		return clears;
+	}
+
+	/**
+	 * The number of views currently cached, including any which have expired but not yet been discarded
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return always.size() + recent.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The threads used by {@link DefaultViewPrefetcher} for all UIs. Both the number of threads and the queue of waiting
+ * builds are bounded, and when the queue is full a new build is dropped - prefetching is only ever a best effort, and
+ * must not hold up the application
+ */
+@Singleton
+public class ViewPrefetchExecutor {
+
+	public static final int DEFAULT_THREADS = 2;
+	public static final int DEFAULT_QUEUE_SIZE = 32;
+
+	private final ThreadPoolExecutor executor;
+
+	@Inject
+	protected ViewPrefetchExecutor() {
+		this(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE);
+	}
+
+	public ViewPrefetchExecutor(int threads, int queueSize) {
+		super();
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+				queueSize), new ThreadFactoryBuilder().setNameFormat("v7-view-prefetch-%d").setDaemon(true).build(),
+				new ThreadPoolExecutor.DiscardPolicy());
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	public void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+	/**
+	 * Stops the threads. Builds already queued are completed, but no more are accepted
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+import uk.co.q3c.v7.base.ui.ScopedUI;
+import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+
+/**
+ * An optional stage of navigation, called by {@link DefaultV7Navigator} after a view change, which builds the views a
+ * user is likely to visit next, so that they are already in the {@link ViewCache} when the user gets there. There is
+ * no binding for this by default - install {@link ViewPrefetchModule} to enable it
+ */
+public interface ViewPrefetcher {
+
+	/**
+	 * Called on the request thread after the view for {@code node} has been displayed in {@code ui}, and all the
+	 * {@link V7ViewChangeListener}s have been called. Implementations must return quickly, and do any construction in
+	 * the background
+	 * 
+	 * @param sitemap
+	 *            the Sitemap used for the navigation
+	 * @param node
+	 *            the node which has just been navigated to
+	 * @param viewCache
+	 *            the cache of the navigator for {@code ui}
+	 * @param ui
+	 */
+	void viewChanged(Sitemap sitemap, SitemapNode node, ViewCache viewCache, ScopedUI ui);
+}
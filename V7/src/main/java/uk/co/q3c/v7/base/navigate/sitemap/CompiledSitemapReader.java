@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.Collator;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.navigate.StandardPageKey;
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.i18n.CurrentLocale;
+import uk.co.q3c.v7.i18n.I18NKey;
+
+/**
+ * Loads a sitemap which has been compiled by {@link SitemapCompiler}. The compiled form has already been validated,
+ * and holds fully qualified view class names, so there is no text to parse and no search through view packages - each
+ * distinct class is loaded once, directly by name.
+ * <p>
+ * In the same way as {@link SitemapFileReader}, if {@code firstLoad} is false, any URI which is already in the
+ * {@link Sitemap} is left unchanged. Redirects and standard page mappings are also only added if they are not already
+ * present, and the public and private roots are only set on the first load.
+ * 
+ */
+public class CompiledSitemapReader {
+
+	private static Logger log = LoggerFactory.getLogger(CompiledSitemapReader.class);
+	private final SitemapLabels labels;
+	private final Collator collator;
+
+	@Inject
+	protected CompiledSitemapReader(CurrentLocale currentLocale, SitemapLabels labels) {
+		super();
+		this.labels = labels;
+		this.collator = Collator.getInstance(currentLocale.getLocale());
+	}
+
+	/**
+	 * Loads the compiled sitemap in {@code file} into {@code sitemap}, and returns the number of pages read
+	 * 
+	 * @param file
+	 * @param sitemap
+	 * @param firstLoad
+	 * @throws SitemapException
+	 *             if the file cannot be read, is not a compiled sitemap, or refers to a class which no longer exists
+	 */
+	public int load(File file, Sitemap sitemap, boolean firstLoad) {
+		log.info("Loading compiled sitemap from {}", file);
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			return load(in, sitemap, firstLoad);
+		} catch (IOException e) {
+			throw new SitemapException("Unable to read compiled sitemap " + file, e);
+		}
+	}
+
+	/**
+	 * Loads the compiled sitemap from {@code in} into {@code sitemap}, and returns the number of pages read.
+	 * {@code in} is not closed.
+	 * 
+	 * @param in
+	 * @param sitemap
+	 * @param firstLoad
+	 * @return
+	 * @throws IOException
+	 */
+	public int load(InputStream in, Sitemap sitemap, boolean firstLoad) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != SitemapCompiler.MAGIC) {
+			throw new SitemapException("This is not a compiled sitemap");
+		}
+		int version = data.readInt();
+		if (version != SitemapCompiler.FORMAT_VERSION) {
+			throw new SitemapException("Compiled sitemap format version " + version + " is not supported, recompile it");
+		}
+		String[] strings = new String[data.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = data.readUTF();
+		}
+		String publicRoot = string(strings, data.readInt());
+		String privateRoot = string(strings, data.readInt());
+		if (firstLoad) {
+			sitemap.setPublicRoot(publicRoot);
+			sitemap.setPrivateRoot(privateRoot);
+		}
+
+		Map<String, String> redirects = sitemap.getRedirects();
+		int redirectCount = data.readInt();
+		for (int i = 0; i < redirectCount; i++) {
+			String from = string(strings, data.readInt());
+			String to = string(strings, data.readInt());
+			if (!redirects.containsKey(from)) {
+				sitemap.addRedirect(from, to);
+			}
+		}
+
+		Map<StandardPageKey, String> standardPages = sitemap.getStandardPages();
+		int standardPageCount = data.readInt();
+		for (int i = 0; i < standardPageCount; i++) {
+			StandardPageKey key = StandardPageKey.valueOf(string(strings, data.readInt()));
+			String uri = string(strings, data.readInt());
+			if (!standardPages.containsKey(key)) {
+				standardPages.put(key, uri);
+			}
+		}
+
+		// classes and keys are resolved once per distinct string
+		Object[] resolved = new Object[strings.length];
+		int nodeCount = data.readInt();
+		SitemapNode[] nodes = new SitemapNode[nodeCount];
+		String[] uris = new String[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			int parentIndex = data.readInt();
+			String segment = string(strings, data.readInt());
+			int viewIndex = data.readInt();
+			int keyClassIndex = data.readInt();
+			int keyNameIndex = data.readInt();
+
+			SitemapNode parent = (parentIndex == SitemapCompiler.NONE) ? null : nodes[parentIndex];
+			uris[i] = (parent == null) ? segment : uris[parentIndex] + "/" + segment;
+			SitemapNode node = sitemap.nodeFor(uris[i]);
+			if (node == null) {
+				node = new SitemapNode();
+				node.setUriSegment(segment);
+				if (viewIndex != SitemapCompiler.NONE) {
+					node.setViewClass(viewClass(strings, resolved, viewIndex));
+				}
+				if (keyClassIndex != SitemapCompiler.NONE) {
+					node.setLabelKey(labelKey(strings, resolved, keyClassIndex, keyNameIndex), labels, collator);
+				}
+				if (parent == null) {
+					sitemap.addNode(node);
+				} else {
+					sitemap.addChild(parent, node);
+				}
+			}
+			nodes[i] = node;
+		}
+		return nodeCount;
+	}
+
+	private String string(String[] strings, int index) {
+		return (index == SitemapCompiler.NONE) ? null : strings[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends V7View> viewClass(String[] strings, Object[] resolved, int index) {
+		if (resolved[index] == null) {
+			resolved[index] = classForName(strings[index]);
+		}
+		return (Class<? extends V7View>) resolved[index];
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private I18NKey<?> labelKey(String[] strings, Object[] resolved, int classIndex, int nameIndex) {
+		if (resolved[classIndex] == null) {
+			resolved[classIndex] = classForName(strings[classIndex]);
+		}
+		Class<? extends Enum> keyClass = (Class<? extends Enum>) resolved[classIndex];
+		return (I18NKey<?>) Enum.valueOf(keyClass, strings[nameIndex]);
+	}
+
+	private Class<?> classForName(String className) {
+		try {
+			return Class.forName(className);
+		} catch (ClassNotFoundException e) {
+			throw new SitemapException("Class " + className
+					+ " in the compiled sitemap cannot be found, the sitemap needs to be recompiled", e);
+		}
+	}
+
+}
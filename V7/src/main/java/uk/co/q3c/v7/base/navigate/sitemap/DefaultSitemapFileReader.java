@@ -12,12 +12,17 @@
  */
 package uk.co.q3c.v7.base.navigate.sitemap;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.text.Collator;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,7 +30,6 @@ import java.util.TreeSet;
 
 import javax.inject.Inject;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.WordUtils;
 import org.apache.shiro.io.ResourceUtils;
@@ -40,8 +44,8 @@ import uk.co.q3c.v7.base.navigate.URITracker;
 import uk.co.q3c.v7.base.view.V7View;
 import uk.co.q3c.v7.i18n.CurrentLocale;
 import uk.co.q3c.v7.i18n.I18NKey;
-import uk.co.q3c.v7.i18n.Translate;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Strings;
 
 public class DefaultSitemapFileReader implements SitemapFileReader {
@@ -56,7 +60,7 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		appendView, labelKeys, generatePublicHomePage, generateAuthenticationPages, generateRequestAccount, generateRequestAccountReset, systemAccountRoot, publicRoot, privateRoot
 	}
 
-	private final Sitemap sitemap;
+	private Sitemap sitemap;
 	private int commentLines;
 	private int blankLines;
 	private Map<SectionName, List<String>> sections;
@@ -71,6 +75,7 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 	private Set<String> missingEnums;
 	private Set<String> invalidViewClasses;
 	private Set<String> undeclaredViewClasses;
+	private Set<String> ambiguousViewClasses;
 	private Set<String> indentationErrors;
 	private Set<String> missingPages;
 	private Set<String> propertyErrors;
@@ -96,17 +101,28 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 	private File sourceFile;
 	private final StandardPageBuilder standardPageBuilder;
 	private LabelKeyForName lkfn;
+	private ViewClassIndex viewClassIndex;
+
+	// state of the [map] section, which is processed as it is read where possible
+	private URITracker uriTracker;
+	private MapLineReader mapLineReader;
+	private int currentIndent;
+	private boolean segmentsChanged;
+	private List<Integer> mapLineNumbers;
+	// nodes which may still need a label key or view when the map is complete
+	private Set<SitemapNode> unlabelledNodes;
+	private Set<SitemapNode> viewlessNodes;
 	private final Collator collator;
-	private final Translate translate;
+	private final SitemapLabels labels;
 
 	@Inject
 	public DefaultSitemapFileReader(StandardPageBuilder standardPageBuilder, CurrentLocale currentLocale,
-			Translate translate, Sitemap sitemap) {
+			SitemapLabels labels) {
 		super();
 		this.standardPageBuilder = standardPageBuilder;
 		this.collator = Collator.getInstance(currentLocale.getLocale());
-		this.translate = translate;
-		this.sitemap = sitemap;
+		this.labels = labels;
+		this.sitemap = new Sitemap();
 
 	}
 
@@ -116,6 +132,7 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		missingEnums = new HashSet<>();
 		invalidViewClasses = new HashSet<>();
 		undeclaredViewClasses = new HashSet<>();
+		ambiguousViewClasses = new HashSet<>();
 		indentationErrors = new HashSet<>();
 		missingPages = new HashSet<>();
 		propertyErrors = new HashSet<>();
@@ -129,34 +146,54 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 
 		standardPageBuilder.setSitemap(sitemap);
 		sections = new HashMap<>();
+		currentSection = null;
+		segmentsChanged = false;
+		mapLineNumbers = new ArrayList<>();
+		unlabelledNodes = new LinkedHashSet<>();
+		viewlessNodes = new LinkedHashSet<>();
 		labelClassNotI18N = false;
 		labelClassNonExistent = false;
 		labelClassMissing = true;
 		parsed = false;
 	}
 
-	private void processLines(List<String> lines) {
+	/**
+	 * Reads the source in a single pass. Lines of the [map] section are held until the end of the file, and applied to
+	 * the {@link Sitemap} only if no required section is missing. Nodes are validated as they are created, and only
+	 * those which may still be invalid when the map is complete are kept for the final checks
+	 * 
+	 * @param reader
+	 * @throws IOException
+	 */
+	private void processLines(BufferedReader reader) throws IOException {
 		init();
-		int i = 0;
-		for (String line : lines) {
-			divideIntoSections(line, i);
-			i++;
+		int lineNumber = 1;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			divideIntoSections(line, lineNumber);
+			lineNumber++;
 		}
 
 		// can only process if ALL required sections are present
 		if (missingSections().size() == 0) {
-			processOptions();
+			startMap();
+			List<String> mapLines = sections.get(SectionName.map);
+			for (int i = 0; i < mapLines.size(); i++) {
+				processMapLine(mapLines.get(i), mapLineNumbers.get(i));
+			}
 			processRedirects();
-			// processStandardPages();
-			generateStandardPages();
-			processMap();
+			if (segmentsChanged) {
+				sitemap.reindex();
+			}
 			validateRedirects();
 			checkLabelKeys();
 			checkViews();
 			sitemap.setErrors(errorSum());
 
 			log.info("Sitemap loaded successfully");
-			log.debug(sitemap.toString());
+			if (log.isDebugEnabled()) {
+				log.debug(sitemap.toString());
+			}
 
 		} else {
 			log.warn("The site map source is missing these sections: {}", missingSections());
@@ -195,15 +232,16 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 	}
 
 	private int warningSum() {
-		int c = unrecognisedOptions.size() + indentationErrors.size();
+		int c = unrecognisedOptions.size() + indentationErrors.size() + ambiguousViewClasses.size();
 		return c;
 	}
 
 	/**
-	 * Looks for any URIs without views and captures them in {@link #viewlessURIs} for reporting
+	 * Looks for any URIs without views and captures them in {@link #viewlessURIs} for reporting. Only the nodes which
+	 * were without a view when they were processed need to be checked
 	 */
 	private void checkViews() {
-		for (SitemapNode node : sitemap.getAllNodes()) {
+		for (SitemapNode node : viewlessNodes) {
 			if (node.getViewClass() == null) {
 				viewlessURIs.add("uri: \"" + sitemap.uri(node) + "\"");
 			}
@@ -212,7 +250,7 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 	}
 
 	private void checkLabelKeys() {
-		for (SitemapNode node : sitemap.getAllNodes()) {
+		for (SitemapNode node : unlabelledNodes) {
 			if (node.getLabelKey() == null) {
 				labelKeyForName(null, node);
 			}
@@ -220,15 +258,14 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 	}
 
 	/**
-	 * Ensure that redirection targets exist, and that no loops can be created
+	 * Ensure that redirection targets exist, and that no loops can be created. Chains of redirects are allowed, as
+	 * they are collapsed by {@link RedirectEngine}, so it is the final target of each chain which must be a page
 	 */
 	private void validateRedirects() {
-		Collection<String> uris = sitemap.uris();
-		for (String target : getRedirects().values()) {
-			if (getRedirects().keySet().contains(target)) {
-				redirectErrors.add("'" + target + "' cannot be both a redirect source and redirect target");
-			}
-			if (!uris.contains(target)) {
+		RedirectEngine engine = sitemap.redirectEngine();
+		redirectErrors.addAll(engine.getErrors());
+		for (String target : engine.getFixedTargets().values()) {
+			if (!sitemap.hasUri(target)) {
 				redirectErrors.add("'" + target + "' cannot be a redirect target, it has not been defined as a page");
 
 			}
@@ -253,9 +290,10 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		source = file.getAbsolutePath();
 		sourceFile = file;
 		log.info("Loading sitemap from {}", source);
-		try {
-			List<String> lines = FileUtils.readLines(file);
-			processLines(lines);
+		// an InputStreamReader replaces malformed input rather than failing, as FileUtils.readLines did
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				Charset.defaultCharset()))) {
+			processLines(reader);
 
 		} catch (Exception e) {
 			log.error("Unable to load site map", e);
@@ -409,28 +447,58 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		return sections.get(SectionName.viewPackages);
 	}
 
-	private void processMap() {
-		URITracker uriTracker = new URITracker();
-		MapLineReader reader = new MapLineReader();
-		List<String> sectionLines = sections.get(SectionName.map);
-		int lineIndex = 1;
-		int currentIndent = 0;
-		for (String line : sectionLines) {
-			MapLineRecord lineRecord = reader.processLine(lineIndex, line, syntaxErrors, indentationErrors,
-					currentIndent);
-			uriTracker.track(lineRecord.getIndentLevel(), lineRecord.getSegment());
-			SitemapNode node = sitemap.append(uriTracker.uri());
-			// if node is a standard page do not overwrite it
-			if (node.getLabelKey() instanceof StandardPageKey) {
-				// warning
-			} else {
+	/**
+	 * Prepares for processing the [map] section, which requires the options to have been processed and the standard
+	 * pages generated. Any nodes already in the {@link #sitemap} at this point (the standard pages, and anything from
+	 * earlier sources) are the only ones which are not checked as they are processed, so they are checked at the end
+	 */
+	private void startMap() {
+		processOptions();
+		generateStandardPages();
+		for (SitemapNode node : sitemap.preOrder()) {
+			if (node.getLabelKey() == null) {
+				unlabelledNodes.add(node);
+			}
+			if (node.getViewClass() == null) {
+				viewlessNodes.add(node);
+			}
+		}
+		uriTracker = new URITracker();
+		mapLineReader = new MapLineReader();
+		currentIndent = 0;
+		viewClassIndex = new ViewClassIndex(getViewPackages(), Thread.currentThread().getContextClassLoader());
+	}
+
+	/**
+	 * Processes a single line of the [map] section
+	 * 
+	 * @param line
+	 * @param lineNumber
+	 *            the line number in the source file, used in error messages
+	 */
+	private void processMapLine(String line, int lineNumber) {
+		MapLineRecord lineRecord = mapLineReader.processLine(lineNumber, line, syntaxErrors, indentationErrors,
+				currentIndent);
+		uriTracker.track(lineRecord.getIndentLevel(), lineRecord.getSegment());
+		SitemapNode node = sitemap.append(uriTracker.uri());
+		// if node is a standard page do not overwrite it
+		if (node.getLabelKey() instanceof StandardPageKey) {
+			// warning
+		} else {
+			if (!Objects.equal(lineRecord.getSegment(), node.getUriSegment())) {
 				node.setUriSegment(lineRecord.getSegment());
-				findView(node, lineRecord.getSegment(), lineRecord.getViewName());
-				labelKeyForName(lineRecord.getKeyName(), node);
+				segmentsChanged = true;
+			}
+			findView(node, lineRecord.getSegment(), lineRecord.getViewName());
+			labelKeyForName(lineRecord.getKeyName(), node);
+			if (node.getLabelKey() == null) {
+				unlabelledNodes.add(node);
+			}
+			if (node.getViewClass() == null) {
+				viewlessNodes.add(node);
 			}
-			currentIndent = lineRecord.getIndentLevel();
-			lineIndex++;
 		}
+		currentIndent = lineRecord.getIndentLevel();
 	}
 
 	public void labelKeyForName(String labelKeyName, SitemapNode node) {
@@ -438,7 +506,7 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		String keyName = keyName(labelKeyName, node);
 		// could be null if invalid label keys given
 		if (lkfn != null) {
-			node.setLabelKey(lkfn.keyForName(keyName, missingEnums), translate, collator);
+			node.setLabelKey(lkfn.keyForName(keyName, missingEnums), labels, collator);
 		} else {
 			missingEnums.add(keyName);
 		}
@@ -460,8 +528,10 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 
 	/**
 	 * Updates the node with the required view. If {@link #appendView} is true the 'View' is appended to the
-	 * {@code viewName} before attempting to find its class declaration. If no class can be found, {@code viewName} is
-	 * added to {@link #undeclaredViewClasses}
+	 * {@code viewName} before attempting to find its class declaration. The class is looked up in the
+	 * {@link ViewClassIndex} of the view packages, and the first {@link V7View} found (in the order the packages are
+	 * declared) is used. Any other matching V7View classes are added to {@link #ambiguousViewClasses}. If no class can
+	 * be found, {@code viewName} is added to {@link #undeclaredViewClasses}
 	 * 
 	 * @param node
 	 * @param segment
@@ -478,29 +548,60 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		if (appendView) {
 			viewName = viewName + "View";
 		}
-		Class<?> viewClass = null;
-		// try and find the view in the specified packages
-		for (String pkg : getViewPackages()) {
-			String fullViewName = pkg + "." + viewName;
-			try {
-				viewClass = Class.forName(fullViewName);
-				if (V7View.class.isAssignableFrom(viewClass)) {
-					node.setViewClass((Class<V7View>) viewClass);
-					break;
-				} else {
-					invalidViewClasses.add(fullViewName);
+		boolean found = false;
+		boolean viewFound = false;
+		for (String fullViewName : viewClassCandidates(viewName)) {
+			Class<?> viewClass = viewClassIndex.load(fullViewName);
+			if (viewClass == null) {
+				continue;
+			}
+			found = true;
+			boolean isView = V7View.class.isAssignableFrom(viewClass);
+			if (viewFound) {
+				if (isView && !node.getViewClass().equals(viewClass)) {
+					ambiguousViewClasses.add(viewName + " (using " + node.getViewClass().getName() + ", ignoring "
+							+ fullViewName + ")");
 				}
-			} catch (ClassNotFoundException e) {
-				// don't need to do anything
+			} else if (isView) {
+				node.setViewClass((Class<V7View>) viewClass);
+				viewFound = true;
+			} else {
+				invalidViewClasses.add(fullViewName);
 			}
-
 		}
-		if (viewClass == null) {
+		if (!found) {
 			undeclaredViewClasses.add(viewName);
 		}
 
 	}
 
+	/**
+	 * Returns the fully qualified names of the classes matching {@code viewName} in the view packages. Packages which
+	 * could not be indexed are searched by name
+	 * 
+	 * @param viewName
+	 * @return
+	 */
+	private List<String> viewClassCandidates(String viewName) {
+		List<String> unscanned = viewClassIndex.getUnscannedPackages();
+		if (unscanned.isEmpty()) {
+			return viewClassIndex.candidates(viewName);
+		}
+		List<String> candidates = new ArrayList<>(viewClassIndex.candidates(viewName));
+		for (String pkg : unscanned) {
+			String fullViewName = pkg + "." + viewName;
+			if (!candidates.contains(fullViewName)) {
+				try {
+					Class.forName(fullViewName);
+					candidates.add(fullViewName);
+				} catch (ClassNotFoundException e) {
+					// don't need to do anything
+				}
+			}
+		}
+		return candidates;
+	}
+
 	//
 	// private int lastIndent(String line) {
 	// int index = 0;
@@ -536,6 +637,10 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 					SectionName key = SectionName.valueOf(sectionName);
 					currentSection = key;
 					sections.put(key, section);
+					if (key == SectionName.map) {
+						// a repeated section replaces the earlier one
+						mapLineNumbers.clear();
+					}
 				} catch (IllegalArgumentException iae) {
 					log.warn(
 							"Invalid section '{}' in site map file, this section has been ignored. Only sections {} are allowed.",
@@ -546,6 +651,11 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 			return;
 		}
 
+		if (currentSection == SectionName.map) {
+			sections.get(currentSection).add(strippedLine);
+			mapLineNumbers.add(linenum);
+			return;
+		}
 		List<String> section = sections.get(currentSection);
 		if (section != null) {
 			section.add(strippedLine);
@@ -696,6 +806,8 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 					indentationErrors,
 					"indentation errors",
 					"line indentation should be <= 1 greater than the preceding line.  Parsing will still work but you may not get the intended result");
+			reportChunk(report, ambiguousViewClasses, "ambiguous view classes",
+					"these are declared in more than one view package, the first declared package has been used");
 			reportChunk(report, unrecognisedOptions, "unrecognised options",
 					"these have just been ignored, will do no harm");
 		}
@@ -768,6 +880,10 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		return invalidViewClasses;
 	}
 
+	public Set<String> getAmbiguousViewClasses() {
+		return ambiguousViewClasses;
+	}
+
 	public Set<String> getUndeclaredViewClasses() {
 		return undeclaredViewClasses;
 	}
@@ -885,9 +1001,15 @@ public class DefaultSitemapFileReader implements SitemapFileReader {
 		return standardPageBuilder.getSystemAccountRoot();
 	}
 
+	@Override
 	public Sitemap getSitemap() {
 
 		return sitemap;
 	}
 
+	@Override
+	public void setSitemap(Sitemap sitemap) {
+		this.sitemap = sitemap;
+	}
+
 }
@@ -13,8 +13,11 @@
 package uk.co.q3c.v7.base.navigate.sitemap;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -44,19 +47,32 @@ public class DefaultSitemapService extends AbstractServiceI18N implements Sitema
 	@AutoStart
 	private final ApplicationConfigurationService configurationService;
 	private final Provider<SitemapFileReader> sitemapFileReaderProvider;
+	private final Provider<CompiledSitemapReader> compiledSitemapReaderProvider;
+	private final Provider<SitemapEntryLoader> sitemapEntryLoaderProvider;
+	private final Provider<ModuleSitemapLoader> moduleSitemapLoaderProvider;
+	private final TenantSitemaps tenantSitemaps;
 	private List<String> sources;
-	private final Sitemap sitemap;
+	private volatile Sitemap sitemap;
 	private StringBuilder report;
 	private CompositeConfiguration configuration;
 	private boolean loaded;
+	private SitemapFileWatcher fileWatcher;
+	private final List<SitemapChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+	private final SitemapChangeLog changeLog = new SitemapChangeLog();
 
 	@Inject
 	protected DefaultSitemapService(ApplicationConfigurationService configurationService, Translate translate,
-			Provider<SitemapFileReader> sitemapFileReaderProvider, Sitemap sitemap) {
+			Provider<SitemapFileReader> sitemapFileReaderProvider,
+			Provider<CompiledSitemapReader> compiledSitemapReaderProvider,
+			Provider<SitemapEntryLoader> sitemapEntryLoaderProvider,
+			Provider<ModuleSitemapLoader> moduleSitemapLoaderProvider, TenantSitemaps tenantSitemaps) {
 		super(translate);
 		this.configurationService = configurationService;
 		this.sitemapFileReaderProvider = sitemapFileReaderProvider;
-		this.sitemap = sitemap;
+		this.compiledSitemapReaderProvider = compiledSitemapReaderProvider;
+		this.sitemapEntryLoaderProvider = sitemapEntryLoaderProvider;
+		this.moduleSitemapLoaderProvider = moduleSitemapLoaderProvider;
+		this.tenantSitemaps = tenantSitemaps;
 		configure();
 	}
 
@@ -74,25 +90,106 @@ public class DefaultSitemapService extends AbstractServiceI18N implements Sitema
 			setStatus(Status.DEPENDENCY_FAILED);
 			throw new SitemapException(msg);
 		}
-		report = new StringBuilder();
+		StringBuilder startReport = new StringBuilder();
 		configuration = configurationService.getConfiguration();
-		loadSources();
+		Sitemap draft = new Sitemap();
+		loadSources(draft, startReport);
+		report = startReport;
 		if (!loaded) {
 			throw new SitemapException("No valid sources found");
 		}
+		publish(draft);
+		changeLog.start(draft.getVersion());
+		if (configuration.getBoolean(ConfigKeys.FILE_WATCH, false) && sources.contains("file")) {
+			watchFile();
+		}
 		return Status.STARTED;
 	}
 
 	/**
-	 * Loads the Sitemap from all the sources specified in {@link #sources}. The first call to
-	 * {@link #loadSource(String, boolean)} has {@code firstLoad} set to true. Subsequent calls have {@code firstLoad}
-	 * set to false
+	 * Locks {@code draft} and makes it the current {@link Sitemap}. Readers see either the previous Sitemap or the new
+	 * one, never one which is partly built
+	 * 
+	 * @param draft
+	 */
+	protected synchronized void publish(Sitemap draft) {
+		draft.lock();
+		sitemap = draft;
+	}
+
+	/**
+	 * Rebuilds the Sitemap from its sources, and publishes the result only if it has no errors - otherwise the current
+	 * Sitemap remains in use, and the errors are logged. When a new Sitemap is published, the registered
+	 * {@link SitemapChangeListener}s are told which URIs have been added, removed or changed, and the changes are
+	 * recorded for {@link #changesSince(long)}. This is called by the file watcher (see {@link ConfigKeys#FILE_WATCH})
+	 * when the sitemap file changes, but can also be called directly.
+	 * 
+	 * @return the differences between the previous and new Sitemap, or null if the new Sitemap had errors and was not
+	 *         published
 	 */
-	private void loadSources() {
+	public synchronized SitemapDiff reload() {
+		log.info("Reloading the Sitemap");
+		StringBuilder reloadReport = new StringBuilder();
+		Sitemap draft = new Sitemap();
+		try {
+			loadSources(draft, reloadReport);
+		} catch (RuntimeException e) {
+			log.error("The Sitemap has not been reloaded, as the new version failed to load", e);
+			return null;
+		}
+		if (draft.hasErrors()) {
+			log.warn("The Sitemap has not been reloaded, as the new version has {} errors\n{}", draft.getErrors(),
+					reloadReport);
+			return null;
+		}
+		// locked first, so that the diff carries its version
+		draft.lock();
+		SitemapDiff diff = SitemapDiff.between(sitemap, draft);
+		report = reloadReport;
+		changeLog.record(diff);
+		publish(draft);
+		log.info("Sitemap reloaded, {}", diff);
+		for (SitemapChangeListener listener : changeListeners) {
+			try {
+				listener.sitemapChanged(draft, diff);
+			} catch (RuntimeException e) {
+				log.error("Sitemap change listener failed", e);
+			}
+		}
+		return diff;
+	}
+
+	private void watchFile() {
+		if (fileWatcher != null) {
+			return;
+		}
+		fileWatcher = new SitemapFileWatcher(sitemapFile(), new Runnable() {
+			@Override
+			public void run() {
+				reload();
+			}
+		});
+		try {
+			fileWatcher.start();
+		} catch (IOException e) {
+			log.error("Unable to watch the sitemap file for changes, it will not be reloaded", e);
+			fileWatcher = null;
+		}
+	}
+
+	/**
+	 * Loads {@code draft} from all the sources specified in {@link #sources}. The first call to
+	 * {@link #loadSource(Sitemap, String, boolean, StringBuilder)} has {@code firstLoad} set to true. Subsequent calls
+	 * have {@code firstLoad} set to false
+	 * 
+	 * @param draft
+	 * @param report
+	 */
+	private void loadSources(Sitemap draft, StringBuilder report) {
 		extractSourcesFromConfig();
 		boolean firstLoad = true;
 		for (String source : sources) {
-			boolean sourceLoaded = loadSource(source, firstLoad);
+			boolean sourceLoaded = loadSource(draft, source, firstLoad, report);
 			if (sourceLoaded) {
 				firstLoad = false;
 			}
@@ -100,33 +197,64 @@ public class DefaultSitemapService extends AbstractServiceI18N implements Sitema
 	}
 
 	/**
-	 * Loads the Sitemap with from the specified {@code source}. If {@code firstLoad} is true, then this is the first
+	 * Loads {@code draft} from the specified {@code source}. If {@code firstLoad} is true, then this is the first
 	 * source to be loaded, so no check is made to see whether a URI has already been defined. Subsequent calls will
 	 * have {@code firstLoad} set to false, and a check is made for each URI defined by the source, and if that URI is
 	 * already in the Sitemap, the one from the source is ignored.
+	 * <p>
+	 * The 'compiled' source is the output of {@link SitemapCompiler}, which has been validated at build time, so it is
+	 * loaded without parsing or searching for view classes. The 'annotation' source loads the {@link SitemapRegistry}
+	 * classes generated from {@link SitemapPage} annotations at compile time, and the 'module' source loads the
+	 * {@link SitemapContribution}s bound by Guice modules
 	 * 
+	 * @param draft
 	 * @param source
 	 * @param firstLoad
+	 * @param report
 	 */
-	private boolean loadSource(String source, boolean firstLoad) {
+	private boolean loadSource(Sitemap draft, String source, boolean firstLoad, StringBuilder report) {
 
 		switch (source) {
 		case "file":
 			SitemapFileReader sitemapFileReader = sitemapFileReaderProvider.get();
-			File sitemapFileLocation = absolutePathFor(configuration.getString(ConfigKeys.FILE_LOCATION,
-					"sitemap.properties"));
-			sitemapFileReader.parse(sitemapFileLocation, firstLoad);
+			sitemapFileReader.setSitemap(draft);
+			sitemapFileReader.parse(sitemapFile(), firstLoad);
 			sitemapFileReader.buildReport(report);
 			loaded = true;
 			return loaded;
+		case "compiled":
+			File compiledFile = compiledSitemapFile();
+			int pages = compiledSitemapReaderProvider.get().load(compiledFile, draft, firstLoad);
+			report.append("Compiled sitemap ").append(compiledFile).append(" loaded, ").append(pages)
+					.append(" pages\n");
+			loaded = true;
+			return loaded;
 		case "module":
-			throw new RuntimeException("not yet implemented");
+			moduleSitemapLoaderProvider.get().load(draft, firstLoad, report);
+			loaded = true;
+			return loaded;
 		case "annotation":
-			throw new RuntimeException("not yet implemented");
+			List<SitemapEntry> entries = new ArrayList<>();
+			for (SitemapRegistry registry : ServiceLoader.load(SitemapRegistry.class, Thread.currentThread()
+					.getContextClassLoader())) {
+				entries.addAll(registry.entries());
+			}
+			int annotated = sitemapEntryLoaderProvider.get().load(entries, draft, firstLoad, report);
+			report.append("Annotation sitemap source loaded, ").append(annotated).append(" pages\n");
+			loaded = true;
+			return loaded;
 		}
 		return false;
 	}
 
+	private File sitemapFile() {
+		return absolutePathFor(configuration.getString(ConfigKeys.FILE_LOCATION, "sitemap.properties"));
+	}
+
+	private File compiledSitemapFile() {
+		return absolutePathFor(configuration.getString(ConfigKeys.COMPILED_FILE_LOCATION, "sitemap.bin"));
+	}
+
 	public File absolutePathFor(String source) {
 
 		if (source.startsWith("/")) {
@@ -160,6 +288,10 @@ public class DefaultSitemapService extends AbstractServiceI18N implements Sitema
 
 	@Override
 	public Status stop() {
+		if (fileWatcher != null) {
+			fileWatcher.stop();
+			fileWatcher = null;
+		}
 		loaded = false;
 		return Status.STOPPED;
 	}
@@ -181,9 +313,40 @@ public class DefaultSitemapService extends AbstractServiceI18N implements Sitema
 		return report;
 	}
 
+	/**
+	 * Returns the current, locked, {@link Sitemap}, or null if the service has not been started. Where the current
+	 * tenant has its own pages, this is that tenant's {@link TenantSitemap}, which shares the pages of the common
+	 * Sitemap - see {@link TenantSitemaps}
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.SitemapService#getSitemap()
+	 */
 	@Override
 	public Sitemap getSitemap() {
-		return sitemap;
+		return tenantSitemaps.select(sitemap);
+	}
+
+	@Override
+	public SitemapDiff changesSince(long version) {
+		return changeLog.changesSince(version);
+	}
+
+	@Override
+	public void addChangeListener(SitemapChangeListener listener) {
+		changeListeners.add(listener);
+	}
+
+	@Override
+	public void removeChangeListener(SitemapChangeListener listener) {
+		changeListeners.remove(listener);
+	}
+
+	/**
+	 * Returns true if the sitemap file is being watched for changes
+	 * 
+	 * @return
+	 */
+	public boolean isWatchingFile() {
+		return fileWatcher != null;
 	}
 
 	public boolean isLoaded() {
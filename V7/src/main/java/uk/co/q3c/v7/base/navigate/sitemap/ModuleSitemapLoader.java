@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Loads the {@link SitemapContribution}s bound with a Guice Multibinder into a {@link Sitemap}, for the 'module'
+ * sitemap source. Each contribution builds its branch independently, in parallel if there is more than one, and the
+ * results are then merged in order of contribution name, so that the outcome does not depend on which finished first.
+ * <p>
+ * If two contributions declare the same URI, the first (by name) is used, and the conflict is listed in the report.
+ * URIs which are already in the Sitemap from an earlier source are kept, in the same way as for the file source. A
+ * contribution which fails is reported, and counted as a Sitemap error
+ * 
+ */
+public class ModuleSitemapLoader {
+
+	private static Logger log = LoggerFactory.getLogger(ModuleSitemapLoader.class);
+	private final SitemapEntryLoader entryLoader;
+	private Set<SitemapContribution> contributions = ImmutableSet.of();
+
+	@Inject
+	protected ModuleSitemapLoader(SitemapEntryLoader entryLoader) {
+		super();
+		this.entryLoader = entryLoader;
+	}
+
+	/**
+	 * Optional, so that there is no need for a Multibinder to be declared if there are no contributions
+	 * 
+	 * @param contributions
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setContributions(Set<SitemapContribution> contributions) {
+		this.contributions = contributions;
+	}
+
+	/**
+	 * Builds all the contributions, merges them into {@code sitemap}, and returns the number of pages loaded
+	 * 
+	 * @param sitemap
+	 * @param firstLoad
+	 * @param report
+	 * @return
+	 */
+	public int load(Sitemap sitemap, boolean firstLoad, StringBuilder report) {
+		List<SitemapContribution> ordered = new ArrayList<>(contributions);
+		Collections.sort(ordered, new Comparator<SitemapContribution>() {
+			@Override
+			public int compare(SitemapContribution o1, SitemapContribution o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		Map<SitemapContribution, List<SitemapEntry>> branches = build(ordered, sitemap, report);
+
+		// merge, first contribution wins
+		List<SitemapEntry> merged = new ArrayList<>();
+		Map<String, String> contributedBy = new HashMap<>();
+		for (Map.Entry<SitemapContribution, List<SitemapEntry>> branch : branches.entrySet()) {
+			String name = branch.getKey().getName();
+			for (SitemapEntry entry : branch.getValue()) {
+				String owner = contributedBy.get(entry.getUri());
+				if (owner == null) {
+					contributedBy.put(entry.getUri(), name);
+					merged.add(entry);
+				} else {
+					report.append("URI ").append(entry.getUri()).append(" from contribution '").append(name)
+							.append("' conflicts with contribution '").append(owner).append("', and has been ignored\n");
+				}
+			}
+		}
+		int loaded = entryLoader.load(merged, sitemap, firstLoad, report);
+		report.append("Module sitemap source loaded, ").append(loaded).append(" pages from ").append(branches.size())
+				.append(" contributions\n");
+		return loaded;
+	}
+
+	/**
+	 * Calls {@link SitemapContribution#entries()} for each contribution, concurrently if there is more than one.
+	 * Returns the branches of those which succeeded, in the same order as {@code ordered}
+	 */
+	private Map<SitemapContribution, List<SitemapEntry>> build(List<SitemapContribution> ordered, Sitemap sitemap,
+			StringBuilder report) {
+		Map<SitemapContribution, List<SitemapEntry>> branches = new LinkedHashMap<>();
+		if (ordered.size() <= 1) {
+			for (SitemapContribution contribution : ordered) {
+				try {
+					branches.put(contribution, contribution.entries());
+				} catch (RuntimeException e) {
+					failed(contribution, e, sitemap, report);
+				}
+			}
+			return branches;
+		}
+
+		int threads = Math.min(ordered.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<SitemapEntry>>> futures = new ArrayList<>();
+			for (final SitemapContribution contribution : ordered) {
+				futures.add(executor.submit(new Callable<List<SitemapEntry>>() {
+					@Override
+					public List<SitemapEntry> call() {
+						return contribution.entries();
+					}
+				}));
+			}
+			for (int i = 0; i < ordered.size(); i++) {
+				try {
+					branches.put(ordered.get(i), futures.get(i).get());
+				} catch (ExecutionException e) {
+					failed(ordered.get(i), e.getCause(), sitemap, report);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SitemapException("Interrupted while building sitemap contributions", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		return branches;
+	}
+
+	private void failed(SitemapContribution contribution, Throwable cause, Sitemap sitemap, StringBuilder report) {
+		log.error("Sitemap contribution '" + contribution.getName() + "' failed", cause);
+		report.append("Contribution '").append(contribution.getName()).append("' failed: ").append(cause)
+				.append("\n");
+		sitemap.setErrors(sitemap.getErrors() + 1);
+	}
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The compiled form of the {@link Sitemap} redirects. There are three kinds of rule:
+ * <ol>
+ * <li>exact: {@code old/page : new/page} redirects only the page 'old/page'
+ * <li>prefix: {@code old/* : new/*} redirects any page below 'old', with the rest of the page (for example
+ * 'accounts/23') appended to 'new'. If the target has no '*', all the pages below 'old' go to the same target
+ * <li>wildcard: <code>old/&#42;/page : new/&#42;</code> - a '*' which is not the last segment matches exactly one
+ * segment. Each '*' in the target is replaced by the segment matched by the corresponding '*' in the source, in order
+ * </ol>
+ * An exact rule takes precedence over a pattern, and where patterns overlap, a literal segment takes precedence over a
+ * wildcard, which takes precedence over a prefix.
+ * <p>
+ * Chains of redirects (a to b, b to c) are collapsed when the rules are compiled, so every lookup is a single hop, and
+ * a rule which leads back to itself is reported by {@link #getErrors()} and left out. A pattern whose target contains
+ * a '*' cannot be collapsed, so such a target must not itself be redirected.
+ * <p>
+ * {@link #redirect(String)} is a single hash lookup for a page which matches an exact rule, or has no redirect at all
+ * when there are no patterns. Only a page which is checked against the patterns allocates anything. Instances are
+ * immutable, and can be used concurrently.
+ */
+public class RedirectEngine {
+
+	public static final String WILDCARD = "*";
+
+	private static class Rule {
+		private final String source;
+		private final String[] target;
+		private final boolean templated;
+
+		Rule(String source, String target) {
+			this.source = source;
+			this.target = target.split("/", -1);
+			this.templated = isPattern(target);
+		}
+
+		String targetFor(List<String> captures) {
+			if (!templated) {
+				return Joiner.on('/').join(target);
+			}
+			StringBuilder buf = new StringBuilder();
+			int capture = 0;
+			for (int i = 0; i < target.length; i++) {
+				if (i > 0) {
+					buf.append('/');
+				}
+				buf.append(target[i].equals(WILDCARD) ? captures.get(capture++) : target[i]);
+			}
+			return buf.toString();
+		}
+
+		int wildcards() {
+			return RedirectEngine.wildcards(target);
+		}
+	}
+
+	private static class PatternNode {
+		private final Map<String, PatternNode> literals = new HashMap<>(4);
+		private PatternNode star;
+		// a pattern which ends at this node
+		private Rule rule;
+		// a pattern which ends with a '*' below this node, and matches the rest of the page
+		private Rule rest;
+	}
+
+	private final Map<String, String> exact;
+	private final PatternNode patterns;
+	private final boolean hasPatterns;
+	private final ImmutableList<String> errors;
+
+	private RedirectEngine(Map<String, String> exact, PatternNode patterns, boolean hasPatterns, List<String> errors) {
+		super();
+		this.exact = exact;
+		this.patterns = patterns;
+		this.hasPatterns = hasPatterns;
+		this.errors = ImmutableList.copyOf(errors);
+	}
+
+	/**
+	 * Compiles {@code redirects} (from page to target page, as held by {@link Sitemap}) into an engine. Rules which
+	 * are invalid, or form a loop, are reported by {@link #getErrors()} and are not included
+	 * 
+	 * @param redirects
+	 * @return
+	 */
+	public static RedirectEngine compile(Map<String, String> redirects) {
+		List<String> errors = new ArrayList<>();
+		Map<String, String> rawExact = new LinkedHashMap<>();
+		PatternNode rawPatterns = new PatternNode();
+		List<Rule> rules = new ArrayList<>();
+		for (Map.Entry<String, String> entry : redirects.entrySet()) {
+			String source = entry.getKey();
+			String target = entry.getValue();
+			if (!isPattern(source)) {
+				rawExact.put(source, target);
+				continue;
+			}
+			Rule rule = new Rule(source, target);
+			String[] segments = source.split("/", -1);
+			if (rule.wildcards() > wildcards(segments)) {
+				errors.add("'" + target + "' has more wildcards than its source '" + source + "'");
+				continue;
+			}
+			rules.add(rule);
+			addPattern(rawPatterns, segments, rule);
+		}
+
+		// collapse chains, using the raw rules to follow each target to its end
+		Map<String, String> exact = new HashMap<>();
+		for (Map.Entry<String, String> entry : rawExact.entrySet()) {
+			String target = collapse(entry.getKey(), entry.getValue(), rawExact, rawPatterns, errors);
+			if (target != null) {
+				exact.put(entry.getKey(), target);
+			}
+		}
+		PatternNode patterns = new PatternNode();
+		for (Rule rule : rules) {
+			String[] segments = rule.source.split("/", -1);
+			if (rule.templated) {
+				if (redirectedTemplate(rule, rawExact, rawPatterns)) {
+					errors.add("'" + rule.source + "' redirects to '" + Joiner.on('/').join(rule.target)
+							+ "', which is itself redirected. Redirect '" + rule.source + "' to the final page instead");
+				} else {
+					addPattern(patterns, segments, rule);
+				}
+				continue;
+			}
+			String target = collapse(rule.source, rule.targetFor(null), rawExact, rawPatterns, errors);
+			if (target != null) {
+				addPattern(patterns, segments, new Rule(rule.source, target));
+			}
+		}
+		return new RedirectEngine(exact, patterns, !rules.isEmpty(), errors);
+	}
+
+	private static boolean isPattern(String page) {
+		return page.equals(WILDCARD) || page.startsWith(WILDCARD + "/") || page.endsWith("/" + WILDCARD)
+				|| page.contains("/" + WILDCARD + "/");
+	}
+
+	private static int wildcards(String[] segments) {
+		int count = 0;
+		for (String segment : segments) {
+			if (segment.equals(WILDCARD)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void addPattern(PatternNode root, String[] segments, Rule rule) {
+		PatternNode node = root;
+		int last = segments.length - 1;
+		for (int i = 0; i < last; i++) {
+			String segment = segments[i];
+			PatternNode child;
+			if (segment.equals(WILDCARD)) {
+				if (node.star == null) {
+					node.star = new PatternNode();
+				}
+				child = node.star;
+			} else {
+				child = node.literals.get(segment);
+				if (child == null) {
+					child = new PatternNode();
+					node.literals.put(segment, child);
+				}
+			}
+			node = child;
+		}
+		if (segments[last].equals(WILDCARD)) {
+			node.rest = rule;
+		} else {
+			PatternNode child = node.literals.get(segments[last]);
+			if (child == null) {
+				child = new PatternNode();
+				node.literals.put(segments[last], child);
+			}
+			child.rule = rule;
+		}
+	}
+
+	/**
+	 * Follows {@code target} through the rules until it is no longer redirected, and returns the final page, or null
+	 * (with an error added) if the chain loops
+	 */
+	private static String collapse(String source, String target, Map<String, String> rawExact,
+			PatternNode rawPatterns, List<String> errors) {
+		Set<String> visited = new LinkedHashSet<>();
+		visited.add(source);
+		String current = target;
+		while (true) {
+			if (!visited.add(current)) {
+				StringBuilder buf = new StringBuilder("Redirect loop: ");
+				for (String page : visited) {
+					buf.append("'").append(page).append("' -> ");
+				}
+				buf.append("'").append(current).append("'");
+				errors.add(buf.toString());
+				return null;
+			}
+			String next = redirectOnce(current, rawExact, rawPatterns);
+			if (next == null) {
+				return current;
+			}
+			current = next;
+		}
+	}
+
+	/**
+	 * A templated target cannot be collapsed, so it is an error if any page it produces would be redirected. This is
+	 * checked by substituting a segment which only a wildcard can match
+	 */
+	private static boolean redirectedTemplate(Rule rule, Map<String, String> rawExact, PatternNode rawPatterns) {
+		List<String> captures = new ArrayList<>();
+		for (int i = 0; i < rule.wildcards(); i++) {
+			captures.add("\u0000");
+		}
+		String sample = rule.targetFor(captures);
+		return redirectOnce(sample, rawExact, rawPatterns) != null;
+	}
+
+	private static String redirectOnce(String page, Map<String, String> exact, PatternNode patterns) {
+		String target = exact.get(page);
+		if (target != null) {
+			return target;
+		}
+		if (page.isEmpty()) {
+			return null;
+		}
+		List<String> captures = new ArrayList<>(2);
+		Rule rule = match(patterns, page, 0, captures);
+		return (rule == null) ? null : rule.targetFor(captures);
+	}
+
+	private static Rule match(PatternNode node, String page, int start, List<String> captures) {
+		if (start > page.length()) {
+			return node.rule;
+		}
+		int end = page.indexOf('/', start);
+		if (end < 0) {
+			end = page.length();
+		}
+		String segment = page.substring(start, end);
+		PatternNode child = node.literals.get(segment);
+		if (child != null) {
+			Rule rule = match(child, page, end + 1, captures);
+			if (rule != null) {
+				return rule;
+			}
+		}
+		if (node.star != null) {
+			int size = captures.size();
+			captures.add(segment);
+			Rule rule = match(node.star, page, end + 1, captures);
+			if (rule != null) {
+				return rule;
+			}
+			captures.subList(size, captures.size()).clear();
+		}
+		if (node.rest != null) {
+			captures.add(page.substring(start));
+			return node.rest;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the page that {@code page} is redirected to, or {@code page} itself (the same instance) if it is not
+	 * redirected
+	 * 
+	 * @param page
+	 * @return
+	 */
+	public String redirect(String page) {
+		String target = exact.get(page);
+		if (target != null) {
+			return target;
+		}
+		if (!hasPatterns || page.isEmpty()) {
+			return page;
+		}
+		List<String> captures = new ArrayList<>(2);
+		Rule rule = match(patterns, page, 0, captures);
+		return (rule == null) ? page : rule.targetFor(captures);
+	}
+
+	/**
+	 * Returns the final targets of the exact rules, and of the patterns which have a fixed target, after chains have
+	 * been collapsed, keyed by source
+	 * 
+	 * @return
+	 */
+	public ImmutableMap<String, String> getFixedTargets() {
+		Map<String, String> targets = new LinkedHashMap<>(exact);
+		collectFixedTargets(patterns, targets);
+		return ImmutableMap.copyOf(targets);
+	}
+
+	private void collectFixedTargets(PatternNode node, Map<String, String> targets) {
+		for (Rule rule : new Rule[] { node.rule, node.rest }) {
+			if ((rule != null) && !rule.templated) {
+				targets.put(rule.source, rule.targetFor(null));
+			}
+		}
+		for (PatternNode child : node.literals.values()) {
+			collectFixedTargets(child, targets);
+		}
+		if (node.star != null) {
+			collectFixedTargets(node.star, targets);
+		}
+	}
+
+	/**
+	 * Returns a description of each rule which could not be compiled
+	 * 
+	 * @return
+	 */
+	public ImmutableList<String> getErrors() {
+		return errors;
+	}
+
+}
@@ -13,19 +13,27 @@
 package uk.co.q3c.v7.base.navigate.sitemap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
-import javax.inject.Singleton;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 
 import uk.co.q3c.util.BasicForest;
+import uk.co.q3c.v7.base.navigate.CollationKeyOrder;
+import uk.co.q3c.v7.base.navigate.InsertionOrder;
 import uk.co.q3c.v7.base.navigate.StandardPageKey;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -44,13 +52,29 @@ import com.google.common.collect.ImmutableMap;
  * <p>
  * <p>
  * Uses LinkedHashMap to hold the site map itself, to retain insertion order<br>
+ * <p>
+ * URI segments are indexed by a {@link SitemapTrie} as nodes are added, so that a URI can be resolved to its node (or
+ * node chain) in time proportional to the number of segments, rather than the number of pages. A URI index is kept
+ * in the same way, so that {@link #uri(SitemapNode)} and {@link #hasUri(String)} are constant time lookups<br>
+ * <p>
+ * The structure of the map is held by {@link BasicForest} in arrays indexed directly by {@link SitemapNode#getId()}<br>
+ * <p>
+ * A Sitemap is built by a single thread, and then {@link #lock()}ed before being published by the
+ * {@link SitemapService}. Once locked, any attempt to change the map throws a {@link SitemapLockedException}, so a
+ * published Sitemap is an immutable snapshot which can be read by any number of threads without synchronisation. A
+ * rebuild creates a new instance rather than changing the published one. Note that the {@link SitemapNode}s themselves
+ * are not locked, and should not be changed once the map is published<br>
+ * <p>
+ * A locked map also holds the order of the children of each node, so that navigation components can present them
+ * without sorting - see {@link #getRoots(Locale, boolean)} and {@link #getChildren(SitemapNode, Locale, boolean)}<br>
  * 
  * @author David Sowerby 19 May 2013
  * 
  */
-@Singleton
 public class Sitemap extends BasicForest<SitemapNode> {
 
+	// shared by all instances, so that a newer Sitemap always has a higher version
+	private static final AtomicLong versions = new AtomicLong();
 	private String publicRoot = "public";
 	private String privateRoot = "private";
 	private int nextNodeId = 0;
@@ -59,10 +83,35 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	private String report;
 	// Uses LinkedHashMap to retain insertion order
 	private final Map<String, String> redirects = new LinkedHashMap<>();
+	// compiled from redirects when the map is locked, or on demand while it is being built
+	private RedirectEngine redirectEngine;
 	private SitemapNode privateRootNode;
 	private SitemapNode publicRootNode;
+	private final SitemapTrie trie = new SitemapTrie();
+	// URI to node, and node id to URI
+	// LinkedHashMap to retain insertion order, for deterministic reports
+	private final Map<String, SitemapNode> nodesByUri = new LinkedHashMap<>();
+	private String[] urisById = new String[64];
+	private boolean locked;
+	private long version;
+	// sibling orders by parent node (null for the roots). Insertion order is built by lock(), and collation order on
+	// the first call for each locale
+	private Map<SitemapNode, List<SitemapNode>> insertionOrder;
+	private final ConcurrentMap<Locale, Map<SitemapNode, List<SitemapNode>>> collationOrders = new ConcurrentHashMap<>();
 
+	/**
+	 * Returns the full URI for {@code node}. For a node in this map the URI is taken from the URI index, so this is a
+	 * constant time call. For a node which is not in the map, the URI is built from its segment and those of its
+	 * parents
+	 * 
+	 * @param node
+	 * @return
+	 */
 	public String uri(SitemapNode node) {
+		String uri = indexedUri(node);
+		if (uri != null) {
+			return uri;
+		}
 		StringBuilder buf = new StringBuilder(node.getUriSegment());
 		prependParent(node, buf);
 		return buf.toString();
@@ -77,6 +126,33 @@ public class Sitemap extends BasicForest<SitemapNode> {
 		}
 	}
 
+	private String indexedUri(SitemapNode node) {
+		int id = node.getId();
+		if (id >= urisById.length) {
+			return null;
+		}
+		return urisById[id];
+	}
+
+	/**
+	 * Adds {@code node} to the URI index, using the URI of {@code parentNode} (which must already be indexed, unless
+	 * it is null) as its prefix
+	 * 
+	 * @param parentNode
+	 * @param node
+	 */
+	private void indexUri(SitemapNode parentNode, SitemapNode node) {
+		String uri = (parentNode == null) ? node.getUriSegment() : indexedUri(parentNode) + "/" + node.getUriSegment();
+		int id = node.getId();
+		if (id >= urisById.length) {
+			urisById = Arrays.copyOf(urisById, Math.max(id + 1, urisById.length * 2));
+		}
+		urisById[id] = uri;
+		if (!nodesByUri.containsKey(uri)) {
+			nodesByUri.put(uri, node);
+		}
+	}
+
 	/**
 	 * creates a SiteMapNode and appends it to the map according to the {@code uri} given, then returns it. If a node
 	 * already exists at that location it is returned. If there are gaps in the structure, nodes are created to fill
@@ -87,77 +163,155 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	 * @return
 	 */
 	public SitemapNode append(String uri) {
-
+		checkNotLocked();
 		if (uri.equals("")) {
-			SitemapNode node = new SitemapNode();
-			node.setUriSegment(uri);
-			addNode(node);
+			SitemapNode node = trie.find(null, uri);
+			if (node == null) {
+				node = new SitemapNode();
+				node.setUriSegment(uri);
+				addNode(node);
+			}
 			return node;
 		}
 		SitemapNode node = null;
 		String[] segments = StringUtils.split(uri, "/");
-		List<SitemapNode> nodes = getRoots();
 		SitemapNode parentNode = null;
 		for (int i = 0; i < segments.length; i++) {
-			node = findNodeBySegment(nodes, segments[i], true);
-			addChild(parentNode, node);
-			nodes = getChildren(node);
+			node = trie.find(parentNode, segments[i]);
+			if (node == null) {
+				node = new SitemapNode();
+				node.setUriSegment(segments[i]);
+				addChild(parentNode, node);
+			}
 			parentNode = node;
 		}
 
 		return node;
 	}
 
-	private SitemapNode findNodeBySegment(List<SitemapNode> nodes, String segment, boolean createIfAbsent) {
-		SitemapNode foundNode = null;
-		for (SitemapNode node : nodes) {
-			if (node.getUriSegment().equals(segment)) {
-				foundNode = node;
-				break;
-			}
-		}
-
-		if ((foundNode == null) && (createIfAbsent)) {
-			foundNode = new SitemapNode();
-			foundNode.setUriSegment(segment);
-
-		}
-		return foundNode;
-	}
-
 	@Override
 	public void addNode(SitemapNode node) {
+		checkNotLocked();
 		if (node.getId() == 0) {
 			node.setId(nextNodeId());
 		}
 		super.addNode(node);
+		trie.add(null, node);
+		indexUri(null, node);
 	}
 
 	@Override
 	public void addChild(SitemapNode parentNode, SitemapNode childNode) {
+		checkNotLocked();
 		// super allows null parent
 		if (parentNode != null) {
 			if (parentNode.getId() == 0) {
 				parentNode.setId(nextNodeId());
 			}
+			// super will add the parent as a root if it is not already in the map
+			if (indexedUri(parentNode) == null) {
+				indexUri(null, parentNode);
+			}
 		}
 		if (childNode.getId() == 0) {
 			childNode.setId(nextNodeId());
 		}
 		super.addChild(parentNode, childNode);
+		trie.add(parentNode, childNode);
+		indexUri(parentNode, childNode);
+	}
+
+	/**
+	 * Nodes are held in the slot given by their id, so no lookup is needed to find them
+	 */
+	@Override
+	protected int indexOf(SitemapNode node) {
+		if (node == null) {
+			return NONE;
+		}
+		int id = node.getId();
+		return (nodeAt(id) == null) ? NONE : id;
+	}
+
+	@Override
+	protected int newIndex(SitemapNode node) {
+		return node.getId();
+	}
+
+	@Override
+	public void clear() {
+		checkNotLocked();
+		super.clear();
+		trie.clear();
+		clearUriIndex();
+		publicRootNode = null;
+		privateRootNode = null;
+	}
+
+	private void clearUriIndex() {
+		nodesByUri.clear();
+		urisById = new String[64];
+	}
+
+	/**
+	 * Rebuilds the routing and URI indexes from the current structure of the map. The indexes are maintained as nodes
+	 * are added, so this is only needed if the URI segment of a node has been changed after it was added to the map.
+	 */
+	public void reindex() {
+		checkNotLocked();
+		trie.clear();
+		clearUriIndex();
+		// pre-order, so each parent is indexed before its children
+		for (SitemapNode node : preOrder()) {
+			SitemapNode parentNode = getParent(node);
+			trie.add(parentNode, node);
+			indexUri(parentNode, node);
+		}
+		publicRootNode = null;
+		privateRootNode = null;
 	}
 
 	public String standardPageURI(StandardPageKey pageKey) {
 		return standardPages.get(pageKey);
 	}
 
+	/**
+	 * Returns the highest node id allocated so far - a {@link TenantSitemap} numbers its own nodes from here, so that
+	 * they cannot be equal to a node of this map
+	 */
+	int getLastNodeId() {
+		return nextNodeId;
+	}
+
+	/**
+	 * Returns the child of {@code parentNode} (or the root, if {@code parentNode} is null) with the literal URI segment
+	 * {@code segment}, or null if there is none
+	 */
+	SitemapNode literalChild(SitemapNode parentNode, String segment) {
+		return trie.find(parentNode, segment);
+	}
+
+	/**
+	 * Returns the parameter segment child of {@code parentNode} (or root, if {@code parentNode} is null), or null if
+	 * there is none
+	 */
+	SitemapNode parameterChild(SitemapNode parentNode) {
+		return trie.findParameter(parentNode);
+	}
+
 	private int nextNodeId() {
 		nextNodeId++;
 		return nextNodeId;
 	}
 
+	/**
+	 * Returns the standard page URIs, keyed by {@link StandardPageKey}. The map can be modified until the Sitemap is
+	 * locked, after which it is read only
+	 * 
+	 * @return
+	 */
 	public Map<StandardPageKey, String> getStandardPages() {
-		return standardPages;
+		return locked ? Collections.unmodifiableMap(standardPages) : standardPages;
 	}
 
 	public boolean hasErrors() {
@@ -169,6 +323,7 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	}
 
 	public void setReport(String report) {
+		checkNotLocked();
 		this.report = report;
 	}
 
@@ -178,17 +333,26 @@ public class Sitemap extends BasicForest<SitemapNode> {
 
 	/**
 	 * If the {@code page} has been redirected, return the page it has been redirected to, otherwise, just return
-	 * {@code page}
+	 * {@code page}. Redirects may be exact, prefix or wildcard rules, and chains of redirects are followed to the final
+	 * page - see {@link RedirectEngine}
 	 * 
 	 * @param page
 	 * @return
 	 */
 	public String getRedirectFor(String page) {
-		String p = redirects.get(page);
-		if (p == null) {
-			return page;
+		return redirectEngine().redirect(page);
+	}
+
+	/**
+	 * Returns the compiled redirects
+	 * 
+	 * @return
+	 */
+	public RedirectEngine redirectEngine() {
+		if (redirectEngine == null) {
+			redirectEngine = RedirectEngine.compile(redirects);
 		}
-		return p;
+		return redirectEngine;
 	}
 
 	/**
@@ -202,7 +366,9 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	}
 
 	public Sitemap addRedirect(String fromPage, String toPage) {
+		checkNotLocked();
 		redirects.put(fromPage, toPage);
+		redirectEngine = null;
 		return this;
 	}
 
@@ -218,57 +384,80 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	 */
 
 	public List<SitemapNode> nodeChainForSegments(List<String> segments, boolean allowPartialPath) {
-		List<SitemapNode> nodeChain = new ArrayList<>();
-		int i = 0;
-		String currentSegment = null;
-		List<SitemapNode> nodes = getRoots();
-		boolean segmentNotFound = false;
-		SitemapNode node = null;
-		while ((i < segments.size()) && (!segmentNotFound)) {
-			currentSegment = segments.get(i);
-			node = findNodeBySegment(nodes, currentSegment, false);
-			if (node != null) {
-				nodeChain.add(node);
-				nodes = getChildren(node);
-				i++;
-			} else {
-				segmentNotFound = true;
-			}
-
-		}
-		if (segmentNotFound && !allowPartialPath) {
+		List<SitemapNode> nodeChain = new ArrayList<>(segments.size());
+		boolean found = trie.resolveChain(segments, nodeChain);
+		if (!found && !allowPartialPath) {
 			nodeChain.clear();
 		}
 		return nodeChain;
 	}
 
 	/**
-	 * Returns a list of all the URIs contained in the sitemap. This is a fairly expensive call, as each URI has to be
-	 * built from the node structure.
+	 * Returns the {@link SitemapNode} at the end of the path described by {@code segments}, without building the node
+	 * chain. If there is an incomplete match, the last node matched is returned if {@code allowPartialPath} is true,
+	 * and null if it is false. Null is also returned if there is no match at all.
+	 * 
+	 * @param segments
+	 * @param allowPartialPath
+	 * @return
+	 */
+	public SitemapNode nodeForSegments(String[] segments, boolean allowPartialPath) {
+		return trie.resolve(segments, allowPartialPath);
+	}
+
+	/**
+	 * As {@link #nodeForSegments(String[], boolean)}, but also puts the values captured by parameter segments (see
+	 * {@link SitemapTrie}) into {@code pathParameters}, keyed by parameter name
+	 * 
+	 * @param segments
+	 * @param allowPartialPath
+	 * @param pathParameters
+	 * @return
+	 */
+	public SitemapNode nodeForSegments(String[] segments, boolean allowPartialPath, Map<String, String> pathParameters) {
+		return trie.resolve(segments, allowPartialPath, pathParameters);
+	}
+
+	/**
+	 * Returns a list of the URIs of all the nodes in the sitemap, one for each node. The URIs are taken from the URI
+	 * index rather than being built from the node structure
 	 * 
 	 * @return
 	 */
 	public List<String> uris() {
-		List<String> list = new ArrayList<>();
-		for (SitemapNode node : getAllNodes()) {
-			list.add(uri(node));
+		List<SitemapNode> nodes = getAllNodes();
+		List<String> list = new ArrayList<>(nodes.size());
+		for (SitemapNode node : nodes) {
+			String uri = indexedUri(node);
+			list.add((uri == null) ? uri(node) : uri);
 		}
 		return list;
 	}
 
 	/**
-	 * Returns true if the sitemap contains {@code uri}. This is a fairly expensive call, as each URI has to be built
-	 * from the node structure, before this method can be evaluated
+	 * Returns true if the sitemap contains {@code uri}. This is a constant time lookup in the URI index.
 	 * 
 	 * @param uri
 	 * @return
 	 */
 	public boolean hasUri(String uri) {
-		List<String> list = uris();
-		return list.contains(uri);
+		return nodesByUri.containsKey(uri);
+	}
+
+	/**
+	 * Returns the node with the full URI {@code uri}, or null if there is no such node in the map. This is a constant
+	 * time lookup in the URI index. The {@code uri} must be a page URI only, without any parameters - to resolve a URI
+	 * fragment, use {@link SitemapURIConverter}
+	 * 
+	 * @param uri
+	 * @return
+	 */
+	public SitemapNode nodeFor(String uri) {
+		return nodesByUri.get(uri);
 	}
 
 	public void setErrors(int errorSum) {
+		checkNotLocked();
 		errors = errorSum;
 
 	}
@@ -278,7 +467,9 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	}
 
 	public void setPublicRoot(String publicRoot) {
+		checkNotLocked();
 		this.publicRoot = publicRoot;
+		publicRootNode = null;
 	}
 
 	public String getPrivateRoot() {
@@ -286,21 +477,137 @@ public class Sitemap extends BasicForest<SitemapNode> {
 	}
 
 	public void setPrivateRoot(String privateRoot) {
+		checkNotLocked();
 		this.privateRoot = privateRoot;
+		privateRootNode = null;
 	}
 
 	public SitemapNode getPrivateRootNode() {
-		if (this.privateRootNode == null) {
-			privateRootNode = findNodeBySegment(getRoots(), privateRoot, false);
+		if ((this.privateRootNode == null) && !locked) {
+			privateRootNode = trie.find(null, privateRoot);
 		}
 		return privateRootNode;
 	}
 
 	public SitemapNode getPublicRootNode() {
-		if (this.publicRootNode == null) {
-			publicRootNode = findNodeBySegment(getRoots(), publicRoot, false);
+		if ((this.publicRootNode == null) && !locked) {
+			publicRootNode = trie.find(null, publicRoot);
 		}
 		return publicRootNode;
 	}
 
+	/**
+	 * Freezes this Sitemap, so that it can be published and read concurrently. The public and private root nodes are
+	 * resolved, the redirects compiled, the insertion order of siblings recorded and the version assigned now, so that
+	 * no reader needs to write to the map. After this call, any method which would change the map throws a
+	 * {@link SitemapLockedException}. Calling this method more than once has no further effect.
+	 */
+	public void lock() {
+		if (locked) {
+			return;
+		}
+		publicRootNode = trie.find(null, publicRoot);
+		privateRootNode = trie.find(null, privateRoot);
+		redirectEngine = RedirectEngine.compile(redirects);
+		insertionOrder = siblingOrder(new InsertionOrder());
+		version = versions.incrementAndGet();
+		locked = true;
+	}
+
+	public boolean isLocked() {
+		return locked;
+	}
+
+	/**
+	 * Returns the version of this Sitemap, which is assigned when it is {@link #lock()}ed, and is 0 until then. Each
+	 * Sitemap locked (including each {@link TenantSitemap}) has a higher version than any locked before it, so the
+	 * version identifies the contents of one locked Sitemap. Anything derived from a Sitemap can be stamped with its
+	 * version, and is stale if the version of the current Sitemap is different. See
+	 * {@link SitemapService#changesSince(long)} to find out what has changed
+	 * 
+	 * @return
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the roots in the order they were added, or if {@code sorted} is true, in the collation order of their
+	 * labels for {@code locale} ({@code locale} is not used when {@code sorted} is false). Once the map is locked, the
+	 * orders are computed only once (the collation order once for each locale), and the list returned is shared and
+	 * cannot be modified. Until then, the list is a new one, sorted for each call
+	 * 
+	 * @param locale
+	 * @param sorted
+	 * @return
+	 */
+	public List<SitemapNode> getRoots(Locale locale, boolean sorted) {
+		return siblings(null, locale, sorted);
+	}
+
+	/**
+	 * Returns the children of {@code parentNode} in the order described for {@link #getRoots(Locale, boolean)}, or an
+	 * empty list if {@code parentNode} is null or has no children
+	 * 
+	 * @param parentNode
+	 * @param locale
+	 * @param sorted
+	 * @return
+	 */
+	public List<SitemapNode> getChildren(SitemapNode parentNode, Locale locale, boolean sorted) {
+		if (parentNode == null) {
+			return ImmutableList.of();
+		}
+		return siblings(parentNode, locale, sorted);
+	}
+
+	private List<SitemapNode> siblings(SitemapNode parentNode, Locale locale, boolean sorted) {
+		Comparator<SitemapNode> order = sorted ? new CollationKeyOrder(locale) : new InsertionOrder();
+		if (!locked) {
+			List<SitemapNode> siblings = (parentNode == null) ? getRoots() : getChildren(parentNode);
+			Collections.sort(siblings, order);
+			return siblings;
+		}
+		Map<SitemapNode, List<SitemapNode>> orders = insertionOrder;
+		if (sorted) {
+			orders = collationOrders.get(locale);
+			if (orders == null) {
+				orders = siblingOrder(order);
+				Map<SitemapNode, List<SitemapNode>> existing = collationOrders.putIfAbsent(locale, orders);
+				if (existing != null) {
+					orders = existing;
+				}
+			}
+		}
+		List<SitemapNode> siblings = orders.get(parentNode);
+		return (siblings == null) ? ImmutableList.<SitemapNode> of() : siblings;
+	}
+
+	/**
+	 * Sorts the roots, and the children of every node, by {@code order}. Only nodes which have children have an entry
+	 */
+	private Map<SitemapNode, List<SitemapNode>> siblingOrder(Comparator<SitemapNode> order) {
+		Map<SitemapNode, List<SitemapNode>> orders = new HashMap<>();
+		addSiblingOrder(orders, null, getRoots(), order);
+		return orders;
+	}
+
+	private void addSiblingOrder(Map<SitemapNode, List<SitemapNode>> orders, SitemapNode parentNode,
+			List<SitemapNode> siblings, Comparator<SitemapNode> order) {
+		if (siblings.isEmpty()) {
+			return;
+		}
+		Collections.sort(siblings, order);
+		orders.put(parentNode, ImmutableList.copyOf(siblings));
+		for (SitemapNode node : siblings) {
+			addSiblingOrder(orders, node, getChildren(node), order);
+		}
+	}
+
+	void checkNotLocked() {
+		if (locked) {
+			throw new SitemapLockedException("The Sitemap has been locked, and cannot be changed");
+		}
+	}
+
 }
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+/**
+ * Implemented by anything which needs to know when the {@link SitemapService} publishes a new {@link Sitemap}.
+ * Listeners are called from the thread which rebuilt the Sitemap, which will not usually be a Vaadin request thread -
+ * a listener which updates a UI must use UI.access() to do so.
+ * 
+ */
+public interface SitemapChangeListener {
+
+	void sitemapChanged(Sitemap newSitemap, SitemapDiff diff);
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * A record of the most recent {@link SitemapDiff}s, one for each Sitemap published after the first, so that anything
+ * which caches values derived from a Sitemap, and has stamped them with its {@link Sitemap#getVersion()}, can find out
+ * exactly which URIs have changed since, and invalidate only those. Only the last {@link #getCapacity()} diffs are
+ * kept; a version older than that gets null from {@link #changesSince(long)}, and the caller should discard everything.
+ * <p>
+ * Thread safe.
+ * 
+ */
+public class SitemapChangeLog {
+
+	public static final int DEFAULT_CAPACITY = 32;
+	private final int capacity;
+	private final Deque<SitemapDiff> diffs = new ArrayDeque<>();
+	private long currentVersion;
+
+	public SitemapChangeLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public SitemapChangeLog(int capacity) {
+		super();
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Sets the version of the first Sitemap published, from which there are no changes
+	 * 
+	 * @param version
+	 */
+	public synchronized void start(long version) {
+		diffs.clear();
+		currentVersion = version;
+	}
+
+	/**
+	 * Adds {@code diff}, which should start from the version of the last diff recorded (or the version given to
+	 * {@link #start(long)}). Otherwise the log is restarted from {@code diff}, as the gap cannot be accounted for
+	 * 
+	 * @param diff
+	 */
+	public synchronized void record(SitemapDiff diff) {
+		if (diff.getFromVersion() != currentVersion) {
+			diffs.clear();
+		}
+		diffs.addLast(diff);
+		if (diffs.size() > capacity) {
+			diffs.removeFirst();
+		}
+		currentVersion = diff.getToVersion();
+	}
+
+	/**
+	 * Returns the combined changes from {@code version} to the current version, which are empty if {@code version} is
+	 * the current version. Returns null if {@code version} is not known to the log - it is older than the oldest diff
+	 * kept, or was never published
+	 * 
+	 * @param version
+	 * @return
+	 */
+	public synchronized SitemapDiff changesSince(long version) {
+		if (version == currentVersion) {
+			return SitemapDiff.none(version);
+		}
+		SitemapDiff combined = null;
+		Iterator<SitemapDiff> iterator = diffs.descendingIterator();
+		while (iterator.hasNext()) {
+			SitemapDiff diff = iterator.next();
+			combined = (combined == null) ? diff : diff.followedBy(combined);
+			if (diff.getFromVersion() == version) {
+				return combined;
+			}
+		}
+		return null;
+	}
+
+	public synchronized long getCurrentVersion() {
+		return currentVersion;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import uk.co.q3c.v7.base.navigate.StandardPageKey;
+import uk.co.q3c.v7.i18n.I18NModule;
+
+import com.google.common.collect.Lists;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+/**
+ * A build time tool which validates a text sitemap file (by parsing it with the {@link SitemapFileReader}) and, if it
+ * has no errors, writes it out in a compact binary form. The compiled form is loaded at run time by
+ * {@link CompiledSitemapReader}, when the 'compiled' sitemap source is configured, which avoids all the text parsing
+ * and the search for view classes through the view packages.
+ * <p>
+ * Run it from the build with:
+ * <p>
+ * java uk.co.q3c.v7.base.navigate.sitemap.SitemapCompiler &lt;sitemap file&gt; &lt;compiled file&gt;
+ * <p>
+ * The view classes and label key classes must be on the classpath. See the demo build.gradle for an example
+ * <p>
+ * The compiled format is a {@link DataOutputStream} containing a header ({@link #MAGIC} and {@link #FORMAT_VERSION}), a
+ * table of all the distinct strings used, the public and private roots, the redirects, the standard page mappings and
+ * finally the nodes in pre-order. Everything after the string table refers to strings by their index in the table.
+ * 
+ */
+public class SitemapCompiler {
+
+	public static final int MAGIC = 0x56375343;
+	public static final int FORMAT_VERSION = 1;
+	static final int NONE = -1;
+
+	private final SitemapFileReader reader;
+
+	@Inject
+	protected SitemapCompiler(SitemapFileReader reader) {
+		super();
+		this.reader = reader;
+	}
+
+	/**
+	 * Parses {@code source}, and if it has no errors writes the compiled form of it to {@code target}
+	 * 
+	 * @param source
+	 * @param target
+	 * @return the report produced by the {@link SitemapFileReader}
+	 * @throws SitemapException
+	 *             if {@code source} has errors (the message contains the report), or {@code target} cannot be written
+	 */
+	public String compile(File source, File target) {
+		Sitemap sitemap = new Sitemap();
+		reader.setSitemap(sitemap);
+		reader.parse(source, true);
+		String report = reader.buildReport(new StringBuilder()).toString();
+		if (sitemap.hasErrors()) {
+			throw new SitemapException("Sitemap " + source + " has " + sitemap.getErrors()
+					+ " errors and has not been compiled\n" + report);
+		}
+		File directory = target.getAbsoluteFile().getParentFile();
+		if (!directory.exists()) {
+			directory.mkdirs();
+		}
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+			write(sitemap, out);
+		} catch (IOException e) {
+			throw new SitemapException("Unable to write compiled sitemap to " + target, e);
+		}
+		return report;
+	}
+
+	/**
+	 * Writes {@code sitemap} to {@code out} in the compiled format. {@code out} is not closed
+	 * 
+	 * @param sitemap
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void write(Sitemap sitemap, OutputStream out) throws IOException {
+		List<SitemapNode> nodes = Lists.newArrayList(sitemap.preOrder());
+
+		// string table
+		StringTable strings = new StringTable();
+		strings.add(sitemap.getPublicRoot());
+		strings.add(sitemap.getPrivateRoot());
+		for (Map.Entry<String, String> redirect : sitemap.getRedirects().entrySet()) {
+			strings.add(redirect.getKey());
+			strings.add(redirect.getValue());
+		}
+		for (Map.Entry<StandardPageKey, String> standardPage : sitemap.getStandardPages().entrySet()) {
+			strings.add(standardPage.getKey().name());
+			strings.add(standardPage.getValue());
+		}
+		for (SitemapNode node : nodes) {
+			strings.add(node.getUriSegment());
+			if (node.getViewClass() != null) {
+				strings.add(node.getViewClass().getName());
+			}
+			if (node.getLabelKey() != null) {
+				strings.add(node.getLabelKey().getClass().getName());
+				strings.add(((Enum<?>) node.getLabelKey()).name());
+			}
+		}
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.writeInt(strings.list.size());
+		for (String s : strings.list) {
+			data.writeUTF(s);
+		}
+		data.writeInt(strings.indexOf(sitemap.getPublicRoot()));
+		data.writeInt(strings.indexOf(sitemap.getPrivateRoot()));
+
+		data.writeInt(sitemap.getRedirects().size());
+		for (Map.Entry<String, String> redirect : sitemap.getRedirects().entrySet()) {
+			data.writeInt(strings.indexOf(redirect.getKey()));
+			data.writeInt(strings.indexOf(redirect.getValue()));
+		}
+
+		data.writeInt(sitemap.getStandardPages().size());
+		for (Map.Entry<StandardPageKey, String> standardPage : sitemap.getStandardPages().entrySet()) {
+			data.writeInt(strings.indexOf(standardPage.getKey().name()));
+			data.writeInt(strings.indexOf(standardPage.getValue()));
+		}
+
+		// nodes, each with the index of its parent (which always precedes it)
+		Map<SitemapNode, Integer> positions = new HashMap<>();
+		data.writeInt(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			SitemapNode node = nodes.get(i);
+			positions.put(node, i);
+			SitemapNode parent = sitemap.getParent(node);
+			data.writeInt((parent == null) ? NONE : positions.get(parent));
+			data.writeInt(strings.indexOf(node.getUriSegment()));
+			data.writeInt((node.getViewClass() == null) ? NONE : strings.indexOf(node.getViewClass().getName()));
+			if (node.getLabelKey() == null) {
+				data.writeInt(NONE);
+				data.writeInt(NONE);
+			} else {
+				data.writeInt(strings.indexOf(node.getLabelKey().getClass().getName()));
+				data.writeInt(strings.indexOf(((Enum<?>) node.getLabelKey()).name()));
+			}
+		}
+		data.flush();
+	}
+
+	private static class StringTable {
+		private final List<String> list = new ArrayList<>();
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		void add(String s) {
+			if ((s != null) && !indexes.containsKey(s)) {
+				indexes.put(s, list.size());
+				list.add(s);
+			}
+		}
+
+		int indexOf(String s) {
+			return (s == null) ? NONE : indexes.get(s);
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("usage: SitemapCompiler <sitemap file> <compiled file>");
+			System.exit(2);
+		}
+		SitemapCompiler compiler = Guice.createInjector(new I18NModule(), new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(SitemapFileReader.class).to(DefaultSitemapFileReader.class);
+			}
+		}).getInstance(SitemapCompiler.class);
+		try {
+			compiler.compile(new File(args[0]), new File(args[1]));
+			System.out.println("Sitemap " + args[0] + " compiled to " + args[1]);
+		} catch (SitemapException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+}
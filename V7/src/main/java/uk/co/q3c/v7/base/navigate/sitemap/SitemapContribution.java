@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.List;
+
+/**
+ * A branch of the {@link Sitemap} contributed by a Guice module, and loaded by the 'module' sitemap source. A feature
+ * module adds its contribution with:
+ * <p>
+ * Multibinder.newSetBinder(binder(), SitemapContribution.class).addBinding().to(MyFeatureSitemap.class);
+ * <p>
+ * Contributions are built independently of each other, and may be built concurrently, so {@link #entries()} must not
+ * depend on any other contribution. See {@link ModuleSitemapLoader} for how they are merged
+ * 
+ */
+public interface SitemapContribution {
+
+	/**
+	 * The name of the contribution, used to order the contributions when they are merged, and to identify it in the
+	 * sitemap report
+	 * 
+	 * @return
+	 */
+	String getName();
+
+	/**
+	 * The pages in this contribution, with full URIs
+	 * 
+	 * @return
+	 */
+	List<SitemapEntry> entries();
+}
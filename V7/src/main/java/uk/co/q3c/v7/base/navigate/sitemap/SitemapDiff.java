@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * The differences between two versions of a {@link Sitemap}, expressed as the URIs which have been added, removed or
+ * changed. A URI is considered changed if it is in both versions, but its view class or label key is different - the
+ * URIs whose label key changed are also given by {@link #getRelabelled()}, and those whose view class changed by
+ * {@link #getViewChanged()}. This allows anything which caches by URI or by node to invalidate only the entries
+ * affected by a change.
+ * <p>
+ * The diff is stamped with the {@link Sitemap#getVersion()} of the two Sitemaps compared. Diffs of consecutive versions
+ * can be combined with {@link #followedBy(SitemapDiff)}, which is how {@link SitemapChangeLog} answers "what has
+ * changed since version n".
+ * 
+ */
+public class SitemapDiff {
+
+	private final long fromVersion;
+	private final long toVersion;
+	private final ImmutableSortedSet<String> added;
+	private final ImmutableSortedSet<String> removed;
+	private final ImmutableSortedSet<String> changed;
+	private final ImmutableSortedSet<String> relabelled;
+	private final ImmutableSortedSet<String> viewChanged;
+
+	protected SitemapDiff(long fromVersion, long toVersion, Set<String> added, Set<String> removed,
+			Set<String> changed, Set<String> relabelled, Set<String> viewChanged) {
+		super();
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.added = ImmutableSortedSet.copyOf(added);
+		this.removed = ImmutableSortedSet.copyOf(removed);
+		this.changed = ImmutableSortedSet.copyOf(changed);
+		this.relabelled = ImmutableSortedSet.copyOf(relabelled);
+		this.viewChanged = ImmutableSortedSet.copyOf(viewChanged);
+	}
+
+	/**
+	 * Compares {@code oldSitemap} with {@code newSitemap}. If {@code oldSitemap} is null, all the URIs in
+	 * {@code newSitemap} are treated as added.
+	 * 
+	 * @param oldSitemap
+	 * @param newSitemap
+	 * @return
+	 */
+	public static SitemapDiff between(Sitemap oldSitemap, Sitemap newSitemap) {
+		Set<String> added = new TreeSet<>();
+		Set<String> removed = new TreeSet<>();
+		Set<String> relabelled = new TreeSet<>();
+		Set<String> viewChanged = new TreeSet<>();
+		for (String uri : newSitemap.uris()) {
+			SitemapNode oldNode = (oldSitemap == null) ? null : oldSitemap.nodeFor(uri);
+			if (oldNode == null) {
+				added.add(uri);
+				continue;
+			}
+			SitemapNode newNode = newSitemap.nodeFor(uri);
+			if (!Objects.equal(oldNode.getLabelKey(), newNode.getLabelKey())) {
+				relabelled.add(uri);
+			}
+			if (!Objects.equal(oldNode.getViewClass(), newNode.getViewClass())) {
+				viewChanged.add(uri);
+			}
+		}
+		if (oldSitemap != null) {
+			for (String uri : oldSitemap.uris()) {
+				if (!newSitemap.hasUri(uri)) {
+					removed.add(uri);
+				}
+			}
+		}
+		Set<String> changed = new TreeSet<>(relabelled);
+		changed.addAll(viewChanged);
+		long fromVersion = (oldSitemap == null) ? 0 : oldSitemap.getVersion();
+		return new SitemapDiff(fromVersion, newSitemap.getVersion(), added, removed, changed, relabelled, viewChanged);
+	}
+
+	/**
+	 * Returns a diff with no differences, from and to {@code version}
+	 * 
+	 * @param version
+	 * @return
+	 */
+	public static SitemapDiff none(long version) {
+		Set<String> empty = ImmutableSortedSet.of();
+		return new SitemapDiff(version, version, empty, empty, empty, empty, empty);
+	}
+
+	/**
+	 * Combines this diff with {@code next}, which should start from the version this one ends at, into a single diff
+	 * from {@link #getFromVersion()} to {@code next.getToVersion()}. A URI added by one and removed by the other is in
+	 * neither set if it was added first, and is changed if it was removed first
+	 * 
+	 * @param next
+	 * @return
+	 */
+	public SitemapDiff followedBy(SitemapDiff next) {
+		Set<String> added = new TreeSet<>(this.added);
+		Set<String> removed = new TreeSet<>(this.removed);
+		Set<String> relabelled = new TreeSet<>(this.relabelled);
+		Set<String> viewChanged = new TreeSet<>(this.viewChanged);
+		for (String uri : next.removed) {
+			relabelled.remove(uri);
+			viewChanged.remove(uri);
+			if (!added.remove(uri)) {
+				removed.add(uri);
+			}
+		}
+		for (String uri : next.added) {
+			if (removed.remove(uri)) {
+				// removed and put back, so its content may be different
+				relabelled.add(uri);
+				viewChanged.add(uri);
+			} else {
+				added.add(uri);
+			}
+		}
+		for (String uri : next.relabelled) {
+			if (!added.contains(uri)) {
+				relabelled.add(uri);
+			}
+		}
+		for (String uri : next.viewChanged) {
+			if (!added.contains(uri)) {
+				viewChanged.add(uri);
+			}
+		}
+		Set<String> changed = new TreeSet<>(relabelled);
+		changed.addAll(viewChanged);
+		return new SitemapDiff(fromVersion, next.toVersion, added, removed, changed, relabelled, viewChanged);
+	}
+
+	public long getFromVersion() {
+		return fromVersion;
+	}
+
+	public long getToVersion() {
+		return toVersion;
+	}
+
+	public ImmutableSortedSet<String> getAdded() {
+		return added;
+	}
+
+	public ImmutableSortedSet<String> getRemoved() {
+		return removed;
+	}
+
+	public ImmutableSortedSet<String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Returns the changed URIs whose label key is different
+	 * 
+	 * @return
+	 */
+	public ImmutableSortedSet<String> getRelabelled() {
+		return relabelled;
+	}
+
+	/**
+	 * Returns the changed URIs whose view class is different
+	 * 
+	 * @return
+	 */
+	public ImmutableSortedSet<String> getViewChanged() {
+		return viewChanged;
+	}
+
+	/**
+	 * Returns true if {@code uri} has been added, removed or changed
+	 * 
+	 * @param uri
+	 * @return
+	 */
+	public boolean affects(String uri) {
+		return added.contains(uri) || removed.contains(uri) || changed.contains(uri);
+	}
+
+	/**
+	 * Returns true if there are no differences
+	 * 
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "version " + fromVersion + " to " + toVersion + ": added=" + added + ", removed=" + removed
+				+ ", changed=" + changed;
+	}
+
+}
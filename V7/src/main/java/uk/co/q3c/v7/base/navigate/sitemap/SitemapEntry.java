@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.i18n.I18NKey;
+
+/**
+ * A page definition held in code rather than in the sitemap file - the URI of the page, its view and its label key.
+ * Loaded into the {@link Sitemap} by {@link SitemapEntryLoader}
+ * 
+ */
+public class SitemapEntry {
+
+	private final String uri;
+	private final Class<? extends V7View> viewClass;
+	private final I18NKey<?> labelKey;
+
+	public SitemapEntry(String uri, Class<? extends V7View> viewClass, I18NKey<?> labelKey) {
+		super();
+		this.uri = uri;
+		this.viewClass = viewClass;
+		this.labelKey = labelKey;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public Class<? extends V7View> getViewClass() {
+		return viewClass;
+	}
+
+	public I18NKey<?> getLabelKey() {
+		return labelKey;
+	}
+
+	@Override
+	public String toString() {
+		return uri + " : " + viewClass.getName() + " ~ " + labelKey.name();
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import uk.co.q3c.v7.i18n.CurrentLocale;
+
+/**
+ * Loads {@link SitemapEntry} definitions into a {@link Sitemap}. Parents are loaded before their children, whatever
+ * order the entries are given in, and any parent which has no entry of its own is created without a view.
+ * <p>
+ * In the same way as {@link SitemapFileReader}, if {@code firstLoad} is false, any URI which is already in the
+ * {@link Sitemap} is left unchanged
+ * 
+ */
+public class SitemapEntryLoader {
+
+	private final SitemapLabels labels;
+	private final Collator collator;
+
+	@Inject
+	protected SitemapEntryLoader(CurrentLocale currentLocale, SitemapLabels labels) {
+		super();
+		this.labels = labels;
+		this.collator = Collator.getInstance(currentLocale.getLocale());
+	}
+
+	/**
+	 * Loads {@code entries} into {@code sitemap}, and returns the number of entries loaded. Entries which were not
+	 * loaded, and parents which have been created without a view, are added to {@code report}
+	 * 
+	 * @param entries
+	 * @param sitemap
+	 * @param firstLoad
+	 * @param report
+	 * @return
+	 */
+	public int load(Iterable<SitemapEntry> entries, Sitemap sitemap, boolean firstLoad, StringBuilder report) {
+		List<SitemapEntry> ordered = new ArrayList<>();
+		for (SitemapEntry entry : entries) {
+			ordered.add(entry);
+		}
+		Collections.sort(ordered, new Comparator<SitemapEntry>() {
+			@Override
+			public int compare(SitemapEntry o1, SitemapEntry o2) {
+				return Integer.compare(depth(o1.getUri()), depth(o2.getUri()));
+			}
+		});
+
+		Set<String> loadedUris = new HashSet<>();
+		Set<String> parentUris = new TreeSet<>();
+		int loaded = 0;
+		for (SitemapEntry entry : ordered) {
+			String uri = entry.getUri();
+			if (loadedUris.contains(uri) || (!firstLoad && sitemap.hasUri(uri))) {
+				report.append("URI ").append(uri).append(" is already defined, ").append(entry.getViewClass().getName())
+						.append(" has been ignored\n");
+				continue;
+			}
+			SitemapNode node = sitemap.append(uri);
+			node.setViewClass(entry.getViewClass());
+			node.setLabelKey(entry.getLabelKey(), labels, collator);
+			loadedUris.add(uri);
+			int i = uri.lastIndexOf('/');
+			while (i > 0) {
+				uri = uri.substring(0, i);
+				parentUris.add(uri);
+				i = uri.lastIndexOf('/');
+			}
+			loaded++;
+		}
+
+		for (String uri : parentUris) {
+			if (sitemap.nodeFor(uri).getViewClass() == null) {
+				report.append("URI ").append(uri).append(" has no view, it has been created as the parent of another page\n");
+			}
+		}
+		return loaded;
+	}
+
+	private int depth(String uri) {
+		return StringUtils.countMatches(uri, "/");
+	}
+
+}
@@ -35,4 +35,13 @@ public interface SitemapFileReader {
 
 	public abstract StringBuilder buildReport(StringBuilder report);
 
+	/**
+	 * Sets the {@link Sitemap} to be populated by {@link #parse(File, boolean)}. This must be an unlocked Sitemap
+	 * 
+	 * @param sitemap
+	 */
+	public abstract void setSitemap(Sitemap sitemap);
+
+	public abstract Sitemap getSitemap();
+
 }
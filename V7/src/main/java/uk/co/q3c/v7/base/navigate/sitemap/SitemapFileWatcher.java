@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a single file for changes, using a {@link WatchService} on the directory which contains it, and runs
+ * {@code onChange} (on the watcher's own thread) whenever the file is created or modified. Editors often write a file
+ * in several steps, so the watcher waits until there have been no events for {@link #QUIET_PERIOD} milliseconds
+ * before running {@code onChange}, so that a single save results in a single call.
+ * <p>
+ * Used by {@link DefaultSitemapService} to reload the Sitemap when the sitemap file is changed
+ * 
+ */
+public class SitemapFileWatcher implements Runnable {
+
+	private static Logger log = LoggerFactory.getLogger(SitemapFileWatcher.class);
+	public static final long QUIET_PERIOD = 500;
+
+	private final File file;
+	private final Runnable onChange;
+	private WatchService watchService;
+	private Thread thread;
+
+	public SitemapFileWatcher(File file, Runnable onChange) {
+		super();
+		this.file = file.getAbsoluteFile();
+		this.onChange = onChange;
+	}
+
+	/**
+	 * Starts watching the file, on a daemon thread. Has no effect if the watcher is already running
+	 * 
+	 * @throws IOException
+	 *             if the directory containing the file cannot be watched
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) {
+			return;
+		}
+		Path directory = file.getParentFile().toPath();
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+		thread = new Thread(this, "sitemap-file-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		log.info("Watching {} for changes", file);
+	}
+
+	/**
+	 * Stops watching the file. Has no effect if the watcher is not running
+	 */
+	public synchronized void stop() {
+		if (thread == null) {
+			return;
+		}
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			log.warn("Unable to close the watch service for {}", file, e);
+		}
+		thread.interrupt();
+		thread = null;
+		log.info("Stopped watching {}", file);
+	}
+
+	public synchronized boolean isRunning() {
+		return thread != null;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				boolean changed = affectsFile(watchService.take());
+				WatchKey key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+				while (key != null) {
+					changed = affectsFile(key) || changed;
+					key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+				}
+				if (changed) {
+					log.info("{} has changed", file);
+					try {
+						onChange.run();
+					} catch (RuntimeException e) {
+						log.error("Failed to process change to {}", file, e);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	/**
+	 * Returns true if any of the events for {@code key} relate to the watched file, and resets the key so that further
+	 * events are received
+	 * 
+	 * @param key
+	 * @return
+	 */
+	private boolean affectsFile(WatchKey key) {
+		boolean affected = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				// events have been lost, so the file may have changed
+				affected = true;
+			} else {
+				Path changed = (Path) event.context();
+				if (changed.getFileName().toString().equals(file.getName())) {
+					affected = true;
+				}
+			}
+		}
+		key.reset();
+		return affected;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import uk.co.q3c.v7.i18n.I18NKey;
+import uk.co.q3c.v7.i18n.Translate;
+
+/**
+ * The labels and collation keys of {@link SitemapNode}s, held once for each label key and locale rather than once for
+ * each node, so that all the nodes with the same label key share the same label and collation key objects.
+ * <p>
+ * A label is translated, and its collation key created, the first time it is asked for in a locale. The tables are
+ * concurrent, so readers never lock.
+ * 
+ */
+@Singleton
+public class SitemapLabels {
+
+	/**
+	 * The label and collation key for one label key in one locale
+	 */
+	static class LocalisedLabel {
+		final String label;
+		final CollationKey collationKey;
+
+		LocalisedLabel(String label, CollationKey collationKey) {
+			super();
+			this.label = label;
+			this.collationKey = collationKey;
+		}
+	}
+
+	private final Translate translate;
+	private final ConcurrentHashMap<Locale, ConcurrentHashMap<I18NKey<?>, LocalisedLabel>> labels = new ConcurrentHashMap<>();
+
+	@Inject
+	protected SitemapLabels(Translate translate) {
+		super();
+		this.translate = translate;
+	}
+
+	/**
+	 * Returns the shared label for {@code labelKey} in {@code locale}, creating it with {@code collator} if this is
+	 * the first time it has been asked for
+	 */
+	LocalisedLabel get(I18NKey<?> labelKey, Locale locale, Collator collator) {
+		ConcurrentHashMap<I18NKey<?>, LocalisedLabel> table = labels.get(locale);
+		if (table == null) {
+			table = new ConcurrentHashMap<>();
+			ConcurrentHashMap<I18NKey<?>, LocalisedLabel> existing = labels.putIfAbsent(locale, table);
+			if (existing != null) {
+				table = existing;
+			}
+		}
+		LocalisedLabel localised = table.get(labelKey);
+		if (localised == null) {
+			String text = translate.from(labelKey, locale);
+			Collator c = (collator == null) ? Collator.getInstance(locale) : collator;
+			localised = new LocalisedLabel(text, c.getCollationKey(text));
+			// if another thread got there first, use its instance, so that every node shares the same one
+			LocalisedLabel existing = table.putIfAbsent(labelKey, localised);
+			if (existing != null) {
+				localised = existing;
+			}
+		}
+		return localised;
+	}
+
+	/**
+	 * Returns the locale assumed when no locale is given, that is, the {@link Translate#getLocale()}
+	 * 
+	 * @return
+	 */
+	public Locale getLocale() {
+		return translate.getLocale();
+	}
+
+	/**
+	 * Returns the number of distinct labels held for {@code locale}
+	 * 
+	 * @param locale
+	 * @return
+	 */
+	public int size(Locale locale) {
+		Map<I18NKey<?>, LocalisedLabel> table = labels.get(locale);
+		return (table == null) ? 0 : table.size();
+	}
+
+}
@@ -19,7 +19,6 @@ import java.util.Locale;
 import uk.co.q3c.v7.base.view.V7View;
 import uk.co.q3c.v7.i18n.I18NKey;
 import uk.co.q3c.v7.i18n.LabelKey;
-import uk.co.q3c.v7.i18n.Translate;
 
 /**
  * Represents a node in the site map (equivalent to a web site 'page'). It contains a URI segment (this is just one part
@@ -41,6 +40,15 @@ import uk.co.q3c.v7.i18n.Translate;
  * locale or labelKey changes. This approach also takes advantage of the improved performance of the collation key
  * sorting (http://docs.oracle.com/javase/tutorial/i18n/text/perform.html)
  * <p>
+ * Nodes are shared by all UIs, which may each use a different locale, so {@link #getLabel(Locale)} and
+ * {@link #getCollationKey(Locale)} provide the label and collation key for any locale. {@link #getLabel()} and
+ * {@link #getCollationKey()} return the values for the locale used when the label key was set.
+ * <p>
+ * The labels and collation keys are not held by the node, but once per label key and locale by the
+ * {@link SitemapLabels} the node is given, which translates each the first time it is asked for. The node keeps a
+ * reference to that {@link SitemapLabels}, and the locale used for {@link #getLabel()}. The URI segment is interned, so
+ * nodes which share a label or segment share the same label, collation key and segment objects
+ * <p>
  * Sorting by insertion order or collation key order is provided by
  * 
  * @author David Sowerby 6 May 2013
@@ -52,16 +60,16 @@ public class SitemapNode {
 	private String uriSegment;
 	private Class<? extends V7View> viewClass;
 	private I18NKey<?> labelKey;
-	private String label;
-	private CollationKey collationKey;
-	private Translate translate;
+	// the locale of getLabel() and getCollationKey()
+	private Locale labelLocale;
+	private SitemapLabels labels;
 
 	public SitemapNode(String uriSegment, Class<? extends V7View> viewClass, I18NKey<?> labelKey, Locale locale,
-			Collator collator, Translate translate) {
+			Collator collator, SitemapLabels labels) {
 		super();
-		this.uriSegment = uriSegment;
+		setUriSegment(uriSegment);
 		this.viewClass = viewClass;
-		this.translate = translate;
+		this.labels = labels;
 		setLabelKey(labelKey, locale, collator);
 	}
 
@@ -74,7 +82,7 @@ public class SitemapNode {
 	}
 
 	public void setUriSegment(String uriSegment) {
-		this.uriSegment = uriSegment;
+		this.uriSegment = (uriSegment == null) ? null : uriSegment.intern();
 	}
 
 	public I18NKey<?> getLabelKey() {
@@ -82,29 +90,32 @@ public class SitemapNode {
 	}
 
 	/**
-	 * Sets {@link LabelKey} and {@link #label}, but also requires the locale to enable translation for the label (using
-	 * {@link #translate} field, and Collator for the collation key
+	 * Sets {@link LabelKey}, and the locale of the label returned by {@link #getLabel()}. {@code collator} is used to
+	 * create the collation key if the label has not already been created for this locale by another node. The labels
+	 * are taken from the {@link SitemapLabels} already given to this node
 	 * 
 	 * @param labelKey
 	 * @param locale
 	 */
 	public void setLabelKey(I18NKey<?> labelKey, Locale locale, Collator collator) {
 		this.labelKey = labelKey;
-		label = translate.from(labelKey, locale);
-		collationKey = collator.getCollationKey(label);
+		this.labelLocale = locale;
+		if ((labelKey != null) && (labels != null)) {
+			labels.get(labelKey, locale, collator);
+		}
 	}
 
 	/**
-	 * Sets {@link LabelKey} and {@link #label}, using supplied {@code translate} for translation and Collator for the
-	 * collation key. CurrentLocale is assumed.
+	 * Sets {@link LabelKey} and the {@link SitemapLabels} which provide its labels, using the locale of {@code labels}
+	 * (the CurrentLocale) for {@link #getLabel()}
 	 * 
 	 * @param labelKey
-	 * @param locale
+	 * @param labels
+	 * @param collator
 	 */
-	public void setLabelKey(I18NKey<?> labelKey, Translate translate, Collator collator) {
-		this.labelKey = labelKey;
-		label = translate.from(labelKey);
-		collationKey = collator.getCollationKey(label);
+	public void setLabelKey(I18NKey<?> labelKey, SitemapLabels labels, Collator collator) {
+		this.labels = labels;
+		setLabelKey(labelKey, labels.getLocale(), collator);
 	}
 
 	public Class<? extends V7View> getViewClass() {
@@ -165,19 +176,39 @@ public class SitemapNode {
 	}
 
 	public String getLabel() {
-		return label;
+		return getLabel(labelLocale);
 	}
 
 	public CollationKey getCollationKey() {
-		return collationKey;
+		return getCollationKey(labelLocale);
+	}
+
+	/**
+	 * Returns the label translated for {@code locale}, or null if there is no label key
+	 * 
+	 * @param locale
+	 * @return
+	 */
+	public String getLabel(Locale locale) {
+		return ((labelKey == null) || (labels == null)) ? null : labels.get(labelKey, locale, null).label;
+	}
+
+	/**
+	 * Returns the collation key of the label for {@code locale}, or null if there is no label key
+	 * 
+	 * @param locale
+	 * @return
+	 */
+	public CollationKey getCollationKey(Locale locale) {
+		return ((labelKey == null) || (labels == null)) ? null : labels.get(labelKey, locale, null).collationKey;
 	}
 
-	public Translate getTranslate() {
-		return translate;
+	public SitemapLabels getLabels() {
+		return labels;
 	}
 
-	public void setTranslate(Translate translate) {
-		this.translate = translate;
+	public void setLabels(SitemapLabels labels) {
+		this.labels = labels;
 	}
 
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.i18n.I18NKey;
+
+/**
+ * Declares a page in the {@link Sitemap}, directly on its {@link V7View} implementation. The annotations are read at
+ * compile time by {@link SitemapPageProcessor}, which generates a {@link SitemapRegistry} for them, and that is loaded
+ * by the 'annotation' sitemap source - there is no classpath scanning or reflection at run time.
+ * <p>
+ * The {@link #uri()} is the full URI of the page. Its parent is the URI without the last segment, and if no page is
+ * declared for the parent, a node without a view is created for it
+ * 
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SitemapPage {
+
+	/**
+	 * The full URI of the page, for example 'private/transfers'
+	 * 
+	 * @return
+	 */
+	String uri();
+
+	/**
+	 * The enum class containing the label key
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	Class<? extends I18NKey> labelKeys();
+
+	/**
+	 * The name of the label key constant. If not specified, it is derived from the last URI segment, in the same way
+	 * as the sitemap file does, so 'money-in-out' becomes 'Money_In_Out'
+	 * 
+	 * @return
+	 */
+	String labelKey() default "";
+}
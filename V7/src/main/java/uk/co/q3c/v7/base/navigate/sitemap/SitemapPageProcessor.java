@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@link SitemapRegistry} at compile time from the {@link SitemapPage} annotations in the code being
+ * compiled, and declares it in META-INF/services so that the 'annotation' sitemap source can find it. The processor is
+ * registered in the V7 jar, so javac runs it automatically for any project which has V7 on its classpath.
+ * <p>
+ * Mistakes which would otherwise only show up at run time are reported as compile errors - an annotated class which
+ * does not implement V7View, a label key which does not exist, or a URI declared more than once.
+ * <p>
+ * The generated class is called GeneratedSitemapRegistry, and is in the package of the first annotated class (by
+ * name), unless the fully qualified name is given with the compiler option -Av7.sitemapRegistry=...
+ * 
+ */
+@SupportedAnnotationTypes("uk.co.q3c.v7.base.navigate.sitemap.SitemapPage")
+@SupportedOptions(SitemapPageProcessor.REGISTRY_OPTION)
+public class SitemapPageProcessor extends AbstractProcessor {
+
+	public static final String REGISTRY_OPTION = "v7.sitemapRegistry";
+	public static final String DEFAULT_REGISTRY_NAME = "GeneratedSitemapRegistry";
+	private static final String V7VIEW = "uk.co.q3c.v7.base.view.V7View";
+	private static final String I18NKEY = "uk.co.q3c.v7.i18n.I18NKey";
+
+	private boolean generated;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<? extends Element> annotated = roundEnv.getElementsAnnotatedWith(SitemapPage.class);
+		if (annotated.isEmpty()) {
+			return false;
+		}
+		Messager messager = processingEnv.getMessager();
+		if (generated) {
+			messager.printMessage(Kind.ERROR, "@SitemapPage found on a generated class, this is not supported");
+			return true;
+		}
+
+		// URI to generated entry, and the class declaring it
+		Map<String, String> entries = new TreeMap<>();
+		Map<String, TypeElement> declaredBy = new TreeMap<>();
+		boolean valid = true;
+		for (Element element : annotated) {
+			TypeElement view = (TypeElement) element;
+			AnnotationMirror mirror = sitemapPageMirror(view);
+			String uri = (String) value(mirror, "uri");
+			TypeElement labelKeys = (TypeElement) ((DeclaredType) value(mirror, "labelKeys")).asElement();
+			String labelKey = (String) value(mirror, "labelKey");
+			if (labelKey == null || labelKey.isEmpty()) {
+				labelKey = keyName(uri);
+			}
+
+			if (!isSubtype(view, V7VIEW)) {
+				messager.printMessage(Kind.ERROR, view.getQualifiedName() + " is annotated with @SitemapPage"
+						+ " but does not implement V7View", view, mirror);
+				valid = false;
+			}
+			if (!isValidUri(uri)) {
+				messager.printMessage(Kind.ERROR, "'" + uri + "' is not a valid sitemap URI", view, mirror);
+				valid = false;
+			}
+			if (!hasEnumConstant(labelKeys, labelKey)) {
+				messager.printMessage(Kind.ERROR, labelKeys.getQualifiedName() + " does not have a constant "
+						+ labelKey, view, mirror);
+				valid = false;
+			}
+			if (declaredBy.containsKey(uri)) {
+				messager.printMessage(Kind.ERROR, "URI '" + uri + "' is also declared by "
+						+ declaredBy.get(uri).getQualifiedName(), view, mirror);
+				valid = false;
+			}
+			declaredBy.put(uri, view);
+			entries.put(uri, "new SitemapEntry(\"" + uri + "\", " + view.getQualifiedName() + ".class, "
+					+ labelKeys.getQualifiedName() + "." + labelKey + ")");
+		}
+		if (valid) {
+			generate(registryName(declaredBy.values()), entries, declaredBy.values());
+		}
+		generated = true;
+		return true;
+	}
+
+	private String registryName(Iterable<TypeElement> views) {
+		String name = processingEnv.getOptions().get(REGISTRY_OPTION);
+		if (name != null && !name.isEmpty()) {
+			return name;
+		}
+		String first = null;
+		for (TypeElement view : views) {
+			String qualifiedName = view.getQualifiedName().toString();
+			if (first == null || qualifiedName.compareTo(first) < 0) {
+				first = qualifiedName;
+			}
+		}
+		String pkg = packageOf(first);
+		return pkg.isEmpty() ? DEFAULT_REGISTRY_NAME : pkg + "." + DEFAULT_REGISTRY_NAME;
+	}
+
+	private String packageOf(String qualifiedName) {
+		TypeElement type = processingEnv.getElementUtils().getTypeElement(qualifiedName);
+		Element enclosing = type.getEnclosingElement();
+		while (enclosing.getKind() != ElementKind.PACKAGE) {
+			enclosing = enclosing.getEnclosingElement();
+		}
+		return ((PackageElement) enclosing).getQualifiedName().toString();
+	}
+
+	/**
+	 * Returns the name of the {@code @Generated} annotation available to the compilation, which moved from
+	 * javax.annotation to javax.annotation.processing in Java 9, or null if neither is available
+	 * 
+	 * @return
+	 */
+	private String generatedAnnotation() {
+		for (String name : new String[] { "javax.annotation.processing.Generated", "javax.annotation.Generated" }) {
+			if (processingEnv.getElementUtils().getTypeElement(name) != null) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	private void generate(String registryName, Map<String, String> entries, Iterable<TypeElement> views) {
+		int dot = registryName.lastIndexOf('.');
+		String pkg = (dot < 0) ? "" : registryName.substring(0, dot);
+		String simpleName = registryName.substring(dot + 1);
+		try {
+			Element[] originatingElements = toArray(views);
+			try (Writer writer = processingEnv.getFiler().createSourceFile(registryName, originatingElements)
+					.openWriter()) {
+				if (!pkg.isEmpty()) {
+					writer.write("package " + pkg + ";\n\n");
+				}
+				writer.write("import java.util.ArrayList;\n");
+				writer.write("import java.util.List;\n\n");
+				writer.write("import uk.co.q3c.v7.base.navigate.sitemap.SitemapEntry;\n");
+				writer.write("import uk.co.q3c.v7.base.navigate.sitemap.SitemapRegistry;\n\n");
+				String generated = generatedAnnotation();
+				if (generated != null) {
+					writer.write("@" + generated + "(\"" + getClass().getName() + "\")\n");
+				}
+				writer.write("public class " + simpleName + " implements SitemapRegistry {\n\n");
+				writer.write("\t@Override\n");
+				writer.write("\tpublic List<SitemapEntry> entries() {\n");
+				writer.write("\t\tList<SitemapEntry> entries = new ArrayList<>();\n");
+				for (String entry : entries.values()) {
+					writer.write("\t\tentries.add(" + entry + ");\n");
+				}
+				writer.write("\t\treturn entries;\n");
+				writer.write("\t}\n");
+				writer.write("}\n");
+			}
+			FileObject services = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+					"META-INF/services/" + SitemapRegistry.class.getName(), originatingElements);
+			try (Writer writer = services.openWriter()) {
+				writer.write(registryName + "\n");
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Unable to generate sitemap registry " + registryName + ": " + e.getMessage());
+		}
+	}
+
+	private Element[] toArray(Iterable<TypeElement> views) {
+		List<Element> list = new ArrayList<>();
+		for (TypeElement view : views) {
+			list.add(view);
+		}
+		return list.toArray(new Element[list.size()]);
+	}
+
+	private AnnotationMirror sitemapPageMirror(TypeElement view) {
+		for (AnnotationMirror mirror : view.getAnnotationMirrors()) {
+			TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(SitemapPage.class.getName())) {
+				return mirror;
+			}
+		}
+		throw new IllegalStateException("@SitemapPage not found on " + view);
+	}
+
+	/**
+	 * Returns the value of the annotation member {@code name}, or null if it has not been given. Class values are
+	 * returned as a {@link TypeMirror}
+	 */
+	private Object value(AnnotationMirror mirror, String name) {
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues()
+				.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	private boolean isSubtype(TypeElement type, String superTypeName) {
+		Types types = processingEnv.getTypeUtils();
+		TypeElement superType = processingEnv.getElementUtils().getTypeElement(superTypeName);
+		return superType != null && types.isAssignable(types.erasure(type.asType()), types.erasure(superType.asType()));
+	}
+
+	private boolean hasEnumConstant(TypeElement labelKeys, String name) {
+		if (labelKeys.getKind() != ElementKind.ENUM || !isSubtype(labelKeys, I18NKEY)) {
+			return false;
+		}
+		for (Element member : labelKeys.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.ENUM_CONSTANT && member.getSimpleName().contentEquals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isValidUri(String uri) {
+		if (uri.isEmpty() || uri.startsWith("/") || uri.endsWith("/") || uri.contains("//")) {
+			return false;
+		}
+		for (char c : uri.toCharArray()) {
+			if (c == '"' || c == '\\' || Character.isWhitespace(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The same conversion as {@link DefaultSitemapFileReader#keyName(String, SitemapNode)} uses, applied to the last
+	 * segment of {@code uri}
+	 */
+	private String keyName(String uri) {
+		String segment = uri.substring(uri.lastIndexOf('/') + 1);
+		StringBuilder keyName = new StringBuilder();
+		boolean capitalize = true;
+		for (char c : segment.toCharArray()) {
+			if (c == '-' || c == '_' || c == ' ') {
+				keyName.append('_');
+				capitalize = true;
+			} else {
+				keyName.append(capitalize ? Character.toUpperCase(c) : c);
+				capitalize = false;
+			}
+		}
+		return keyName.toString();
+	}
+}
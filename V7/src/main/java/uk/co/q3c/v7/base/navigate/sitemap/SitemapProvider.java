@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import javax.inject.Inject;
+
+import com.google.inject.Provider;
+
+/**
+ * Provides the {@link Sitemap} currently published by the {@link SitemapService}, starting the service first if
+ * necessary. The Sitemap provided is a locked snapshot, and may be replaced by a new snapshot if the sitemap is
+ * rebuilt - anything which lives longer than a single request should inject Provider&lt;Sitemap&gt; and call it each
+ * time, rather than holding on to the Sitemap itself
+ * 
+ */
+public class SitemapProvider implements Provider<Sitemap> {
+
+	private final SitemapService sitemapService;
+
+	@Inject
+	protected SitemapProvider(SitemapService sitemapService) {
+		super();
+		this.sitemapService = sitemapService;
+	}
+
+	@Override
+	public Sitemap get() {
+		try {
+			sitemapService.start();
+		} catch (Exception e) {
+			throw new SitemapException("Sitemap service failed to start", e);
+		}
+		return sitemapService.getSitemap();
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.configuration.CompositeConfiguration;
+import org.apache.shiro.subject.Subject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
+import uk.co.q3c.v7.base.config.ConfigKeys;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+import uk.co.q3c.v7.i18n.CurrentLocale;
+
+/**
+ * Finds pages by their label, for a "jump to page" box. The labels of a {@link Sitemap}, translated for a locale, are
+ * split into normalised tokens (lower case, with accents removed) and held in an inverted index - a sorted array of
+ * tokens, each with the pages whose label contains it - so that a prefix query is a binary search followed by a short
+ * scan, rather than a translation of every label.
+ * <p>
+ * An index is built for each locale listed by {@link ConfigKeys#SUPPORTED_LOCALES} as soon as the Sitemap is
+ * published (or reloaded), and for any other locale the first time it is searched. The indexes are kept for as long as
+ * the Sitemap itself is in use. The view permission for each private page is created when the index is built, so
+ * filtering the results for a user is a Shiro permission check per page returned.
+ * 
+ */
+@Singleton
+public class SitemapSearch implements SitemapChangeListener {
+
+	private static Logger log = LoggerFactory.getLogger(SitemapSearch.class);
+	private static final Pattern separators = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern marks = Pattern.compile("\\p{M}+");
+
+	/**
+	 * The index of one Sitemap in one locale
+	 */
+	private static class LocaleIndex {
+		private final String[] tokens;
+		// for each token, the indexes of the pages whose label contains it, ascending
+		private final int[][] postings;
+
+		LocaleIndex(String[] tokens, int[][] postings) {
+			this.tokens = tokens;
+			this.postings = postings;
+		}
+
+		/**
+		 * Returns the pages with a token starting with {@code prefix}, in ascending order
+		 */
+		int[] pagesFor(String prefix) {
+			int first = Arrays.binarySearch(tokens, prefix);
+			if (first < 0) {
+				first = -first - 1;
+			}
+			int end = first;
+			while ((end < tokens.length) && tokens[end].startsWith(prefix)) {
+				end++;
+			}
+			if (end - first <= 1) {
+				// no token, or just one, so no merge is needed
+				return (end == first) ? new int[0] : postings[first];
+			}
+			Set<Integer> pages = new TreeSet<>();
+			for (int t = first; t < end; t++) {
+				for (int page : postings[t]) {
+					pages.add(page);
+				}
+			}
+			int[] result = new int[pages.size()];
+			int i = 0;
+			for (Integer page : pages) {
+				result[i++] = page;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The pages of one Sitemap, and its index for each locale
+	 */
+	private static class SitemapIndex {
+		private final SitemapNode[] pages;
+		// null for a public page
+		private final URIViewPermission[] permissions;
+		private final Map<Locale, LocaleIndex> locales = new ConcurrentHashMap<>();
+
+		SitemapIndex(SitemapNode[] pages, URIViewPermission[] permissions) {
+			this.pages = pages;
+			this.permissions = permissions;
+		}
+	}
+
+	private final SitemapService sitemapService;
+	private final ApplicationConfigurationService configurationService;
+	private final URIPermissionFactory uriPermissionFactory;
+	private final CurrentLocale currentLocale;
+	// keyed by identity, and released with the Sitemap
+	private final Map<Sitemap, SitemapIndex> indexes = new WeakHashMap<>();
+
+	@Inject
+	protected SitemapSearch(SitemapService sitemapService, ApplicationConfigurationService configurationService,
+			URIPermissionFactory uriPermissionFactory, CurrentLocale currentLocale) {
+		super();
+		this.sitemapService = sitemapService;
+		this.configurationService = configurationService;
+		this.uriPermissionFactory = uriPermissionFactory;
+		this.currentLocale = currentLocale;
+		sitemapService.addChangeListener(this);
+	}
+
+	/**
+	 * Returns up to {@code maxResults} pages of the current Sitemap whose label, in {@code locale}, contains a word
+	 * starting with each word of {@code query}, and which {@code subject} has permission to view. Pages are returned
+	 * in Sitemap order. Empty if {@code query} has no words
+	 * 
+	 * @param query
+	 * @param locale
+	 * @param subject
+	 * @param maxResults
+	 * @return
+	 */
+	public List<SitemapNode> search(String query, Locale locale, Subject subject, int maxResults) {
+		List<SitemapNode> results = new ArrayList<>();
+		List<String> words = tokens(query, locale);
+		Sitemap sitemap = sitemapService.getSitemap();
+		if (words.isEmpty() || (sitemap == null)) {
+			return results;
+		}
+		SitemapIndex index = index(sitemap);
+		LocaleIndex localeIndex = localeIndex(index, locale);
+		int[] pages = null;
+		for (String word : words) {
+			int[] matches = localeIndex.pagesFor(word);
+			pages = (pages == null) ? matches : intersect(pages, matches);
+			if (pages.length == 0) {
+				return results;
+			}
+		}
+		for (int page : pages) {
+			URIViewPermission permission = index.permissions[page];
+			if ((permission == null) || subject.isPermitted(permission)) {
+				results.add(index.pages[page]);
+				if (results.size() == maxResults) {
+					break;
+				}
+			}
+		}
+		return results;
+	}
+
+	private int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while ((i < a.length) && (j < b.length)) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Builds the indexes for a newly published Sitemap, so that the first search does not have to wait
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.SitemapChangeListener#sitemapChanged(uk.co.q3c.v7.base.navigate.sitemap.Sitemap,
+	 *      uk.co.q3c.v7.base.navigate.sitemap.SitemapDiff)
+	 */
+	@Override
+	public void sitemapChanged(Sitemap newSitemap, SitemapDiff diff) {
+		index(newSitemap);
+	}
+
+	private synchronized SitemapIndex index(Sitemap sitemap) {
+		SitemapIndex index = indexes.get(sitemap);
+		if (index != null) {
+			return index;
+		}
+		List<SitemapNode> nodes = new ArrayList<>();
+		List<URIViewPermission> permissions = new ArrayList<>();
+		SitemapNode publicRoot = sitemap.getPublicRootNode();
+		for (SitemapNode node : sitemap.preOrder()) {
+			if (node.getLabelKey() == null) {
+				continue;
+			}
+			nodes.add(node);
+			boolean isPublic = (publicRoot != null) && publicRoot.equals(sitemap.getRootFor(node));
+			permissions.add(isPublic ? null : uriPermissionFactory.createViewPermission(sitemap.uri(node)));
+		}
+		index = new SitemapIndex(nodes.toArray(new SitemapNode[nodes.size()]),
+				permissions.toArray(new URIViewPermission[permissions.size()]));
+		for (Locale locale : supportedLocales()) {
+			localeIndex(index, locale);
+		}
+		// only a locked Sitemap is certain not to change under the index
+		if (sitemap.isLocked()) {
+			indexes.put(sitemap, index);
+		}
+		log.debug("Sitemap search index built for {} pages", nodes.size());
+		return index;
+	}
+
+	private LocaleIndex localeIndex(SitemapIndex index, Locale locale) {
+		LocaleIndex localeIndex = index.locales.get(locale);
+		if (localeIndex == null) {
+			Map<String, List<Integer>> tokenPages = new TreeMap<>();
+			for (int page = 0; page < index.pages.length; page++) {
+				String label = index.pages[page].getLabel(locale);
+				for (String token : new TreeSet<>(tokens(label, locale))) {
+					List<Integer> pages = tokenPages.get(token);
+					if (pages == null) {
+						pages = new ArrayList<>(2);
+						tokenPages.put(token, pages);
+					}
+					pages.add(page);
+				}
+			}
+			String[] tokens = new String[tokenPages.size()];
+			int[][] postings = new int[tokenPages.size()][];
+			int t = 0;
+			for (Map.Entry<String, List<Integer>> entry : tokenPages.entrySet()) {
+				tokens[t] = entry.getKey();
+				postings[t] = new int[entry.getValue().size()];
+				for (int i = 0; i < postings[t].length; i++) {
+					postings[t][i] = entry.getValue().get(i);
+				}
+				t++;
+			}
+			localeIndex = new LocaleIndex(tokens, postings);
+			index.locales.put(locale, localeIndex);
+		}
+		return localeIndex;
+	}
+
+	private List<Locale> supportedLocales() {
+		List<Locale> locales = new ArrayList<>();
+		CompositeConfiguration configuration = configurationService.getConfiguration();
+		if (configuration != null) {
+			for (Object tag : configuration.getList(ConfigKeys.SUPPORTED_LOCALES, Collections.emptyList())) {
+				locales.add(Locale.forLanguageTag(tag.toString().trim()));
+			}
+		}
+		if (locales.isEmpty()) {
+			locales.add(currentLocale.getLocale());
+		}
+		return locales;
+	}
+
+	/**
+	 * Splits {@code text} into words, in lower case and without accents, so that 'Über' is found by 'uber'
+	 * 
+	 * @param text
+	 * @param locale
+	 * @return
+	 */
+	static List<String> tokens(String text, Locale locale) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String normalised = marks.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(locale);
+		for (String token : separators.split(normalised)) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+}
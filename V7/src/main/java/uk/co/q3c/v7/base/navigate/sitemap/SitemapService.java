@@ -16,6 +16,33 @@ import uk.co.q3c.v7.base.services.ServiceI18N;
 
 public interface SitemapService extends ServiceI18N {
 
+	/**
+	 * Returns the current {@link Sitemap}. This is a locked, immutable snapshot which can be safely shared between
+	 * threads. If the sitemap is rebuilt, a new snapshot replaces the old one in a single step, so callers should not
+	 * hold on to the returned instance for longer than they need it. Returns null if the service has not been
+	 * started.
+	 * 
+	 * @return
+	 */
 	Sitemap getSitemap();
 
+	/**
+	 * Adds a listener which is called whenever a new {@link Sitemap} is published after the service has started
+	 * 
+	 * @param listener
+	 */
+	void addChangeListener(SitemapChangeListener listener);
+
+	void removeChangeListener(SitemapChangeListener listener);
+
+	/**
+	 * Returns the URIs which have been added, removed or changed since the Sitemap with {@code version} (see
+	 * {@link Sitemap#getVersion()}) was published, or null if that version is too old to be known, in which case
+	 * anything derived from it should be discarded
+	 * 
+	 * @param version
+	 * @return
+	 */
+	SitemapDiff changesSince(long version);
+
 }
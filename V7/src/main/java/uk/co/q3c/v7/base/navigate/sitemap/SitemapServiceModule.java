@@ -13,6 +13,7 @@
 package uk.co.q3c.v7.base.navigate.sitemap;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.Multibinder;
 
 public class SitemapServiceModule extends AbstractModule {
 
@@ -20,6 +21,12 @@ public class SitemapServiceModule extends AbstractModule {
 	protected void configure() {
 		bind(SitemapService.class).to(DefaultSitemapService.class);
 		bind(SitemapFileReader.class).to(DefaultSitemapFileReader.class);
+		bind(Sitemap.class).toProvider(SitemapProvider.class);
+		// feature modules add their own SitemapContribution to this
+		Multibinder.newSetBinder(binder(), SitemapContribution.class);
+		// and tenant specific pages to this
+		Multibinder.newSetBinder(binder(), TenantSitemapContribution.class);
+		bind(TenantResolver.class).to(VaadinSessionTenantResolver.class);
 
 	}
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.shiro.subject.Subject;
+
+import uk.co.q3c.util.BKTree;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+
+import com.google.inject.Provider;
+
+/**
+ * Suggests the valid pages closest to a page which cannot be found, for a "did you mean" message. The URIs of each
+ * Sitemap are indexed in a {@link BKTree} the first time a suggestion is needed, so that a search visits only a small
+ * part of a large map. The index is kept for as long as the Sitemap itself is in use. URIs with parameter segments
+ * (see {@link SitemapTrie}) are not suggested, as they are not pages which can be navigated to as they stand, and
+ * neither are private pages which the user does not have permission to see.
+ * 
+ */
+@Singleton
+public class SitemapSuggestions {
+
+	public static final int MAX_SUGGESTIONS = 3;
+	private final Provider<Sitemap> sitemapProvider;
+	private final URIPermissionFactory uriPermissionFactory;
+	// keyed by identity, and released with the Sitemap
+	private final Map<Sitemap, SuggestionIndex> indexes = Collections
+			.synchronizedMap(new WeakHashMap<Sitemap, SuggestionIndex>());
+
+	/**
+	 * The pages of one Sitemap, with the permission needed to view each (null for a public page)
+	 */
+	private static class SuggestionIndex {
+		private final BKTree tree = new BKTree();
+		private final Map<String, URIViewPermission> permissions = new HashMap<>();
+	}
+
+	@Inject
+	protected SitemapSuggestions(Provider<Sitemap> sitemapProvider, URIPermissionFactory uriPermissionFactory) {
+		super();
+		this.sitemapProvider = sitemapProvider;
+		this.uriPermissionFactory = uriPermissionFactory;
+	}
+
+	/**
+	 * Returns up to {@link #MAX_SUGGESTIONS} pages of the current Sitemap which are closest to {@code page}, closest
+	 * first. The further a page may be from {@code page} depends on the length of {@code page}, so that a short page is
+	 * not matched to something unrelated. Only public pages, and private pages which {@code subject} is permitted to
+	 * view, are suggested. Empty if there is nothing close enough
+	 * 
+	 * @param page
+	 *            the virtual page, without parameters
+	 * @param subject
+	 *            the user the suggestions are for
+	 * @return
+	 */
+	public List<String> suggestionsFor(String page, Subject subject) {
+		List<String> suggestions = new ArrayList<>(MAX_SUGGESTIONS);
+		SuggestionIndex index = index(sitemapProvider.get());
+		for (BKTree.Match match : index.tree.search(page, tolerance(page))) {
+			if (suggestions.size() == MAX_SUGGESTIONS) {
+				break;
+			}
+			URIViewPermission permission = index.permissions.get(match.getTerm());
+			if ((permission == null) || subject.isPermitted(permission)) {
+				suggestions.add(match.getTerm());
+			}
+		}
+		return suggestions;
+	}
+
+	private int tolerance(String page) {
+		return Math.max(1, Math.min(3, page.length() / 4));
+	}
+
+	private SuggestionIndex index(Sitemap sitemap) {
+		SuggestionIndex index = indexes.get(sitemap);
+		if (index == null) {
+			index = new SuggestionIndex();
+			SitemapNode publicRoot = sitemap.getPublicRootNode();
+			for (SitemapNode node : sitemap.preOrder()) {
+				if (isPage(sitemap, node)) {
+					String uri = sitemap.uri(node);
+					boolean isPublic = (publicRoot != null) && publicRoot.equals(sitemap.getRootFor(node));
+					index.tree.add(uri);
+					index.permissions.put(uri, isPublic ? null : uriPermissionFactory.createViewPermission(uri));
+				}
+			}
+			// only a locked Sitemap is certain not to change under the index
+			if (sitemap.isLocked()) {
+				indexes.put(sitemap, index);
+			}
+		}
+		return index;
+	}
+
+	private boolean isPage(Sitemap sitemap, SitemapNode node) {
+		for (SitemapNode n = node; n != null; n = sitemap.getParent(n)) {
+			if (SitemapTrie.parameterName(n.getUriSegment()) != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
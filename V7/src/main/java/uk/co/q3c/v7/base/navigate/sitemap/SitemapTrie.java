@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A routing index for the {@link Sitemap}, which maps each URI segment to its {@link SitemapNode} one level at a time.
+ * Resolving a URI to its node therefore takes one hash lookup per segment, regardless of the number of pages in the
+ * map, and {@link #resolve(String[], boolean)} does not allocate anything.
+ * <p>
+ * Entries are held in an array indexed by {@link SitemapNode#getId()}, so the ids must have been assigned (which
+ * {@link Sitemap} does as nodes are added) before a node is indexed. If two siblings have the same URI segment, the
+ * first one indexed is the one which is found.
+ * <p>
+ * A URI segment written as <code>{name}</code> is a parameter segment, which matches any one segment of a URI - so
+ * <code>customers/{id}/orders</code> matches 'customers/23/orders', with 23 captured as the value of 'id'. A literal
+ * segment always takes precedence over a parameter segment at the same level, and there is no backtracking, so
+ * resolution stays at one hash lookup (and at most one parameter check) per segment. If a node has more than one
+ * parameter child, the first one indexed is used.
+ * <p>
+ * The index is maintained by {@link Sitemap} as nodes are added, but changing the URI segment of a node which is
+ * already in the map is not tracked - in that case call {@link Sitemap#reindex()} to rebuild it.
+ * 
+ */
+public class SitemapTrie {
+
+	private static class Entry {
+		private final SitemapNode node;
+		private final String parameterName;
+		private Map<String, Entry> children;
+		private Entry parameter;
+
+		Entry(SitemapNode node) {
+			this.node = node;
+			this.parameterName = (node == null) ? null : parameterName(node.getUriSegment());
+		}
+
+		Entry child(String segment) {
+			return (children == null) ? null : children.get(segment);
+		}
+
+		void addChild(Entry entry) {
+			if (children == null) {
+				children = new HashMap<>(4);
+			}
+			String segment = entry.node.getUriSegment();
+			if (!children.containsKey(segment)) {
+				children.put(segment, entry);
+			}
+			if ((entry.parameterName != null) && (parameter == null)) {
+				parameter = entry;
+			}
+		}
+
+		void removeChild(Entry entry) {
+			if ((children != null) && (children.get(entry.node.getUriSegment()) == entry)) {
+				children.remove(entry.node.getUriSegment());
+			}
+			if (parameter == entry) {
+				parameter = null;
+			}
+		}
+	}
+
+	// holds the roots of the forest as its children
+	private Entry top;
+	private Entry[] entries;
+
+	public SitemapTrie() {
+		clear();
+	}
+
+	/**
+	 * Returns the parameter name if {@code segment} is a parameter segment (<code>{name}</code>), or null if it is a
+	 * literal segment
+	 * 
+	 * @param segment
+	 * @return
+	 */
+	public static String parameterName(String segment) {
+		if ((segment == null) || (segment.length() < 3) || (segment.charAt(0) != '{')
+				|| (segment.charAt(segment.length() - 1) != '}')) {
+			return null;
+		}
+		return segment.substring(1, segment.length() - 1);
+	}
+
+	public void clear() {
+		top = new Entry(null);
+		entries = new Entry[64];
+	}
+
+	/**
+	 * Indexes {@code childNode} as a child of {@code parentNode}. If {@code parentNode} is null, or has not itself been
+	 * indexed, it is indexed as a root first (the same way that {@link Sitemap#addChild(SitemapNode, SitemapNode)}
+	 * treats a parent which is not yet in the map)
+	 * 
+	 * @param parentNode
+	 * @param childNode
+	 */
+	public void add(SitemapNode parentNode, SitemapNode childNode) {
+		Entry parent = top;
+		if (parentNode != null) {
+			parent = entry(parentNode);
+			if (parent == null) {
+				parent = newEntry(parentNode);
+				top.addChild(parent);
+			}
+		}
+		Entry child = entry(childNode);
+		if (child == null) {
+			child = newEntry(childNode);
+		} else if (parent != top) {
+			// a node previously indexed as a root is no longer a root once it has a parent
+			top.removeChild(child);
+		}
+		parent.addChild(child);
+	}
+
+	/**
+	 * Returns the child of {@code parentNode} with the URI segment {@code segment}, or the root with that segment if
+	 * {@code parentNode} is null. Returns null if there is no such node
+	 * 
+	 * @param parentNode
+	 * @param segment
+	 * @return
+	 */
+	public SitemapNode find(SitemapNode parentNode, String segment) {
+		Entry parent = (parentNode == null) ? top : entry(parentNode);
+		if (parent == null) {
+			return null;
+		}
+		Entry child = parent.child(segment);
+		return (child == null) ? null : child.node;
+	}
+
+	/**
+	 * Returns the parameter segment child of {@code parentNode}, or the parameter segment root if {@code parentNode}
+	 * is null. Returns null if there is no such node
+	 * 
+	 * @param parentNode
+	 * @return
+	 */
+	public SitemapNode findParameter(SitemapNode parentNode) {
+		Entry parent = (parentNode == null) ? top : entry(parentNode);
+		if ((parent == null) || (parent.parameter == null)) {
+			return null;
+		}
+		return parent.parameter.node;
+	}
+
+	/**
+	 * Returns the node at the end of the path described by {@code segments}. If a segment cannot be found, the last
+	 * node matched is returned when {@code allowPartialPath} is true, and null when it is false. Returns null if not
+	 * even the first segment can be matched.
+	 * 
+	 * @param segments
+	 * @param allowPartialPath
+	 * @return
+	 */
+	public SitemapNode resolve(String[] segments, boolean allowPartialPath) {
+		return resolve(segments, allowPartialPath, null);
+	}
+
+	/**
+	 * As {@link #resolve(String[], boolean)}, but also puts the value of each parameter segment matched into
+	 * {@code parameters}, keyed by parameter name, unless {@code parameters} is null
+	 * 
+	 * @param segments
+	 * @param allowPartialPath
+	 * @param parameters
+	 * @return
+	 */
+	public SitemapNode resolve(String[] segments, boolean allowPartialPath, Map<String, String> parameters) {
+		Entry current = top;
+		for (int i = 0; i < segments.length; i++) {
+			Entry next = next(current, segments[i], parameters);
+			if (next == null) {
+				return allowPartialPath ? current.node : null;
+			}
+			current = next;
+		}
+		return current.node;
+	}
+
+	/**
+	 * Returns the child of {@code current} which matches {@code segment} - a literal match if there is one, otherwise
+	 * the parameter child, if any, in which case the value is captured in {@code parameters} (if not null)
+	 */
+	private Entry next(Entry current, String segment, Map<String, String> parameters) {
+		Entry next = current.child(segment);
+		if ((next == null) && (current.parameter != null)) {
+			next = current.parameter;
+			if (parameters != null) {
+				parameters.put(next.parameterName, segment);
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Adds the nodes along the path described by {@code segments} to {@code nodeChain}, and returns true if the whole
+	 * path was matched. Where a segment cannot be found, the chain stops at the last node matched.
+	 * 
+	 * @param segments
+	 * @param nodeChain
+	 * @return
+	 */
+	public boolean resolveChain(List<String> segments, List<SitemapNode> nodeChain) {
+		Entry current = top;
+		for (int i = 0; i < segments.size(); i++) {
+			Entry next = next(current, segments.get(i), null);
+			if (next == null) {
+				return false;
+			}
+			nodeChain.add(next.node);
+			current = next;
+		}
+		return true;
+	}
+
+	private Entry entry(SitemapNode node) {
+		int id = node.getId();
+		if (id >= entries.length) {
+			return null;
+		}
+		return entries[id];
+	}
+
+	private Entry newEntry(SitemapNode node) {
+		int id = node.getId();
+		if (id >= entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+		}
+		Entry entry = new Entry(node);
+		entries[id] = entry;
+		return entry;
+	}
+
+}
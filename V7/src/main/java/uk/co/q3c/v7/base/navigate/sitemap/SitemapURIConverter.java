@@ -12,13 +12,22 @@
  */
 package uk.co.q3c.v7.base.navigate.sitemap;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.inject.Inject;
 
+import uk.co.q3c.v7.base.navigate.NavigationPipeline;
+import uk.co.q3c.v7.base.navigate.ParsedFragment;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.inject.Provider;
 
 /**
  * Utility class to convert between URI fragments using {@link URIFragmentHandler} and {@link Sitemap}. This separate
@@ -29,19 +38,30 @@ import com.google.common.collect.Lists;
  * <li>reduce the complexity of Guice module creation order <br>
  * <br>
  * <p>
+ * The {@link Sitemap} is obtained from a provider for each call, so that a rebuilt Sitemap is picked up as soon as it
+ * is published
+ * <p>
+ * The node for each fully matched navigation state is remembered separately for each locked Sitemap instance, so
+ * tenants sharing a base (see {@link TenantSitemap}) never see each other's nodes. The remembered nodes for a Sitemap
+ * are held weakly, and go when that Sitemap is no longer used. Each Sitemap remembers at most
+ * {@value #MAX_RESOLVED} navigation states, with the least recently used going first
+ * <p>
  * 
  * @author David Sowerby 19 May 2013
  * 
  */
 public class SitemapURIConverter {
 
-	private final Sitemap sitemap;
+	private final Provider<Sitemap> sitemapProvider;
 	private final URIFragmentHandler uriHandler;
+	private static final int MAX_RESOLVED = 256;
+	private final Map<Sitemap, Cache<String, SitemapNode>> resolved = Collections
+			.synchronizedMap(new WeakHashMap<Sitemap, Cache<String, SitemapNode>>());
 
 	@Inject
-	protected SitemapURIConverter(Sitemap sitemap, URIFragmentHandler uriHandler) {
+	protected SitemapURIConverter(Provider<Sitemap> sitemapProvider, URIFragmentHandler uriHandler) {
 		super();
-		this.sitemap = sitemap;
+		this.sitemapProvider = sitemapProvider;
 		this.uriHandler = uriHandler;
 	}
 
@@ -57,7 +77,7 @@ public class SitemapURIConverter {
 	public List<SitemapNode> nodeChainForUri(String navigationState, boolean allowPartialPath) {
 		uriHandler.setFragment(navigationState);
 		String[] segments = uriHandler.getPathSegments();
-		List<SitemapNode> nodeChain = sitemap.nodeChainForSegments(Lists.newArrayList(segments), allowPartialPath);
+		List<SitemapNode> nodeChain = sitemapProvider.get().nodeChainForSegments(Lists.newArrayList(segments), allowPartialPath);
 		return nodeChain;
 	}
 
@@ -76,9 +96,9 @@ public class SitemapURIConverter {
 	}
 
 	/**
-	 * Returns the last node in the chain of {@link SitemapNode} representing {@code navigationState}. The chain is
-	 * provided by {@link #nodeChainForUri(String)}, and this method just returns the last node in that chain. Returns
-	 * null if no node found.
+	 * Returns the last node in the chain of {@link SitemapNode} representing {@code navigationState}. The node is
+	 * resolved directly by {@link Sitemap#nodeForSegments(String[], boolean)}, without building the chain. Returns null
+	 * if no node found.
 	 * <p>
 	 * If {@code allowPartialPath} is true, a node is considered found even if only a partial match for the
 	 * {@code navigationState} is found. In this case the last node in the match is returned. If
@@ -88,12 +108,66 @@ public class SitemapURIConverter {
 	 * @return
 	 */
 	public SitemapNode nodeForUri(String navigationState, boolean allowPartialPath) {
-		List<SitemapNode> nodeChain = nodeChainForUri(navigationState, allowPartialPath);
-		if (nodeChain.size() == 0) {
-			return null;
-		} else {
-			return nodeChain.get(nodeChain.size() - 1);
+		return nodeForUri(sitemapProvider.get(), navigationState, allowPartialPath);
+	}
+
+	private SitemapNode nodeForUri(Sitemap sitemap, String navigationState, boolean allowPartialPath) {
+		if (allowPartialPath) {
+			uriHandler.setFragment(navigationState);
+			return sitemap.nodeForSegments(uriHandler.getPathSegments(), true);
 		}
+		// only a locked Sitemap cannot change under a remembered node
+		Cache<String, SitemapNode> nodes = sitemap.isLocked() ? resolvedFor(sitemap) : null;
+		SitemapNode node = (nodes == null) ? null : nodes.getIfPresent(navigationState);
+		if (node == null) {
+			uriHandler.setFragment(navigationState);
+			node = sitemap.nodeForSegments(uriHandler.getPathSegments(), false);
+			if ((node != null) && (nodes != null)) {
+				nodes.put(navigationState, node);
+			}
+		}
+		return node;
+	}
+
+	private Cache<String, SitemapNode> resolvedFor(Sitemap sitemap) {
+		synchronized (resolved) {
+			Cache<String, SitemapNode> nodes = resolved.get(sitemap);
+			if (nodes == null) {
+				nodes = CacheBuilder.newBuilder().maximumSize(MAX_RESOLVED).build();
+				resolved.put(sitemap, nodes);
+			}
+			return nodes;
+		}
+	}
+
+	/**
+	 * Returns the values captured by the parameter segments (see {@link SitemapTrie}) of the page which
+	 * {@code navigationState} resolves to, keyed by parameter name. Empty if the page has no parameter segments, or
+	 * cannot be found
+	 * 
+	 * @param navigationState
+	 * @return
+	 */
+	public Map<String, String> pathParametersForUri(String navigationState) {
+		uriHandler.setFragment(navigationState);
+		Map<String, String> pathParameters = new HashMap<>(4);
+		sitemapProvider.get().nodeForSegments(uriHandler.getPathSegments(), false, pathParameters);
+		return pathParameters;
+	}
+
+	/**
+	 * Returns the node of {@code sitemap} which fully matches the virtual page of {@code fragment}, or null if there is
+	 * none, and puts the values captured by its parameter segments into {@code pathParameters}. This is the single
+	 * lookup used by the {@link NavigationPipeline}, in place of {@link #nodeForUri(String, boolean)} and
+	 * {@link #pathParametersForUri(String)}, neither of which is needed once a fragment has been parsed
+	 * 
+	 * @param sitemap
+	 * @param fragment
+	 * @param pathParameters
+	 * @return
+	 */
+	public SitemapNode nodeFor(Sitemap sitemap, ParsedFragment fragment, Map<String, String> pathParameters) {
+		return sitemap.nodeForSegments(fragment.getPathSegments(), false, pathParameters);
 	}
 
 	/**
@@ -103,7 +177,19 @@ public class SitemapURIConverter {
 	 * @return
 	 */
 	public boolean pageIsPublic(String fragment) {
-		SitemapNode node = nodeForUri(fragment, false);
+		Sitemap sitemap = sitemapProvider.get();
+		return pageIsPublic(sitemap, nodeForUri(sitemap, fragment, false));
+	}
+
+	/**
+	 * Returns true if {@code node}, which has already been resolved from {@code sitemap}, is a public page. Returns
+	 * false if {@code node} is null
+	 * 
+	 * @param sitemap
+	 * @param node
+	 * @return
+	 */
+	public boolean pageIsPublic(Sitemap sitemap, SitemapNode node) {
 		if (node == null) {
 			return false;
 		}
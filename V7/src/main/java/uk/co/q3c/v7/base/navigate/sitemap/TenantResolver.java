@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+/**
+ * Identifies the tenant for the current request, so that {@link TenantSitemaps} can select the right
+ * {@link TenantSitemap}
+ * 
+ */
+public interface TenantResolver {
+
+	/**
+	 * Returns the tenant for the current request, or null if there is none, in which case the shared Sitemap is used
+	 * 
+	 * @return
+	 */
+	String currentTenant();
+}
@@ -0,0 +1,681 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import uk.co.q3c.util.ForestVisitor;
+import uk.co.q3c.v7.base.navigate.StandardPageKey;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The {@link Sitemap} for one tenant, where several tenants share a mostly identical site structure. It is an overlay
+ * on a shared, locked, base Sitemap - it holds only the pages which the tenant adds (with {@link #append(String)},
+ * {@link #addChild(SitemapNode, SitemapNode)} or a {@link SitemapEntryLoader}), and the base pages which it hides (with
+ * {@link #hide(String)}), and reads everything else from the base. The base nodes, and all their indexes, are shared
+ * by every tenant, so each tenant costs memory in proportion to its differences from the base, not to the size of the
+ * map.
+ * <p>
+ * URI resolution is still one step per segment: at each level a literal segment added by the tenant is tried first,
+ * then a literal segment of the base, then a parameter segment of the tenant, then one of the base. A hidden page, and
+ * everything below it, cannot be found, and is left out of {@link #getRoots()} and {@link #getChildren(SitemapNode)}.
+ * To replace a base page, hide it and add a new page with the same URI. Tenant redirects are checked before those of
+ * the base. The public and private roots, and the standard pages, are those of the base.
+ * <p>
+ * The traversals ({@link #preOrder()}, {@link #breadthFirst()} and so on) return lists built from the merged
+ * structure, rather than walking the forest arrays lazily. Like the base, a TenantSitemap is built by a single thread
+ * and then {@link #lock()}ed, after which it is read only. Instances are normally obtained from {@link TenantSitemaps}
+ * <p>
+ * The ids given to the tenant's own nodes are above those of the base, and are never reused by another tenant, so a
+ * node of one tenant is never equal to a node of the base or of any other tenant
+ * 
+ */
+public class TenantSitemap extends Sitemap {
+
+	// the highest id given to a node of any tenant
+	private static final AtomicInteger lastTenantNodeId = new AtomicInteger();
+	private final String tenant;
+	private final Sitemap base;
+	// the tenant's own nodes, with their parent (null for a root), and full URI
+	private final Map<SitemapNode, SitemapNode> parents = new HashMap<>();
+	private final Map<SitemapNode, String> uris = new HashMap<>();
+	private final Map<String, SitemapNode> nodesByUri = new LinkedHashMap<>();
+	// the tenant's own nodes by parent (which may be a base node, or null for roots), and by parent and segment
+	private final Map<SitemapNode, List<SitemapNode>> children = new HashMap<>();
+	private final Map<SitemapNode, Map<String, SitemapNode>> literalChildren = new HashMap<>();
+	private final Map<SitemapNode, SitemapNode> parameterChildren = new HashMap<>();
+	// base nodes hidden, together with their subtrees
+	private final Set<SitemapNode> hidden = new HashSet<>();
+	private int nodeCount;
+	private String report;
+
+	public TenantSitemap(String tenant, Sitemap base) {
+		super();
+		if (!base.isLocked()) {
+			throw new IllegalArgumentException("The base of a TenantSitemap must be locked");
+		}
+		this.tenant = tenant;
+		this.base = base;
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public Sitemap getBase() {
+		return base;
+	}
+
+	private boolean isOwn(SitemapNode node) {
+		return uris.containsKey(node);
+	}
+
+	/**
+	 * Returns true if {@code node} is a base node which has been hidden, or is below one which has
+	 */
+	private boolean isHidden(SitemapNode node) {
+		if (hidden.isEmpty()) {
+			return false;
+		}
+		for (SitemapNode n = node; n != null; n = base.getParent(n)) {
+			if (hidden.contains(n)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Hides the base page {@code uri}, and all the pages below it, from this tenant. Returns false if there is no such
+	 * base page
+	 * 
+	 * @param uri
+	 * @return
+	 */
+	public boolean hide(String uri) {
+		checkNotLocked();
+		SitemapNode node = base.nodeFor(uri);
+		if (node == null) {
+			return false;
+		}
+		hidden.add(node);
+		return true;
+	}
+
+	@Override
+	public SitemapNode append(String uri) {
+		checkNotLocked();
+		String[] segments = uri.equals("") ? new String[] { "" } : StringUtils.split(uri, "/");
+		SitemapNode parentNode = null;
+		SitemapNode node = null;
+		for (String segment : segments) {
+			node = literalChild(parentNode, segment);
+			if (node == null) {
+				node = new SitemapNode();
+				node.setUriSegment(segment);
+				addChild(parentNode, node);
+			}
+			parentNode = node;
+		}
+		return node;
+	}
+
+	@Override
+	public void addNode(SitemapNode node) {
+		addChild(null, node);
+	}
+
+	/**
+	 * Adds {@code childNode} to this tenant, below {@code parentNode}, which may be a node of the base or of this
+	 * tenant, or null to add a root. Unlike the base, a parent which is not already in this tenant is not added as a
+	 * root. Does nothing if {@code childNode} has already been added to this tenant.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if {@code parentNode} is not part of this tenant (including a base node which has been hidden), or
+	 *             if {@code childNode} is a node of the base or of another Sitemap
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.Sitemap#addChild(uk.co.q3c.v7.base.navigate.sitemap.SitemapNode,
+	 *      uk.co.q3c.v7.base.navigate.sitemap.SitemapNode)
+	 */
+	@Override
+	public void addChild(SitemapNode parentNode, SitemapNode childNode) {
+		checkNotLocked();
+		if ((parentNode != null) && !containsNode(parentNode)) {
+			throw new IllegalArgumentException(parentNode + " is not part of tenant " + tenant);
+		}
+		if (isOwn(childNode)) {
+			return;
+		}
+		// the id of a node which belongs to the base, or to any other map, must not change
+		if (base.containsNode(childNode) || (childNode.getId() != 0)) {
+			throw new IllegalArgumentException(childNode + " already belongs to another Sitemap");
+		}
+		childNode.setId(nextNodeId());
+		String segment = childNode.getUriSegment();
+		String uri = (parentNode == null) ? segment : uri(parentNode) + "/" + segment;
+		parents.put(childNode, parentNode);
+		uris.put(childNode, uri);
+		if (!nodesByUri.containsKey(uri)) {
+			nodesByUri.put(uri, childNode);
+		}
+		List<SitemapNode> siblings = children.get(parentNode);
+		if (siblings == null) {
+			siblings = new ArrayList<>(4);
+			children.put(parentNode, siblings);
+		}
+		siblings.add(childNode);
+		Map<String, SitemapNode> literals = literalChildren.get(parentNode);
+		if (literals == null) {
+			literals = new LinkedHashMap<>(4);
+			literalChildren.put(parentNode, literals);
+		}
+		if (!literals.containsKey(segment)) {
+			literals.put(segment, childNode);
+		}
+		if ((SitemapTrie.parameterName(segment) != null) && !parameterChildren.containsKey(parentNode)) {
+			parameterChildren.put(parentNode, childNode);
+		}
+	}
+
+	/**
+	 * Returns an id above those of the base, and above any given to a node of another tenant
+	 */
+	private int nextNodeId() {
+		int floor = base.getLastNodeId();
+		while (true) {
+			int last = lastTenantNodeId.get();
+			int next = Math.max(last, floor) + 1;
+			if (lastTenantNodeId.compareAndSet(last, next)) {
+				return next;
+			}
+		}
+	}
+
+	@Override
+	SitemapNode literalChild(SitemapNode parentNode, String segment) {
+		Map<String, SitemapNode> literals = literalChildren.get(parentNode);
+		SitemapNode child = (literals == null) ? null : literals.get(segment);
+		if ((child == null) && ((parentNode == null) || !isOwn(parentNode))) {
+			child = base.literalChild(parentNode, segment);
+			if ((child != null) && hidden.contains(child)) {
+				child = null;
+			}
+		}
+		return child;
+	}
+
+	@Override
+	SitemapNode parameterChild(SitemapNode parentNode) {
+		SitemapNode child = parameterChildren.get(parentNode);
+		if ((child == null) && ((parentNode == null) || !isOwn(parentNode))) {
+			child = base.parameterChild(parentNode);
+			if ((child != null) && hidden.contains(child)) {
+				child = null;
+			}
+		}
+		return child;
+	}
+
+	private SitemapNode child(SitemapNode parentNode, String segment, Map<String, String> pathParameters) {
+		SitemapNode child = literalChild(parentNode, segment);
+		if (child == null) {
+			child = parameterChild(parentNode);
+			if ((child != null) && (pathParameters != null)) {
+				pathParameters.put(SitemapTrie.parameterName(child.getUriSegment()), segment);
+			}
+		}
+		return child;
+	}
+
+	@Override
+	public SitemapNode nodeForSegments(String[] segments, boolean allowPartialPath) {
+		return nodeForSegments(segments, allowPartialPath, null);
+	}
+
+	@Override
+	public SitemapNode nodeForSegments(String[] segments, boolean allowPartialPath, Map<String, String> pathParameters) {
+		SitemapNode current = null;
+		for (String segment : segments) {
+			SitemapNode next = child(current, segment, pathParameters);
+			if (next == null) {
+				return allowPartialPath ? current : null;
+			}
+			current = next;
+		}
+		return current;
+	}
+
+	@Override
+	public List<SitemapNode> nodeChainForSegments(List<String> segments, boolean allowPartialPath) {
+		List<SitemapNode> nodeChain = new ArrayList<>(segments.size());
+		SitemapNode current = null;
+		for (String segment : segments) {
+			current = child(current, segment, null);
+			if (current == null) {
+				if (!allowPartialPath) {
+					nodeChain.clear();
+				}
+				break;
+			}
+			nodeChain.add(current);
+		}
+		return nodeChain;
+	}
+
+	@Override
+	public String uri(SitemapNode node) {
+		String uri = uris.get(node);
+		return (uri == null) ? base.uri(node) : uri;
+	}
+
+	@Override
+	public boolean hasUri(String uri) {
+		return nodeFor(uri) != null;
+	}
+
+	@Override
+	public SitemapNode nodeFor(String uri) {
+		SitemapNode node = nodesByUri.get(uri);
+		if (node == null) {
+			node = base.nodeFor(uri);
+			if ((node != null) && isHidden(node)) {
+				node = null;
+			}
+		}
+		return node;
+	}
+
+	@Override
+	public List<String> uris() {
+		List<String> list = new ArrayList<>();
+		for (SitemapNode node : preOrder()) {
+			list.add(uri(node));
+		}
+		return list;
+	}
+
+	@Override
+	public boolean containsNode(SitemapNode node) {
+		return isOwn(node) || (base.containsNode(node) && !isHidden(node));
+	}
+
+	@Override
+	public SitemapNode getNode(SitemapNode node) {
+		if (isOwn(node)) {
+			return nodesByUri.get(uris.get(node));
+		}
+		return isHidden(node) ? null : base.getNode(node);
+	}
+
+	@Override
+	public SitemapNode getParent(SitemapNode childNode) {
+		if (isOwn(childNode)) {
+			return parents.get(childNode);
+		}
+		return base.getParent(childNode);
+	}
+
+	@Override
+	public boolean hasChild(SitemapNode parentNode, SitemapNode childNode) {
+		return containsNode(childNode) && (getParent(childNode) != null) && getParent(childNode).equals(parentNode);
+	}
+
+	@Override
+	public List<SitemapNode> getChildren(SitemapNode parentNode) {
+		List<SitemapNode> list = new ArrayList<>();
+		if (parentNode == null) {
+			return list;
+		}
+		if (!isOwn(parentNode)) {
+			if (isHidden(parentNode)) {
+				return list;
+			}
+			for (SitemapNode child : base.getChildren(parentNode)) {
+				if (!hidden.contains(child)) {
+					list.add(child);
+				}
+			}
+		}
+		addOwnChildren(parentNode, list);
+		return list;
+	}
+
+	private void addOwnChildren(SitemapNode parentNode, List<SitemapNode> list) {
+		List<SitemapNode> own = children.get(parentNode);
+		if (own != null) {
+			list.addAll(own);
+		}
+	}
+
+	@Override
+	public int getChildCount(SitemapNode parentNode) {
+		return getChildren(parentNode).size();
+	}
+
+	@Override
+	public List<SitemapNode> getRoots() {
+		List<SitemapNode> roots = new ArrayList<>();
+		for (SitemapNode root : base.getRoots()) {
+			if (!hidden.contains(root)) {
+				roots.add(root);
+			}
+		}
+		addOwnChildren(null, roots);
+		return roots;
+	}
+
+	@Override
+	public SitemapNode getRoot() {
+		List<SitemapNode> roots = getRoots();
+		return roots.isEmpty() ? null : roots.get(0);
+	}
+
+	@Override
+	public SitemapNode getRootFor(SitemapNode node) {
+		if (node == null) {
+			return null;
+		}
+		SitemapNode root = node;
+		for (SitemapNode parent = getParent(root); parent != null; parent = getParent(parent)) {
+			root = parent;
+		}
+		return root;
+	}
+
+	@Override
+	public int getNodeCount() {
+		if (isLocked()) {
+			return nodeCount;
+		}
+		return countNodes();
+	}
+
+	private int countNodes() {
+		int count = base.getNodeCount() + uris.size();
+		for (SitemapNode node : hidden) {
+			// nested hidden nodes are counted with their hidden ancestor
+			if (!isHidden(base.getParent(node))) {
+				count -= base.getSubtreeNodes(node).size();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void walk(ForestVisitor<SitemapNode> visitor) {
+		for (SitemapNode root : getRoots()) {
+			if (walk(root, 0, visitor) == ForestVisitor.Result.STOP) {
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void walk(SitemapNode top, ForestVisitor<SitemapNode> visitor) {
+		if (containsNode(top)) {
+			walk(top, 0, visitor);
+		}
+	}
+
+	private ForestVisitor.Result walk(SitemapNode node, int depth, ForestVisitor<SitemapNode> visitor) {
+		ForestVisitor.Result result = visitor.visit(node, depth);
+		if (result == ForestVisitor.Result.CONTINUE) {
+			for (SitemapNode child : getChildren(node)) {
+				if (walk(child, depth + 1, visitor) == ForestVisitor.Result.STOP) {
+					return ForestVisitor.Result.STOP;
+				}
+			}
+		}
+		return result;
+	}
+
+	private List<SitemapNode> collect(SitemapNode top, final int maxDepth, final boolean leavesOnly) {
+		final List<SitemapNode> nodes = new ArrayList<>();
+		ForestVisitor<SitemapNode> visitor = new ForestVisitor<SitemapNode>() {
+			@Override
+			public Result visit(SitemapNode node, int depth) {
+				if (!leavesOnly || !hasChildren(node)) {
+					nodes.add(node);
+				}
+				return (depth < maxDepth) ? Result.CONTINUE : Result.SKIP_CHILDREN;
+			}
+		};
+		if (top == null) {
+			walk(visitor);
+		} else {
+			walk(top, visitor);
+		}
+		return nodes;
+	}
+
+	@Override
+	public Iterable<SitemapNode> preOrder() {
+		return collect(null, Integer.MAX_VALUE, false);
+	}
+
+	@Override
+	public Iterable<SitemapNode> preOrder(SitemapNode top) {
+		return collect(top, Integer.MAX_VALUE, false);
+	}
+
+	@Override
+	public Iterable<SitemapNode> preOrder(SitemapNode top, int maxDepth) {
+		return collect(top, maxDepth, false);
+	}
+
+	@Override
+	public Iterable<SitemapNode> leaves(SitemapNode top) {
+		return collect(top, Integer.MAX_VALUE, true);
+	}
+
+	@Override
+	public List<SitemapNode> getSubtreeNodes(SitemapNode parentNode) {
+		if (!containsNode(parentNode)) {
+			List<SitemapNode> list = new ArrayList<>();
+			list.add(parentNode);
+			return list;
+		}
+		return collect(parentNode, Integer.MAX_VALUE, false);
+	}
+
+	@Override
+	public List<SitemapNode> findLeaves() {
+		return collect(getRoot(), Integer.MAX_VALUE, true);
+	}
+
+	@Override
+	public List<SitemapNode> findLeaves(SitemapNode parentNode) {
+		return collect(parentNode, Integer.MAX_VALUE, true);
+	}
+
+	@Override
+	public List<SitemapNode> getAllNodes() {
+		return collect(null, Integer.MAX_VALUE, false);
+	}
+
+	@Override
+	public Collection<SitemapNode> getEntries() {
+		return getAllNodes();
+	}
+
+	@Override
+	public Iterable<SitemapNode> breadthFirst() {
+		return breadthFirst(getRoots());
+	}
+
+	@Override
+	public Iterable<SitemapNode> breadthFirst(SitemapNode top) {
+		List<SitemapNode> start = new ArrayList<>();
+		if (containsNode(top)) {
+			start.add(top);
+		}
+		return breadthFirst(start);
+	}
+
+	private List<SitemapNode> breadthFirst(List<SitemapNode> start) {
+		List<SitemapNode> nodes = new ArrayList<>();
+		Deque<SitemapNode> queue = new ArrayDeque<>(start);
+		while (!queue.isEmpty()) {
+			SitemapNode node = queue.removeFirst();
+			nodes.add(node);
+			queue.addAll(getChildren(node));
+		}
+		return nodes;
+	}
+
+	@Override
+	public Iterable<SitemapNode> ancestors(SitemapNode node) {
+		List<SitemapNode> ancestors = new ArrayList<>();
+		if (containsNode(node)) {
+			for (SitemapNode parent = getParent(node); parent != null; parent = getParent(parent)) {
+				ancestors.add(parent);
+			}
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Returns the tenant's own redirect for {@code page} if it has one, otherwise the base redirect
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.Sitemap#getRedirectFor(java.lang.String)
+	 */
+	@Override
+	public String getRedirectFor(String page) {
+		String redirect = super.getRedirectFor(page);
+		return (redirect == page) ? base.getRedirectFor(page) : redirect;
+	}
+
+	@Override
+	public ImmutableMap<String, String> getRedirects() {
+		Map<String, String> redirects = new LinkedHashMap<>(base.getRedirects());
+		redirects.putAll(super.getRedirects());
+		return ImmutableMap.copyOf(redirects);
+	}
+
+	@Override
+	public String standardPageURI(StandardPageKey pageKey) {
+		return base.standardPageURI(pageKey);
+	}
+
+	@Override
+	public Map<StandardPageKey, String> getStandardPages() {
+		return base.getStandardPages();
+	}
+
+	@Override
+	public String getPublicRoot() {
+		return base.getPublicRoot();
+	}
+
+	@Override
+	public String getPrivateRoot() {
+		return base.getPrivateRoot();
+	}
+
+	@Override
+	public SitemapNode getPublicRootNode() {
+		return base.getPublicRootNode();
+	}
+
+	@Override
+	public SitemapNode getPrivateRootNode() {
+		return base.getPrivateRootNode();
+	}
+
+	@Override
+	public boolean hasErrors() {
+		return getErrors() > 0;
+	}
+
+	/**
+	 * Returns the errors of the base plus those found while building this tenant
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.Sitemap#getErrors()
+	 */
+	@Override
+	public int getErrors() {
+		return base.getErrors() + super.getErrors();
+	}
+
+	/**
+	 * Sets the total number of errors, including those of the base, to match {@link #getErrors()}
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.Sitemap#setErrors(int)
+	 */
+	@Override
+	public void setErrors(int errorSum) {
+		super.setErrors(errorSum - base.getErrors());
+	}
+
+	@Override
+	public void setReport(String report) {
+		checkNotLocked();
+		this.report = report;
+	}
+
+	/**
+	 * Returns the report of the base, followed by the report of building this tenant, if there is one
+	 * 
+	 * @see uk.co.q3c.v7.base.navigate.sitemap.Sitemap#getReport()
+	 */
+	@Override
+	public String getReport() {
+		if (report == null) {
+			return base.getReport();
+		}
+		return base.getReport() + "\nTenant '" + tenant + "'\n" + report;
+	}
+
+	@Override
+	public void reindex() {
+		throw new UnsupportedOperationException("A TenantSitemap cannot be reindexed, build a new one instead");
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("A TenantSitemap cannot be cleared, build a new one instead");
+	}
+
+	/**
+	 * Returns the version of the base. A TenantSitemap is rebuilt only when its base is replaced, so the changes
+	 * recorded for the base (see {@link SitemapService#changesSince(long)}) apply to the tenant as well, and this is
+	 * the version to pass to it. {@link #getVersion()} is the tenant's own, as its contents differ from those of the
+	 * base
+	 * 
+	 * @return
+	 */
+	public long getBaseVersion() {
+		return base.getVersion();
+	}
+
+	@Override
+	public void lock() {
+		if (!isLocked()) {
+			nodeCount = countNodes();
+		}
+		super.lock();
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.List;
+
+/**
+ * A {@link SitemapContribution} for a single tenant. Its entries are added to that tenant's {@link TenantSitemap}
+ * only, and the pages of the shared Sitemap listed by {@link #hiddenUris()} (with everything below them) are hidden
+ * from that tenant. Bind with a Multibinder, in the same way as a {@link SitemapContribution}
+ * 
+ */
+public interface TenantSitemapContribution extends SitemapContribution {
+
+	/**
+	 * The tenant this contribution applies to, as returned by {@link TenantResolver#currentTenant()}
+	 * 
+	 * @return
+	 */
+	String getTenant();
+
+	/**
+	 * URIs of the shared Sitemap which this tenant should not see. May be empty, but not null
+	 * 
+	 * @return
+	 */
+	List<String> hiddenUris();
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Selects the {@link Sitemap} for the current tenant, as identified by the {@link TenantResolver}. If there is no
+ * tenant, or no {@link TenantSitemapContribution} for it, the shared Sitemap is returned unchanged. Otherwise a
+ * {@link TenantSitemap} is built over the shared Sitemap from the tenant's contributions, the first time it is needed,
+ * and kept until the shared Sitemap is replaced (for example by a reload), when all the tenant Sitemaps are rebuilt
+ * over the new one.
+ * 
+ */
+@Singleton
+public class TenantSitemaps {
+
+	private static Logger log = LoggerFactory.getLogger(TenantSitemaps.class);
+	private TenantResolver tenantResolver = new VaadinSessionTenantResolver();
+	private final SitemapEntryLoader entryLoader;
+	private Map<String, List<TenantSitemapContribution>> contributionsByTenant = Collections.emptyMap();
+	private final Map<String, TenantSitemap> tenantSitemaps = new ConcurrentHashMap<>();
+	private Sitemap base;
+
+	@Inject
+	protected TenantSitemaps(SitemapEntryLoader entryLoader) {
+		super();
+		this.entryLoader = entryLoader;
+	}
+
+	/**
+	 * Optional, the default is a {@link VaadinSessionTenantResolver}
+	 * 
+	 * @param tenantResolver
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setTenantResolver(TenantResolver tenantResolver) {
+		this.tenantResolver = tenantResolver;
+	}
+
+	/**
+	 * Optional, so that there is no need for a Multibinder to be declared if there are no tenants
+	 * 
+	 * @param contributions
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setContributions(Set<TenantSitemapContribution> contributions) {
+		List<TenantSitemapContribution> ordered = new ArrayList<>(ImmutableSet.copyOf(contributions));
+		Collections.sort(ordered, new Comparator<TenantSitemapContribution>() {
+			@Override
+			public int compare(TenantSitemapContribution o1, TenantSitemapContribution o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		Map<String, List<TenantSitemapContribution>> byTenant = new LinkedHashMap<>();
+		for (TenantSitemapContribution contribution : ordered) {
+			List<TenantSitemapContribution> list = byTenant.get(contribution.getTenant());
+			if (list == null) {
+				list = new ArrayList<>();
+				byTenant.put(contribution.getTenant(), list);
+			}
+			list.add(contribution);
+		}
+		contributionsByTenant = byTenant;
+		tenantSitemaps.clear();
+	}
+
+	/**
+	 * Returns the Sitemap for the current tenant, built over {@code shared}, or {@code shared} itself if there is no
+	 * current tenant, or the tenant has no contributions
+	 * 
+	 * @param shared
+	 *            the locked, shared, Sitemap
+	 * @return
+	 */
+	public Sitemap select(Sitemap shared) {
+		if ((shared == null) || contributionsByTenant.isEmpty()) {
+			return shared;
+		}
+		String tenant = tenantResolver.currentTenant();
+		if ((tenant == null) || !contributionsByTenant.containsKey(tenant)) {
+			return shared;
+		}
+		return tenantSitemap(tenant, shared);
+	}
+
+	/**
+	 * Returns the Sitemap for {@code tenant}, building it over {@code shared} if it has not been built already
+	 * 
+	 * @param tenant
+	 * @param shared
+	 * @return
+	 */
+	public TenantSitemap tenantSitemap(String tenant, Sitemap shared) {
+		TenantSitemap tenantSitemap = tenantSitemaps.get(tenant);
+		if ((tenantSitemap != null) && (tenantSitemap.getBase() == shared)) {
+			return tenantSitemap;
+		}
+		synchronized (this) {
+			if (shared != base) {
+				// the shared Sitemap has been replaced, so every tenant must be rebuilt
+				tenantSitemaps.clear();
+				base = shared;
+			}
+			tenantSitemap = tenantSitemaps.get(tenant);
+			if (tenantSitemap == null) {
+				tenantSitemap = build(tenant, shared);
+				tenantSitemaps.put(tenant, tenantSitemap);
+			}
+			return tenantSitemap;
+		}
+	}
+
+	private TenantSitemap build(String tenant, Sitemap shared) {
+		TenantSitemap tenantSitemap = new TenantSitemap(tenant, shared);
+		StringBuilder report = new StringBuilder();
+		List<TenantSitemapContribution> contributions = contributionsByTenant.get(tenant);
+		if (contributions != null) {
+			for (TenantSitemapContribution contribution : contributions) {
+				try {
+					for (String uri : contribution.hiddenUris()) {
+						if (!tenantSitemap.hide(uri)) {
+							report.append("Hidden URI ").append(uri).append(" from contribution '")
+									.append(contribution.getName()).append("' is not in the Sitemap\n");
+						}
+					}
+					entryLoader.load(contribution.entries(), tenantSitemap, false, report);
+				} catch (RuntimeException e) {
+					log.error("Sitemap contribution '" + contribution.getName() + "' for tenant '" + tenant
+							+ "' failed", e);
+					report.append("Contribution '").append(contribution.getName()).append("' failed: ").append(e)
+							.append("\n");
+					tenantSitemap.setErrors(tenantSitemap.getErrors() + 1);
+				}
+			}
+		}
+		tenantSitemap.setReport(report.toString());
+		tenantSitemap.lock();
+		log.debug("Sitemap for tenant '{}' built, {} pages", tenant, tenantSitemap.getNodeCount());
+		return tenantSitemap;
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import com.vaadin.server.VaadinSession;
+
+/**
+ * The default {@link TenantResolver}, which takes the tenant from the {@link #TENANT_ATTRIBUTE} attribute of the
+ * current {@link VaadinSession}. The application sets the attribute, typically at login, to select the tenant's
+ * Sitemap for the rest of the session
+ * 
+ */
+public class VaadinSessionTenantResolver implements TenantResolver {
+
+	public static final String TENANT_ATTRIBUTE = "v7.tenant";
+
+	@Override
+	public String currentTenant() {
+		VaadinSession session = VaadinSession.getCurrent();
+		if (session == null) {
+			return null;
+		}
+		Object tenant = session.getAttribute(TENANT_ATTRIBUTE);
+		return (tenant == null) ? null : tenant.toString();
+	}
+
+}
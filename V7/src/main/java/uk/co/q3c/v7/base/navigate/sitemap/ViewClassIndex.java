@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the classes in a set of packages (including their sub-packages), built by a single scan of the
+ * classpath. Classes are indexed by their name relative to the package they were found in, so that a view name in the
+ * sitemap such as 'subview.TransferView' maps directly to the fully qualified names of the matching classes. Where more
+ * than one package contains the same relative name, the candidates are held in the order the packages were given.
+ * <p>
+ * Only class names are collected - no classes are loaded by the scan. Nested classes are ignored. If a package is
+ * served by something other than a directory or jar file it cannot be scanned, and is returned by
+ * {@link #getUnscannedPackages()} so that the caller can fall back to loading classes by name
+ * 
+ */
+public class ViewClassIndex {
+
+	private static Logger log = LoggerFactory.getLogger(ViewClassIndex.class);
+	private final Map<String, List<String>> classNames = new HashMap<>();
+	private final List<String> unscannedPackages = new ArrayList<>();
+	private final ClassLoader classLoader;
+
+	public ViewClassIndex(List<String> packages, ClassLoader classLoader) {
+		super();
+		this.classLoader = classLoader;
+		for (String pkg : packages) {
+			scanPackage(pkg);
+		}
+	}
+
+	private void scanPackage(String pkg) {
+		String path = pkg.replace('.', '/');
+		try {
+			Enumeration<URL> resources = classLoader.getResources(path);
+			while (resources.hasMoreElements()) {
+				URL url = resources.nextElement();
+				switch (url.getProtocol()) {
+				case "file":
+					scanDirectory(pkg, "", new File(url.toURI()));
+					break;
+				case "jar":
+					scanJar(pkg, path + "/", url);
+					break;
+				default:
+					log.debug("Unable to scan {} for view classes, it is not in a directory or jar file", url);
+					unscannedPackages.add(pkg);
+				}
+			}
+		} catch (IOException | URISyntaxException e) {
+			log.warn("Unable to scan package " + pkg + " for view classes", e);
+			unscannedPackages.add(pkg);
+		}
+	}
+
+	private void scanDirectory(String pkg, String prefix, File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				scanDirectory(pkg, prefix + file.getName() + ".", file);
+			} else {
+				add(pkg, prefix + file.getName());
+			}
+		}
+	}
+
+	private void scanJar(String pkg, String path, URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		if (!(connection instanceof JarURLConnection)) {
+			unscannedPackages.add(pkg);
+			return;
+		}
+		JarURLConnection jarConnection = (JarURLConnection) connection;
+		jarConnection.setUseCaches(false);
+		try (JarFile jar = jarConnection.getJarFile()) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (!entry.isDirectory() && name.startsWith(path)) {
+					add(pkg, name.substring(path.length()).replace('/', '.'));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds {@code fileName}, relative to {@code pkg}, if it is a top level class
+	 * 
+	 * @param pkg
+	 * @param fileName
+	 */
+	private void add(String pkg, String fileName) {
+		if (!fileName.endsWith(".class") || fileName.contains("$")) {
+			return;
+		}
+		String relativeName = fileName.substring(0, fileName.length() - ".class".length());
+		List<String> candidates = classNames.get(relativeName);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			classNames.put(relativeName, candidates);
+		}
+		String fullName = pkg + "." + relativeName;
+		if (!candidates.contains(fullName)) {
+			candidates.add(fullName);
+		}
+	}
+
+	/**
+	 * Returns the fully qualified names of all the indexed classes with {@code relativeName}, in package order. Returns
+	 * an empty list if there are none
+	 * 
+	 * @param relativeName
+	 *            the class name relative to one of the indexed packages, for example 'subview.TransferView'
+	 * @return
+	 */
+	public List<String> candidates(String relativeName) {
+		List<String> candidates = classNames.get(relativeName);
+		if (candidates == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(candidates);
+	}
+
+	/**
+	 * Loads the class with {@code fullName} using the class loader the index was built from. Returns null if the class
+	 * cannot be loaded, which should only happen if the classpath changes after the index was built
+	 * 
+	 * @param fullName
+	 * @return
+	 */
+	public Class<?> load(String fullName) {
+		try {
+			return Class.forName(fullName, true, classLoader);
+		} catch (ClassNotFoundException | LinkageError e) {
+			log.warn("Indexed class {} could not be loaded", fullName);
+			return null;
+		}
+	}
+
+	/**
+	 * The packages which could not be scanned, and must be searched by name
+	 * 
+	 * @return
+	 */
+	public List<String> getUnscannedPackages() {
+		return Collections.unmodifiableList(unscannedPackages);
+	}
+
+	public int size() {
+		return classNames.size();
+	}
+
+}
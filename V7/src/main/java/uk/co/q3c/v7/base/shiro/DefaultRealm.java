@@ -19,18 +19,20 @@ import org.apache.shiro.subject.PrincipalCollection;
 
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
 
+import com.google.inject.Provider;
+
 public class DefaultRealm extends AuthorizingRealm {
 
 	private final LoginAttemptLog loginAttemptLog;
-	private final Sitemap sitemap;
+	private final Provider<Sitemap> sitemapProvider;
 	private final URIPermissionFactory permissionFactory;
 
 	@Inject
-	protected DefaultRealm(LoginAttemptLog loginAttemptLog, CredentialsMatcher matcher, Sitemap sitemap,
+	protected DefaultRealm(LoginAttemptLog loginAttemptLog, CredentialsMatcher matcher, Provider<Sitemap> sitemapProvider,
 			URIPermissionFactory permissionFactory) {
 		super(matcher);
 		this.loginAttemptLog = loginAttemptLog;
-		this.sitemap = sitemap;
+		this.sitemapProvider = sitemapProvider;
 		this.permissionFactory = permissionFactory;
 		setCachingEnabled(false);
 	}
@@ -89,6 +91,7 @@ public class DefaultRealm extends AuthorizingRealm {
 	@Override
 	protected AuthorizationInfo doGetAuthorizationInfo(PrincipalCollection principals) {
 		SimpleAuthorizationInfo info = new SimpleAuthorizationInfo();
+		Sitemap sitemap = sitemapProvider.get();
 		String privatePermission = "uri:view:" + sitemap.getPrivateRoot() + ":*";
 		URIViewPermission publicPermission = permissionFactory.createViewPermission(sitemap.getPublicRoot(), true);
 		info.addObjectPermission(publicPermission);
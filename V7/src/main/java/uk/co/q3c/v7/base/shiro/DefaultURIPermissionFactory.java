@@ -14,6 +14,7 @@ package uk.co.q3c.v7.base.shiro;
 
 import javax.inject.Inject;
 
+import uk.co.q3c.v7.base.navigate.ParsedFragment;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 
 public class DefaultURIPermissionFactory implements URIPermissionFactory {
@@ -36,4 +37,9 @@ public class DefaultURIPermissionFactory implements URIPermissionFactory {
 		return new URIViewPermission(uriHandler, uri, appendWildcard);
 	}
 
+	@Override
+	public URIViewPermission createViewPermission(ParsedFragment fragment) {
+		return new URIViewPermission(fragment);
+	}
+
 }
@@ -12,6 +12,8 @@
  */
 package uk.co.q3c.v7.base.shiro;
 
+import uk.co.q3c.v7.base.navigate.ParsedFragment;
+
 public interface URIPermissionFactory {
 
 	/**
@@ -40,4 +42,13 @@ public interface URIPermissionFactory {
 	 */
 	URIViewPermission createViewPermission(String uri, boolean appendWildcard);
 
+	/**
+	 * As {@link #createViewPermission(String)}, but from a fragment which has already been parsed, so that it is not
+	 * parsed again
+	 * 
+	 * @param fragment
+	 * @return
+	 */
+	URIViewPermission createViewPermission(ParsedFragment fragment);
+
 }
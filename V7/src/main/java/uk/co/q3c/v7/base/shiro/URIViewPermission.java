@@ -14,6 +14,7 @@ package uk.co.q3c.v7.base.shiro;
 
 import org.apache.shiro.authz.permission.WildcardPermission;
 
+import uk.co.q3c.v7.base.navigate.ParsedFragment;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 
 import com.google.inject.assistedinject.Assisted;
@@ -33,10 +34,25 @@ public class URIViewPermission extends WildcardPermission {
 		construct(uriHandler, uri, appendWildcard);
 	}
 
+	/**
+	 * Constructs the permission from a fragment which has already been parsed
+	 * 
+	 * @param fragment
+	 */
+	@AssistedInject
+	public URIViewPermission(@Assisted ParsedFragment fragment) {
+		super();
+		construct(fragment.getVirtualPage(), false);
+	}
+
 	protected void construct(URIFragmentHandler uriHandler, String uri, boolean appendWildcard) {
 		uriHandler.setFragment(uri);
+		construct(uriHandler.virtualPage(), appendWildcard);
+	}
+
+	private void construct(String virtualPage, boolean appendWildcard) {
 		String prefix = "uri:view:";
-		String pagePerm = uriHandler.virtualPage().replace("/", ":");
+		String pagePerm = virtualPage.replace("/", ":");
 
 		String permissionString = appendWildcard ? prefix + pagePerm + ":*" : prefix + pagePerm;
 		setParts(permissionString);
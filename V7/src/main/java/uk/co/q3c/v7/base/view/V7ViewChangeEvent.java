@@ -1,16 +1,27 @@
 package uk.co.q3c.v7.base.view;
 
+import java.util.Map;
+
 import uk.co.q3c.v7.base.navigate.V7Navigator;
 
+import com.google.common.collect.ImmutableMap;
+
 public class V7ViewChangeEvent {
 	private final V7View oldView;
 	private final V7View newView;
 	private final String viewName;
 	private final String parameters;
 	private final V7Navigator navigator;
+	private final ImmutableMap<String, String> pathParameters;
 
 	public V7ViewChangeEvent(V7Navigator navigator, V7View oldView, V7View newView, String viewName, String parameters) {
+		this(navigator, oldView, newView, viewName, parameters, ImmutableMap.<String, String> of());
+	}
+
+	public V7ViewChangeEvent(V7Navigator navigator, V7View oldView, V7View newView, String viewName,
+			String parameters, Map<String, String> pathParameters) {
 		super();
+		this.pathParameters = ImmutableMap.copyOf(pathParameters);
 		this.oldView = oldView;
 		this.newView = newView;
 		this.viewName = viewName;
@@ -38,4 +49,24 @@ public class V7ViewChangeEvent {
 		return navigator;
 	}
 
+	/**
+	 * Returns the values captured by the parameter segments of the page (for example the 23 in 'customers/23/orders'
+	 * for a page declared as <code>customers/{id}/orders</code>), keyed by parameter name
+	 * 
+	 * @return
+	 */
+	public ImmutableMap<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	/**
+	 * Returns the value captured by the parameter segment {@code name}, or null if there is none
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public String getPathParameter(String name) {
+		return pathParameters.get(name);
+	}
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.view;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import uk.co.q3c.v7.base.navigate.ViewCache;
+
+/**
+ * Declares that a {@link V7View} implementation may be re-used, and how it is held by the {@link ViewCache} of each UI.
+ * A view without this annotation is never cached
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ViewCaching {
+
+	public enum Policy {
+		/**
+		 * Cached, and discarded when it is the least recently used view and the cache is full
+		 */
+		LRU,
+		/**
+		 * Cached for the life of the UI, and not counted against the size of the cache
+		 */
+		ALWAYS,
+		/**
+		 * As {@link #LRU}, but also discarded {@link ViewCaching#ttl()} seconds after it was constructed
+		 */
+		TTL,
+		/**
+		 * Never cached, a new instance is constructed for each navigation
+		 */
+		NEVER
+	}
+
+	Policy value() default Policy.LRU;
+
+	/**
+	 * The time to live in seconds, used only by {@link Policy#TTL}
+	 * 
+	 * @return
+	 */
+	long ttl() default 60;
+}
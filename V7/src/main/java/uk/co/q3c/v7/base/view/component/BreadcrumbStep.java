@@ -12,6 +12,8 @@
  */
 package uk.co.q3c.v7.base.view.component;
 
+import java.util.Locale;
+
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 
 import com.vaadin.ui.Button;
@@ -29,9 +31,15 @@ public class BreadcrumbStep extends Button {
 		return node;
 	}
 
-	public void setNode(SitemapNode node) {
+	/**
+	 * Sets the node for this step, with its label in {@code locale} as the caption
+	 * 
+	 * @param node
+	 * @param locale
+	 */
+	public void setNode(SitemapNode node, Locale locale) {
 		this.node = node;
-		this.setCaption(node.getLabel());
+		this.setCaption(node.getLabel(locale));
 	}
 
 	public String getParams() {
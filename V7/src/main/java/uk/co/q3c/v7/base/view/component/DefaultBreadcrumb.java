@@ -12,7 +12,6 @@
  */
 package uk.co.q3c.v7.base.view.component;
 
-import java.text.Collator;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,10 +24,8 @@ import uk.co.q3c.v7.base.navigate.sitemap.SitemapURIConverter;
 import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
 import uk.co.q3c.v7.base.view.V7ViewChangeListener;
 import uk.co.q3c.v7.i18n.CurrentLocale;
-import uk.co.q3c.v7.i18n.I18NKey;
 import uk.co.q3c.v7.i18n.I18NListener;
 import uk.co.q3c.v7.i18n.I18NTranslator;
-import uk.co.q3c.v7.i18n.Translate;
 
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Button.ClickEvent;
@@ -42,18 +39,13 @@ public class DefaultBreadcrumb extends HorizontalLayout implements I18NListener,
 	private final V7Navigator navigator;
 	private final SitemapURIConverter converter;
 	private final CurrentLocale currentLocale;
-	private final Collator collator;
-	private final Translate translate;
 
 	@Inject
-	protected DefaultBreadcrumb(V7Navigator navigator, SitemapURIConverter converter, CurrentLocale currentLocale,
-			Translate translate) {
+	protected DefaultBreadcrumb(V7Navigator navigator, SitemapURIConverter converter, CurrentLocale currentLocale) {
 		this.navigator = navigator;
 		navigator.addViewChangeListener(this);
 		this.converter = converter;
 		this.currentLocale = currentLocale;
-		this.collator = Collator.getInstance(currentLocale.getLocale());
-		this.translate = translate;
 
 	}
 
@@ -85,23 +77,22 @@ public class DefaultBreadcrumb extends HorizontalLayout implements I18NListener,
 		}
 	}
 
+	/**
+	 * The node is shared with other UIs, so is not changed - its label is looked up for the locale of this UI
+	 * 
+	 * @param step
+	 * @param sitemapNode
+	 */
 	private void setupStep(BreadcrumbStep step, SitemapNode sitemapNode) {
-		// TODO can label translate be removed? May be done in build of sitemap later
-
-		step.setNode(sitemapNode);
-		I18NKey<?> key = step.getNode().getLabelKey();
-		sitemapNode.setLabelKey(key, translate, collator);
-
+		step.setNode(sitemapNode, currentLocale.getLocale());
 		step.setVisible(true);
-		step.setNode(sitemapNode);
 
 	}
 
 	@Override
 	public void localeChange(I18NTranslator translator) {
 		for (BreadcrumbStep step : steps) {
-			I18NKey<?> key = step.getNode().getLabelKey();
-			step.setCaption(translate.from(key, translator.getLocale()));
+			step.setCaption(step.getNode().getLabel(translator.getLocale()));
 		}
 	}
 
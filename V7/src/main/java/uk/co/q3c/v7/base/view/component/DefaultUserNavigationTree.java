@@ -12,7 +12,6 @@
  */
 package uk.co.q3c.v7.base.view.component;
 
-import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -23,8 +22,6 @@ import org.slf4j.LoggerFactory;
 
 import uk.co.q3c.util.ID;
 import uk.co.q3c.v7.base.guice.uiscope.UIScoped;
-import uk.co.q3c.v7.base.navigate.CollationKeyOrder;
-import uk.co.q3c.v7.base.navigate.InsertionOrder;
 import uk.co.q3c.v7.base.navigate.StandardPageKey;
 import uk.co.q3c.v7.base.navigate.V7Navigator;
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
@@ -56,7 +53,7 @@ import com.vaadin.ui.Tree;
 public class DefaultUserNavigationTree extends Tree implements UserNavigationTree, V7ViewChangeListener,
 		LoginStatusListener {
 	private static Logger log = LoggerFactory.getLogger(DefaultUserNavigationTree.class);
-	private final Sitemap sitemap;
+	private final Provider<Sitemap> sitemapProvider;
 	private int maxLevel;
 	private int level;
 	private final V7Navigator navigator;
@@ -70,11 +67,11 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 	public static final String maxLevelOpt = "maxLevel";
 
 	@Inject
-	protected DefaultUserNavigationTree(Sitemap sitemap, V7Navigator navigator, SubjectProvider subjectProvider,
-			DefaultURIPermissionFactory uriPermissionFactory, UserOption userOption,
+	protected DefaultUserNavigationTree(Provider<Sitemap> sitemapProvider, V7Navigator navigator,
+			SubjectProvider subjectProvider, DefaultURIPermissionFactory uriPermissionFactory, UserOption userOption,
 			SitemapURIConverter sitemapURIConverter, LoginStatusHandler loginStatusHandler, Translate translate) {
 		super();
-		this.sitemap = sitemap;
+		this.sitemapProvider = sitemapProvider;
 		this.navigator = navigator;
 		this.subjectProvider = subjectProvider;
 		this.uriPermissionFactory = uriPermissionFactory;
@@ -98,22 +95,17 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 	private void loadNodes() {
 
 		this.removeAllItems();
-		List<SitemapNode> nodeList = sitemap.getRoots();
-
-		// which order, sorted or insertion?
-		if (sorted) {
-			log.debug("'sorted' is true, sorting by collation key");
-			Collections.sort(nodeList, new CollationKeyOrder());
-		} else {
-			log.debug("'sorted' is false, using insertion order");
-			Collections.sort(nodeList, new InsertionOrder());
-		}
+		// take the current snapshot once, so a republished Sitemap cannot change part way through the load
+		Sitemap sitemap = sitemapProvider.get();
+		// which order, sorted or insertion? The Sitemap holds both, so there is no need to sort here
+		log.debug("'sorted' is {}, using {} order", sorted, sorted ? "collation key" : "insertion");
+		List<SitemapNode> nodeList = sitemap.getRoots(translate.getLocale(), sorted);
 
 		for (SitemapNode node : nodeList) {
 			level = 1;
 			// doesn't make sense to show the logout page
 			if (!node.getLabelKey().equals(StandardPageKey.Logout)) {
-				loadNode(null, node, node.equals(sitemap.getPublicRootNode()));
+				loadNode(sitemap, null, node, node.equals(sitemap.getPublicRootNode()));
 			}
 		}
 	}
@@ -121,10 +113,11 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 	/**
 	 * Checks each node to ensure that the Subject has permission to view, and if so, adds it to this tree
 	 * 
+	 * @param sitemap
 	 * @param parentNode
 	 * @param childNode
 	 */
-	private void loadNode(SitemapNode parentNode, SitemapNode childNode, boolean publicBranch) {
+	private void loadNode(Sitemap sitemap, SitemapNode parentNode, SitemapNode childNode, boolean publicBranch) {
 		// construct the permission
 		String uri = sitemap.uri(childNode);
 		URIViewPermission pagePermissionRequired = uriPermissionFactory.createViewPermission(uri);
@@ -143,21 +136,14 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 			level++;
 
 			if ((maxLevel < 0) || (level <= maxLevel)) {
-				List<SitemapNode> children = sitemap.getChildren(newParentNode);
+				List<SitemapNode> children = sitemap.getChildren(newParentNode, translate.getLocale(), sorted);
 				if (children.size() == 0) {
 					// no children, visual tree should not allow expanding the node
 					setChildrenAllowed(newParentNode, false);
-				} else {
-					// which order, sorted or insertion?
-					if (sorted) {
-						Collections.sort(children, new CollationKeyOrder());
-					} else {
-						Collections.sort(children, new InsertionOrder());
-					}
 				}
 				for (SitemapNode child : children) {
 					if (!child.getLabelKey().equals(StandardPageKey.Logout)) {
-						loadNode(newParentNode, child, publicBranch);
+						loadNode(sitemap, newParentNode, child, publicBranch);
 					}
 				}
 
@@ -172,7 +158,7 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 
 	/**
 	 * Returns true if the {@code node} is a leaf as far as this {@link DefaultUserNavigationTree} is concerned. It may
-	 * be a leaf here, but not in the {@link #sitemap}, depending on the setting of {@link #maxLevel}
+	 * be a leaf here, but not in the {@link Sitemap}, depending on the setting of {@link #maxLevel}
 	 * 
 	 * @param node
 	 * @return
@@ -187,7 +173,7 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 
 	/**
 	 * Set the maximum level or depth of the tree you want to be visible. 0 is not allowed, and is ignored. Set to < 0
-	 * if you want this tree to display the full {@link #sitemap}
+	 * if you want this tree to display the full {@link Sitemap}
 	 * 
 	 * @param level
 	 */
@@ -202,7 +188,7 @@ public class DefaultUserNavigationTree extends Tree implements UserNavigationTre
 	@Override
 	public void valueChange(Property.ValueChangeEvent event) {
 		if (getValue() != null) {
-			String url = sitemap.uri((SitemapNode) getValue());
+			String url = sitemapProvider.get().uri((SitemapNode) getValue());
 			navigator.navigateTo(url);
 		}
 	}
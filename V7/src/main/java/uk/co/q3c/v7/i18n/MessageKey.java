@@ -18,6 +18,7 @@ import java.util.ResourceBundle;
 public enum MessageKey implements I18NKey<Messages> {
 	_nullkey_,
 	invalidURI,
+	invalidURI_suggestions,
 
 	;
 
@@ -33,6 +33,7 @@ public class Messages extends EnumResourceBundle<MessageKey> {
 	// TODO make map unmodifiable
 	static {
 		map.put(MessageKey.invalidURI, "{0} is not a valid page");
+		map.put(MessageKey.invalidURI_suggestions, "{0} is not a valid page, did you mean {1}?");
 	}
 
 	@Override
@@ -58,6 +58,15 @@ public class Translate {
 		return result;
 	}
 
+	/**
+	 * Returns the locale assumed by {@link #from(I18NKey, Object...)}
+	 * 
+	 * @return
+	 */
+	public Locale getLocale() {
+		return currentLocale.getLocale();
+	}
+
 	/**
 	 * Looks up key pattern from its associated map. The locale is assumed to be {@link CurrentLocale}. If the key is
 	 * not present in the map, the enum.name() is returned. Before returning the enum.name(), underscores are replaced
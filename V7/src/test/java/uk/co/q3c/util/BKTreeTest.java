@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.util;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BKTreeTest {
+
+	BKTree tree;
+
+	@Before
+	public void setup() {
+		tree = new BKTree();
+		tree.add("public/home");
+		tree.add("public/login");
+		tree.add("public/logout");
+		tree.add("private/home");
+		tree.add("private/accounts");
+	}
+
+	private List<String> terms(List<BKTree.Match> matches) {
+		List<String> terms = new ArrayList<>();
+		for (BKTree.Match match : matches) {
+			terms.add(match.getTerm());
+		}
+		return terms;
+	}
+
+	@Test
+	public void search() {
+
+		// given
+
+		// when
+		List<BKTree.Match> matches = tree.search("public/logot", 2);
+		// then
+		assertThat(terms(matches)).containsExactly("public/logout", "public/login");
+		assertThat(matches.get(0).getDistance()).isEqualTo(1);
+		assertThat(matches.get(1).getDistance()).isEqualTo(2);
+	}
+
+	@Test
+	public void searchExact() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(terms(tree.search("private/home", 0))).containsExactly("private/home");
+		assertThat(tree.search("wiggly", 2)).isEmpty();
+	}
+
+	@Test
+	public void add_duplicate() {
+
+		// given
+
+		// when
+		boolean added = tree.add("public/home");
+		// then
+		assertThat(added).isFalse();
+		assertThat(tree.size()).isEqualTo(5);
+	}
+
+	@Test
+	public void searchMatchesFullScan() {
+
+		// given
+		BKTree large = new BKTree();
+		List<String> all = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			String term = "section" + (i % 37) + "/page" + i;
+			large.add(term);
+			all.add(term);
+		}
+		String query = "section5/pag42";
+		// when
+		List<String> found = terms(large.search(query, 2));
+		// then
+		List<String> expected = new ArrayList<>();
+		for (String term : all) {
+			if (org.apache.commons.lang3.StringUtils.getLevenshteinDistance(query, term) <= 2) {
+				expected.add(term);
+			}
+		}
+		assertThat(found).containsOnly(expected.toArray(new String[expected.size()]));
+		assertThat(found).isNotEmpty();
+	}
+
+}
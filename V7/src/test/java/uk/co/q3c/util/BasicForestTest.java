@@ -15,12 +15,17 @@ package uk.co.q3c.util;
 import static org.fest.assertions.Assertions.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import uk.co.q3c.util.ForestVisitor.Result;
+
+import com.google.common.collect.Lists;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 
@@ -199,8 +204,99 @@ public class BasicForestTest {
 		assertThat(tree.getRoots()).containsOnly(s0);
 	}
 
+	@Test
+	public void getChildren_insertionOrder() {
+		// given
+
+		// when
+		addAllNodes();
+		// then
+		assertThat(tree.getChildren(s0)).containsExactly(s1, s2);
+		assertThat(tree.getChildren(s1)).containsExactly(s11, s12);
+		assertThat(tree.getChildren("x")).isEmpty();
+	}
+
+	@Test
+	public void getSubtreeNodes_preOrder() {
+		// given
+
+		// when
+		addAllNodes();
+		// then
+		assertThat(tree.getSubtreeNodes(s0)).containsExactly(s0, s1, s11, s111, s12, s121, s2, s21, s22);
+		assertThat(tree.getSubtreeNodes(s111)).containsExactly(s111);
+	}
+
+	@Test
+	public void addChild_rootBecomesChild() {
+		// given
+		tree.addNode(s1);
+		tree.addNode(s2);
+		tree.addChild(s2, s21);
+		// when
+		tree.addChild(s1, s2);
+		// then
+		assertThat(tree.getRoots()).containsExactly(s1);
+		assertThat(tree.getParent(s2)).isEqualTo(s1);
+		assertThat(tree.getSubtreeNodes(s1)).containsExactly(s1, s2, s21);
+	}
+
+	@Test
+	public void addChild_sameParentTwice() {
+		// given
+		tree.addChild(s1, s11);
+		// when
+		tree.addChild(s1, s11);
+		// then
+		assertThat(tree.getChildCount(s1)).isEqualTo(1);
+		assertThat(tree.getNodeCount()).isEqualTo(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addChild_secondParent() {
+		// given
+		tree.addChild(s1, s11);
+		// when
+		tree.addChild(s2, s11);
+		// then
+		// exception expected
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addChild_ancestor() {
+		// given
+		tree.addChild(s1, s11);
+		tree.addChild(s11, s111);
+		// when
+		tree.addChild(s111, s1);
+		// then
+		// exception expected
+	}
+
+	@Test
+	public void largeTree() {
+		// given
+		String root = "root";
+		tree.addNode(root);
+		// when
+		for (int i = 0; i < 100; i++) {
+			String child = "c" + i;
+			tree.addChild(root, child);
+			for (int j = 0; j < 10; j++) {
+				tree.addChild(child, child + "." + j);
+			}
+		}
+		// then
+		assertThat(tree.getNodeCount()).isEqualTo(1101);
+		assertThat(tree.getChildCount(root)).isEqualTo(100);
+		assertThat(tree.getParent("c99.9")).isEqualTo("c99");
+		assertThat(tree.getRootFor("c50.5")).isEqualTo(root);
+		assertThat(tree.findLeaves()).hasSize(1000);
+		assertThat(tree.getSubtreeNodes(root)).hasSize(1101);
+	}
+
 	/**
-	 * toString() puts a blank line at the start
+	 * toString() puts a blank line at the start. Children are listed in the order they were added
 	 */
 	@Test
 	public void tostring() {
@@ -209,7 +305,7 @@ public class BasicForestTest {
 		// when
 		addAllNodes();
 		// then
-		assertThat(tree.toString()).isEqualTo("\n-0\n--2\n---2.1\n---2.2\n--1\n---1.2\n----1.2.1\n---1.1\n----1.1.1\n");
+		assertThat(tree.toString()).isEqualTo("\n-0\n--1\n---1.1\n----1.1.1\n---1.2\n----1.2.1\n--2\n---2.1\n---2.2\n");
 	}
 
 	@Test
@@ -221,7 +317,7 @@ public class BasicForestTest {
 		tree.text(s0, buf, 0);
 		String s = buf.toString();
 		// then
-		assertThat(s).isEqualTo("-0\n--2\n---2.1\n---2.2\n--1\n---1.2\n----1.2.1\n---1.1\n----1.1.1\n");
+		assertThat(s).isEqualTo("-0\n--1\n---1.1\n----1.1.1\n---1.2\n----1.2.1\n--2\n---2.1\n---2.2\n");
 	}
 
 	@Test
@@ -281,6 +377,111 @@ public class BasicForestTest {
 		assertThat(tree.getRootFor(s121)).isEqualTo(s0);
 	}
 
+	@Test
+	public void preOrder() {
+		// given
+		String s3 = new String("3");
+		String s31 = new String("3.1");
+		// when
+		addAllNodes();
+		tree.addChild(s3, s31);
+		// then
+		assertThat(Lists.newArrayList(tree.preOrder(s1))).isEqualTo(Arrays.asList(s1, s11, s111, s12, s121));
+		assertThat(Lists.newArrayList(tree.preOrder())).isEqualTo(
+				Arrays.asList(s0, s1, s11, s111, s12, s121, s2, s21, s22, s3, s31));
+		assertThat(Lists.newArrayList(tree.preOrder(s0, 1))).isEqualTo(Arrays.asList(s0, s1, s2));
+		assertThat(tree.preOrder("x").iterator().hasNext()).isFalse();
+	}
+
+	@Test
+	public void breadthFirst() {
+		// given
+		String s3 = new String("3");
+		String s31 = new String("3.1");
+		// when
+		addAllNodes();
+		tree.addChild(s3, s31);
+		// then
+		assertThat(Lists.newArrayList(tree.breadthFirst(s0))).isEqualTo(
+				Arrays.asList(s0, s1, s2, s11, s12, s21, s22, s111, s121));
+		assertThat(Lists.newArrayList(tree.breadthFirst(s2))).isEqualTo(Arrays.asList(s2, s21, s22));
+		assertThat(Lists.newArrayList(tree.breadthFirst())).isEqualTo(
+				Arrays.asList(s0, s3, s1, s2, s31, s11, s12, s21, s22, s111, s121));
+	}
+
+	/**
+	 * Each root has a wide first level and a deep chain below its last child, so that a walk which searched subtrees
+	 * again for each node would be slow. The order is checked against a plain queue over getChildren()
+	 */
+	@Test(timeout = 5000)
+	public void breadthFirst_wideAndDeep() {
+		// given
+		BasicForest<String> forest = new BasicForest<>();
+		for (int r = 0; r < 3; r++) {
+			String root = "r" + r;
+			forest.addNode(root);
+			String parent = null;
+			for (int i = 0; i < 2000; i++) {
+				parent = root + ".w" + i;
+				forest.addChild(root, parent);
+			}
+			for (int d = 0; d < 2000; d++) {
+				String child = root + ".d" + d;
+				forest.addChild(parent, child);
+				parent = child;
+			}
+		}
+		List<String> expected = new ArrayList<>();
+		LinkedList<String> queue = new LinkedList<>(forest.getRoots());
+		while (!queue.isEmpty()) {
+			String node = queue.removeFirst();
+			expected.add(node);
+			queue.addAll(forest.getChildren(node));
+		}
+		// when
+		List<String> all = Lists.newArrayList(forest.breadthFirst());
+		List<String> fromRoot = Lists.newArrayList(forest.breadthFirst("r1"));
+		// then
+		assertThat(all).hasSize(12003);
+		assertThat(all).isEqualTo(expected);
+		assertThat(fromRoot).hasSize(4001);
+		assertThat(fromRoot.get(0)).isEqualTo("r1");
+		assertThat(fromRoot.get(2000)).isEqualTo("r1.w1999");
+		assertThat(fromRoot.get(4000)).isEqualTo("r1.d1999");
+	}
+
+	@Test
+	public void leavesAndAncestors() {
+		// given
+
+		// when
+		addAllNodes();
+		// then
+		assertThat(Lists.newArrayList(tree.leaves(s0))).isEqualTo(Arrays.asList(s111, s121, s21, s22));
+		assertThat(Lists.newArrayList(tree.ancestors(s121))).isEqualTo(Arrays.asList(s12, s1, s0));
+		assertThat(tree.ancestors(s0).iterator().hasNext()).isFalse();
+	}
+
+	@Test
+	public void walk() {
+		// given
+		addAllNodes();
+		final List<String> visited = new ArrayList<>();
+		// when
+		tree.walk(new ForestVisitor<String>() {
+			@Override
+			public Result visit(String node, int depth) {
+				visited.add(node + "@" + depth);
+				if (node.equals("1.1")) {
+					return Result.SKIP_CHILDREN;
+				}
+				return node.equals("2") ? Result.STOP : Result.CONTINUE;
+			}
+		});
+		// then
+		assertThat(visited).isEqualTo(Arrays.asList("0@0", "1@1", "1.1@2", "1.2@2", "1.2.1@3", "2@1"));
+	}
+
 	private void addAllNodes() {
 
 		tree.addNode(s0);
@@ -14,11 +14,17 @@ package uk.co.q3c.v7.base.navigate;
 
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.shiro.subject.Subject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapSuggestions;
+import uk.co.q3c.v7.base.shiro.SubjectProvider;
 import uk.co.q3c.v7.i18n.LabelKey;
 import uk.co.q3c.v7.i18n.MessageKey;
 import uk.co.q3c.v7.i18n.Notifier;
@@ -36,6 +42,15 @@ public class DefaultInvalidURIExceptionHandlerTest {
 	@Mock
 	Notifier notifier;
 
+	@Mock
+	SitemapSuggestions suggestions;
+
+	@Mock
+	SubjectProvider subjectProvider;
+
+	@Mock
+	Subject subject;
+
 	DefaultInvalidURIExceptionHandler handler;
 
 	String navState = "public/wiggly/id=3";
@@ -43,18 +58,33 @@ public class DefaultInvalidURIExceptionHandlerTest {
 	@Before
 	public void setup() {
 		when(navigator.getNavigationState()).thenReturn(navState);
-		handler = new DefaultInvalidURIExceptionHandler(navigator, notifier);
+		when(subjectProvider.get()).thenReturn(subject);
+		handler = new DefaultInvalidURIExceptionHandler(navigator, notifier, suggestions,
+				new StrictURIFragmentHandler(), subjectProvider);
 	}
 
 	@Test
 	public void notify_() {
 
 		// given
-
+		when(suggestions.suggestionsFor("public/wiggly", subject)).thenReturn(Collections.<String> emptyList());
 		// when
 		handler.invoke();
 		// then
 		verify(notifier).notify(LabelKey.Invalid_Page, MessageKey.invalidURI, navState);
 
 	}
+
+	@Test
+	public void notify_withSuggestions() {
+
+		// given
+		when(suggestions.suggestionsFor("public/wiggly", subject)).thenReturn(Arrays.asList("public/wiggle", "public/giggly"));
+		// when
+		handler.invoke();
+		// then
+		verify(notifier).notify(LabelKey.Invalid_Page, MessageKey.invalidURI_suggestions, navState,
+				"public/wiggle, public/giggly");
+
+	}
 }
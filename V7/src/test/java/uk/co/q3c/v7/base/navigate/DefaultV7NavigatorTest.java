@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 
 import java.text.Collator;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.shiro.authz.AuthorizationException;
 import org.apache.shiro.subject.Subject;
@@ -13,7 +14,10 @@ import org.fest.assertions.Fail;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
@@ -29,14 +33,16 @@ import uk.co.q3c.v7.base.view.LogoutView;
 import uk.co.q3c.v7.base.view.V7View;
 import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
 import uk.co.q3c.v7.base.view.V7ViewChangeListener;
+import uk.co.q3c.v7.base.view.ViewCaching;
 import uk.co.q3c.v7.i18n.LabelKey;
-import uk.co.q3c.v7.i18n.Translate;
 
+import com.google.common.base.Ticker;
 import com.google.inject.Injector;
 import com.google.inject.Provider;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.vaadin.server.Page;
+import com.vaadin.server.Page.UriFragmentChangedEvent;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
@@ -45,6 +51,7 @@ import com.vaadin.util.CurrentInstance;
 @GuiceContext({})
 public class DefaultV7NavigatorTest {
 
+	@ViewCaching
 	static class View2 implements V7View {
 
 		@Override
@@ -143,14 +150,13 @@ public class DefaultV7NavigatorTest {
 	@Mock
 	Collator collator;
 
-	@Mock
-	Translate translate;
-
 	// had some issues with mocking this - the getViewClass() method wouldn't play
 	// so resorted to old fashioned mocking
 	SitemapNode mockNode;
 	SitemapNode mockNode2;
 
+	NotifyStage notifyStage;
+
 	@Before
 	public void setup() {
 		// ini = iniPro.get();
@@ -166,14 +172,19 @@ public class DefaultV7NavigatorTest {
 		when(scopedUI.getPage()).thenReturn(page);
 		when(errorViewProvider.get()).thenReturn(errorView);
 		when(subjectProvider.get()).thenReturn(subject);
-		when(sitemapURIConverter.pageIsPublic(anyString())).thenReturn(true);
+		when(sitemapURIConverter.pageIsPublic(any(Sitemap.class), any(SitemapNode.class))).thenReturn(true);
 		when(injector.getInstance(LogoutView.class)).thenReturn(logoutView);
 		when(injector.getInstance(LoginView.class)).thenReturn(loginView);
 		when(injector.getInstance(View2.class)).thenReturn(view2);
 		when(injector.getInstance(View1.class)).thenReturn(view1);
 
-		navigator = new DefaultV7Navigator(injector, errorViewProvider, uriHandler, sitemapService, subjectProvider,
-				uriPermissionFactory, sitemapURIConverter, loginHandler);
+		notifyStage = new NotifyStage();
+		ResolutionCache resolutionCache = new ResolutionCache(ResolutionCache.DEFAULT_SIZE, sitemapURIConverter);
+		NavigationPipeline pipeline = new NavigationPipeline(new RedirectStage(resolutionCache), new ResolveStage(
+				resolutionCache), new AuthoriseStage(subjectProvider, uriPermissionFactory), new ConstructStage(
+				injector), new EnterStage(), notifyStage);
+		navigator = new DefaultV7Navigator(errorViewProvider, uriHandler, sitemapService, loginHandler, new ViewCache(
+				ViewCache.DEFAULT_SIZE, Ticker.systemTicker()), pipeline);
 		CurrentInstance.set(UI.class, scopedUI);
 	}
 
@@ -184,7 +195,7 @@ public class DefaultV7NavigatorTest {
 		String page = "public/logout";
 		when(sitemap.standardPageURI(StandardPageKey.Logout)).thenReturn(page);
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(LogoutView.class);
 		// when
 		navigator.navigateTo(StandardPageKey.Logout);
@@ -198,7 +209,7 @@ public class DefaultV7NavigatorTest {
 		// given
 		String page = "public/login";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(LoginView.class);
 		// when
 		navigator.navigateTo(page);
@@ -219,8 +230,8 @@ public class DefaultV7NavigatorTest {
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
 		when(sitemap.getRedirectFor(page2)).thenReturn(page2);
 
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
-		when(sitemapURIConverter.nodeForUri(page2, false)).thenReturn(mockNode2);
+		resolve(page, mockNode);
+		resolve(page2, mockNode2);
 
 		mockNode.setViewClass(View2.class);
 		mockNode2.setViewClass(LoginView.class);
@@ -242,7 +253,7 @@ public class DefaultV7NavigatorTest {
 		String page = "private";
 		when(sitemap.standardPageURI(StandardPageKey.Private_Home)).thenReturn(page);
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 
 		navigator.setCurrentView(loginView, "xx", "yy");
@@ -260,7 +271,7 @@ public class DefaultV7NavigatorTest {
 		// given
 		String page = "public/view2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 
 		// when
@@ -277,7 +288,7 @@ public class DefaultV7NavigatorTest {
 		String page1 = "";
 		String fragment1 = page1 + "/id=2/age=5";
 		when(sitemap.getRedirectFor(page1)).thenReturn("public");
-		when(sitemapURIConverter.nodeForUri("public/id=2/age=5", false)).thenReturn(mockNode);
+		resolve("public/id=2/age=5", mockNode);
 		mockNode.setViewClass(View1.class);
 
 		// when
@@ -308,7 +319,7 @@ public class DefaultV7NavigatorTest {
 		// given
 		String page = "public/view2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 		// when
 		navigator.navigateTo(page);
@@ -324,7 +335,7 @@ public class DefaultV7NavigatorTest {
 		String page = "public/view2";
 		String pageWithParams = "public/view2/id=1/age=2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(pageWithParams, false)).thenReturn(mockNode);
+		resolve(pageWithParams, mockNode);
 		mockNode.setViewClass(View2.class);
 		// when
 		navigator.navigateTo(pageWithParams);
@@ -338,10 +349,10 @@ public class DefaultV7NavigatorTest {
 
 		// given
 		String page = "public/view2";
-		mockNode = new SitemapNode(page, view2.getClass(), LabelKey.Cancel, Locale.UK, collator, translate);
+		mockNode = new SitemapNode(page, view2.getClass(), LabelKey.Cancel, Locale.UK, collator, null);
 		when(sitemap.uri(mockNode)).thenReturn(page);
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 
 		// when
@@ -358,13 +369,13 @@ public class DefaultV7NavigatorTest {
 		String page1 = "view1";
 		String fragment1 = page1 + "/id=1";
 		when(sitemap.getRedirectFor(page1)).thenReturn(page1);
-		when(sitemapURIConverter.nodeForUri(fragment1, false)).thenReturn(mockNode);
+		resolve(fragment1, mockNode);
 		mockNode.setViewClass(View1.class);
 
 		String page2 = "view2";
 		String fragment2 = page2 + "/id=2";
 		when(sitemap.getRedirectFor(page2)).thenReturn(page2);
-		when(sitemapURIConverter.nodeForUri(fragment2, false)).thenReturn(mockNode2);
+		resolve(fragment2, mockNode2);
 		mockNode2.setViewClass(View2.class);
 
 		// when
@@ -425,7 +436,7 @@ public class DefaultV7NavigatorTest {
 		// given
 		String page = "public/view2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 
 		// need to return true, or first listener will block the second
@@ -448,7 +459,7 @@ public class DefaultV7NavigatorTest {
 		// given
 		String page = "public/view2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
 		// to block second and subsequent
 		when(listener1.beforeViewChange(any(V7ViewChangeEvent.class))).thenReturn(false);
@@ -471,7 +482,7 @@ public class DefaultV7NavigatorTest {
 		String page2 = "private/transfers";
 
 		when(sitemap.getRedirectFor(page)).thenReturn(page2);
-		when(sitemapURIConverter.nodeForUri(page2, false)).thenReturn(mockNode);
+		resolve(page2, mockNode);
 		mockNode.setViewClass(View2.class);
 		// when
 		navigator.navigateTo(page);
@@ -479,15 +490,59 @@ public class DefaultV7NavigatorTest {
 		assertThat(navigator.getNavigationState()).isEqualTo(page2);
 	}
 
+	@Test
+	public void redirection_withParameters() {
+
+		// given
+		String page = "wiggly";
+		String page2 = "private/transfers";
+
+		when(sitemap.getRedirectFor(page)).thenReturn(page2);
+		resolve(page2 + "/id=2", mockNode);
+		mockNode.setViewClass(View2.class);
+		// when
+		navigator.navigateTo(page + "/id=2");
+		// then
+		assertThat(navigator.getNavigationState()).isEqualTo(page2 + "/id=2");
+	}
+
+	@Test
+	public void pathParameters() {
+
+		// given
+		String page = "public/customers/23/orders";
+		when(sitemap.getRedirectFor(page)).thenReturn(page);
+		when(sitemapURIConverter.nodeFor(eq(sitemap), eq(uriHandler.parse(page)), anyMap())).thenAnswer(
+				new Answer<SitemapNode>() {
+
+					@Override
+					public SitemapNode answer(InvocationOnMock invocation) throws Throwable {
+						@SuppressWarnings("unchecked")
+						Map<String, String> pathParameters = (Map<String, String>) invocation.getArguments()[2];
+						pathParameters.put("id", "23");
+						return mockNode;
+					}
+				});
+		mockNode.setViewClass(View2.class);
+		when(listener1.beforeViewChange(any(V7ViewChangeEvent.class))).thenReturn(true);
+		navigator.addViewChangeListener(listener1);
+		ArgumentCaptor<V7ViewChangeEvent> event = ArgumentCaptor.forClass(V7ViewChangeEvent.class);
+		// when
+		navigator.navigateTo(page);
+		// then
+		verify(listener1).afterViewChange(event.capture());
+		assertThat(event.getValue().getPathParameter("id")).isEqualTo("23");
+	}
+
 	@Test(expected = AuthorizationException.class)
 	public void privatePage() {
 
 		// given
 		String page = "public/view2";
 		when(sitemap.getRedirectFor(page)).thenReturn(page);
-		when(sitemapURIConverter.nodeForUri(page, false)).thenReturn(mockNode);
+		resolve(page, mockNode);
 		mockNode.setViewClass(View2.class);
-		when(sitemapURIConverter.pageIsPublic(anyString())).thenReturn(false);
+		when(sitemapURIConverter.pageIsPublic(any(Sitemap.class), any(SitemapNode.class))).thenReturn(false);
 		// when
 		navigator.navigateTo(page);
 		// then
@@ -506,4 +561,87 @@ public class DefaultV7NavigatorTest {
 		assertThat(navigator.getCurrentView()).isInstanceOf(ErrorView.class);
 
 	}
+
+	@Test
+	public void navigateTo_cachedView() {
+
+		// given
+		String page1 = "public/view1";
+		String page2 = "public/view2";
+		String page3 = "public/view2/id=3";
+		when(sitemap.getRedirectFor(page1)).thenReturn(page1);
+		when(sitemap.getRedirectFor(page2)).thenReturn(page2);
+		resolve(page1, mockNode);
+		resolve(page2, mockNode2);
+		resolve(page3, mockNode2);
+		mockNode.setViewClass(View1.class);
+		mockNode2.setViewClass(View2.class);
+
+		// when
+		navigator.navigateTo(page2);
+		navigator.navigateTo(page1);
+		navigator.navigateTo(page3);
+		// then
+		assertThat(navigator.getCurrentView()).isEqualTo(view2);
+		verify(injector, times(1)).getInstance(View2.class);
+		verify(view2, times(2)).enter(any(V7ViewChangeEvent.class));
+		assertThat(navigator.getViewCache().getHits()).isEqualTo(1);
+		assertThat(navigator.getViewCache().getMisses()).isEqualTo(2);
+
+		// when
+		navigator.loginStatusChange(false, subject);
+		navigator.navigateTo(page2);
+		// then
+		verify(injector, times(2)).getInstance(View2.class);
+	}
+
+	@Test
+	public void navigateTo_prefetch() {
+
+		// given
+		ViewPrefetcher prefetcher = mock(ViewPrefetcher.class);
+		notifyStage.setViewPrefetcher(prefetcher);
+		String page = "public/view2";
+		when(sitemap.getRedirectFor(page)).thenReturn(page);
+		resolve(page, mockNode);
+		mockNode.setViewClass(View2.class);
+		// when
+		navigator.navigateTo(page);
+		// then
+		verify(prefetcher).viewChanged(sitemap, mockNode, navigator.getViewCache(), scopedUI);
+	}
+
+	@Test
+	public void uriFragmentChanged_coalesced() {
+
+		// given
+		FragmentCoalescer coalescer = mock(FragmentCoalescer.class);
+		when(coalescer.isEnabled()).thenReturn(true);
+		navigator.setFragmentCoalescer(coalescer);
+		UriFragmentChangedEvent event = mock(UriFragmentChangedEvent.class);
+		when(event.getPage()).thenReturn(page);
+		when(page.getUriFragment()).thenReturn("public/view2");
+		// when
+		navigator.uriFragmentChanged(event);
+		// then
+		verify(coalescer).submit(scopedUI, navigator, "public/view2");
+		assertThat(navigator.getCurrentView()).isNull();
+
+		// when navigating directly
+		String page1 = "public/view1";
+		when(sitemap.getRedirectFor(page1)).thenReturn(page1);
+		resolve(page1, mockNode);
+		mockNode.setViewClass(View1.class);
+		navigator.navigateTo(page1);
+		// then
+		verify(coalescer).cancel();
+	}
+
+	/**
+	 * Stubs the converter to return {@code node} for {@code fragment}, as parsed by the navigator
+	 */
+	@SuppressWarnings("unchecked")
+	private void resolve(String fragment, SitemapNode node) {
+		when(sitemapURIConverter.nodeFor(eq(sitemap), eq(uriHandler.parse(fragment)), anyMap())).thenReturn(node);
+	}
 }
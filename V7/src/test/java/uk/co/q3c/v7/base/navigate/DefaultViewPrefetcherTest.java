@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.shiro.subject.Subject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.shiro.SubjectProvider;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+import uk.co.q3c.v7.base.ui.ScopedUI;
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
+import uk.co.q3c.v7.base.view.ViewCaching;
+import uk.co.q3c.v7.base.view.ViewCaching.Policy;
+
+import com.google.common.base.Ticker;
+import com.google.inject.Injector;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class DefaultViewPrefetcherTest {
+
+	static class TestView implements V7View {
+
+		@Override
+		public void enter(V7ViewChangeEvent event) {
+		}
+
+		@Override
+		public Component getRootComponent() {
+			return null;
+		}
+	}
+
+	@ViewCaching
+	static class View1 extends TestView {
+	}
+
+	@ViewCaching
+	static class View2 extends TestView {
+	}
+
+	@ViewCaching(Policy.NEVER)
+	static class View3 extends TestView {
+	}
+
+	/**
+	 * Runs each build immediately, on the calling thread
+	 */
+	static class InlineExecutor extends ViewPrefetchExecutor {
+		int tasks;
+
+		InlineExecutor() {
+			super(1, 1);
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			tasks++;
+			task.run();
+		}
+	}
+
+	@Mock
+	Injector injector;
+
+	@Mock
+	ScopedUI ui;
+
+	@Mock
+	SubjectProvider subjectProvider;
+
+	@Mock
+	Subject subject;
+
+	@Mock
+	URIPermissionFactory uriPermissionFactory;
+
+	@Mock
+	URIViewPermission permission;
+
+	InlineExecutor executor;
+	Sitemap sitemap;
+	ViewCache viewCache;
+	DefaultViewPrefetcher prefetcher;
+	View2 view2;
+
+	@Before
+	public void setup() {
+		sitemap = new Sitemap();
+		sitemap.append("public").setViewClass(View1.class);
+		sitemap.append("public/view2").setViewClass(View2.class);
+		sitemap.append("public/view3").setViewClass(View3.class);
+		sitemap.append("public/other");
+		sitemap.lock();
+		view2 = new View2();
+		when(injector.getInstance(View2.class)).thenReturn(view2);
+		doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				((Runnable) invocation.getArguments()[0]).run();
+				return null;
+			}
+		}).when(ui).accessSynchronously(any(Runnable.class));
+		when(subjectProvider.get()).thenReturn(subject);
+		when(uriPermissionFactory.createViewPermission("private")).thenReturn(permission);
+		executor = new InlineExecutor();
+		viewCache = new ViewCache(ViewCache.DEFAULT_SIZE, Ticker.systemTicker());
+		prefetcher = new DefaultViewPrefetcher(new SitemapAdjacencyPredictor(), executor, injector, subjectProvider,
+				uriPermissionFactory);
+	}
+
+	@Test
+	public void prefetch() {
+
+		// given
+
+		// when
+		prefetcher.viewChanged(sitemap, sitemap.nodeFor("public"), viewCache, ui);
+		// then
+		// View3 is never cached, and 'other' has no view
+		verify(injector).getInstance(View2.class);
+		verify(injector, never()).getInstance(View3.class);
+		assertThat(viewCache.get(View2.class)).isSameAs(view2);
+		assertThat(CurrentInstance.get(UI.class)).isNull();
+	}
+
+	@Test
+	public void alreadyCached() {
+
+		// given
+		viewCache.put(View2.class, view2);
+		// when
+		prefetcher.viewChanged(sitemap, sitemap.nodeFor("public"), viewCache, ui);
+		// then
+		verify(injector, never()).getInstance(View2.class);
+		assertThat(executor.tasks).isEqualTo(0);
+	}
+
+	@Test
+	public void clearedBeforeBuild() {
+
+		// given
+		final List<Runnable> tasks = new ArrayList<>();
+		ViewPrefetchExecutor deferred = new ViewPrefetchExecutor(1, 1) {
+			@Override
+			public void execute(Runnable task) {
+				tasks.add(task);
+			}
+		};
+		prefetcher = new DefaultViewPrefetcher(new SitemapAdjacencyPredictor(), deferred, injector, subjectProvider,
+				uriPermissionFactory);
+		prefetcher.viewChanged(sitemap, sitemap.nodeFor("public"), viewCache, ui);
+		// when
+		viewCache.clear();
+		tasks.get(0).run();
+		// then
+		verify(injector, never()).getInstance(View2.class);
+		assertThat(viewCache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void privateNotPermitted() {
+
+		// given
+		sitemap = new Sitemap();
+		sitemap.append("public").setViewClass(View1.class);
+		sitemap.append("private").setViewClass(View2.class);
+		sitemap.lock();
+		when(subject.isPermitted(permission)).thenReturn(false);
+		// when
+		prefetcher.viewChanged(sitemap, sitemap.nodeFor("public"), viewCache, ui);
+		// then
+		verify(injector, never()).getInstance(View2.class);
+		assertThat(executor.tasks).isEqualTo(0);
+
+		// when
+		when(subject.isPermitted(permission)).thenReturn(true);
+		prefetcher.viewChanged(sitemap, sitemap.nodeFor("public"), viewCache, ui);
+		// then
+		assertThat(viewCache.get(View2.class)).isSameAs(view2);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.vaadin.ui.UI;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class FragmentCoalescerTest {
+
+	@Mock
+	UI ui;
+
+	@Mock
+	V7Navigator navigator;
+
+	NavigationScheduler scheduler;
+	FragmentCoalescer coalescer;
+	final List<Runnable> accessed = new ArrayList<>();
+	boolean runAccess = true;
+
+	@Before
+	public void setup() {
+		scheduler = new NavigationScheduler();
+		coalescer = new FragmentCoalescer(200, scheduler);
+		when(ui.access(any(Runnable.class))).thenAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				Runnable task = (Runnable) invocation.getArguments()[0];
+				if (runAccess) {
+					task.run();
+				} else {
+					accessed.add(task);
+				}
+				return null;
+			}
+		});
+	}
+
+	@After
+	public void teardown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void burst() {
+
+		// given
+
+		// when
+		coalescer.submit(ui, navigator, "public/a");
+		coalescer.submit(ui, navigator, "public/b");
+		coalescer.submit(ui, navigator, "public/c");
+		// then
+		verify(navigator, timeout(2000)).navigateTo("public/c");
+		verify(navigator, never()).navigateTo("public/a");
+		verify(navigator, never()).navigateTo("public/b");
+		assertThat(coalescer.getCoalesced()).isEqualTo(2);
+	}
+
+	@Test
+	public void supersededWhileWaitingForUI() {
+
+		// given
+		runAccess = false;
+		coalescer.submit(ui, navigator, "public/a");
+		verify(ui, timeout(2000)).access(any(Runnable.class));
+		// when
+		coalescer.submit(ui, navigator, "public/b");
+		accessed.get(0).run();
+		// then
+		verify(navigator, never()).navigateTo("public/a");
+		assertThat(coalescer.getCoalesced()).isEqualTo(1);
+	}
+
+	@Test
+	public void cancel() throws InterruptedException {
+
+		// given
+		coalescer.submit(ui, navigator, "public/a");
+		// when
+		coalescer.cancel();
+		Thread.sleep(400);
+		// then
+		verify(ui, never()).access(any(Runnable.class));
+		assertThat(coalescer.getCoalesced()).isEqualTo(1);
+	}
+
+	@Test
+	public void disabled() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(coalescer.isEnabled()).isTrue();
+		assertThat(new FragmentCoalescer(0, scheduler).isEnabled()).isFalse();
+	}
+
+}
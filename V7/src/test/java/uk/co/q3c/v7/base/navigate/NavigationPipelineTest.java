@@ -0,0 +1,82 @@
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import com.google.common.collect.ImmutableList;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class NavigationPipelineTest {
+
+	@Mock
+	NavigationStage stage1;
+
+	@Mock
+	NavigationStage stage2;
+
+	@Mock
+	NavigationStage stage3;
+
+	@Mock
+	Navigation navigation;
+
+	NavigationPipeline pipeline;
+
+	@Before
+	public void setup() {
+		pipeline = new NavigationPipeline(ImmutableList.of(stage1, stage2), ImmutableList.of(stage3));
+	}
+
+	@Test
+	public void navigate() {
+
+		// given
+		when(stage1.process(navigation)).thenReturn(true);
+		when(stage2.process(navigation)).thenReturn(true);
+		when(stage3.process(navigation)).thenReturn(true);
+		// when
+		boolean result = pipeline.navigate(navigation);
+		// then
+		assertThat(result).isTrue();
+		verify(stage1).process(navigation);
+		verify(stage2).process(navigation);
+		verify(stage3).process(navigation);
+		assertThat(pipeline.getStages()).containsExactly(stage1, stage2, stage3);
+	}
+
+	@Test
+	public void navigate_stageEndsNavigation() {
+
+		// given
+		when(stage1.process(navigation)).thenReturn(false);
+		// when
+		boolean result = pipeline.navigate(navigation);
+		// then
+		assertThat(result).isFalse();
+		verify(stage2, never()).process(navigation);
+		verify(stage3, never()).process(navigation);
+	}
+
+	@Test
+	public void display() {
+
+		// given
+		when(stage3.process(navigation)).thenReturn(true);
+		// when
+		boolean result = pipeline.display(navigation);
+		// then
+		assertThat(result).isTrue();
+		verify(stage1, never()).process(navigation);
+		verify(stage2, never()).process(navigation);
+		verify(stage3).process(navigation);
+	}
+
+}
@@ -0,0 +1,102 @@
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParsedFragmentTest {
+
+	StrictURIFragmentHandler handler;
+
+	@Before
+	public void setup() {
+		handler = new StrictURIFragmentHandler();
+	}
+
+	@Test
+	public void parse() {
+
+		// given
+
+		// when
+		ParsedFragment fragment = handler.parse("!view1/subView/a=b/year=1970/");
+		// then
+		assertThat(fragment.getFragment()).isEqualTo("view1/subView/a=b/year=1970");
+		assertThat(fragment.getVirtualPage()).isEqualTo("view1/subView");
+		assertThat(fragment.getPathSegments()).containsOnly("view1", "subView");
+		assertThat(fragment.parameterValue("a")).isEqualTo("b");
+		assertThat(fragment.parameterValue("year")).isEqualTo("1970");
+		assertThat(fragment.parameterList()).containsOnly("a=b", "year=1970");
+	}
+
+	@Test
+	public void parse_null() {
+
+		// given
+
+		// when
+		ParsedFragment fragment = handler.parse(null);
+		// then
+		assertThat(fragment.getFragment()).isEmpty();
+		assertThat(fragment.getVirtualPage()).isEmpty();
+		assertThat(fragment.getParameters()).isEmpty();
+	}
+
+	@Test
+	public void parse_sameAsHandler() {
+
+		// given
+		String fragment = "view1/a=b/=1970/c";
+		handler.setFragment(fragment);
+		// when
+		ParsedFragment parsed = handler.parse(fragment);
+		// then
+		assertThat(parsed.getVirtualPage()).isEqualTo(handler.virtualPage());
+		assertThat(parsed.parameterList()).isEqualTo(handler.parameterList());
+	}
+
+	@Test
+	public void equality_ignoresParameterOrder() {
+
+		// given
+
+		// when
+		ParsedFragment fragment1 = handler.parse("view1/a=b/year=1970");
+		ParsedFragment fragment2 = handler.parse("view1/year=1970/a=b");
+		// then
+		assertThat(fragment1).isEqualTo(fragment2);
+		assertThat(fragment1.hashCode()).isEqualTo(fragment2.hashCode());
+		assertThat(fragment1).isNotEqualTo(handler.parse("view1/a=c/year=1970"));
+	}
+
+	@Test
+	public void withVirtualPage() {
+
+		// given
+		ParsedFragment fragment = handler.parse("wiggly/id=2/age=5");
+		// when
+		ParsedFragment redirected = fragment.withVirtualPage("private/transfers");
+		// then
+		assertThat(redirected.getFragment()).isEqualTo("private/transfers/id=2/age=5");
+		assertThat(redirected.getVirtualPage()).isEqualTo("private/transfers");
+		assertThat(redirected.getParameters()).isEqualTo(fragment.getParameters());
+		assertThat(fragment.getFragment()).isEqualTo("wiggly/id=2/age=5");
+	}
+
+	@Test
+	public void withVirtualPage_fromAndToHome() {
+
+		// given
+		ParsedFragment home = handler.parse("/id=2/age=5");
+		ParsedFragment page = handler.parse("public/id=2");
+		// when
+		ParsedFragment fromHome = home.withVirtualPage("public");
+		ParsedFragment toHome = page.withVirtualPage("");
+		// then
+		assertThat(fromHome.getFragment()).isEqualTo("public/id=2/age=5");
+		assertThat(toHome.getFragment()).isEqualTo("id=2");
+		assertThat(toHome.getVirtualPage()).isEmpty();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapURIConverter;
+import uk.co.q3c.v7.base.navigate.sitemap.TenantSitemap;
+
+public class ResolutionCacheTest {
+
+	StrictURIFragmentHandler uriHandler;
+	SitemapURIConverter converter;
+	ResolutionCache cache;
+
+	@Before
+	public void setup() {
+		uriHandler = new StrictURIFragmentHandler();
+		// the methods used by the cache do not use the state of the converter
+		converter = mock(SitemapURIConverter.class, CALLS_REAL_METHODS);
+		cache = new ResolutionCache(2, converter);
+	}
+
+	@Test
+	public void resolve() {
+
+		// given
+		Sitemap sitemap = sitemap();
+		// when
+		PageResolution resolution = cache.resolve(sitemap, uriHandler.parse("wiggly/id=2"));
+		// then
+		assertThat(resolution.getVirtualPage()).isEqualTo("public/a");
+		assertThat(resolution.isFound()).isTrue();
+		assertThat(resolution.getNode()).isEqualTo(sitemap.nodeFor("public/a"));
+		assertThat(resolution.getNodeChain()).containsExactly(sitemap.nodeFor("public"), sitemap.nodeFor("public/a"));
+		assertThat(resolution.isPublicPage()).isTrue();
+		assertThat(cache.resolve(sitemap, uriHandler.parse("private")).isPublicPage()).isFalse();
+	}
+
+	@Test
+	public void resolve_notFound() {
+
+		// given
+		Sitemap sitemap = sitemap();
+		// when
+		PageResolution resolution = cache.resolve(sitemap, uriHandler.parse("public/x"));
+		// then
+		assertThat(resolution.isFound()).isFalse();
+		assertThat(resolution.getNodeChain()).isEmpty();
+		assertThat(resolution.isPublicPage()).isFalse();
+	}
+
+	@Test
+	public void hitsMissesAndEvictions() {
+
+		// given
+		Sitemap sitemap = sitemap();
+		// when
+		PageResolution resolution = cache.resolve(sitemap, uriHandler.parse("public/a/id=1"));
+		// then the parameters are not part of the key
+		assertThat(cache.resolve(sitemap, uriHandler.parse("public/a/id=2"))).isSameAs(resolution);
+		assertThat(cache.getStats().hitCount()).isEqualTo(1);
+		assertThat(cache.getStats().missCount()).isEqualTo(1);
+
+		// when
+		cache.resolve(sitemap, uriHandler.parse("public"));
+		cache.resolve(sitemap, uriHandler.parse("private"));
+		// then
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.getStats().evictionCount()).isEqualTo(1);
+		verify(converter, times(3)).pageIsPublic(eq(sitemap), any(SitemapNode.class));
+	}
+
+	@Test
+	public void newSitemap() {
+
+		// given
+		Sitemap sitemap = sitemap();
+		PageResolution resolution = cache.resolve(sitemap, uriHandler.parse("public/a"));
+		Sitemap newSitemap = sitemap();
+		// when
+		PageResolution newResolution = cache.resolve(newSitemap, uriHandler.parse("public/a"));
+		// then
+		assertThat(newResolution).isNotSameAs(resolution);
+		assertThat(newResolution.getNode()).isEqualTo(newSitemap.nodeFor("public/a"));
+		assertThat(cache.resolve(sitemap, uriHandler.parse("public/a"))).isSameAs(resolution);
+		assertThat(cache.resolve(newSitemap, uriHandler.parse("public/a"))).isSameAs(newResolution);
+		assertThat(cache.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void tenantsOverSameBase() {
+
+		// given
+		Sitemap base = sitemap();
+		TenantSitemap tenant = new TenantSitemap("acme", base);
+		tenant.hide("public/a");
+		tenant.lock();
+		TenantSitemap other = new TenantSitemap("other", base);
+		other.lock();
+		// when
+		PageResolution otherResolution = cache.resolve(other, uriHandler.parse("public/a"));
+		PageResolution tenantResolution = cache.resolve(tenant, uriHandler.parse("public/a"));
+		// then
+		assertThat(otherResolution.isFound()).isTrue();
+		assertThat(otherResolution.getNode()).isEqualTo(base.nodeFor("public/a"));
+		assertThat(tenantResolution.isFound()).isFalse();
+		assertThat(cache.resolve(other, uriHandler.parse("public/a"))).isSameAs(otherResolution);
+		assertThat(cache.resolve(tenant, uriHandler.parse("public/a"))).isSameAs(tenantResolution);
+	}
+
+	@Test
+	public void unlockedSitemap_notCached() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.append("public/a");
+		// when
+		cache.resolve(sitemap, uriHandler.parse("public/a"));
+		// then
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	private Sitemap sitemap() {
+		Sitemap sitemap = new Sitemap();
+		sitemap.append("public/a");
+		sitemap.append("private");
+		sitemap.setPublicRoot("public");
+		sitemap.setPrivateRoot("private");
+		sitemap.addRedirect("wiggly", "public/a");
+		sitemap.lock();
+		return sitemap;
+	}
+}
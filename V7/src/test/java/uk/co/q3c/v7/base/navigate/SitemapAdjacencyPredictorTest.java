@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+
+public class SitemapAdjacencyPredictorTest {
+
+	Sitemap sitemap;
+	SitemapAdjacencyPredictor predictor;
+
+	@Before
+	public void setup() {
+		sitemap = new Sitemap();
+		sitemap.append("public/a");
+		sitemap.append("public/a/a1");
+		sitemap.append("public/a/a2");
+		sitemap.append("public/b");
+		sitemap.append("public/c");
+		sitemap.append("private");
+		sitemap.lock();
+		predictor = new SitemapAdjacencyPredictor();
+	}
+
+	@Test
+	public void childrenThenSiblings() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(predictor.predict(sitemap, "public/a", 10)).containsExactly("public/a/a1", "public/a/a2",
+				"public/b", "public/c");
+		assertThat(predictor.predict(sitemap, "public/a", 3)).containsExactly("public/a/a1", "public/a/a2",
+				"public/b");
+		assertThat(predictor.predict(sitemap, "public/a/a2", 10)).containsExactly("public/a/a1");
+	}
+
+	@Test
+	public void roots() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(predictor.predict(sitemap, "private", 10)).containsExactly("public");
+	}
+
+	@Test
+	public void unknownPage() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(predictor.predict(sitemap, "wiggly", 10)).isEmpty();
+	}
+}
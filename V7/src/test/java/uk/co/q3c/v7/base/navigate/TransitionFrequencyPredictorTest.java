@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+
+public class TransitionFrequencyPredictorTest {
+
+	Sitemap sitemap;
+	TransitionFrequencyPredictor predictor;
+
+	@Before
+	public void setup() {
+		sitemap = new Sitemap();
+		sitemap.append("public/a");
+		sitemap.append("public/a/a1");
+		sitemap.append("public/b");
+		sitemap.append("public/c");
+		sitemap.lock();
+		predictor = new TransitionFrequencyPredictor(new SitemapAdjacencyPredictor());
+	}
+
+	@Test
+	public void mostFrequentFirst() {
+
+		// given
+		predictor.transition("public/a", "public/c");
+		predictor.transition("public/a", "public/b");
+		predictor.transition("public/a", "public/c");
+		// when
+
+		// then
+		assertThat(predictor.count("public/a", "public/c")).isEqualTo(2);
+		assertThat(predictor.predict(sitemap, "public/a", 2)).containsExactly("public/c", "public/b");
+	}
+
+	@Test
+	public void completedByAdjacency() {
+
+		// given
+		predictor.transition("public/a", "public/c");
+		// when
+
+		// then
+		assertThat(predictor.predict(sitemap, "public/a", 3)).containsExactly("public/c", "public/a/a1", "public/b");
+	}
+
+	@Test
+	public void ignored() {
+
+		// given
+		predictor.transition(null, "public/a");
+		predictor.transition("public/a", "public/a");
+		predictor.transition("public/a", "public/gone");
+		// when
+
+		// then
+		assertThat(predictor.count("public/a", "public/a")).isEqualTo(0);
+		assertThat(predictor.predict(sitemap, "public/a", 3)).containsExactly("public/a/a1", "public/b", "public/c");
+	}
+}
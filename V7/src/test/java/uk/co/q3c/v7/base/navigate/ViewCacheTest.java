@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.co.q3c.v7.base.view.V7View;
+import uk.co.q3c.v7.base.view.V7ViewChangeEvent;
+import uk.co.q3c.v7.base.view.ViewCaching;
+import uk.co.q3c.v7.base.view.ViewCaching.Policy;
+
+import com.google.common.base.Ticker;
+import com.vaadin.ui.Component;
+
+public class ViewCacheTest {
+
+	static class TestView implements V7View {
+
+		@Override
+		public void enter(V7ViewChangeEvent event) {
+		}
+
+		@Override
+		public Component getRootComponent() {
+			return null;
+		}
+	}
+
+	@ViewCaching
+	static class View1 extends TestView {
+	}
+
+	@ViewCaching
+	static class View2 extends TestView {
+	}
+
+	@ViewCaching
+	static class View3 extends TestView {
+	}
+
+	static class UnannotatedView extends TestView {
+	}
+
+	@ViewCaching(Policy.ALWAYS)
+	static class AlwaysView extends TestView {
+	}
+
+	@ViewCaching(Policy.NEVER)
+	static class NeverView extends TestView {
+	}
+
+	@ViewCaching(value = Policy.TTL, ttl = 10)
+	static class TtlView extends TestView {
+	}
+
+	static class TestTicker extends Ticker {
+		long time;
+
+		@Override
+		public long read() {
+			return time;
+		}
+	}
+
+	TestTicker ticker;
+	ViewCache cache;
+
+	@Before
+	public void setup() {
+		ticker = new TestTicker();
+		cache = new ViewCache(2, ticker);
+	}
+
+	@Test
+	public void lru() {
+
+		// given
+		V7View view1 = new View1();
+		V7View view2 = new View2();
+		cache.put(View1.class, view1);
+		cache.put(View2.class, view2);
+		// when
+		cache.get(View1.class);
+		cache.put(View3.class, new View3());
+		// then
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get(View1.class)).isSameAs(view1);
+		assertThat(cache.get(View2.class)).isNull();
+		assertThat(cache.get(View3.class)).isNotNull();
+		assertThat(cache.getHits()).isEqualTo(3);
+		assertThat(cache.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	public void always() {
+
+		// given
+		V7View view = new AlwaysView();
+		// when
+		cache.put(AlwaysView.class, view);
+		cache.put(View1.class, new View1());
+		cache.put(View2.class, new View2());
+		cache.put(View3.class, new View3());
+		// then
+		assertThat(cache.size()).isEqualTo(3);
+		assertThat(cache.get(AlwaysView.class)).isSameAs(view);
+	}
+
+	@Test
+	public void unannotated() {
+
+		// given
+
+		// when
+		cache.put(UnannotatedView.class, new UnannotatedView());
+		// then
+		assertThat(cache.wouldCache(UnannotatedView.class)).isFalse();
+		assertThat(cache.get(UnannotatedView.class)).isNull();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void never() {
+
+		// given
+
+		// when
+		cache.put(NeverView.class, new NeverView());
+		// then
+		assertThat(cache.get(NeverView.class)).isNull();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void ttl() {
+
+		// given
+		V7View view = new TtlView();
+		cache.put(TtlView.class, view);
+		// when
+		ticker.time = TimeUnit.SECONDS.toNanos(9);
+		// then
+		assertThat(cache.get(TtlView.class)).isSameAs(view);
+
+		// when
+		ticker.time = TimeUnit.SECONDS.toNanos(10);
+		// then
+		assertThat(cache.get(TtlView.class)).isNull();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void sizeZero() {
+
+		// given
+		cache = new ViewCache(0, ticker);
+		// when
+		cache.put(View1.class, new View1());
+		cache.put(AlwaysView.class, new AlwaysView());
+		// then
+		assertThat(cache.get(View1.class)).isNull();
+		assertThat(cache.get(AlwaysView.class)).isNotNull();
+	}
+
+	@Test
+	public void clear() {
+
+		// given
+		cache.put(View1.class, new View1());
+		cache.put(AlwaysView.class, new AlwaysView());
+		// when
+		cache.clear();
+		// then
+		assertThat(cache.size()).isEqualTo(0);
+	}
+}
@@ -16,6 +16,7 @@ import static org.fest.assertions.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -375,6 +376,123 @@ public class DefaultSitemapFileReaderTest {
 
 	}
 
+	@Test
+	public void viewAmbiguous() throws IOException {
+
+		// given
+		insertAfter("uk.co.q3c.v7.base.view.testviews", "fixture.testviews3");
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.getViewPackages()).containsOnly("fixture.testviews2", "uk.co.q3c.v7.base.view.testviews",
+				"fixture.testviews3");
+		assertThat(reader.getInvalidViewClasses()).containsOnly();
+		assertThat(reader.getUndeclaredViewClasses()).containsOnly();
+		assertThat(reader.getAmbiguousViewClasses()).containsOnly(
+				"subview.TransferView (using " + TransferView.class.getName()
+						+ ", ignoring fixture.testviews3.subview.TransferView)");
+		assertThat(reader.getSitemap().nodeFor("private/transfers").getViewClass()).isEqualTo(TransferView.class);
+		assertThat(reader.getSitemap().hasErrors()).isFalse();
+		assertThat(reader.buildReport(new StringBuilder()).toString()).contains("ambiguous view classes");
+
+	}
+
+	/**
+	 * The map section is held until the end of the file, so it can come before the sections it depends on
+	 */
+	@Test
+	public void parse_mapBeforeOptions() throws IOException {
+
+		// given
+		int mapStart = lines.indexOf("[map]");
+		int mapEnd = lines.indexOf("#This section is optional, but can be used to change the default standard page mappings");
+		List<String> mapSection = new ArrayList<>(lines.subList(mapStart, mapEnd));
+		lines.subList(mapStart, mapEnd).clear();
+		lines.addAll(0, mapSection);
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.missingSections()).containsOnly();
+		assertThat(reader.getPagesDefined()).isEqualTo(PAGE_COUNT);
+		assertThat(reader.getSitemap().hasErrors()).isFalse();
+		assertThat(reader.getSitemap().nodeFor("private/transfers").getViewClass()).isEqualTo(TransferView.class);
+	}
+
+	/**
+	 * The map is not applied to the Sitemap if a section after it is missing
+	 */
+	@Test
+	public void parse_sectionAfterMapMissing() throws IOException {
+
+		// given
+		substitute("[standardPageMapping]", "[standardPageMappings]");
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.missingSections()).containsOnly("standardPageMapping");
+		assertThat(reader.getPagesDefined()).isEqualTo(0);
+		assertThat(reader.getSitemap().getNodeCount()).isEqualTo(0);
+		assertThat(reader.getSitemap().hasErrors()).isTrue();
+	}
+
+	/**
+	 * Malformed input is replaced rather than failing the whole parse
+	 */
+	@Test
+	public void parse_malformedCharacter() throws IOException {
+
+		// given
+		prepFile();
+		byte[] original = FileUtils.readFileToByteArray(modifiedFile);
+		byte[] comment = "#caf\u00e9\n".getBytes("ISO-8859-1");
+		byte[] content = new byte[comment.length + original.length];
+		System.arraycopy(comment, 0, content, 0, comment.length);
+		System.arraycopy(original, 0, content, comment.length, original.length);
+		FileUtils.writeByteArrayToFile(modifiedFile, content);
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.missingSections()).containsOnly();
+		assertThat(reader.getPagesDefined()).isEqualTo(PAGE_COUNT);
+		assertThat(reader.getCommentLines()).isEqualTo(COMMENT_LINES + 1);
+	}
+
+	@Test
+	public void syntaxError_fileLineNumber() throws IOException {
+
+		// given
+		substitute("--transfers     : subview.Transfer", "transfers     : subview.Transfer");
+		int lineNumber = lines.indexOf("transfers     : subview.Transfer") + 1;
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.getSyntaxErrors()).containsOnly(MapLineReader.NO_HYPHEN + lineNumber);
+	}
+
+	@Test
+	public void parse_largeMap() throws IOException {
+
+		// given
+		int pages = 5000;
+		int index = lines.indexOf("--options                                 ~ Opt");
+		List<String> extra = new ArrayList<>();
+		for (int i = 0; i < pages; i++) {
+			extra.add("--page" + i + " : subview.Transfer ~ Transfers");
+		}
+		lines.addAll(index + 1, extra);
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+		// then
+		assertThat(reader.getPagesDefined()).isEqualTo(PAGE_COUNT + pages);
+		assertThat(reader.getSitemap().hasErrors()).isFalse();
+		assertThat(reader.getSitemap().nodeFor("private/page4999").getViewClass()).isEqualTo(TransferView.class);
+	}
+
 	/**
 	 * Tries to go out of structure by double indenting from previous
 	 * 
@@ -535,11 +653,26 @@ public class DefaultSitemapFileReaderTest {
 		reader.parse(modifiedFile, true);
 
 		// then
-		assertThat(reader.getRedirectErrors()).contains("'' cannot be both a redirect source and redirect target");
+		assertThat(reader.getRedirectErrors()).contains("Redirect loop: '' -> 'public' -> ''");
 		assertThat(reader.getSitemap().hasErrors()).isTrue();
 
 	}
 
+	@Test
+	public void redirectChain() throws IOException {
+
+		// given
+		insertAfter("       : public", "old : ");
+		prepFile();
+		// when
+		reader.parse(modifiedFile, true);
+
+		// then
+		assertThat(reader.getRedirectErrors()).isEmpty();
+		assertThat(reader.getSitemap().getRedirectFor("old")).isEqualTo("public");
+
+	}
+
 	@Test
 	public void rootsChange() throws IOException {
 
@@ -36,18 +36,21 @@ import uk.co.q3c.v7.base.config.ApplicationConfigurationModule;
 import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
 import uk.co.q3c.v7.base.config.ConfigKeys;
 import uk.co.q3c.v7.base.services.ServicesMonitorModule;
+import uk.co.q3c.v7.base.view.testviews.subview.TransferView;
 import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
 import uk.co.q3c.v7.i18n.DescriptionKey;
 import uk.co.q3c.v7.i18n.I18NTranslator;
 import uk.co.q3c.v7.i18n.LabelKey;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.multibindings.Multibinder;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.mycila.testing.plugin.guice.ModuleProvider;
 import com.vaadin.server.VaadinService;
 
 import fixture.TestConfigurationException;
+import fixture.annotatedviews.AnnotatedHomeView;
 
 /**
  * This test injects the {@link DefaultSitemapService}. The other test suite, {@link DefaultSitemapServiceTest2}
@@ -76,7 +79,7 @@ public class DefaultSitemapServiceTest {
 	ApplicationConfigurationService configService;
 
 	@Inject
-	Sitemap sitemap;
+	SitemapCompiler compiler;
 
 	HierarchicalINIConfiguration iniConfig;
 
@@ -107,10 +110,158 @@ public class DefaultSitemapServiceTest {
 		// then
 		assertThat(service.getReport()).isNotNull();
 		assertThat(service.isStarted()).isTrue();
-		assertThat(sitemap.getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().isLocked()).isTrue();
 		assertThat(service.getSources()).containsOnly("file");
 	}
 
+	@Test
+	public void restart_publishesNewSitemap() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		service.start();
+		Sitemap first = service.getSitemap();
+		// when
+		service.stop();
+		service.start();
+		// then
+		assertThat(service.getSitemap()).isNotSameAs(first);
+		assertThat(service.getSitemap().isLocked()).isTrue();
+		assertThat(first.getNodeCount()).isEqualTo(13);
+	}
+
+	@Test
+	public void start_compiledSource() throws Exception {
+
+		// given
+		File source = new File("src/test/java/uk/co/q3c/v7/base/navigate/sitemap_good.properties");
+		compiler.compile(source, new File(ResourceUtils.applicationBaseDirectory(), "sitemap.bin"));
+		iniConfig.setProperty(ConfigKeys.SOURCES_KEY, "compiled");
+		iniConfig.save();
+		// when
+		service.start();
+		// then
+		assertThat(service.getSources()).containsOnly("compiled");
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().isLocked()).isTrue();
+		assertThat(service.getReport().toString()).contains("13 pages");
+	}
+
+	@Test
+	public void start_annotationSource() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		iniConfig.setDelimiterParsingDisabled(true);
+		iniConfig.setProperty(ConfigKeys.SOURCES_KEY, new String[] { "file", "annotation" });
+		iniConfig.setDelimiterParsingDisabled(false);
+		iniConfig.save();
+		// when
+		service.start();
+		// then
+		assertThat(service.getSources()).containsOnly("file", "annotation");
+		Sitemap sitemap = service.getSitemap();
+		assertThat(sitemap.getNodeCount()).isEqualTo(16);
+		assertThat(sitemap.nodeFor("annotated").getViewClass()).isEqualTo(AnnotatedHomeView.class);
+		assertThat(service.getReport().toString()).contains("Annotation sitemap source loaded, 2 pages");
+	}
+
+	@Test
+	public void start_moduleSource() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		iniConfig.setDelimiterParsingDisabled(true);
+		iniConfig.setProperty(ConfigKeys.SOURCES_KEY, new String[] { "file", "module" });
+		iniConfig.setDelimiterParsingDisabled(false);
+		iniConfig.save();
+		// when
+		service.start();
+		// then
+		Sitemap sitemap = service.getSitemap();
+		assertThat(sitemap.getNodeCount()).isEqualTo(15);
+		assertThat(sitemap.nodeFor("private/accounts/transfers").getViewClass()).isEqualTo(TransferView.class);
+		assertThat(service.getReport().toString()).contains("Module sitemap source loaded, 2 pages from 1 contributions");
+	}
+
+	@Test
+	public void reload() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		service.start();
+		Sitemap first = service.getSitemap();
+		SitemapChangeListener listener = mock(SitemapChangeListener.class);
+		service.addChangeListener(listener);
+		modifySitemapProperties("--money-in-out  : subview.MoneyInOut      ~ MoneyInOut\n",
+				"--money-in-out  : subview.Transfer      ~ MoneyInOut\n--extra  : subview.MoneyInOut      ~ MoneyInOut\n");
+		// when
+		SitemapDiff diff = service.reload();
+		// then
+		assertThat(diff).isNotNull();
+		assertThat(diff.getAdded()).containsOnly("private/extra");
+		assertThat(diff.getRemoved()).isEmpty();
+		assertThat(diff.getChanged()).containsOnly("private/money-in-out");
+		assertThat(service.getSitemap()).isNotSameAs(first);
+		assertThat(service.getSitemap().isLocked()).isTrue();
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(14);
+		verify(listener).sitemapChanged(service.getSitemap(), diff);
+		assertThat(diff.getToVersion()).isEqualTo(service.getSitemap().getVersion());
+		assertThat(service.changesSince(first.getVersion()).getChanged()).containsOnly("private/money-in-out");
+		assertThat(service.changesSince(service.getSitemap().getVersion()).isEmpty()).isTrue();
+	}
+
+	@Test
+	public void reload_withErrors() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		service.start();
+		Sitemap first = service.getSitemap();
+		SitemapChangeListener listener = mock(SitemapChangeListener.class);
+		service.addChangeListener(listener);
+		modifySitemapProperties("[map]", "[mop]");
+		// when
+		SitemapDiff diff = service.reload();
+		// then
+		assertThat(diff).isNull();
+		assertThat(service.getSitemap()).isSameAs(first);
+		verifyZeroInteractions(listener);
+	}
+
+	@Test
+	public void watchFile() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		iniConfig.setProperty(ConfigKeys.FILE_WATCH, true);
+		iniConfig.save();
+		service.start();
+		Sitemap first = service.getSitemap();
+		assertThat(service.isWatchingFile()).isTrue();
+		// when
+		modifySitemapProperties("--options ", "--extra  : subview.Transfer      ~ MoneyInOut\n--options ");
+		// then
+		long timeout = System.currentTimeMillis() + 10000;
+		while ((service.getSitemap() == first) && (System.currentTimeMillis() < timeout)) {
+			Thread.sleep(100);
+		}
+		assertThat(service.getSitemap()).isNotSameAs(first);
+		assertThat(service.getSitemap().hasUri("private/extra")).isTrue();
+	}
+
+	@Test
+	public void watchFile_notConfigured() throws Exception {
+
+		// given
+		copySitemapPropertiesToTemp();
+		// when
+		service.start();
+		// then
+		assertThat(service.isWatchingFile()).isFalse();
+	}
+
 	@Test
 	public void nameAndDescription() {
 
@@ -138,7 +289,7 @@ public class DefaultSitemapServiceTest {
 		// then
 		assertThat(service.getReport()).isNotNull();
 		assertThat(service.isStarted()).isTrue();
-		assertThat(sitemap.getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(13);
 		assertThat(service.getSources()).containsOnly("file");
 	}
 
@@ -161,7 +312,7 @@ public class DefaultSitemapServiceTest {
 		// then
 		assertThat(service.getReport()).isNotNull();
 		assertThat(service.isStarted()).isTrue();
-		assertThat(sitemap.getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(13);
 		assertThat(service.getSources()).containsOnly("file");
 	}
 
@@ -181,7 +332,7 @@ public class DefaultSitemapServiceTest {
 		// then
 		assertThat(service.getReport()).isNotNull();
 		assertThat(service.isStarted()).isTrue();
-		assertThat(sitemap.getNodeCount()).isEqualTo(13);
+		assertThat(service.getSitemap().getNodeCount()).isEqualTo(13);
 	}
 
 	@Test
@@ -250,11 +401,19 @@ public class DefaultSitemapServiceTest {
 			protected void configure() {
 				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
 				bind(SitemapFileReader.class).to(DefaultSitemapFileReader.class);
+				Multibinder.newSetBinder(binder(), SitemapContribution.class).addBinding()
+						.to(ModuleSitemapLoaderTest.AccountsContribution.class);
 			}
 
 		};
 	}
 
+	private void modifySitemapProperties(String target, String replacement) throws IOException {
+		File file = new File(ResourceUtils.applicationBaseDirectory(), "sitemap.properties");
+		String content = FileUtils.readFileToString(file);
+		FileUtils.writeStringToFile(file, content.replace(target, replacement));
+	}
+
 	/**
 	 * Copies a 'good' version of sitemap.properties to the
 	 */
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.v7.base.view.testviews.subview.MoneyInOutView;
+import uk.co.q3c.v7.base.view.testviews.subview.TransferView;
+import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
+import uk.co.q3c.v7.i18n.I18NTranslator;
+import uk.co.q3c.v7.i18n.TestLabelKey;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.multibindings.Multibinder;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.mycila.testing.plugin.guice.ModuleProvider;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class ModuleSitemapLoaderTest {
+
+	public static class AccountsContribution implements SitemapContribution {
+
+		@Override
+		public String getName() {
+			return "accounts";
+		}
+
+		@Override
+		public List<SitemapEntry> entries() {
+			return Arrays.asList(new SitemapEntry("private/accounts", MoneyInOutView.class, TestLabelKey.MoneyInOut),
+					new SitemapEntry("private/accounts/transfers", TransferView.class, TestLabelKey.Transfers));
+		}
+	}
+
+	public static class PaymentsContribution implements SitemapContribution {
+
+		@Override
+		public String getName() {
+			return "payments";
+		}
+
+		@Override
+		public List<SitemapEntry> entries() {
+			return Arrays.asList(new SitemapEntry("private/payments", MoneyInOutView.class, TestLabelKey.MoneyInOut),
+					new SitemapEntry("private/accounts/transfers", MoneyInOutView.class, TestLabelKey.Transfers));
+		}
+	}
+
+	public static class FailingContribution implements SitemapContribution {
+
+		@Override
+		public String getName() {
+			return "failing";
+		}
+
+		@Override
+		public List<SitemapEntry> entries() {
+			throw new IllegalStateException("wiggly");
+		}
+	}
+
+	@Inject
+	ModuleSitemapLoader loader;
+
+	@Test
+	public void load_merged() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		StringBuilder report = new StringBuilder();
+		// when
+		int loaded = loader.load(sitemap, true, report);
+		// then
+		assertThat(loaded).isEqualTo(3);
+		assertThat(sitemap.uris()).containsOnly("private", "private/accounts", "private/accounts/transfers",
+				"private/payments");
+		assertThat(sitemap.nodeFor("private/accounts/transfers").getViewClass()).isEqualTo(TransferView.class);
+		assertThat(report.toString()).contains(
+				"URI private/accounts/transfers from contribution 'payments' conflicts with contribution 'accounts'");
+		assertThat(report.toString()).contains("Contribution 'failing' failed: java.lang.IllegalStateException: wiggly");
+		assertThat(report.toString()).contains("3 pages from 2 contributions");
+		assertThat(sitemap.getErrors()).isEqualTo(1);
+	}
+
+	@Test
+	public void load_notFirstLoad_existingUriKept() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode existing = sitemap.append("private/payments");
+		StringBuilder report = new StringBuilder();
+		// when
+		int loaded = loader.load(sitemap, false, report);
+		// then
+		assertThat(loaded).isEqualTo(2);
+		assertThat(sitemap.nodeFor("private/payments")).isSameAs(existing);
+		assertThat(existing.getViewClass()).isNull();
+	}
+
+	@Test
+	public void load_noMultibinder() {
+
+		// given
+		ModuleSitemapLoader unboundLoader = Guice.createInjector(new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
+			}
+		}).getInstance(ModuleSitemapLoader.class);
+		Sitemap sitemap = new Sitemap();
+		StringBuilder report = new StringBuilder();
+		// when
+		int loaded = unboundLoader.load(sitemap, true, report);
+		// then
+		assertThat(loaded).isEqualTo(0);
+		assertThat(sitemap.getNodeCount()).isEqualTo(0);
+	}
+
+	@ModuleProvider
+	protected AbstractModule module() {
+		return new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
+				Multibinder<SitemapContribution> contributions = Multibinder.newSetBinder(binder(),
+						SitemapContribution.class);
+				contributions.addBinding().to(PaymentsContribution.class);
+				contributions.addBinding().to(AccountsContribution.class);
+				contributions.addBinding().to(FailingContribution.class);
+			}
+
+		};
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RedirectEngineTest {
+
+	Map<String, String> redirects = new LinkedHashMap<>();
+
+	@Test
+	public void exact() {
+
+		// given
+		redirects.put("home", "public/home");
+		String page = "wiggly";
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.redirect("home")).isEqualTo("public/home");
+		assertThat(engine.redirect(page)).isSameAs(page);
+		assertThat(engine.getErrors()).isEmpty();
+	}
+
+	@Test
+	public void prefix() {
+
+		// given
+		redirects.put("legacy/*", "public/*");
+		redirects.put("old/*", "public/home");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.redirect("legacy/accounts/23")).isEqualTo("public/accounts/23");
+		assertThat(engine.redirect("old/a/b")).isEqualTo("public/home");
+		assertThat(engine.redirect("legacy")).isEqualTo("legacy");
+		assertThat(engine.redirect("legacyx/a")).isEqualTo("legacyx/a");
+	}
+
+	@Test
+	public void wildcard() {
+
+		// given
+		redirects.put("users/*/profile", "public/profile/*");
+		redirects.put("users/*", "public/users");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.redirect("users/fred/profile")).isEqualTo("public/profile/fred");
+		assertThat(engine.redirect("users/fred/settings")).isEqualTo("public/users");
+		assertThat(engine.redirect("users/fred")).isEqualTo("public/users");
+	}
+
+	@Test
+	public void precedence() {
+
+		// given
+		redirects.put("a/*", "prefix");
+		redirects.put("a/*/c", "wildcard");
+		redirects.put("a/b/c", "exact");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.redirect("a/b/c")).isEqualTo("exact");
+		assertThat(engine.redirect("a/x/c")).isEqualTo("wildcard");
+		assertThat(engine.redirect("a/x/d")).isEqualTo("prefix");
+	}
+
+	@Test
+	public void chainCollapsed() {
+
+		// given
+		redirects.put("", "home");
+		redirects.put("home", "old/home");
+		redirects.put("old/*", "public/*");
+		redirects.put("public/home", "public/welcome");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.getErrors()).isEmpty();
+		assertThat(engine.redirect("")).isEqualTo("public/welcome");
+		assertThat(engine.redirect("home")).isEqualTo("public/welcome");
+		assertThat(engine.getFixedTargets().get("home")).isEqualTo("public/welcome");
+	}
+
+	@Test
+	public void loop() {
+
+		// given
+		redirects.put("a", "b");
+		redirects.put("b", "c");
+		redirects.put("c", "a");
+		redirects.put("d", "e");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.getErrors()).contains("Redirect loop: 'a' -> 'b' -> 'c' -> 'a'");
+		assertThat(engine.redirect("a")).isEqualTo("a");
+		assertThat(engine.redirect("d")).isEqualTo("e");
+	}
+
+	@Test
+	public void templatedTargetRedirected() {
+
+		// given
+		redirects.put("legacy/*", "old/*");
+		redirects.put("old/*", "public/*");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.getErrors()).containsOnly(
+				"'legacy/*' redirects to 'old/*', which is itself redirected. Redirect 'legacy/*' to the final page instead");
+		assertThat(engine.redirect("legacy/a")).isEqualTo("legacy/a");
+		assertThat(engine.redirect("old/a")).isEqualTo("public/a");
+	}
+
+	@Test
+	public void tooManyWildcards() {
+
+		// given
+		redirects.put("a/*", "b/*/*");
+		// when
+		RedirectEngine engine = RedirectEngine.compile(redirects);
+		// then
+		assertThat(engine.getErrors()).containsOnly("'b/*/*' has more wildcards than its source 'a/*'");
+	}
+
+}
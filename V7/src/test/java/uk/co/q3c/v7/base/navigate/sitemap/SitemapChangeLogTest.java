@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapChangeLogTest {
+
+	SitemapChangeLog changeLog;
+	Sitemap v1;
+	Sitemap v2;
+	Sitemap v3;
+
+	@Before
+	public void setup() {
+		changeLog = new SitemapChangeLog(1);
+		v1 = sitemap("public/home");
+		v2 = sitemap("public/home", "public/a");
+		v3 = sitemap("public/home", "public/a", "public/b");
+		changeLog.start(v1.getVersion());
+	}
+
+	private Sitemap sitemap(String... uris) {
+		Sitemap sitemap = new Sitemap();
+		for (String uri : uris) {
+			sitemap.append(uri);
+		}
+		sitemap.lock();
+		return sitemap;
+	}
+
+	@Test
+	public void changesSince() {
+
+		// given
+		changeLog.record(SitemapDiff.between(v1, v2));
+		// when
+
+		// then
+		assertThat(changeLog.changesSince(v1.getVersion()).getAdded()).containsOnly("public/a");
+		assertThat(changeLog.changesSince(v2.getVersion()).isEmpty()).isTrue();
+		assertThat(changeLog.getCurrentVersion()).isEqualTo(v2.getVersion());
+	}
+
+	@Test
+	public void olderThanCapacity() {
+
+		// given
+		changeLog.record(SitemapDiff.between(v1, v2));
+		changeLog.record(SitemapDiff.between(v2, v3));
+		// when
+
+		// then
+		assertThat(changeLog.changesSince(v1.getVersion())).isNull();
+		assertThat(changeLog.changesSince(v2.getVersion()).getAdded()).containsOnly("public/b");
+	}
+
+	@Test
+	public void combined() {
+
+		// given
+		changeLog = new SitemapChangeLog();
+		changeLog.start(v1.getVersion());
+		changeLog.record(SitemapDiff.between(v1, v2));
+		changeLog.record(SitemapDiff.between(v2, v3));
+		// when
+		SitemapDiff diff = changeLog.changesSince(v1.getVersion());
+		// then
+		assertThat(diff.getAdded()).containsOnly("public/a", "public/b");
+		assertThat(diff.getFromVersion()).isEqualTo(v1.getVersion());
+		assertThat(diff.getToVersion()).isEqualTo(v3.getVersion());
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.apache.commons.io.FileUtils;
+import org.fest.assertions.Fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.util.ResourceUtils;
+import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
+import uk.co.q3c.v7.i18n.I18NTranslator;
+
+import com.google.inject.AbstractModule;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.mycila.testing.plugin.guice.ModuleProvider;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapCompilerTest {
+
+	@Inject
+	SitemapCompiler compiler;
+
+	@Inject
+	CompiledSitemapReader compiledReader;
+
+	@Inject
+	DefaultSitemapFileReader fileReader;
+
+	File source;
+	File target;
+
+	@Before
+	public void setup() {
+		source = new File("src/test/java/uk/co/q3c/v7/base/navigate/sitemap_good.properties");
+		target = new File(ResourceUtils.userTempDirectory(), "sitemap.bin");
+		target.delete();
+	}
+
+	@Test
+	public void compile_roundTrip() {
+
+		// given
+		Sitemap expected = new Sitemap();
+		fileReader.setSitemap(expected);
+		fileReader.parse(source, true);
+		// when
+		compiler.compile(source, target);
+		Sitemap actual = new Sitemap();
+		int pages = compiledReader.load(target, actual, true);
+		// then
+		assertThat(target.exists()).isTrue();
+		assertThat(pages).isEqualTo(expected.getNodeCount());
+		// the compiled file is written in tree order, so the nodes may be created in a different order
+		assertThat(actual.uris()).hasSize(expected.uris().size());
+		assertThat(actual.uris()).containsOnly(expected.uris().toArray());
+		for (String uri : expected.uris()) {
+			SitemapNode expectedNode = expected.nodeFor(uri);
+			SitemapNode actualNode = actual.nodeFor(uri);
+			assertThat(actualNode.getViewClass()).isEqualTo(expectedNode.getViewClass());
+			assertThat(actualNode.getLabelKey()).isEqualTo(expectedNode.getLabelKey());
+			assertThat(actualNode.getLabel()).isEqualTo(expectedNode.getLabel());
+		}
+		assertThat(actual.getPublicRoot()).isEqualTo(expected.getPublicRoot());
+		assertThat(actual.getPrivateRoot()).isEqualTo(expected.getPrivateRoot());
+		assertThat(actual.getRedirects()).isEqualTo(expected.getRedirects());
+		assertThat(actual.getStandardPages()).isEqualTo(expected.getStandardPages());
+	}
+
+	@Test
+	public void load_notFirstLoad_existingUrisKept() {
+
+		// given
+		compiler.compile(source, target);
+		Sitemap sitemap = new Sitemap();
+		sitemap.setPublicRoot("open");
+		SitemapNode existing = sitemap.append("public/home");
+		// when
+		compiledReader.load(target, sitemap, false);
+		// then
+		assertThat(sitemap.nodeFor("public/home")).isSameAs(existing);
+		assertThat(existing.getViewClass()).isNull();
+		assertThat(sitemap.getPublicRoot()).isEqualTo("open");
+		assertThat(sitemap.hasUri("private/transfers")).isTrue();
+	}
+
+	@Test
+	public void compile_withErrors() throws IOException {
+
+		// given
+		File withErrors = new File(ResourceUtils.userTempDirectory(), "sitemap_errors.properties");
+		String content = FileUtils.readFileToString(source);
+		FileUtils.writeStringToFile(withErrors,
+				content.replace("--transfers     : subview.Transfer", "--transfers     : subview.Transfers"));
+		// when
+		try {
+			compiler.compile(withErrors, target);
+			Fail.fail("Exception expected");
+		} catch (SitemapException e) {
+			// then
+			assertThat(e.getMessage()).contains("has not been compiled");
+		}
+		assertThat(target.exists()).isFalse();
+	}
+
+	@Test(expected = SitemapException.class)
+	public void load_notCompiled() throws IOException {
+
+		// given
+		byte[] data = FileUtils.readFileToByteArray(source);
+		// when
+		compiledReader.load(new ByteArrayInputStream(data), new Sitemap(), true);
+		// then
+	}
+
+	@ModuleProvider
+	protected AbstractModule module() {
+		return new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
+				bind(SitemapFileReader.class).to(DefaultSitemapFileReader.class);
+			}
+
+		};
+	}
+}
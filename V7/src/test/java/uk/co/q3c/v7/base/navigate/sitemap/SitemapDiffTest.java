@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.v7.base.view.testviews.subview.MoneyInOutView;
+import uk.co.q3c.v7.base.view.testviews.subview.TransferView;
+
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapDiffTest {
+
+	Sitemap oldSitemap;
+	Sitemap newSitemap;
+
+	@Before
+	public void setup() {
+		oldSitemap = new Sitemap();
+		newSitemap = new Sitemap();
+	}
+
+	@Test
+	public void noOldSitemap() {
+
+		// given
+		newSitemap.append("public/home");
+		// when
+		SitemapDiff diff = SitemapDiff.between(null, newSitemap);
+		// then
+		assertThat(diff.getAdded()).containsOnly("public", "public/home");
+		assertThat(diff.getRemoved()).isEmpty();
+		assertThat(diff.getChanged()).isEmpty();
+	}
+
+	@Test
+	public void addedRemovedChanged() {
+
+		// given
+		oldSitemap.append("public/home").setViewClass(TransferView.class);
+		oldSitemap.append("public/gone");
+		newSitemap.append("public/home").setViewClass(MoneyInOutView.class);
+		newSitemap.append("public/new");
+		// when
+		SitemapDiff diff = SitemapDiff.between(oldSitemap, newSitemap);
+		// then
+		assertThat(diff.getAdded()).containsOnly("public/new");
+		assertThat(diff.getRemoved()).containsOnly("public/gone");
+		assertThat(diff.getChanged()).containsOnly("public/home");
+		assertThat(diff.getViewChanged()).containsOnly("public/home");
+		assertThat(diff.getRelabelled()).isEmpty();
+		assertThat(diff.isEmpty()).isFalse();
+	}
+
+	@Test
+	public void versions() {
+
+		// given
+		oldSitemap.lock();
+		newSitemap.lock();
+		// when
+		SitemapDiff diff = SitemapDiff.between(oldSitemap, newSitemap);
+		// then
+		assertThat(diff.getFromVersion()).isEqualTo(oldSitemap.getVersion());
+		assertThat(diff.getToVersion()).isEqualTo(newSitemap.getVersion());
+		assertThat(diff.getToVersion()).isGreaterThan(diff.getFromVersion());
+	}
+
+	@Test
+	public void followedBy() {
+
+		// given
+		oldSitemap.append("public/home").setViewClass(TransferView.class);
+		oldSitemap.append("public/gone");
+		newSitemap.append("public/home").setViewClass(MoneyInOutView.class);
+		newSitemap.append("public/new");
+		Sitemap thirdSitemap = new Sitemap();
+		thirdSitemap.append("public/home").setViewClass(MoneyInOutView.class);
+		thirdSitemap.append("public/gone");
+		SitemapDiff first = SitemapDiff.between(oldSitemap, newSitemap);
+		SitemapDiff second = SitemapDiff.between(newSitemap, thirdSitemap);
+		// when
+		SitemapDiff diff = first.followedBy(second);
+		// then
+		assertThat(diff.getAdded()).isEmpty();
+		assertThat(diff.getRemoved()).isEmpty();
+		assertThat(diff.getChanged()).containsOnly("public/gone", "public/home");
+		assertThat(diff.affects("public/new")).isFalse();
+		assertThat(diff.affects("public/home")).isTrue();
+	}
+
+	@Test
+	public void same() {
+
+		// given
+		oldSitemap.append("public/home").setViewClass(TransferView.class);
+		newSitemap.append("public/home").setViewClass(TransferView.class);
+		// when
+		SitemapDiff diff = SitemapDiff.between(oldSitemap, newSitemap);
+		// then
+		assertThat(diff.isEmpty()).isTrue();
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.v7.base.view.testviews.subview.MoneyInOutView;
+import uk.co.q3c.v7.base.view.testviews.subview.TransferView;
+import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
+import uk.co.q3c.v7.i18n.I18NTranslator;
+import uk.co.q3c.v7.i18n.TestLabelKey;
+
+import com.google.inject.AbstractModule;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.mycila.testing.plugin.guice.ModuleProvider;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapEntryLoaderTest {
+
+	@Inject
+	SitemapEntryLoader loader;
+
+	@Test
+	public void load_childrenBeforeParents() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		List<SitemapEntry> entries = Arrays.asList(new SitemapEntry("private/transfers", TransferView.class,
+				TestLabelKey.Transfers), new SitemapEntry("private", MoneyInOutView.class, TestLabelKey.Private));
+		StringBuilder report = new StringBuilder();
+		// when
+		int loaded = loader.load(entries, sitemap, true, report);
+		// then
+		assertThat(loaded).isEqualTo(2);
+		assertThat(sitemap.getNodeCount()).isEqualTo(2);
+		SitemapNode node = sitemap.nodeFor("private/transfers");
+		assertThat(node.getViewClass()).isEqualTo(TransferView.class);
+		assertThat(node.getLabelKey()).isEqualTo(TestLabelKey.Transfers);
+		assertThat(node.getLabel()).isNotNull();
+		assertThat(sitemap.getParent(node)).isEqualTo(sitemap.nodeFor("private"));
+		assertThat(report.toString()).isEmpty();
+	}
+
+	@Test
+	public void load_parentWithoutView() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		List<SitemapEntry> entries = Arrays.asList(new SitemapEntry("private/money/transfers", TransferView.class,
+				TestLabelKey.Transfers));
+		StringBuilder report = new StringBuilder();
+		// when
+		loader.load(entries, sitemap, true, report);
+		// then
+		assertThat(sitemap.getNodeCount()).isEqualTo(3);
+		assertThat(report.toString()).contains("URI private has no view").contains("URI private/money has no view");
+	}
+
+	@Test
+	public void load_notFirstLoad_existingUriKept() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode existing = sitemap.append("private/transfers");
+		List<SitemapEntry> entries = Arrays.asList(new SitemapEntry("private/transfers", TransferView.class,
+				TestLabelKey.Transfers));
+		StringBuilder report = new StringBuilder();
+		// when
+		int loaded = loader.load(entries, sitemap, false, report);
+		// then
+		assertThat(loaded).isEqualTo(0);
+		assertThat(existing.getViewClass()).isNull();
+		assertThat(report.toString()).contains("private/transfers is already defined");
+	}
+
+	@ModuleProvider
+	protected AbstractModule module() {
+		return new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
+			}
+
+		};
+	}
+}
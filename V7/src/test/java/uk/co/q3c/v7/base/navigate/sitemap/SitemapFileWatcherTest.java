@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.util.ResourceUtils;
+
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapFileWatcherTest {
+
+	File dir;
+	File file;
+	SitemapFileWatcher watcher;
+	CountDownLatch latch;
+	AtomicInteger calls;
+
+	@Before
+	public void setup() throws IOException {
+		dir = new File(ResourceUtils.userTempDirectory(), "watchertest");
+		FileUtils.deleteQuietly(dir);
+		dir.mkdirs();
+		file = new File(dir, "sitemap.properties");
+		FileUtils.writeStringToFile(file, "original");
+		latch = new CountDownLatch(1);
+		calls = new AtomicInteger();
+		watcher = new SitemapFileWatcher(file, new Runnable() {
+			@Override
+			public void run() {
+				calls.incrementAndGet();
+				latch.countDown();
+			}
+		});
+	}
+
+	@After
+	public void teardown() {
+		watcher.stop();
+		FileUtils.deleteQuietly(dir);
+	}
+
+	@Test
+	public void fileChanged() throws Exception {
+
+		// given
+		watcher.start();
+		// when
+		FileUtils.writeStringToFile(file, "changed");
+		FileUtils.writeStringToFile(file, "changed again");
+		// then
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(SitemapFileWatcher.QUIET_PERIOD * 2);
+		assertThat(calls.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void otherFileChanged() throws Exception {
+
+		// given
+		watcher.start();
+		// when
+		FileUtils.writeStringToFile(new File(dir, "other.properties"), "changed");
+		// then
+		assertThat(latch.await(SitemapFileWatcher.QUIET_PERIOD * 4, TimeUnit.MILLISECONDS)).isFalse();
+	}
+
+	@Test
+	public void startStop() throws Exception {
+
+		// given
+
+		// when
+		watcher.start();
+		// then
+		assertThat(watcher.isRunning()).isTrue();
+		// when
+		watcher.stop();
+		// then
+		assertThat(watcher.isRunning()).isFalse();
+	}
+
+}
@@ -15,6 +15,8 @@ package uk.co.q3c.v7.base.navigate.sitemap;
 import static org.fest.assertions.Assertions.*;
 
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import javax.inject.Inject;
@@ -26,7 +28,6 @@ import uk.co.q3c.v7.base.view.PublicHomeView;
 import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
 import uk.co.q3c.v7.i18n.I18NTranslator;
 import uk.co.q3c.v7.i18n.TestLabelKey;
-import uk.co.q3c.v7.i18n.Translate;
 
 import com.google.inject.AbstractModule;
 import com.mycila.testing.junit.MycilaJunitRunner;
@@ -38,14 +39,14 @@ import com.mycila.testing.plugin.guice.ModuleProvider;
 public class SitemapNodeTest {
 
 	@Inject
-	Translate translate;
+	SitemapLabels labels;
 
 	@Test
 	public void setLabelKey() {
 
 		// given
 		SitemapNode node = new SitemapNode();
-		node.setTranslate(translate);
+		node.setLabels(labels);
 		Locale locale = Locale.UK;
 		Collator collator = Collator.getInstance(locale);
 		// when
@@ -62,7 +63,7 @@ public class SitemapNodeTest {
 
 		// given
 		SitemapNode node = new SitemapNode();
-		node.setTranslate(translate);
+		node.setLabels(labels);
 		Locale locale = Locale.GERMAN;
 		Collator collator = Collator.getInstance(locale);
 		// when
@@ -82,7 +83,7 @@ public class SitemapNodeTest {
 		Collator collator = Collator.getInstance(locale);
 
 		// when
-		SitemapNode node = new SitemapNode("one", PublicHomeView.class, TestLabelKey.Yes, locale, collator, translate);
+		SitemapNode node = new SitemapNode("one", PublicHomeView.class, TestLabelKey.Yes, locale, collator, labels);
 		// then
 		assertThat(node.getUriSegment()).isEqualTo("one");
 		assertThat(node.getViewClass()).isEqualTo(PublicHomeView.class);
@@ -100,7 +101,7 @@ public class SitemapNodeTest {
 		Collator collator = Collator.getInstance(locale);
 
 		// when
-		SitemapNode node = new SitemapNode("one", PublicHomeView.class, TestLabelKey.Yes, locale, collator, translate);
+		SitemapNode node = new SitemapNode("one", PublicHomeView.class, TestLabelKey.Yes, locale, collator, labels);
 		// then
 		assertThat(node.getUriSegment()).isEqualTo("one");
 		assertThat(node.getViewClass()).isEqualTo(PublicHomeView.class);
@@ -109,6 +110,59 @@ public class SitemapNodeTest {
 
 	}
 
+	@Test
+	public void labelForLocale() {
+
+		// given
+		Collator collator = Collator.getInstance(Locale.UK);
+		SitemapNode node = new SitemapNode("one", PublicHomeView.class, TestLabelKey.Yes, Locale.UK, collator, labels);
+		// when
+		String de = node.getLabel(Locale.GERMAN);
+		// then
+		assertThat(de).isEqualTo("Ja");
+		assertThat(node.getCollationKey(Locale.GERMAN)).isEqualTo(
+				Collator.getInstance(Locale.GERMAN).getCollationKey("Ja"));
+		assertThat(node.getLabel(Locale.UK)).isEqualTo("Yes");
+		assertThat(node.getCollationKey(Locale.UK)).isSameAs(node.getCollationKey());
+		// load time label is not changed by another locale
+		assertThat(node.getLabel()).isEqualTo("Yes");
+		assertThat(node.getCollationKey(Locale.GERMAN)).isSameAs(node.getCollationKey(Locale.GERMAN));
+	}
+
+	@Test
+	public void labelForLocale_noLabelKey() {
+
+		// given
+		SitemapNode node = new SitemapNode();
+		// when
+
+		// then
+		assertThat(node.getLabel(Locale.GERMAN)).isNull();
+		assertThat(node.getCollationKey(Locale.GERMAN)).isNull();
+	}
+
+	@Test
+	public void labelsShared() {
+
+		// given
+		Collator collator = Collator.getInstance(Locale.UK);
+		List<SitemapNode> nodes = new ArrayList<>();
+		// when
+		for (int i = 0; i < 100; i++) {
+			// a new String each time, as a file reader would produce
+			nodes.add(new SitemapNode(new String("edit"), PublicHomeView.class, TestLabelKey.Yes, Locale.UK, collator,
+					labels));
+		}
+		// then
+		SitemapNode first = nodes.get(0);
+		for (SitemapNode node : nodes) {
+			assertThat(node.getUriSegment()).isSameAs(first.getUriSegment());
+			assertThat(node.getLabel()).isSameAs(first.getLabel());
+			assertThat(node.getCollationKey()).isSameAs(first.getCollationKey());
+			assertThat(node.getCollationKey(Locale.GERMAN)).isSameAs(first.getCollationKey(Locale.GERMAN));
+		}
+	}
+
 	@ModuleProvider
 	protected AbstractModule moduleProvider() {
 		return new AbstractModule() {
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import uk.co.q3c.util.ResourceUtils;
+import uk.co.q3c.v7.i18n.TestLabelKey;
+import fixture.annotatedviews.AnnotatedHomeView;
+import fixture.annotatedviews.AnnotatedTransfersView;
+
+public class SitemapPageProcessorTest {
+
+	/**
+	 * The fixture.annotatedviews views are processed when the tests are compiled
+	 */
+	@Test
+	public void registryGenerated() {
+
+		// given
+
+		// when
+		List<SitemapRegistry> registries = new ArrayList<>();
+		for (SitemapRegistry registry : ServiceLoader.load(SitemapRegistry.class)) {
+			registries.add(registry);
+		}
+		// then
+		assertThat(registries).hasSize(1);
+		SitemapRegistry registry = registries.get(0);
+		assertThat(registry.getClass().getName()).isEqualTo("fixture.annotatedviews.GeneratedSitemapRegistry");
+		List<SitemapEntry> entries = registry.entries();
+		assertThat(entries).hasSize(2);
+		assertThat(entries.get(0).getUri()).isEqualTo("annotated");
+		assertThat(entries.get(0).getViewClass()).isEqualTo(AnnotatedHomeView.class);
+		assertThat(entries.get(0).getLabelKey()).isEqualTo(TestLabelKey.Home);
+		assertThat(entries.get(1).getUri()).isEqualTo("annotated/deep/transfers");
+		assertThat(entries.get(1).getViewClass()).isEqualTo(AnnotatedTransfersView.class);
+		assertThat(entries.get(1).getLabelKey()).isEqualTo(TestLabelKey.Transfers);
+	}
+
+	@Test
+	public void notV7View() {
+
+		// given
+		String source = "package p; @uk.co.q3c.v7.base.navigate.sitemap.SitemapPage(uri = \"a\", labelKeys = uk.co.q3c.v7.i18n.TestLabelKey.class, labelKey = \"Home\") public class NotAView {}";
+		// when
+		List<String> errors = compile("p.NotAView", source);
+		// then
+		assertThat(errors).containsOnly("p.NotAView is annotated with @SitemapPage but does not implement V7View");
+	}
+
+	@Test
+	public void invalidLabelKey() {
+
+		// given
+		String source = "package p; @uk.co.q3c.v7.base.navigate.sitemap.SitemapPage(uri = \"a/wiggly\", labelKeys = uk.co.q3c.v7.i18n.TestLabelKey.class) public class WigglyView extends fixture.annotatedviews.AnnotatedHomeView {}";
+		// when
+		List<String> errors = compile("p.WigglyView", source);
+		// then
+		assertThat(errors).containsOnly("uk.co.q3c.v7.i18n.TestLabelKey does not have a constant Wiggly");
+	}
+
+	@Test
+	public void duplicateUri() {
+
+		// given
+		String source = "package p; @uk.co.q3c.v7.base.navigate.sitemap.SitemapPage(uri = \"a\", labelKeys = uk.co.q3c.v7.i18n.TestLabelKey.class, labelKey = \"Home\") public class AView extends fixture.annotatedviews.AnnotatedHomeView {}";
+		String source2 = "package p; @uk.co.q3c.v7.base.navigate.sitemap.SitemapPage(uri = \"a\", labelKeys = uk.co.q3c.v7.i18n.TestLabelKey.class, labelKey = \"Home\") public class BView extends fixture.annotatedviews.AnnotatedHomeView {}";
+		// when
+		List<String> errors = compile("p.AView", source, "p.BView", source2);
+		// then
+		assertThat(errors).hasSize(1);
+		assertThat(errors.get(0)).startsWith("URI 'a' is also declared by p.");
+	}
+
+	/**
+	 * Runs the processor over the given class names and sources, and returns the error messages
+	 */
+	private List<String> compile(String... namesAndSources) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<JavaFileObject> sources = new ArrayList<>();
+		for (int i = 0; i < namesAndSources.length; i += 2) {
+			sources.add(new StringSource(namesAndSources[i], namesAndSources[i + 1]));
+		}
+		File output = new File(ResourceUtils.userTempDirectory(), "processorTest");
+		output.mkdirs();
+		List<String> options = Arrays.asList("-proc:only", "-processor", SitemapPageProcessor.class.getName(),
+				"-classpath", System.getProperty("java.class.path"), "-d", output.getPath(), "-s", output.getPath());
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		compiler.getTask(null, null, diagnostics, options, null, sources).call();
+		List<String> errors = new ArrayList<>();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				errors.add(diagnostic.getMessage(null));
+			}
+		}
+		return errors;
+	}
+
+	private static class StringSource extends SimpleJavaFileObject {
+		private final String source;
+
+		StringSource(String className, String source) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.source = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return source;
+		}
+	}
+
+}
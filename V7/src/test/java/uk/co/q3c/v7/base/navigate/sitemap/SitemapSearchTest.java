@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.text.Collator;
+import java.util.Locale;
+
+import javax.inject.Inject;
+
+import org.apache.shiro.subject.Subject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import uk.co.q3c.v7.base.config.ApplicationConfigurationService;
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
+import uk.co.q3c.v7.i18n.CurrentLocale;
+import uk.co.q3c.v7.i18n.I18NKey;
+import uk.co.q3c.v7.i18n.I18NTranslator;
+import uk.co.q3c.v7.i18n.TestLabelKey;
+
+import com.google.inject.AbstractModule;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+import com.mycila.testing.plugin.guice.ModuleProvider;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapSearchTest {
+
+	@Mock
+	SitemapService sitemapService;
+
+	@Mock
+	ApplicationConfigurationService configurationService;
+
+	@Mock
+	URIPermissionFactory uriPermissionFactory;
+
+	@Mock
+	CurrentLocale currentLocale;
+
+	@Mock
+	Subject subject;
+
+	@Mock
+	URIViewPermission transfersPermission;
+
+	@Inject
+	SitemapLabels labels;
+
+	Sitemap sitemap;
+	SitemapNode home;
+	SitemapNode transfers;
+	SitemapSearch search;
+
+	@Before
+	public void setup() {
+		sitemap = new Sitemap();
+		home = page("public/home", TestLabelKey.Home);
+		transfers = page("private/transfers", TestLabelKey.Transfers);
+		sitemap.lock();
+		when(sitemapService.getSitemap()).thenReturn(sitemap);
+		when(currentLocale.getLocale()).thenReturn(Locale.UK);
+		when(uriPermissionFactory.createViewPermission("private/transfers")).thenReturn(transfersPermission);
+		search = new SitemapSearch(sitemapService, configurationService, uriPermissionFactory, currentLocale);
+	}
+
+	private SitemapNode page(String uri, I18NKey<?> labelKey) {
+		SitemapNode node = sitemap.append(uri);
+		node.setLabels(labels);
+		node.setLabelKey(labelKey, Locale.UK, Collator.getInstance(Locale.UK));
+		return node;
+	}
+
+	@Test
+	public void prefix() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(search.search("ho", Locale.UK, subject, 10)).containsExactly(home);
+		assertThat(search.search("HOME", Locale.UK, subject, 10)).containsExactly(home);
+		assertThat(search.search("wiggly", Locale.UK, subject, 10)).isEmpty();
+		assertThat(search.search(" ", Locale.UK, subject, 10)).isEmpty();
+	}
+
+	@Test
+	public void otherLocale() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(search.search("zu hau", Locale.GERMAN, subject, 10)).containsExactly(home);
+		assertThat(search.search("zu wig", Locale.GERMAN, subject, 10)).isEmpty();
+		assertThat(search.search("home", Locale.GERMAN, subject, 10)).isEmpty();
+	}
+
+	@Test
+	public void permissionFiltered() {
+
+		// given
+		when(subject.isPermitted(transfersPermission)).thenReturn(false);
+		// when
+
+		// then
+		assertThat(search.search("trans", Locale.UK, subject, 10)).isEmpty();
+		when(subject.isPermitted(transfersPermission)).thenReturn(true);
+		assertThat(search.search("trans", Locale.UK, subject, 10)).containsExactly(transfers);
+		verify(uriPermissionFactory, never()).createViewPermission("public/home");
+	}
+
+	@Test
+	public void tokens() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(SitemapSearch.tokens("Über-Konto  2", Locale.GERMAN)).containsExactly("uber", "konto", "2");
+		assertThat(SitemapSearch.tokens(null, Locale.GERMAN)).isEmpty();
+	}
+
+	@ModuleProvider
+	protected AbstractModule moduleProvider() {
+		return new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(I18NTranslator.class).to(AnnotationI18NTranslator.class);
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.apache.shiro.subject.Subject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+import uk.co.q3c.v7.base.shiro.URIPermissionFactory;
+import uk.co.q3c.v7.base.shiro.URIViewPermission;
+
+import com.google.inject.Provider;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapSuggestionsTest {
+
+	@Mock
+	Provider<Sitemap> sitemapProvider;
+
+	@Mock
+	URIPermissionFactory uriPermissionFactory;
+
+	@Mock
+	URIViewPermission accountsPermission;
+
+	@Mock
+	Subject subject;
+
+	Sitemap sitemap;
+
+	SitemapSuggestions suggestions;
+
+	@Before
+	public void setup() {
+		sitemap = new Sitemap();
+		sitemap.append("public/home");
+		sitemap.append("public/login");
+		sitemap.append("public/logout");
+		sitemap.append("private/accounts/{id}");
+		sitemap.lock();
+		when(sitemapProvider.get()).thenReturn(sitemap);
+		when(uriPermissionFactory.createViewPermission("private/accounts")).thenReturn(accountsPermission);
+		when(subject.isPermitted(accountsPermission)).thenReturn(true);
+		suggestions = new SitemapSuggestions(sitemapProvider, uriPermissionFactory);
+	}
+
+	@Test
+	public void suggestionsFor() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(suggestions.suggestionsFor("public/logot", subject)).containsExactly("public/logout", "public/login");
+		assertThat(suggestions.suggestionsFor("public/hme", subject)).containsExactly("public/home");
+		assertThat(suggestions.suggestionsFor("wiggly/woggly", subject)).isEmpty();
+	}
+
+	@Test
+	public void parameterSegmentsNotSuggested() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(suggestions.suggestionsFor("private/accounts/{i}", subject)).isEmpty();
+		assertThat(suggestions.suggestionsFor("private/acounts", subject)).containsExactly("private/accounts");
+	}
+
+	@Test
+	public void privatePagesNotPermitted() {
+
+		// given
+		when(subject.isPermitted(accountsPermission)).thenReturn(false);
+		// when
+
+		// then
+		assertThat(suggestions.suggestionsFor("private/acounts", subject)).isEmpty();
+		assertThat(suggestions.suggestionsFor("public/hme", subject)).containsExactly("public/home");
+	}
+
+}
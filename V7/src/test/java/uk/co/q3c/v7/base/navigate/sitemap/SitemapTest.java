@@ -24,12 +24,12 @@ import javax.inject.Inject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import uk.co.q3c.v7.base.navigate.StandardPageKey;
 import uk.co.q3c.v7.base.view.LoginView;
 import uk.co.q3c.v7.base.view.PublicHomeView;
 import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
 import uk.co.q3c.v7.i18n.I18NTranslator;
 import uk.co.q3c.v7.i18n.TestLabelKey;
-import uk.co.q3c.v7.i18n.Translate;
 
 import com.google.inject.AbstractModule;
 import com.mycila.testing.junit.MycilaJunitRunner;
@@ -41,7 +41,7 @@ import com.mycila.testing.plugin.guice.ModuleProvider;
 public class SitemapTest {
 
 	@Inject
-	Translate translate;
+	SitemapLabels labels;
 
 	@Test
 	public void url() {
@@ -51,11 +51,10 @@ public class SitemapTest {
 		Collator collator = Collator.getInstance(locale);
 
 		Sitemap map = new Sitemap();
-		SitemapNode grandparent = new SitemapNode("public", PublicHomeView.class, TestLabelKey.Home, locale, collator,
-				translate);
-		SitemapNode parent = new SitemapNode("home", PublicHomeView.class, TestLabelKey.Home, locale, collator,
-				translate);
-		SitemapNode child = new SitemapNode("login", LoginView.class, TestLabelKey.Login, locale, collator, translate);
+		SitemapNode grandparent = new SitemapNode("public", PublicHomeView.class, TestLabelKey.Home, locale,
+				collator, labels);
+		SitemapNode parent = new SitemapNode("home", PublicHomeView.class, TestLabelKey.Home, locale, collator, labels);
+		SitemapNode child = new SitemapNode("login", LoginView.class, TestLabelKey.Login, locale, collator, labels);
 		map.addChild(grandparent, parent);
 		map.addChild(parent, child);
 		// when
@@ -169,6 +168,80 @@ public class SitemapTest {
 
 	}
 
+	@Test
+	public void nodeForSegments() {
+
+		// given
+		Sitemap map = new Sitemap();
+		map.append("public/home/view1");
+		SitemapNode view2 = map.append("public/home/view2");
+		map.append("private/home/wiggly");
+
+		// when
+		SitemapNode result = map.nodeForSegments(new String[] { "public", "home", "view2" }, false);
+		// then
+		assertThat(result).isEqualTo(view2);
+
+		// when
+		result = map.nodeForSegments(new String[] { "public", "home", "viewx" }, true);
+		// then
+		assertThat(result.getUriSegment()).isEqualTo("home");
+		assertThat(map.getParent(result).getUriSegment()).isEqualTo("public");
+
+		// when
+		result = map.nodeForSegments(new String[] { "public", "home", "viewx" }, false);
+		// then
+		assertThat(result).isNull();
+
+		// when
+		result = map.nodeForSegments(new String[] { "wiggly" }, true);
+		// then
+		assertThat(result).isNull();
+	}
+
+	@Test
+	public void append_existingEmptyUri() {
+
+		// given
+		Sitemap map = new Sitemap();
+		SitemapNode node = map.append("");
+		// when
+		SitemapNode node2 = map.append("");
+		// then
+		assertThat(node2).isSameAs(node);
+		assertThat(map.getNodeCount()).isEqualTo(1);
+		assertThat(map.nodeForSegments(new String[] { "" }, false)).isEqualTo(node);
+	}
+
+	@Test
+	public void reindex() {
+
+		// given
+		Sitemap map = new Sitemap();
+		SitemapNode node = map.append("public/home/view1");
+		node.setUriSegment("view3");
+		// when
+		map.reindex();
+		// then
+		assertThat(map.nodeForSegments(new String[] { "public", "home", "view3" }, false)).isEqualTo(node);
+		assertThat(map.nodeForSegments(new String[] { "public", "home", "view1" }, false)).isNull();
+		assertThat(map.append("public/home/view3")).isEqualTo(node);
+	}
+
+	@Test
+	public void clear() {
+
+		// given
+		Sitemap map = new Sitemap();
+		map.append("public/home/view1");
+		assertThat(map.getPublicRootNode()).isNotNull();
+		// when
+		map.clear();
+		// then
+		assertThat(map.getPublicRootNode()).isNull();
+		assertThat(map.nodeForSegments(new String[] { "public" }, true)).isNull();
+	}
+
 	@Test
 	public void getRedirectFor() {
 
@@ -204,6 +277,25 @@ public class SitemapTest {
 
 	}
 
+	@Test
+	public void uris_insertionOrderAndDuplicates() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.append("public/a");
+		sitemap.append("private");
+		SitemapNode duplicate = new SitemapNode();
+		duplicate.setUriSegment("private");
+		sitemap.addNode(duplicate);
+
+		// when
+
+		// then
+		assertThat(sitemap.uris()).containsExactly("public", "public/a", "private", "private");
+		assertThat(sitemap.nodeFor("private")).isNotSameAs(duplicate);
+
+	}
+
 	@Test
 	public void hasUri() {
 
@@ -222,6 +314,70 @@ public class SitemapTest {
 
 	}
 
+	@Test
+	public void nodeFor() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode view1 = sitemap.append("public/home/view1");
+		SitemapNode empty = sitemap.append("");
+
+		// when
+
+		// then
+		assertThat(sitemap.nodeFor("public/home/view1")).isEqualTo(view1);
+		assertThat(sitemap.nodeFor("public/home")).isEqualTo(sitemap.getParent(view1));
+		assertThat(sitemap.nodeFor("")).isEqualTo(empty);
+		assertThat(sitemap.nodeFor("public/view1")).isNull();
+		assertThat(sitemap.hasUri("public/view1")).isFalse();
+	}
+
+	@Test
+	public void uriIndex_addChildParentNotInMap() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode parent = new SitemapNode();
+		parent.setUriSegment("a");
+		SitemapNode child = new SitemapNode();
+		child.setUriSegment("b");
+		// when
+		sitemap.addChild(parent, child);
+		// then
+		assertThat(sitemap.uri(child)).isEqualTo("a/b");
+		assertThat(sitemap.hasUri("a")).isTrue();
+		assertThat(sitemap.nodeFor("a/b")).isEqualTo(child);
+	}
+
+	@Test
+	public void uriIndex_reindex() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode node = sitemap.append("public/home");
+		sitemap.append("public/home/view1");
+		node.setUriSegment("house");
+		// when
+		sitemap.reindex();
+		// then
+		assertThat(sitemap.hasUri("public/home/view1")).isFalse();
+		assertThat(sitemap.hasUri("public/house/view1")).isTrue();
+		assertThat(sitemap.uri(node)).isEqualTo("public/house");
+	}
+
+	@Test
+	public void uri_nodeNotInMap() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode node = new SitemapNode();
+		node.setUriSegment("loose");
+		// when
+
+		// then
+		assertThat(sitemap.uri(node)).isEqualTo("loose");
+	}
+
 	@Test
 	public void privateNode() {
 
@@ -297,4 +453,105 @@ public class SitemapTest {
 
 		};
 	}
+	@Test
+	public void lock() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		SitemapNode publicNode = sitemap.append("public/home");
+		sitemap.append("private/home");
+		// when
+		sitemap.lock();
+		// then
+		assertThat(sitemap.isLocked()).isTrue();
+		assertThat(sitemap.getPublicRootNode()).isEqualTo(sitemap.getParent(publicNode));
+		assertThat(sitemap.getPrivateRootNode()).isNotNull();
+		assertThat(sitemap.nodeFor("public/home")).isEqualTo(publicNode);
+	}
+
+	@Test(expected = SitemapLockedException.class)
+	public void lock_append() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.append("public/home");
+		sitemap.lock();
+		// when
+		sitemap.append("public/other");
+		// then
+		// exception expected
+	}
+
+	@Test(expected = SitemapLockedException.class)
+	public void lock_addRedirect() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.lock();
+		// when
+		sitemap.addRedirect("a", "b");
+		// then
+		// exception expected
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void lock_standardPages() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.lock();
+		// when
+		sitemap.getStandardPages().put(StandardPageKey.Public_Home, "public");
+		// then
+		// exception expected
+	}
+
+	@Test
+	public void siblingOrder() {
+
+		// given
+		Locale locale = Locale.UK;
+		Collator collator = Collator.getInstance(locale);
+		Sitemap sitemap = new Sitemap();
+		SitemapNode transfers = new SitemapNode("transfers", PublicHomeView.class, TestLabelKey.Transfers, locale,
+				collator, labels);
+		SitemapNode home = new SitemapNode("home", PublicHomeView.class, TestLabelKey.Home, locale, collator, labels);
+		SitemapNode login = new SitemapNode("login", LoginView.class, TestLabelKey.Login, locale, collator, labels);
+		SitemapNode child1 = new SitemapNode("b", PublicHomeView.class, TestLabelKey.Transfers, locale,
+				collator, labels);
+		SitemapNode child2 = new SitemapNode("a", PublicHomeView.class, TestLabelKey.Home, locale, collator, labels);
+		sitemap.addNode(transfers);
+		sitemap.addNode(home);
+		sitemap.addNode(login);
+		sitemap.addChild(home, child1);
+		sitemap.addChild(home, child2);
+		// when
+		List<SitemapNode> unlocked = sitemap.getRoots(locale, true);
+		sitemap.lock();
+		// then
+		assertThat(unlocked).containsExactly(home, login, transfers);
+		assertThat(sitemap.getRoots(locale, false)).containsExactly(transfers, home, login);
+		assertThat(sitemap.getRoots(locale, true)).containsExactly(home, login, transfers);
+		assertThat(sitemap.getChildren(home, locale, false)).containsExactly(child1, child2);
+		assertThat(sitemap.getChildren(home, locale, true)).containsExactly(child2, child1);
+		assertThat(sitemap.getChildren(login, locale, true)).isEmpty();
+		assertThat(sitemap.getChildren(null, locale, true)).isEmpty();
+		// computed once, and shared
+		assertThat(sitemap.getRoots(locale, true)).isSameAs(sitemap.getRoots(locale, true));
+		assertThat(sitemap.getChildren(home, Locale.GERMAN, false)).isSameAs(sitemap.getChildren(home, locale, false));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void siblingOrder_locked() {
+
+		// given
+		Sitemap sitemap = new Sitemap();
+		sitemap.append("public/home");
+		sitemap.lock();
+		// when
+		sitemap.getRoots(Locale.UK, false).clear();
+		// then
+		// exception expected
+	}
+
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class SitemapTrieTest {
+
+	SitemapTrie trie;
+	SitemapNode a;
+	SitemapNode a1;
+	SitemapNode a2;
+	SitemapNode b;
+
+	@Before
+	public void setup() {
+		trie = new SitemapTrie();
+		a = newNode(1, "a");
+		a1 = newNode(2, "a1");
+		a2 = newNode(3, "a2");
+		b = newNode(4, "b");
+	}
+
+	@Test
+	public void find() {
+
+		// given
+		trie.add(null, a);
+		trie.add(a, a1);
+		trie.add(a, a2);
+		trie.add(null, b);
+		// when
+
+		// then
+		assertThat(trie.find(null, "a")).isEqualTo(a);
+		assertThat(trie.find(null, "b")).isEqualTo(b);
+		assertThat(trie.find(a, "a2")).isEqualTo(a2);
+		assertThat(trie.find(null, "a2")).isNull();
+		assertThat(trie.find(b, "a1")).isNull();
+	}
+
+	@Test
+	public void parentNotIndexed() {
+
+		// given
+		trie.add(a, a1);
+		// when
+
+		// then
+		assertThat(trie.find(null, "a")).isEqualTo(a);
+		assertThat(trie.find(a, "a1")).isEqualTo(a1);
+	}
+
+	@Test
+	public void rootBecomesChild() {
+
+		// given
+		trie.add(null, a1);
+		// when
+		trie.add(a, a1);
+		// then
+		assertThat(trie.find(null, "a1")).isNull();
+		assertThat(trie.find(a, "a1")).isEqualTo(a1);
+	}
+
+	@Test
+	public void duplicateSegment_firstWins() {
+
+		// given
+		SitemapNode dup = newNode(5, "a1");
+		trie.add(a, a1);
+		// when
+		trie.add(a, dup);
+		// then
+		assertThat(trie.find(a, "a1")).isSameAs(a1);
+	}
+
+	@Test
+	public void resolveChain() {
+
+		// given
+		trie.add(a, a1);
+		List<SitemapNode> chain = new ArrayList<>();
+		// when
+		boolean found = trie.resolveChain(Lists.newArrayList("a", "a1"), chain);
+		// then
+		assertThat(found).isTrue();
+		assertThat(chain).containsExactly(a, a1);
+
+		// when
+		chain.clear();
+		found = trie.resolveChain(Lists.newArrayList("a", "a3"), chain);
+		// then
+		assertThat(found).isFalse();
+		assertThat(chain).containsExactly(a);
+	}
+
+	@Test
+	public void highIds() {
+
+		// given
+		SitemapNode high = newNode(1000, "high");
+		// when
+		trie.add(a, high);
+		// then
+		assertThat(trie.resolve(new String[] { "a", "high" }, false)).isEqualTo(high);
+	}
+
+	@Test
+	public void parameterSegment() {
+
+		// given
+		SitemapNode id = newNode(5, "{id}");
+		SitemapNode orders = newNode(6, "orders");
+		trie.add(a, a1);
+		trie.add(a, id);
+		trie.add(id, orders);
+		Map<String, String> parameters = new HashMap<>();
+		// when
+		SitemapNode found = trie.resolve(new String[] { "a", "23", "orders" }, false, parameters);
+		// then
+		assertThat(found).isEqualTo(orders);
+		assertThat(parameters).hasSize(1);
+		assertThat(parameters.get("id")).isEqualTo("23");
+
+		// literal takes precedence
+		parameters.clear();
+		assertThat(trie.resolve(new String[] { "a", "a1" }, false, parameters)).isEqualTo(a1);
+		assertThat(parameters).isEmpty();
+		// no backtracking from a literal match
+		assertThat(trie.resolve(new String[] { "a", "a1", "orders" }, false)).isNull();
+
+		List<SitemapNode> chain = new ArrayList<>();
+		assertThat(trie.resolveChain(Lists.newArrayList("a", "24", "orders"), chain)).isTrue();
+		assertThat(chain).containsExactly(a, id, orders);
+	}
+
+	@Test
+	public void parameterName() {
+
+		// given
+
+		// when
+
+		// then
+		assertThat(SitemapTrie.parameterName("{id}")).isEqualTo("id");
+		assertThat(SitemapTrie.parameterName("id")).isNull();
+		assertThat(SitemapTrie.parameterName("{}")).isNull();
+		assertThat(SitemapTrie.parameterName("{id")).isNull();
+	}
+
+	private SitemapNode newNode(int id, String segment) {
+		SitemapNode node = new SitemapNode();
+		node.setId(id);
+		node.setUriSegment(segment);
+		return node;
+	}
+}
@@ -15,6 +15,7 @@ package uk.co.q3c.v7.base.navigate.sitemap;
 import static org.fest.assertions.Assertions.*;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -29,6 +30,7 @@ import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
 import uk.co.q3c.v7.i18n.I18NTranslator;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.util.Providers;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.mycila.testing.plugin.guice.ModuleProvider;
@@ -53,7 +55,7 @@ public class SitemapURIConverterTest extends TestWithSitemap {
 	@Before
 	public void setup() {
 		super.setup();
-		converter = new SitemapURIConverter(sitemap, uriHandler);
+		converter = new SitemapURIConverter(Providers.of(sitemap), uriHandler);
 	}
 
 	@Test
@@ -76,6 +78,24 @@ public class SitemapURIConverterTest extends TestWithSitemap {
 
 	}
 
+	@Test
+	public void pathParametersForUri() {
+
+		// given
+		SitemapNode customers = newNode("customers");
+		SitemapNode id = newNode("{id}");
+		SitemapNode orders = newNode("orders");
+		sitemap.addChild(customers, id);
+		sitemap.addChild(id, orders);
+		// when
+		Map<String, String> pathParameters = converter.pathParametersForUri("customers/23/orders/sort=date");
+		// then
+		assertThat(converter.nodeForUri("customers/23/orders", false)).isEqualTo(orders);
+		assertThat(pathParameters.get("id")).isEqualTo("23");
+		assertThat(pathParameters).hasSize(1);
+		assertThat(converter.pathParametersForUri("customers")).isEmpty();
+	}
+
 	@Test
 	public void nodeChainForUri_emptyString() {
 
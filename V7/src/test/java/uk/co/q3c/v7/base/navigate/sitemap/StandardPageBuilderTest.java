@@ -32,6 +32,7 @@ import uk.co.q3c.v7.i18n.I18NTranslator;
 import uk.co.q3c.v7.i18n.TestLabelKey;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.util.Providers;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.mycila.testing.plugin.guice.ModuleProvider;
@@ -54,7 +55,7 @@ public class StandardPageBuilderTest {
 	@Before
 	public void setup() {
 		sitemap = new Sitemap();
-		converter = new SitemapURIConverter(sitemap, uriHandler);
+		converter = new SitemapURIConverter(Providers.of(sitemap), uriHandler);
 		builder.setSitemap(sitemap);
 	}
 
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fest.assertions.Fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import uk.co.q3c.v7.base.navigate.StandardPageKey;
+import uk.co.q3c.v7.base.navigate.StrictURIFragmentHandler;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Provider;
+import com.mycila.testing.junit.MycilaJunitRunner;
+import com.mycila.testing.plugin.guice.GuiceContext;
+
+@RunWith(MycilaJunitRunner.class)
+@GuiceContext({})
+public class TenantSitemapTest {
+
+	Sitemap base;
+	TenantSitemap tenant;
+
+	@Before
+	public void setup() {
+		base = new Sitemap();
+		base.append("public/home");
+		base.append("public/login");
+		base.append("private/accounts/{id}");
+		base.append("private/reports/monthly");
+		base.getStandardPages().put(StandardPageKey.Public_Home, "public/home");
+		base.addRedirect("", "public/home");
+		base.lock();
+		tenant = new TenantSitemap("acme", base);
+	}
+
+	@Test
+	public void sharesBaseNodes() {
+
+		// given
+
+		// when
+		tenant.lock();
+		// then
+		assertThat(tenant.nodeFor("public/home")).isSameAs(base.nodeFor("public/home"));
+		assertThat(tenant.getNodeCount()).isEqualTo(base.getNodeCount());
+		assertThat(tenant.uris()).containsOnly(base.uris().toArray());
+		assertThat(tenant.standardPageURI(StandardPageKey.Public_Home)).isEqualTo("public/home");
+		assertThat(tenant.getRedirectFor("")).isEqualTo("public/home");
+	}
+
+	@Test
+	public void append() {
+
+		// given
+
+		// when
+		SitemapNode invoices = tenant.append("private/invoices");
+		SitemapNode quarterly = tenant.append("private/reports/quarterly");
+		tenant.lock();
+		// then
+		assertThat(tenant.nodeFor("private/invoices")).isEqualTo(invoices);
+		assertThat(tenant.uri(quarterly)).isEqualTo("private/reports/quarterly");
+		assertThat(tenant.getParent(quarterly)).isSameAs(base.nodeFor("private/reports"));
+		assertThat(tenant.getChildren(base.nodeFor("private/reports"))).containsExactly(
+				base.nodeFor("private/reports/monthly"), quarterly);
+		assertThat(tenant.getNodeCount()).isEqualTo(base.getNodeCount() + 2);
+		assertThat(Lists.newArrayList(tenant.preOrder())).hasSize(base.getNodeCount() + 2);
+		// base is unchanged
+		assertThat(base.hasUri("private/invoices")).isFalse();
+		assertThat(base.getChildCount(base.nodeFor("private/reports"))).isEqualTo(1);
+	}
+
+	@Test
+	public void hide() {
+
+		// given
+
+		// when
+		boolean hidden = tenant.hide("private/reports");
+		boolean missing = tenant.hide("private/wiggly");
+		tenant.lock();
+		// then
+		assertThat(hidden).isTrue();
+		assertThat(missing).isFalse();
+		assertThat(tenant.hasUri("private/reports")).isFalse();
+		assertThat(tenant.hasUri("private/reports/monthly")).isFalse();
+		assertThat(tenant.nodeForSegments(new String[] { "private", "reports", "monthly" }, true)).isEqualTo(
+				base.nodeFor("private"));
+		assertThat(tenant.getChildren(base.nodeFor("private"))).containsExactly(base.nodeFor("private/accounts"));
+		assertThat(tenant.getNodeCount()).isEqualTo(base.getNodeCount() - 2);
+		assertThat(base.hasUri("private/reports/monthly")).isTrue();
+	}
+
+	@Test
+	public void version() {
+
+		// given
+		TenantSitemap other = new TenantSitemap("other", base);
+		// when
+		tenant.lock();
+		other.lock();
+		// then each tenant has its own version, and the change log is found through the base version
+		assertThat(tenant.getVersion()).isGreaterThan(base.getVersion());
+		assertThat(other.getVersion()).isGreaterThan(tenant.getVersion());
+		assertThat(tenant.getBaseVersion()).isEqualTo(base.getVersion());
+		assertThat(other.getBaseVersion()).isEqualTo(base.getVersion());
+	}
+
+	@Test
+	public void converter_tenantsOverSameBase() {
+
+		// given
+		tenant.hide("private/reports");
+		tenant.lock();
+		TenantSitemap other = new TenantSitemap("other", base);
+		other.lock();
+		final Sitemap[] current = new Sitemap[1];
+		SitemapURIConverter converter = new SitemapURIConverter(new Provider<Sitemap>() {
+			@Override
+			public Sitemap get() {
+				return current[0];
+			}
+		}, new StrictURIFragmentHandler() {
+		});
+		// when
+		current[0] = other;
+		SitemapNode otherNode = converter.nodeForUri("private/reports/monthly", false);
+		current[0] = tenant;
+		SitemapNode tenantNode = converter.nodeForUri("private/reports/monthly", false);
+		// then
+		assertThat(otherNode).isSameAs(base.nodeFor("private/reports/monthly"));
+		assertThat(tenantNode).isNull();
+	}
+
+	@Test
+	public void converter_alternatingTenants() {
+
+		// given
+		SitemapNode summary = tenant.append("private/accounts/summary");
+		tenant.lock();
+		TenantSitemap other = new TenantSitemap("other", base);
+		other.lock();
+		final Sitemap[] current = new Sitemap[1];
+		SitemapURIConverter converter = new SitemapURIConverter(new Provider<Sitemap>() {
+			@Override
+			public Sitemap get() {
+				return current[0];
+			}
+		}, new StrictURIFragmentHandler() {
+		});
+		// when
+		List<SitemapNode> found = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			current[0] = tenant;
+			found.add(converter.nodeForUri("private/accounts/summary", false));
+			current[0] = other;
+			found.add(converter.nodeForUri("private/accounts/summary", false));
+		}
+		// then
+		for (int i = 0; i < found.size(); i += 2) {
+			assertThat(found.get(i)).isSameAs(summary);
+			// the base has a parameter segment under accounts, which the other tenant falls back to
+			assertThat(found.get(i + 1)).isSameAs(other.nodeForSegments(
+					new String[] { "private", "accounts", "summary" }, false, new HashMap<String, String>()));
+			assertThat(found.get(i + 1)).isNotNull().isNotSameAs(summary);
+		}
+	}
+
+	@Test
+	public void addChild_hiddenParent() {
+
+		// given
+		tenant.hide("private/reports");
+		SitemapNode reports = base.nodeFor("private/reports");
+		SitemapNode quarterly = new SitemapNode();
+		quarterly.setUriSegment("quarterly");
+		// when
+		try {
+			tenant.addChild(reports, quarterly);
+			Fail.fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// then
+		assertThat(quarterly.getId()).isEqualTo(0);
+		assertThat(reports.getId()).isEqualTo(base.nodeFor("private/reports").getId());
+		assertThat(base.nodeFor("private/reports")).isSameAs(reports);
+		assertThat(base.nodeFor("private/reports/monthly")).isNotNull();
+		assertThat(base.nodeFor("public/home")).isNotNull();
+		assertThat(base.uri(reports)).isEqualTo("private/reports");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addChild_parentNotInTenant() {
+
+		// given
+		SitemapNode stranger = new SitemapNode();
+		stranger.setUriSegment("stranger");
+		SitemapNode child = new SitemapNode();
+		child.setUriSegment("child");
+		// when
+		tenant.addChild(stranger, child);
+		// then
+		// exception expected
+	}
+
+	@Test
+	public void addChild_baseNodeAsChild() {
+
+		// given
+		SitemapNode invoices = tenant.append("private/invoices");
+		SitemapNode home = base.nodeFor("public/home");
+		int homeId = home.getId();
+		// when
+		try {
+			tenant.addChild(invoices, home);
+			Fail.fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// then
+		assertThat(home.getId()).isEqualTo(homeId);
+		assertThat(base.nodeFor("public/home")).isSameAs(home);
+		assertThat(base.uri(home)).isEqualTo("public/home");
+	}
+
+	@Test
+	public void nodeIds_uniqueAcrossTenants() {
+
+		// given
+		TenantSitemap other = new TenantSitemap("other", base);
+		// when
+		SitemapNode acmeInvoices = tenant.append("private/invoices");
+		SitemapNode otherInvoices = other.append("private/invoices");
+		// then
+		assertThat(acmeInvoices.getId()).isGreaterThan(base.getLastNodeId());
+		assertThat(otherInvoices.getId()).isGreaterThan(base.getLastNodeId());
+		assertThat(acmeInvoices).isNotEqualTo(otherInvoices);
+		assertThat(other.containsNode(acmeInvoices)).isFalse();
+	}
+
+	@Test
+	public void replaceBasePage() {
+
+		// given
+		tenant.hide("public/login");
+		// when
+		SitemapNode login = tenant.append("public/login");
+		tenant.lock();
+		// then
+		assertThat(tenant.nodeFor("public/login")).isEqualTo(login);
+		assertThat(login).isNotEqualTo(base.nodeFor("public/login"));
+		assertThat(tenant.getNodeCount()).isEqualTo(base.getNodeCount());
+	}
+
+	@Test
+	public void literalBeforeParameter() {
+
+		// given
+		SitemapNode summary = tenant.append("private/accounts/summary");
+		tenant.lock();
+		Map<String, String> parameters = new HashMap<>();
+		// when
+		SitemapNode literal = tenant.nodeForSegments(new String[] { "private", "accounts", "summary" }, false,
+				parameters);
+		SitemapNode parameter = tenant.nodeForSegments(new String[] { "private", "accounts", "23" }, false,
+				parameters);
+		// then
+		assertThat(literal).isEqualTo(summary);
+		assertThat(parameter).isSameAs(base.nodeFor("private/accounts/{id}"));
+		assertThat(parameters.get("id")).isEqualTo("23");
+	}
+
+	@Test
+	public void redirects() {
+
+		// given
+		tenant.append("private/invoices");
+		tenant.addRedirect("private", "private/invoices");
+		// when
+		tenant.lock();
+		// then
+		assertThat(tenant.getRedirectFor("private")).isEqualTo("private/invoices");
+		assertThat(tenant.getRedirectFor("")).isEqualTo("public/home");
+		assertThat(base.getRedirectFor("private")).isEqualTo("private");
+		assertThat(tenant.getRedirects()).hasSize(2);
+	}
+
+	@Test(expected = SitemapLockedException.class)
+	public void locked() {
+
+		// given
+		tenant.lock();
+		// when
+		tenant.append("private/invoices");
+		// then
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void baseNotLocked() {
+
+		// given
+
+		// when
+		new TenantSitemap("acme", new Sitemap());
+		// then
+	}
+
+}
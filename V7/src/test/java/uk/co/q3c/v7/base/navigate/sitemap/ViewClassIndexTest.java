@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2013 David Sowerby
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.co.q3c.v7.base.navigate.sitemap;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.co.q3c.v7.base.view.testviews.subview.TransferView;
+
+public class ViewClassIndexTest {
+
+	ClassLoader classLoader = getClass().getClassLoader();
+
+	@Test
+	public void candidates_subPackage() {
+
+		// given
+		ViewClassIndex index = new ViewClassIndex(Arrays.asList("uk.co.q3c.v7.base.view.testviews"), classLoader);
+		// when
+
+		// then
+		assertThat(index.candidates("subview.TransferView")).containsOnly(TransferView.class.getName());
+		assertThat(index.candidates("TransferView")).isEmpty();
+		assertThat(index.load(TransferView.class.getName())).isEqualTo(TransferView.class);
+		assertThat(index.getUnscannedPackages()).isEmpty();
+	}
+
+	@Test
+	public void candidates_packageOrder() {
+
+		// given
+		ViewClassIndex index = new ViewClassIndex(Arrays.asList("fixture.testviews3", "uk.co.q3c.v7.base.view.testviews"),
+				classLoader);
+		// when
+
+		// then
+		assertThat(index.candidates("subview.TransferView")).containsExactly("fixture.testviews3.subview.TransferView",
+				TransferView.class.getName());
+	}
+
+	@Test
+	public void candidates_jar() {
+
+		// given
+		ViewClassIndex index = new ViewClassIndex(Arrays.asList("org.junit"), classLoader);
+		// when
+
+		// then
+		assertThat(index.candidates("runner.RunWith")).containsOnly("org.junit.runner.RunWith");
+	}
+
+	@Test
+	public void nestedClassesIgnored() {
+
+		// given
+		ViewClassIndex index = new ViewClassIndex(Arrays.asList("uk.co.q3c.v7.base.navigate.sitemap"), classLoader);
+		// when
+
+		// then
+		assertThat(index.candidates("DefaultSitemapFileReader")).isNotEmpty();
+		assertThat(index.candidates("DefaultSitemapFileReader$SectionName")).isEmpty();
+	}
+
+}
@@ -31,6 +31,7 @@ import org.mockito.Mock;
 
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
 
+import com.google.inject.util.Providers;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 
@@ -55,7 +56,7 @@ public class DefaultRealmTest {
 	@Before
 	public void setup() {
 		sitemap = mock(Sitemap.class);
-		realm = new DefaultRealm(attemptLog, matcher, sitemap, permissionFactory);
+		realm = new DefaultRealm(attemptLog, matcher, Providers.of(sitemap), permissionFactory);
 	}
 
 	@Test
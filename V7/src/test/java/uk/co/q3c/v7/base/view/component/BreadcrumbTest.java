@@ -86,7 +86,7 @@ public class BreadcrumbTest extends TestWithSitemap {
 		newNode2.setLabelKey(TestLabelKey.Opt, currentLocale.getLocale(), collator);
 
 		// when
-		breadcrumb = new DefaultBreadcrumb(navigator, converter, currentLocale, translate);
+		breadcrumb = new DefaultBreadcrumb(navigator, converter, currentLocale);
 		breadcrumb.moveToNavigationState();
 		// then
 		assertThat(breadcrumb.getSteps().size()).isEqualTo(3);
@@ -24,6 +24,7 @@ import uk.co.q3c.v7.base.navigate.StandardPageKey;
 import uk.co.q3c.v7.base.navigate.StrictURIFragmentHandler;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
+import uk.co.q3c.v7.base.navigate.sitemap.SitemapLabels;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 import uk.co.q3c.v7.base.view.PublicHomeView;
 import uk.co.q3c.v7.i18n.AnnotationI18NTranslator;
@@ -43,6 +44,9 @@ public abstract class TestWithSitemap {
 	@Inject
 	protected Translate translate;
 
+	@Inject
+	protected SitemapLabels labels;
+
 	protected Sitemap sitemap;
 
 	protected SitemapNode newNode1;
@@ -106,7 +110,7 @@ public abstract class TestWithSitemap {
 
 	protected SitemapNode newNode(String urlSegment) {
 		SitemapNode node0 = new SitemapNode();
-		node0.setTranslate(translate);
+		node0.setLabels(labels);
 		node0.setLabelKey(TestLabelKey.Home, locale, collator);
 		node0.setUriSegment(urlSegment);
 		node0.setViewClass(PublicHomeView.class);
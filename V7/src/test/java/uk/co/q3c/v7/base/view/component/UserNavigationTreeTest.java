@@ -35,6 +35,7 @@ import uk.co.q3c.v7.base.guice.uiscope.UIScopeModule;
 import uk.co.q3c.v7.base.navigate.StrictURIFragmentHandler;
 import uk.co.q3c.v7.base.navigate.URIFragmentHandler;
 import uk.co.q3c.v7.base.navigate.V7Navigator;
+import uk.co.q3c.v7.base.navigate.sitemap.Sitemap;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapNode;
 import uk.co.q3c.v7.base.navigate.sitemap.SitemapURIConverter;
 import uk.co.q3c.v7.base.shiro.DefaultURIPermissionFactory;
@@ -50,6 +51,8 @@ import uk.co.q3c.v7.i18n.Translate;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.util.Providers;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.mycila.testing.plugin.guice.ModuleProvider;
@@ -113,7 +116,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		currentLocale.setLocale(Locale.UK);
 		buildSitemap(0);
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.getItemIds().size()).isEqualTo(0);
@@ -127,7 +130,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		buildSitemap(1);
 
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.getItemIds().size()).isEqualTo(3);
@@ -149,7 +152,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		buildSitemap(2);
 
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.getItemIds().size()).isEqualTo(6);
@@ -173,7 +176,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		currentLocale.setLocale(Locale.UK);
 		buildSitemap(2);
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.getMaxLevel()).isEqualTo(-1);
@@ -201,7 +204,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		buildSitemap(1);
 
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 
 		// then
@@ -215,7 +218,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		// given
 		buildSitemap(1);
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.isImmediate()).isTrue();
@@ -227,7 +230,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 
 		// given
 		buildSitemap(2);
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// when
 		unt.setValue(newNode2);
@@ -243,7 +246,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		buildSitemap(1);
 
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 
 		// then
@@ -267,7 +270,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		// represents the case where user not authenticated
 		when(subject.isPermitted(publicPage)).thenReturn(false);
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.containsId(newNode1)).isTrue();
@@ -286,7 +289,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 		// given
 		buildSitemap(3);
 		// when
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// then
 		assertThat(unt.getItemIds().size()).isEqualTo(1);
@@ -302,7 +305,7 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 
 		// given
 		buildSitemap(4);
-		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemap, navigator, subjectPro,
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
 				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
 		// when
 
@@ -324,6 +327,54 @@ public class UserNavigationTreeTest extends TestWithSitemap {
 
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	public void presentationOrder_lockedSitemap() {
+
+		// given
+		buildSitemap(4);
+		sitemap.lock();
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(Providers.of(sitemap), navigator, subjectPro,
+				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
+		// when
+		unt.setSorted(true);
+		// then
+		List<SitemapNode> roots = new ArrayList<SitemapNode>((Collection<? extends SitemapNode>) unt.rootItemIds());
+		assertThat(roots).containsExactly(newNode3, newNode1);
+
+		// when
+		unt.setSorted(false);
+		// then
+		roots = new ArrayList<SitemapNode>((Collection<? extends SitemapNode>) unt.rootItemIds());
+		assertThat(roots).containsExactly(newNode1, newNode3);
+	}
+
+	@Test
+	public void reloadUsesPublishedSitemap() {
+
+		// given
+		buildSitemap(0);
+		final Sitemap[] published = { sitemap };
+		Provider<Sitemap> sitemapProvider = new Provider<Sitemap>() {
+
+			@Override
+			public Sitemap get() {
+				return published[0];
+			}
+		};
+		DefaultUserNavigationTree unt = new DefaultUserNavigationTree(sitemapProvider, navigator, subjectPro,
+				uriPermissionFactory, userOption, sitemapUriConverter, loginStatusHandler, translate);
+		assertThat(unt.getItemIds().size()).isEqualTo(0);
+		sitemap = new Sitemap();
+		buildSitemap(1);
+		published[0] = sitemap;
+		// when
+		unt.setSorted(true);
+		// then
+		assertThat(unt.getItemIds().size()).isEqualTo(3);
+		assertThat(unt.containsId(newNode3)).isTrue();
+	}
+
 	// @SuppressWarnings("deprecation")
 	protected ScopedUI createUI() {
 		UIKey uiKey = new UIKey(3);